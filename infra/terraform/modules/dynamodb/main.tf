@@ -14,6 +14,8 @@ resource "aws_dynamodb_table" "event_schema" {
   attribute { name = "PK"; type = "S" }
   attribute { name = "status"; type = "S" }
   attribute { name = "contains_sensitive"; type = "S" }
+  attribute { name = "EVENT_SCHEMA_ID"; type = "S" }
+  attribute { name = "SCHEMA_REF"; type = "S" }
 
   global_secondary_index {
     name            = "status-index"
@@ -27,6 +29,18 @@ resource "aws_dynamodb_table" "event_schema" {
     projection_type = "ALL"
   }
 
+  global_secondary_index {
+    name            = "EVENT_SCHEMA_ID-index"
+    hash_key        = "EVENT_SCHEMA_ID"
+    projection_type = "ALL"
+  }
+
+  global_secondary_index {
+    name            = "SCHEMA_REF-index"
+    hash_key        = "SCHEMA_REF"
+    projection_type = "ALL"
+  }
+
   point_in_time_recovery { enabled = true }
 
   server_side_encryption {
@@ -0,0 +1,184 @@
+package com.beewaxus.webhooksvcs.pubsrc.admission;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects publish requests over their producer's quota with 429 and a {@code Retry-After}, before the body is read,
+ * so one flooding domain cannot use up the parsing, schema lookup and validation capacity everyone shares.
+ * <p>
+ * Each request is charged to a key: the {@code key-header} value (the producer domain) when
+ * {@code trust-key-header} says a gateway has authenticated the producer and set it, otherwise the schemaId of
+ * {@code /webhook/schema/schema_id/{schemaId}}, otherwise the untrusted header value. Keys listed under
+ * {@code webhooks.admission.limits} get their own rate and burst, but an untrusted header never claims one. Any
+ * other key gets its own bucket with the default limit, so one flooding producer does not get the others rejected.
+ * At most {@code max-tracked-keys} of those are kept, until idle for {@code idle-expiry}; beyond that, and for
+ * requests without any key, requests share a single {@value #OTHER_KEYS} bucket, so sending a new key value each
+ * time cannot earn fresh buckets without bound. Only active when {@code webhooks.admission.enabled} is true.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class AdmissionControlFilter implements WebFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionControlFilter.class);
+
+    // The shared bucket for requests without a key and keys beyond max-tracked-keys; also the metrics tag of every
+    // key without a configured limit, which would otherwise be unbounded in number
+    static final String OTHER_KEYS = "other";
+
+    private final WebhooksProperties.AdmissionProperties config;
+    private final ObjectMapper objectMapper;
+    private final Ticker ticker;
+    private final Map<String, TokenBucket> configuredBuckets = new HashMap<>();
+    private final Cache<String, TokenBucket> trackedBuckets;
+    private final Map<String, Counter> admitted = new HashMap<>();
+    private final Map<String, Counter> rejected = new HashMap<>();
+
+    @Autowired
+    public AdmissionControlFilter(WebhooksProperties properties, MeterRegistry meterRegistry, ObjectMapper objectMapper) {
+        this(properties, meterRegistry, objectMapper, Ticker.systemTicker());
+    }
+
+    AdmissionControlFilter(WebhooksProperties properties, MeterRegistry meterRegistry, ObjectMapper objectMapper, Ticker ticker) {
+        this.config = properties.admission();
+        this.objectMapper = objectMapper;
+        this.ticker = ticker;
+        this.trackedBuckets = Caffeine.newBuilder()
+                .maximumSize(config.getMaxTrackedKeys())
+                .expireAfterAccess(config.getIdleExpiry())
+                .ticker(ticker)
+                .build();
+
+        long now = ticker.read();
+        config.getLimits().forEach((key, limit) -> {
+            double rate = limit.getRate(config.getDefaultRate());
+            TokenBucket bucket = new TokenBucket(rate, limit.getBurst(config.getDefaultRate()), now);
+            register(key, bucket, meterRegistry);
+            log.info("Admission limit for {}: {} requests/s, burst {}", key, rate, limit.getBurst(config.getDefaultRate()));
+        });
+        register(OTHER_KEYS, new TokenBucket(config.getDefaultRate(), config.getDefaultBurst(), now), meterRegistry);
+        Gauge.builder("webhooks.admission.tracked.keys", trackedBuckets, Cache::estimatedSize)
+                .description("Admission keys without a configured limit that currently hold a bucket")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!config.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        AdmissionKey key = admissionKey(exchange.getRequest());
+        if (key == null) {
+            return chain.filter(exchange);
+        }
+
+        String charged = key.name();
+        String tag = OTHER_KEYS;
+        TokenBucket bucket = key.mayUseLimit() ? configuredBuckets.get(charged) : null;
+        if (bucket != null) {
+            tag = charged;
+        } else {
+            bucket = trackedBucket(charged);
+            if (bucket == null) {
+                charged = OTHER_KEYS;
+                bucket = configuredBuckets.get(OTHER_KEYS);
+            }
+        }
+
+        long waitNanos = bucket.tryAcquire(ticker.read());
+        if (waitNanos == 0) {
+            admitted.get(tag).increment();
+            return chain.filter(exchange);
+        }
+        rejected.get(tag).increment();
+        return reject(exchange, charged, waitNanos);
+    }
+
+    /**
+     * The key a publish request is charged to, or null for requests that are not rate limited.
+     */
+    AdmissionKey admissionKey(ServerHttpRequest request) {
+        if (!PublishRequests.isPublish(request)) {
+            return null;
+        }
+        String header = request.getHeaders().getFirst(config.getKeyHeader());
+        header = header != null && !header.isBlank() ? header.trim() : null;
+        if (header != null && config.isTrustKeyHeader()) {
+            return new AdmissionKey(header, true);
+        }
+        String schemaId = PublishRequests.schemaId(request);
+        if (schemaId != null) {
+            return new AdmissionKey(schemaId, true);
+        }
+        return header != null ? new AdmissionKey(header, false) : new AdmissionKey(OTHER_KEYS, true);
+    }
+
+    // The key's own bucket with the default limit, or null once max-tracked-keys are in use
+    private TokenBucket trackedBucket(String key) {
+        TokenBucket bucket = trackedBuckets.getIfPresent(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (trackedBuckets.estimatedSize() >= config.getMaxTrackedKeys()) {
+            // The size still counts idle keys until the cache drops them
+            trackedBuckets.cleanUp();
+            if (trackedBuckets.estimatedSize() >= config.getMaxTrackedKeys()) {
+                return null;
+            }
+        }
+        return trackedBuckets.get(key, k -> new TokenBucket(config.getDefaultRate(), config.getDefaultBurst(), ticker.read()));
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, String key, long waitNanos) {
+        long retryAfterSeconds = Math.max(1, Math.ceilDiv(waitNanos, TimeUnit.SECONDS.toNanos(1)));
+        return AdmissionResponses.reject(exchange, objectMapper, HttpStatus.TOO_MANY_REQUESTS, retryAfterSeconds,
+                "Request rate for '" + key + "' is over its limit, retry after " + retryAfterSeconds + "s");
+    }
+
+    private void register(String key, TokenBucket bucket, MeterRegistry meterRegistry) {
+        configuredBuckets.put(key, bucket);
+        admitted.put(key, counter(key, "admitted", meterRegistry));
+        rejected.put(key, counter(key, "rejected", meterRegistry));
+        Gauge.builder("webhooks.admission.tokens", bucket, b -> b.available(this.ticker.read()))
+                .description("Tokens currently available to a configured admission key")
+                .tag("key", key)
+                .register(meterRegistry);
+    }
+
+    /**
+     * A request's admission key; {@code mayUseLimit} is false for an untrusted header, which must not claim a
+     * configured limit.
+     */
+    record AdmissionKey(String name, boolean mayUseLimit) {
+    }
+
+    private static Counter counter(String key, String outcome, MeterRegistry meterRegistry) {
+        return Counter.builder("webhooks.admission.requests")
+                .description("Publish requests checked against their admission limit")
+                .tag("key", key)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,52 @@
+package com.beewaxus.webhooksvcs.pubsrc.admission;
+
+import com.beewaxus.webhooksvcs.pubsrc.controller.ApiExceptionHandler.ErrorResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+/**
+ * Writes the response for a request turned away before it reached a controller, in the same shape
+ * {@code ApiExceptionHandler} uses.
+ */
+final class AdmissionResponses {
+
+    private AdmissionResponses() {
+    }
+
+    /**
+     * @param retryAfterSeconds sent as {@code Retry-After} when positive
+     */
+    static Mono<Void> reject(ServerWebExchange exchange, ObjectMapper objectMapper, HttpStatus status,
+                             long retryAfterSeconds, String message) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(status);
+        if (retryAfterSeconds > 0) {
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        }
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+
+        ErrorResponse error = new ErrorResponse(
+                Instant.now(),
+                status.value(),
+                status.getReasonPhrase(),
+                message,
+                exchange.getRequest().getPath().value());
+        // The body is discarded unread rather than left on the connection, which would make the server close it
+        Mono<Void> discardBody = exchange.getRequest().getBody().doOnNext(DataBufferUtils::release).then();
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(error);
+            return discardBody.then(response.writeWith(Mono.just(response.bufferFactory().wrap(body))));
+        } catch (JsonProcessingException e) {
+            return discardBody.then(response.setComplete());
+        }
+    }
+}
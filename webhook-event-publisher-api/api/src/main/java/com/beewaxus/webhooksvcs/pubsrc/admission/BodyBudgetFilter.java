@@ -0,0 +1,119 @@
+package com.beewaxus.webhooksvcs.pubsrc.admission;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bounds the heap held by in-flight publish requests. Each request reserves its body size against one global
+ * {@code webhooks.admission.body-budget.max-bytes} before the controller sees it and gives it back when the response
+ * completes. Bodies with a {@code Content-Length} reserve it up front; chunked bodies reserve each chunk as it is
+ * read. A request that does not fit waits up to {@code queue-timeout} for room (at most {@code max-queued} of them
+ * wait), then gets 503 with {@code Retry-After}; a body larger than the whole budget gets 413. A chunked body that
+ * runs out of room while it is read fails with 503.
+ * <p>
+ * {@code /webhook/event/publisher/stream} is left out: it reads and publishes its body a line at a time and is
+ * bounded by {@code webhooks.kafka.stream-concurrency} instead.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class BodyBudgetFilter implements WebFilter {
+
+    private final WebhooksProperties.BodyBudgetProperties config;
+    private final ObjectMapper objectMapper;
+    private final ByteBudget budget;
+    private final Map<ByteBudget.Shortage, Counter> rejected = new EnumMap<>(ByteBudget.Shortage.class);
+    private final Counter exhaustedWhileReading;
+
+    public BodyBudgetFilter(WebhooksProperties properties, MeterRegistry meterRegistry, ObjectMapper objectMapper) {
+        this.config = properties.admission().getBodyBudget();
+        this.objectMapper = objectMapper;
+        this.budget = new ByteBudget(config.getMaxBytes(), config.getMaxQueued());
+
+        Gauge.builder("webhooks.admission.body.reserved", budget, ByteBudget::reserved)
+                .description("Request body bytes reserved by in-flight publish requests")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("webhooks.admission.body.utilization", budget, b -> (double) b.reserved() / b.capacity())
+                .description("Share of the in-flight body budget in use")
+                .register(meterRegistry);
+        Gauge.builder("webhooks.admission.body.queued", budget, ByteBudget::queued)
+                .description("Publish requests waiting for room in the body budget")
+                .register(meterRegistry);
+        for (ByteBudget.Shortage shortage : ByteBudget.Shortage.values()) {
+            rejected.put(shortage, rejectedCounter(shortage.name().toLowerCase(Locale.ROOT), meterRegistry));
+        }
+        this.exhaustedWhileReading = rejectedCounter("exhausted_while_reading", meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!config.isEnabled() || !PublishRequests.isPublish(request) || PublishRequests.isStream(request)) {
+            return chain.filter(exchange);
+        }
+        long declared = request.getHeaders().getContentLength();
+        return budget.reserve(Math.max(declared, 0), config.getQueueTimeout())
+                .onErrorResume(ByteBudget.ExhaustedException.class,
+                        e -> reject(exchange, e).then(Mono.<ByteBudget.Reservation>empty()))
+                .flatMap(reservation -> {
+                    ServerWebExchange admitted = declared >= 0
+                            ? exchange
+                            : exchange.mutate().request(observing(request, reservation)).build();
+                    return chain.filter(admitted).doFinally(signal -> reservation.release());
+                });
+    }
+
+    private ServerHttpRequest observing(ServerHttpRequest request, ByteBudget.Reservation reservation) {
+        return new ServerHttpRequestDecorator(request) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return super.getBody().map(buffer -> {
+                    if (!budget.tryExtend(reservation, buffer.readableByteCount())) {
+                        DataBufferUtils.release(buffer);
+                        exhaustedWhileReading.increment();
+                        throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                                "In-flight request bodies reached their budget while this body was read");
+                    }
+                    return buffer;
+                });
+            }
+        };
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, ByteBudget.ExhaustedException e) {
+        rejected.get(e.shortage()).increment();
+        if (e.shortage() == ByteBudget.Shortage.TOO_LARGE) {
+            return AdmissionResponses.reject(exchange, objectMapper, HttpStatus.PAYLOAD_TOO_LARGE, 0, e.getMessage());
+        }
+        long retryAfterSeconds = Math.max(1, (long) Math.ceil(config.getQueueTimeout().toMillis() / 1000.0));
+        return AdmissionResponses.reject(exchange, objectMapper, HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds, e.getMessage());
+    }
+
+    private static Counter rejectedCounter(String reason, MeterRegistry meterRegistry) {
+        return Counter.builder("webhooks.admission.body.rejected")
+                .description("Publish requests turned away for lack of room in the body budget")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
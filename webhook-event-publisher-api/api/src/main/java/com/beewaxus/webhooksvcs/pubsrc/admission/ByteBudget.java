@@ -0,0 +1,201 @@
+package com.beewaxus.webhooksvcs.pubsrc.admission;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed number of bytes shared by all in-flight requests. A request reserves its size up front and gives it back
+ * when it completes. When the budget is used up, requests queue in arrival order for up to a deadline; a later,
+ * smaller request never overtakes a queued one, so large bodies are not starved.
+ */
+final class ByteBudget {
+
+    enum Shortage { TOO_LARGE, QUEUE_FULL, TIMEOUT }
+
+    static final class ExhaustedException extends RuntimeException {
+
+        private final Shortage shortage;
+
+        ExhaustedException(Shortage shortage, String message) {
+            super(message);
+            this.shortage = shortage;
+        }
+
+        Shortage shortage() {
+            return shortage;
+        }
+    }
+
+    private final long capacity;
+    private final int maxQueued;
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private long reserved;
+
+    ByteBudget(long capacity, int maxQueued) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Byte budget must be positive, got " + capacity);
+        }
+        this.capacity = capacity;
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * Reserves {@code bytes}, waiting up to {@code timeout} for earlier reservations to be released.
+     * Fails with {@link ExhaustedException} when the bytes could never fit, too many requests already wait,
+     * or the timeout passes.
+     */
+    Mono<Reservation> reserve(long bytes, Duration timeout) {
+        return Mono.defer(() -> {
+            Waiter waiter;
+            synchronized (this) {
+                if (bytes > capacity) {
+                    return Mono.error(new ExhaustedException(Shortage.TOO_LARGE,
+                            "Request body of " + bytes + " bytes exceeds the in-flight budget of " + capacity + " bytes"));
+                }
+                if (waiters.isEmpty() && reserved + bytes <= capacity) {
+                    reserved += bytes;
+                    return Mono.just(new Reservation(bytes));
+                }
+                if (timeout.isZero() || waiters.size() >= maxQueued) {
+                    return Mono.error(new ExhaustedException(Shortage.QUEUE_FULL,
+                            "In-flight request bodies are at their budget of " + capacity + " bytes"));
+                }
+                waiter = new Waiter(bytes);
+                waiters.addLast(waiter);
+            }
+            return waiter.granted.asMono()
+                    .timeout(timeout)
+                    .onErrorResume(TimeoutException.class, e -> abandon(waiter)
+                            ? Mono.error(new ExhaustedException(Shortage.TIMEOUT,
+                                    "No room in the in-flight budget within " + timeout.toMillis() + "ms"))
+                            // Granted just as the deadline passed
+                            : waiter.granted.asMono())
+                    .doOnCancel(() -> {
+                        if (!abandon(waiter) && waiter.isGranted()) {
+                            waiter.reservation.release();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Grows {@code reservation} by {@code bytes} if they fit right now, without queueing.
+     */
+    boolean tryExtend(Reservation reservation, long bytes) {
+        synchronized (this) {
+            if (reserved + bytes > capacity) {
+                return false;
+            }
+            reserved += bytes;
+        }
+        reservation.bytes.addAndGet(bytes);
+        return true;
+    }
+
+    synchronized long reserved() {
+        return reserved;
+    }
+
+    long capacity() {
+        return capacity;
+    }
+
+    synchronized int queued() {
+        return waiters.size();
+    }
+
+    private void release(long bytes) {
+        synchronized (this) {
+            reserved -= bytes;
+        }
+        grantWaiters();
+    }
+
+    // True if the waiter gave up before being granted, false if it already holds its bytes
+    private boolean abandon(Waiter waiter) {
+        if (!waiter.abandon()) {
+            return false;
+        }
+        synchronized (this) {
+            waiters.remove(waiter);
+        }
+        // Waiters queued behind it may fit now
+        grantWaiters();
+        return true;
+    }
+
+    private void grantWaiters() {
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (this) {
+            while (!waiters.isEmpty() && reserved + waiters.peekFirst().reservation.bytes() <= capacity) {
+                Waiter next = waiters.pollFirst();
+                if (next.grant()) {
+                    reserved += next.reservation.bytes();
+                    granted.add(next);
+                }
+            }
+        }
+        // Outside the lock: the granted requests continue on this thread
+        granted.forEach(waiter -> waiter.granted.tryEmitValue(waiter.reservation));
+    }
+
+    /**
+     * Bytes held by one request; {@link #release()} gives them back and may be called more than once.
+     */
+    final class Reservation {
+
+        private final AtomicLong bytes;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Reservation(long bytes) {
+            this.bytes = new AtomicLong(bytes);
+        }
+
+        long bytes() {
+            return bytes.get();
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                ByteBudget.this.release(bytes.get());
+            }
+        }
+    }
+
+    private final class Waiter {
+
+        private static final int WAITING = 0;
+        private static final int GRANTED = 1;
+        private static final int ABANDONED = 2;
+
+        private final Reservation reservation;
+        private final Sinks.One<Reservation> granted = Sinks.one();
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        private Waiter(long bytes) {
+            this.reservation = new Reservation(bytes);
+        }
+
+        private boolean grant() {
+            return state.compareAndSet(WAITING, GRANTED);
+        }
+
+        private boolean abandon() {
+            return state.compareAndSet(WAITING, ABANDONED);
+        }
+
+        private boolean isGranted() {
+            return state.get() == GRANTED;
+        }
+    }
+}
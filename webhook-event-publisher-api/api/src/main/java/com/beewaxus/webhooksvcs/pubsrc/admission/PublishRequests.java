@@ -0,0 +1,46 @@
+package com.beewaxus.webhooksvcs.pubsrc.admission;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+/**
+ * Recognizes the publish requests admission control applies to: {@code POST /webhook/event/**} and
+ * {@code POST /webhook/schema/schema_id/{schemaId}}.
+ */
+final class PublishRequests {
+
+    private static final PathPatternParser PARSER = new PathPatternParser();
+    private static final PathPattern EVENT_PATHS = PARSER.parse("/webhook/event/**");
+    private static final PathPattern STREAM_PATH = PARSER.parse("/webhook/event/publisher/stream");
+    private static final PathPattern SCHEMA_ID_PATH = PARSER.parse("/webhook/schema/schema_id/{schemaId}");
+
+    private PublishRequests() {
+    }
+
+    static boolean isPublish(ServerHttpRequest request) {
+        if (request.getMethod() != HttpMethod.POST) {
+            return false;
+        }
+        PathContainer path = request.getPath().pathWithinApplication();
+        return EVENT_PATHS.matches(path) || SCHEMA_ID_PATH.matches(path);
+    }
+
+    /**
+     * Whether the request is read and published incrementally ({@code /webhook/event/publisher/stream}) rather than
+     * held in memory whole.
+     */
+    static boolean isStream(ServerHttpRequest request) {
+        return STREAM_PATH.matches(request.getPath().pathWithinApplication());
+    }
+
+    /**
+     * The schemaId of a {@code /webhook/schema/schema_id/{schemaId}} request, otherwise null.
+     */
+    static String schemaId(ServerHttpRequest request) {
+        PathPattern.PathMatchInfo match = SCHEMA_ID_PATH.matchAndExtract(request.getPath().pathWithinApplication());
+        return match != null ? match.getUriVariables().get("schemaId") : null;
+    }
+}
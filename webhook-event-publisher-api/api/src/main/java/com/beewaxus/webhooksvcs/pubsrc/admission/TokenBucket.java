@@ -0,0 +1,55 @@
+package com.beewaxus.webhooksvcs.pubsrc.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket holding {@code burst} tokens and refilling at {@code rate} per second.
+ * <p>
+ * Kept in its GCRA form: instead of a token count and a refill timestamp, the bucket only stores the theoretical
+ * arrival time of the next request, so taking a token is a single compare-and-set on one {@code long}. A request
+ * at {@code now} fits while that time is at most {@code (burst - 1)} intervals ahead of {@code now}.
+ */
+final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final int burst;
+    private final AtomicLong theoreticalArrival;
+
+    TokenBucket(double rate, int burst, long nowNanos) {
+        if (rate <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Token bucket needs a positive rate and burst, got " + rate + "/" + burst);
+        }
+        this.intervalNanos = Math.max(1, Math.round(1_000_000_000d / rate));
+        this.toleranceNanos = (burst - 1) * intervalNanos;
+        this.burst = burst;
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @return 0 when the request was admitted, otherwise the nanoseconds until a token frees up
+     */
+    long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long arrival = Math.max(current, nowNanos);
+            long waitNanos = arrival - toleranceNanos - nowNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (theoreticalArrival.compareAndSet(current, arrival + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Tokens that could be taken right now.
+     */
+    int available(long nowNanos) {
+        long backlog = Math.max(0, theoreticalArrival.get() - nowNanos);
+        return (int) Math.max(0, burst - Math.ceilDiv(backlog, intervalNanos));
+    }
+}
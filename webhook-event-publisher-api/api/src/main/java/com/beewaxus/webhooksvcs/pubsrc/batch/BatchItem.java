@@ -0,0 +1,48 @@
+package com.beewaxus.webhooksvcs.pubsrc.batch;
+
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaReference;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.UUID;
+
+/**
+ * One event of a batch publish request. {@code eventId} and {@code idempotencyKey} are optional,
+ * as with the X-Event-Id and Idempotency-Key headers of the single-event endpoint. {@code data} is kept as the
+ * tree it was read into, so it is validated and encoded without another copy.
+ */
+public record BatchItem(
+        String eventId,
+        String idempotencyKey,
+        SchemaReference reference,
+        JsonNode data
+) {
+
+    /**
+     * Reads an event with the fields of the batch request's BatchEvent. Missing required fields are left null
+     * and rejected later like any other invalid event; a non-object or a malformed eventId is rejected here.
+     */
+    public static BatchItem fromJson(JsonNode node) {
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("Event must be a JSON object");
+        }
+        String eventId = text(node, "eventId");
+        if (eventId != null) {
+            try {
+                eventId = UUID.fromString(eventId).toString();
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("eventId must be a UUID");
+            }
+        }
+        JsonNode data = node.get("data");
+        return new BatchItem(
+                eventId,
+                text(node, "idempotencyKey"),
+                new SchemaReference(text(node, "domain"), text(node, "eventName"), text(node, "version")),
+                data != null && data.isObject() ? data : null);
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value != null && value.isTextual() ? value.asText() : null;
+    }
+}
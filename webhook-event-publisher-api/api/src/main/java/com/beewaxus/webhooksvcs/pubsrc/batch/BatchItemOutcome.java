@@ -0,0 +1,34 @@
+package com.beewaxus.webhooksvcs.pubsrc.batch;
+
+/**
+ * Result for the event at {@code index} of a batch.
+ */
+public record BatchItemOutcome(int index, String eventId, Status status, String message) {
+
+    public enum Status {
+        /** Published to Kafka. */
+        ACCEPTED,
+        /** Idempotency key seen before; {@code eventId} is the one it was first published under. */
+        DUPLICATE,
+        /** Failed validation or has no schema; retrying as-is will fail again. */
+        REJECTED,
+        /** Kafka or DynamoDB unavailable, or the idempotency key is still being processed; safe to retry. */
+        FAILED
+    }
+
+    static BatchItemOutcome accepted(int index, String eventId) {
+        return new BatchItemOutcome(index, eventId, Status.ACCEPTED, null);
+    }
+
+    static BatchItemOutcome duplicate(int index, String originalEventId) {
+        return new BatchItemOutcome(index, originalEventId, Status.DUPLICATE, null);
+    }
+
+    static BatchItemOutcome rejected(int index, String eventId, String message) {
+        return new BatchItemOutcome(index, eventId, Status.REJECTED, message);
+    }
+
+    static BatchItemOutcome failed(int index, String eventId, String message) {
+        return new BatchItemOutcome(index, eventId, Status.FAILED, message);
+    }
+}
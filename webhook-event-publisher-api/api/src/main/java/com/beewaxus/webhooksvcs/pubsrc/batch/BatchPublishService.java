@@ -0,0 +1,414 @@
+package com.beewaxus.webhooksvcs.pubsrc.batch;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.converter.AvroBinaryEncoder;
+import com.beewaxus.webhooksvcs.pubsrc.ledger.IdempotencyKeyInProgressException;
+import com.beewaxus.webhooksvcs.pubsrc.ledger.IdempotencyKeyService;
+import com.beewaxus.webhooksvcs.pubsrc.ledger.IdempotencyLedgerService;
+import com.beewaxus.webhooksvcs.pubsrc.model.EventEnvelope;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.EventPublisher;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.OutboundEvent;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.PublishResult;
+import com.beewaxus.webhooksvcs.pubsrc.scheduling.CpuStageScheduler;
+import com.beewaxus.webhooksvcs.pubsrc.schema.CompiledSchemaCache;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaDefinition;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaFormat;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaFormatType;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaReference;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaService;
+import com.beewaxus.webhooksvcs.pubsrc.validation.JsonSchemaValidator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+/**
+ * Publishes many events per request with validation spread over the {@link CpuStageScheduler} workers.
+ * <ul>
+ *     <li>{@link #publish(List)}: one schema lookup per distinct domain/event/version and a single
+ *     {@link EventPublisher#publishBatch} call for every event that passed.</li>
+ *     <li>{@link #publishStream(Flux)}: each event goes through the chain on its own, at most
+ *     {@code webhooks.kafka.stream-concurrency} at a time, so a slow broker slows down reading the stream.</li>
+ * </ul>
+ * Each event gets its own {@link BatchItemOutcome}; one bad event never fails the others.
+ */
+@Service
+public class BatchPublishService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchPublishService.class);
+
+    // Idempotency claims in flight at once per batch
+    private static final int CLAIM_CONCURRENCY = 32;
+
+    private final SchemaService schemaService;
+    private final CompiledSchemaCache compiledSchemaCache;
+    private final JsonSchemaValidator jsonSchemaValidator;
+    private final AvroBinaryEncoder avroBinaryEncoder;
+    private final EventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final WebhooksProperties properties;
+    private final IdempotencyLedgerService idempotencyLedgerService;
+    private final IdempotencyKeyService idempotencyKeyService;
+    private final CpuStageScheduler cpuStageScheduler;
+
+    public BatchPublishService(SchemaService schemaService,
+                               CompiledSchemaCache compiledSchemaCache,
+                               JsonSchemaValidator jsonSchemaValidator,
+                               AvroBinaryEncoder avroBinaryEncoder,
+                               EventPublisher eventPublisher,
+                               ObjectMapper objectMapper,
+                               WebhooksProperties properties,
+                               IdempotencyLedgerService idempotencyLedgerService,
+                               IdempotencyKeyService idempotencyKeyService,
+                               CpuStageScheduler cpuStageScheduler) {
+        this.schemaService = schemaService;
+        this.compiledSchemaCache = compiledSchemaCache;
+        this.jsonSchemaValidator = jsonSchemaValidator;
+        this.avroBinaryEncoder = avroBinaryEncoder;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.idempotencyLedgerService = idempotencyLedgerService;
+        this.idempotencyKeyService = idempotencyKeyService;
+        this.cpuStageScheduler = cpuStageScheduler;
+    }
+
+    /**
+     * Emits one outcome per item, in item order.
+     */
+    public Mono<List<BatchItemOutcome>> publish(List<BatchItem> items) {
+        List<Pending> pending = IntStream.range(0, items.size())
+                .mapToObj(index -> Pending.of(index, items.get(index)))
+                .toList();
+
+        return Mono.defer(() -> {
+            // Keys this request holds, released if it is cancelled; completed ones are left alone by release
+            Queue<Pending> claimed = new ConcurrentLinkedQueue<>();
+            return fetchSchemas(pending)
+                    .flatMap(schemas -> Flux.fromIterable(pending)
+                            .flatMap(this::claim, CLAIM_CONCURRENCY)
+                            .collectList()
+                            .flatMap(claims -> {
+                                List<BatchItemOutcome> outcomes = new ArrayList<>(pending.size());
+                                List<Pending> owned = new ArrayList<>(claims.size());
+                                for (Claim claim : claims) {
+                                    Pending item = claim.pending();
+                                    if (claim.originalEventId() != null) {
+                                        outcomes.add(BatchItemOutcome.duplicate(item.index(), claim.originalEventId()));
+                                    } else if (claim.inProgress() != null) {
+                                        outcomes.add(BatchItemOutcome.failed(item.index(), item.eventId(), claim.inProgress()));
+                                    } else {
+                                        owned.add(item);
+                                        if (item.keyed()) {
+                                            claimed.add(item);
+                                        }
+                                    }
+                                }
+                                return prepareAll(owned, schemas)
+                                        .flatMap(prepared -> send(prepared, outcomes))
+                                        .thenReturn(outcomes);
+                            }))
+                    .map(outcomes -> {
+                        outcomes.sort(Comparator.comparingInt(BatchItemOutcome::index));
+                        return outcomes;
+                    })
+                    .doOnCancel(() -> claimed.forEach(this::release));
+        });
+    }
+
+    /**
+     * Emits one outcome per event, in event order. At most {@code webhooks.kafka.stream-concurrency} events are
+     * in flight and only that many are requested from {@code events}, which is what pushes back on the reader.
+     * An error from {@code events} is passed on after every event read before it has its outcome.
+     */
+    public Flux<BatchItemOutcome> publishStream(Flux<JsonNode> events) {
+        int concurrency = properties.kafka().getStreamConcurrency();
+        return events
+                .index()
+                .flatMapSequentialDelayError(indexed -> publishOne(Math.toIntExact(indexed.getT1()), indexed.getT2()), concurrency, 1);
+    }
+
+    private Mono<BatchItemOutcome> publishOne(int index, JsonNode event) {
+        Pending item;
+        try {
+            item = Pending.of(index, BatchItem.fromJson(event));
+        } catch (IllegalArgumentException e) {
+            return Mono.just(BatchItemOutcome.rejected(index, null, e.getMessage()));
+        }
+        return claim(item).flatMap(claim -> {
+            if (claim.originalEventId() != null) {
+                return Mono.just(BatchItemOutcome.duplicate(index, claim.originalEventId()));
+            }
+            if (claim.inProgress() != null) {
+                return Mono.just(BatchItemOutcome.failed(index, item.eventId(), claim.inProgress()));
+            }
+            return lookup(item.reference())
+                    .flatMap(lookup -> cpuStageScheduler.run("stream-prepare", () -> prepare(item, lookup)))
+                    .flatMap(prepared -> {
+                        if (prepared.event() == null) {
+                            onNotPublished(item, IdempotencyLedgerService.EventStatus.EVENT_PROCESSING_FAILED);
+                            return Mono.just(prepared.outcome());
+                        }
+                        OutboundEvent outbound = prepared.event();
+                        Mono<String> send = outbound.isAvro()
+                                ? eventPublisher.publishAvro(outbound.envelope(), outbound.topicName(), outbound.avroBytes())
+                                : eventPublisher.publishJson(outbound.envelope(), outbound.topicName(), outbound.jsonPayload());
+                        return send
+                                .flatMap(publishedEventId -> {
+                                    recordStatus(publishedEventId, IdempotencyLedgerService.EventStatus.EVENT_READY_FOR_DELIVERY,
+                                            schemaId(item.reference()));
+                                    return complete(item).thenReturn(BatchItemOutcome.accepted(index, publishedEventId));
+                                })
+                                .onErrorResume(error -> {
+                                    onNotPublished(item, IdempotencyLedgerService.EventStatus.EVENT_DELIVERY_FAILED);
+                                    return Mono.just(BatchItemOutcome.failed(index, item.eventId(),
+                                            "Kafka is unavailable: " + error.getMessage()));
+                                });
+                    })
+                    .doOnCancel(() -> {
+                        if (item.keyed()) {
+                            release(item);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * One lookup per distinct reference; the cache in front of {@link SchemaService} makes repeats cheap,
+     * but a batch of 500 events for one schema should not even ask it 500 times.
+     */
+    private Mono<Map<SchemaReference, SchemaLookup>> fetchSchemas(List<Pending> pending) {
+        Set<SchemaReference> references = new LinkedHashSet<>();
+        pending.forEach(item -> {
+            if (item.reference() != null) {
+                references.add(item.reference());
+            }
+        });
+        return Flux.fromIterable(references)
+                .flatMap(reference -> lookup(reference).map(lookup -> Map.entry(reference, lookup)))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    private Mono<SchemaLookup> lookup(SchemaReference reference) {
+        if (reference == null) {
+            return Mono.just(SchemaLookup.MISSING);
+        }
+        return schemaService.fetchSchema(reference)
+                .map(SchemaLookup::found)
+                .defaultIfEmpty(SchemaLookup.MISSING)
+                .onErrorResume(error -> {
+                    log.warn("Schema lookup for {} failed during batch publish: {}", reference, error.getMessage());
+                    return Mono.just(SchemaLookup.failed(error));
+                });
+    }
+
+    private Mono<Claim> claim(Pending item) {
+        // Same rule as the single-event endpoints: without an explicit id or key there is nothing to deduplicate
+        if (!item.keyed()) {
+            return Mono.just(new Claim(item, null, null));
+        }
+        return idempotencyKeyService.claim(item.domain(), item.idempotencyKey(), item.eventId())
+                .map(originalEventId -> new Claim(item, originalEventId, null))
+                .defaultIfEmpty(new Claim(item, null, null))
+                .onErrorResume(IdempotencyKeyInProgressException.class, e -> Mono.just(new Claim(item, null, e.getMessage())));
+    }
+
+    private Mono<List<Prepared>> prepareAll(List<Pending> owned, Map<SchemaReference, SchemaLookup> schemas) {
+        if (owned.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        return Flux.fromIterable(owned)
+                .parallel()
+                .runOn(cpuStageScheduler.scheduler())
+                .map(item -> prepare(item, schemas.get(item.reference())))
+                .sequential()
+                .collectList();
+    }
+
+    /**
+     * Validates (JSON Schema) or encodes (Avro) one event. Runs on a CPU worker, so no blocking calls here.
+     */
+    private Prepared prepare(Pending item, SchemaLookup lookup) {
+        if (item.reference() == null || item.data() == null) {
+            return Prepared.rejected(item, "domain, eventName, version and data are required");
+        }
+        if (lookup.error() != null) {
+            return Prepared.failed(item, "DynamoDB service unavailable: " + lookup.error().getMessage());
+        }
+        SchemaDefinition schemaDefinition = lookup.definition();
+        if (schemaDefinition == null) {
+            return Prepared.rejected(item, "Schema not found");
+        }
+
+        SchemaReference reference = item.reference();
+        String topicName = "%s.%s.%s".formatted(
+                properties.kafka().ingressTopicPrefix(),
+                reference.domain(),
+                reference.eventName());
+        try {
+            JsonNode jsonNode = item.data();
+            EventEnvelope envelope = new EventEnvelope(
+                    item.eventId(),
+                    reference,
+                    objectMapper.valueToTree(Map.of("originalFormat", SchemaFormat.JSON.name())),
+                    Instant.now(),
+                    Map.of("Idempotency-Key", item.idempotencyKey(), "Original-Format", SchemaFormat.JSON.name()),
+                    schemaDefinition.formatType()
+            );
+            if (schemaDefinition.formatType() == SchemaFormatType.JSON_SCHEMA) {
+                boolean validationEnabled = properties.validation() != null && properties.validation().isEnabled();
+                JsonNode validated = validationEnabled ? jsonSchemaValidator.validateSync(jsonNode, schemaDefinition) : jsonNode;
+                return Prepared.ready(item, OutboundEvent.json(envelope, topicName, validated));
+            }
+            if (schemaDefinition.avroSchema() == null || schemaDefinition.avroSchema().isEmpty()) {
+                return Prepared.rejected(item, "Avro schema definition not configured for this event");
+            }
+            byte[] avroBytes = avroBinaryEncoder.encode(jsonNode, compiledSchemaCache.compile(schemaDefinition).avroSchema());
+            return Prepared.ready(item, OutboundEvent.avro(envelope, topicName, avroBytes));
+        } catch (RuntimeException e) {
+            return Prepared.rejected(item, e.getMessage() != null ? e.getMessage() : "Processing failed");
+        }
+    }
+
+    private Mono<Void> send(List<Prepared> prepared, List<BatchItemOutcome> outcomes) {
+        List<Prepared> ready = new ArrayList<>(prepared.size());
+        for (Prepared entry : prepared) {
+            if (entry.event() != null) {
+                ready.add(entry);
+            } else {
+                outcomes.add(entry.outcome());
+                onNotPublished(entry.item(), IdempotencyLedgerService.EventStatus.EVENT_PROCESSING_FAILED);
+            }
+        }
+        if (ready.isEmpty()) {
+            return Mono.empty();
+        }
+
+        return eventPublisher.publishBatch(ready.stream().map(Prepared::event).toList())
+                .collectList()
+                .flatMap(results -> {
+                    List<Pending> published = new ArrayList<>(results.size());
+                    for (int i = 0; i < results.size(); i++) {
+                        Pending item = ready.get(i).item();
+                        PublishResult result = results.get(i);
+                        if (result.isPublished()) {
+                            outcomes.add(BatchItemOutcome.accepted(item.index(), item.eventId()));
+                            recordStatus(item.eventId(), IdempotencyLedgerService.EventStatus.EVENT_READY_FOR_DELIVERY,
+                                    schemaId(item.reference()));
+                            published.add(item);
+                        } else {
+                            outcomes.add(BatchItemOutcome.failed(item.index(), item.eventId(),
+                                    "Kafka is unavailable: " + result.error().getMessage()));
+                            onNotPublished(item, IdempotencyLedgerService.EventStatus.EVENT_DELIVERY_FAILED);
+                        }
+                    }
+                    return Flux.fromIterable(published).flatMap(this::complete, CLAIM_CONCURRENCY).then();
+                });
+    }
+
+    // Marks the key published after the Kafka ack, so retries get the eventId; never fails
+    private Mono<Void> complete(Pending item) {
+        if (!item.keyed()) {
+            return Mono.empty();
+        }
+        return idempotencyKeyService.complete(item.domain(), item.idempotencyKey(), item.eventId());
+    }
+
+    private void onNotPublished(Pending item, IdempotencyLedgerService.EventStatus status) {
+        recordStatus(item.eventId(), status, null);
+        if (item.keyed()) {
+            release(item);
+        }
+    }
+
+    private void release(Pending item) {
+        idempotencyKeyService.release(item.domain(), item.idempotencyKey(), item.eventId()).subscribe(
+                null,
+                error -> log.warn("Failed to release idempotency key {} after a failed batch publish: {}",
+                        item.idempotencyKey(), error.getMessage())
+        );
+    }
+
+    private void recordStatus(String eventId, IdempotencyLedgerService.EventStatus status, String schemaId) {
+        // Fire and forget, as on the single-event endpoints; the write-behind queue batches these anyway
+        idempotencyLedgerService.recordEventStatus(eventId, status, schemaId).subscribe(
+                null,
+                error -> log.warn("Failed to record event status {} in idempotency ledger for eventId: {}. Error: {}",
+                        status, eventId, error.getMessage())
+        );
+    }
+
+    private static String schemaId(SchemaReference reference) {
+        return String.format("SCHEMA_%s_%s_%s",
+                reference.domain().toUpperCase(),
+                reference.eventName().toUpperCase(),
+                reference.version().toUpperCase().replace(".", "_"));
+    }
+
+    // domain scopes the idempotency key and is kept even when the reference is incomplete
+    private record Pending(int index, String eventId, String idempotencyKey, boolean keyed, String domain,
+                           SchemaReference reference, JsonNode data) {
+
+        static Pending of(int index, BatchItem item) {
+            String eventId = item.eventId() != null ? item.eventId() : UUID.randomUUID().toString();
+            SchemaReference reference = item.reference();
+            if (reference != null && (reference.domain() == null || reference.eventName() == null || reference.version() == null)) {
+                reference = null;
+            }
+            return new Pending(
+                    index,
+                    eventId,
+                    item.idempotencyKey() != null ? item.idempotencyKey() : eventId,
+                    item.eventId() != null || item.idempotencyKey() != null,
+                    item.reference() != null ? item.reference().domain() : null,
+                    reference,
+                    item.data());
+        }
+    }
+
+    // originalEventId for a completed key, inProgress (the reason) for one another request still holds
+    private record Claim(Pending pending, String originalEventId, String inProgress) {}
+
+    private record SchemaLookup(SchemaDefinition definition, Throwable error) {
+
+        static final SchemaLookup MISSING = new SchemaLookup(null, null);
+
+        static SchemaLookup found(SchemaDefinition definition) {
+            return new SchemaLookup(definition, null);
+        }
+
+        static SchemaLookup failed(Throwable error) {
+            return new SchemaLookup(null, error);
+        }
+    }
+
+    private record Prepared(Pending item, OutboundEvent event, BatchItemOutcome outcome) {
+
+        static Prepared ready(Pending item, OutboundEvent event) {
+            return new Prepared(item, event, null);
+        }
+
+        static Prepared rejected(Pending item, String message) {
+            return new Prepared(item, null, BatchItemOutcome.rejected(item.index(), item.eventId(), message));
+        }
+
+        static Prepared failed(Pending item, String message) {
+            return new Prepared(item, null, BatchItemOutcome.failed(item.index(), item.eventId(), message));
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.beewaxus.webhooksvcs.pubsrc.batch;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns a request body of newline-delimited JSON into one {@link JsonNode} per event as the bytes arrive,
+ * using Jackson's non-blocking parser. Only one body chunk is requested at a time, so demand downstream
+ * decides how fast the connection is read. Any whitespace separates events; the newlines are not required.
+ */
+@Component
+public class NdjsonEventReader {
+
+    // One event larger than this fails the stream instead of being buffered
+    static final int MAX_EVENT_BYTES = 1024 * 1024;
+
+    private final ObjectMapper objectMapper;
+    // The size check between tokens cannot see a single string or name still being accumulated by the parser,
+    // so those are capped by the parser itself
+    private final JsonFactory parserFactory;
+
+    public NdjsonEventReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.parserFactory = objectMapper.getFactory().copy()
+                .setStreamReadConstraints(objectMapper.getFactory().streamReadConstraints().rebuild()
+                        .maxStringLength(MAX_EVENT_BYTES)
+                        .maxNameLength(MAX_EVENT_BYTES)
+                        .build());
+    }
+
+    public Flux<JsonNode> read(Flux<DataBuffer> body) {
+        return Flux.defer(() -> {
+            Tokenizer tokenizer = new Tokenizer();
+            return body
+                    .concatMapIterable(tokenizer::feed, 1)
+                    .concatWith(Mono.fromCallable(tokenizer::endOfInput).flatMapIterable(events -> events))
+                    .concatWith(Mono.fromRunnable(tokenizer::checkComplete))
+                    .doFinally(signal -> tokenizer.close());
+        });
+    }
+
+    private final class Tokenizer {
+
+        private final JsonParser parser;
+        private final ByteArrayFeeder feeder;
+        private TokenBuffer tokenBuffer;
+        private int depth;
+        private long eventStartOffset;
+        // Raised on the next call, so events parsed from the same chunk before the bad one are emitted first
+        private IOException deferredError;
+
+        Tokenizer() {
+            try {
+                this.parser = parserFactory.createNonBlockingByteArrayParser();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        }
+
+        List<JsonNode> feed(DataBuffer buffer) {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            DataBufferUtils.release(buffer);
+            try {
+                throwDeferredError();
+                feeder.feedInput(bytes, 0, bytes.length);
+                return drain();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        List<JsonNode> endOfInput() throws IOException {
+            throwDeferredError();
+            feeder.endOfInput();
+            List<JsonNode> events = drain();
+            if (tokenBuffer != null && deferredError == null) {
+                deferredError = new IOException("Request body ended in the middle of an event");
+            }
+            return events;
+        }
+
+        void checkComplete() {
+            try {
+                throwDeferredError();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void close() {
+            try {
+                parser.close();
+            } catch (IOException ignored) {
+                // Nothing left to release
+            }
+        }
+
+        private void throwDeferredError() throws IOException {
+            if (deferredError != null) {
+                throw deferredError;
+            }
+        }
+
+        private List<JsonNode> drain() throws IOException {
+            List<JsonNode> events = new ArrayList<>(1);
+            try {
+                drainInto(events);
+            } catch (IOException e) {
+                if (events.isEmpty()) {
+                    throw e;
+                }
+                deferredError = e;
+            }
+            return events;
+        }
+
+        private void drainInto(List<JsonNode> events) throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                if (tokenBuffer == null) {
+                    tokenBuffer = new TokenBuffer(parser);
+                    eventStartOffset = parser.currentTokenLocation().getByteOffset();
+                }
+                tokenBuffer.copyCurrentEvent(parser);
+                if (token.isStructStart()) {
+                    depth++;
+                } else if (token.isStructEnd()) {
+                    depth--;
+                }
+                if (depth == 0) {
+                    events.add(objectMapper.readTree(tokenBuffer.asParser(objectMapper)));
+                    tokenBuffer = null;
+                } else if (parser.currentLocation().getByteOffset() - eventStartOffset > MAX_EVENT_BYTES) {
+                    throw new IOException("Event larger than " + MAX_EVENT_BYTES + " bytes");
+                }
+            }
+        }
+    }
+}
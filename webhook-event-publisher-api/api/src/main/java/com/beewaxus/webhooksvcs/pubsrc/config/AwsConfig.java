@@ -1,17 +1,26 @@
 package com.beewaxus.webhooksvcs.pubsrc.config;
 
+import com.beewaxus.webhooksvcs.pubsrc.dynamodb.AsyncReactiveDynamoDb;
+import com.beewaxus.webhooksvcs.pubsrc.dynamodb.BlockingReactiveDynamoDb;
+import com.beewaxus.webhooksvcs.pubsrc.dynamodb.ReactiveDynamoDb;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.awscore.client.builder.AwsClientBuilder;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 
 import java.net.URI;
+import java.time.Duration;
 
 @Configuration
 public class AwsConfig {
@@ -24,39 +33,58 @@ public class AwsConfig {
     @Value("${aws.region:us-east-1}")
     private String awsRegion;
 
+    // Connection pool shared by the blocking (Apache) and async (Netty) HTTP clients
+    @Value("${aws.dynamodb.http.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${aws.dynamodb.http.connection-timeout:PT2S}")
+    private Duration connectionTimeout;
+
+    @Value("${aws.dynamodb.http.connection-acquisition-timeout:PT10S}")
+    private Duration connectionAcquisitionTimeout;
+
+    @Value("${aws.dynamodb.http.connection-max-idle-time:PT60S}")
+    private Duration connectionMaxIdleTime;
+
+    // Async only: requests allowed to wait for a pooled connection before failing fast
+    @Value("${aws.dynamodb.http.max-pending-connection-acquires:10000}")
+    private int maxPendingConnectionAcquires;
+
     @Bean
     public DynamoDbClient dynamoDbClient() {
         log.info("Configuring DynamoDB client with endpoint: '{}' and region: {}", dynamoDbEndpoint, awsRegion);
 
-        var builder = DynamoDbClient.builder();
+        var builder = DynamoDbClient.builder()
+                .httpClientBuilder(ApacheHttpClient.builder()
+                        .maxConnections(maxConnections)
+                        .connectionTimeout(connectionTimeout)
+                        .connectionAcquisitionTimeout(connectionAcquisitionTimeout)
+                        .connectionMaxIdleTime(connectionMaxIdleTime));
 
         if (dynamoDbEndpoint != null && !dynamoDbEndpoint.isEmpty()) {
             log.info("Using local DynamoDB configuration with endpoint: {}", dynamoDbEndpoint);
             try {
                 // Local DynamoDB configuration
                 URI endpointUri = URI.create(dynamoDbEndpoint);
-                log.info("Parsed endpoint URI: {} (scheme: {}, host: {}, port: {})", 
+                log.info("Parsed endpoint URI: {} (scheme: {}, host: {}, port: {})",
                         endpointUri, endpointUri.getScheme(), endpointUri.getHost(), endpointUri.getPort());
-                
-                builder.endpointOverride(endpointUri)
-                        .credentialsProvider(StaticCredentialsProvider.create(
-                                AwsBasicCredentials.create("dummy", "dummy")))
-                        .region(Region.US_EAST_1); // Must specify region even for local
-                
+
+                configureEndpoint(builder);
+
                 DynamoDbClient client = builder.build();
                 log.info("DynamoDB client successfully configured with local endpoint: {}", endpointUri);
-                
+
                 // Test connection by listing tables (non-blocking, just for logging)
                 try {
                     var tables = client.listTables();
-                    log.info("Successfully connected to DynamoDB Local. Found {} tables: {}", 
+                    log.info("Successfully connected to DynamoDB Local. Found {} tables: {}",
                             tables.tableNames().size(), tables.tableNames());
                 } catch (Exception e) {
-                    log.warn("Could not verify connection to DynamoDB Local at {} (this may be normal if DynamoDB is starting up): {}", 
+                    log.warn("Could not verify connection to DynamoDB Local at {} (this may be normal if DynamoDB is starting up): {}",
                             endpointUri, e.getMessage());
                     log.debug("Connection test exception details", e);
                 }
-                
+
                 return client;
             } catch (Exception e) {
                 log.error("Error configuring local DynamoDB client: {}", e.getMessage(), e);
@@ -65,9 +93,51 @@ public class AwsConfig {
         } else {
             log.info("Using AWS DynamoDB configuration (no endpoint override)");
             // AWS DynamoDB configuration
+            configureEndpoint(builder);
+            return builder.build();
+        }
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "webhooks.dynamodb", name = "client-mode", havingValue = "async")
+    public DynamoDbAsyncClient dynamoDbAsyncClient() {
+        log.info("Configuring async DynamoDB client (max connections: {}, max pending acquires: {})",
+                maxConnections, maxPendingConnectionAcquires);
+
+        var builder = DynamoDbAsyncClient.builder()
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(maxConnections)
+                        .maxPendingConnectionAcquires(maxPendingConnectionAcquires)
+                        .connectionTimeout(connectionTimeout)
+                        .connectionAcquisitionTimeout(connectionAcquisitionTimeout)
+                        .connectionMaxIdleTime(connectionMaxIdleTime));
+        configureEndpoint(builder);
+        return builder.build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "webhooks.dynamodb", name = "client-mode", havingValue = "async")
+    public ReactiveDynamoDb asyncReactiveDynamoDb(DynamoDbAsyncClient dynamoDbAsyncClient) {
+        log.info("Request-path DynamoDB calls use the async (non-blocking) client");
+        return new AsyncReactiveDynamoDb(dynamoDbAsyncClient);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "webhooks.dynamodb", name = "client-mode", havingValue = "blocking", matchIfMissing = true)
+    public ReactiveDynamoDb blockingReactiveDynamoDb(DynamoDbClient dynamoDbClient) {
+        log.info("Request-path DynamoDB calls use the blocking client on the bounded elastic scheduler");
+        return new BlockingReactiveDynamoDb(dynamoDbClient);
+    }
+
+    private void configureEndpoint(AwsClientBuilder<?, ?> builder) {
+        if (dynamoDbEndpoint != null && !dynamoDbEndpoint.isEmpty()) {
+            builder.endpointOverride(URI.create(dynamoDbEndpoint))
+                    .credentialsProvider(StaticCredentialsProvider.create(
+                            AwsBasicCredentials.create("dummy", "dummy")))
+                    .region(Region.US_EAST_1); // Must specify region even for local
+        } else {
             builder.region(Region.of(awsRegion))
                     .credentialsProvider(DefaultCredentialsProvider.create());
-            return builder.build();
         }
     }
 }
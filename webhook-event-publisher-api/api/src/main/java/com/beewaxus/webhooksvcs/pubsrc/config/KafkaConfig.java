@@ -1,47 +1,75 @@
 package com.beewaxus.webhooksvcs.pubsrc.config;
 
+import com.beewaxus.webhooksvcs.pubsrc.publisher.KafkaProducerPool;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
 import org.springframework.kafka.core.ProducerFactory;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 @Configuration
 public class KafkaConfig {
 
-    @Bean
-    public ProducerFactory<String, String> producerFactory(WebhooksProperties properties) {
-        Map<String, Object> configProps = new HashMap<>();
-        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, properties.kafka().bootstrapServers());
-        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
-        return new DefaultKafkaProducerFactory<>(configProps);
-    }
+    private static final Logger log = LoggerFactory.getLogger(KafkaConfig.class);
+
+    // One producer per profile that is the default or routed to; profiles nothing uses get none
+    @Bean(destroyMethod = "close")
+    public KafkaProducerPool kafkaProducerPool(WebhooksProperties properties, MeterRegistry meterRegistry) {
+        WebhooksProperties.ProducerProperties producer = properties.kafka().getProducer();
+        Map<String, WebhooksProperties.ProducerProfileProperties> profiles = producer.getProfiles();
+        Set<String> used = new LinkedHashSet<>();
+        used.add(producer.getDefaultProfile());
+        used.addAll(producer.getRoutes().values());
 
-    @Bean
-    public KafkaTemplate<String, String> kafkaTemplate(ProducerFactory<String, String> producerFactory) {
-        return new KafkaTemplate<>(producerFactory);
+        Map<String, ProducerFactory<String, byte[]>> producerFactories = new LinkedHashMap<>();
+        for (String name : used) {
+            WebhooksProperties.ProducerProfileProperties profile = profiles.get(name);
+            if (profile != null) {
+                log.info("Kafka producer profile {}: linger {}ms, batch {} bytes, compression {}, {} in-flight requests",
+                        name, profile.getLinger().toMillis(), profile.getBatchSize().toBytes(),
+                        profile.getCompressionType(), profile.getMaxInFlightRequests());
+                producerFactories.put(name, producerFactory(properties.kafka().bootstrapServers(), name, profile, meterRegistry));
+            }
+        }
+        return new KafkaProducerPool(producerFactories, producer, properties.kafka().getSender(), meterRegistry);
     }
 
-    @Bean
-    public ProducerFactory<String, byte[]> avroProducerFactory(WebhooksProperties properties) {
+    private static ProducerFactory<String, byte[]> producerFactory(String bootstrapServers,
+                                                                   String name,
+                                                                   WebhooksProperties.ProducerProfileProperties profile,
+                                                                   MeterRegistry meterRegistry) {
         Map<String, Object> configProps = new HashMap<>();
-        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, properties.kafka().bootstrapServers());
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.CLIENT_ID_CONFIG, "webhooks-" + name);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        // Values arrive serialized: Avro binary, or JSON written straight to UTF-8 bytes
         configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
         configProps.put(ProducerConfig.ACKS_CONFIG, "all");
-        return new DefaultKafkaProducerFactory<>(configProps);
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, (int) profile.getLinger().toMillis());
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, (int) profile.getBatchSize().toBytes());
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, profile.getCompressionType());
+        configProps.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, profile.getMaxInFlightRequests());
+        // Retries cannot duplicate or reorder records; Kafka only allows it with at most 5 requests in flight
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, profile.getMaxInFlightRequests() <= 5);
+        return withClientMetrics(new DefaultKafkaProducerFactory<>(configProps), meterRegistry);
     }
 
-    @Bean
-    public KafkaTemplate<String, byte[]> avroKafkaTemplate(ProducerFactory<String, byte[]> avroProducerFactory) {
-        return new KafkaTemplate<>(avroProducerFactory);
+    // Binds the producer's own metrics (kafka.producer.*: record send rate, request latency, buffer use) per client.id
+    private static <V> ProducerFactory<String, V> withClientMetrics(DefaultKafkaProducerFactory<String, V> factory,
+                                                                     MeterRegistry meterRegistry) {
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return factory;
     }
 }
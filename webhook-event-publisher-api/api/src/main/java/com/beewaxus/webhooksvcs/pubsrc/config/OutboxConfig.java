@@ -0,0 +1,59 @@
+package com.beewaxus.webhooksvcs.pubsrc.config;
+
+import com.beewaxus.webhooksvcs.pubsrc.metrics.PublishMetrics;
+import com.beewaxus.webhooksvcs.pubsrc.outbox.OutboxDrainer;
+import com.beewaxus.webhooksvcs.pubsrc.outbox.OutboxEventPublisher;
+import com.beewaxus.webhooksvcs.pubsrc.outbox.WriteAheadOutbox;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.EventPublisher;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.KafkaCircuitBreaker;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.KafkaProducerPool;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Local write-ahead outbox, only set up when {@code webhooks.kafka.outbox.enabled} is true. Its publisher then
+ * takes the place of the Kafka publisher for every endpoint.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "webhooks.kafka.outbox", name = "enabled", havingValue = "true")
+public class OutboxConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxConfig.class);
+
+    @Bean(destroyMethod = "close")
+    public WriteAheadOutbox writeAheadOutbox(WebhooksProperties properties) throws IOException {
+        WebhooksProperties.OutboxProperties outbox = properties.kafka().getOutbox();
+        Path directory = Path.of(outbox.getDirectory()).toAbsolutePath();
+        log.info("Publishing through the write-ahead outbox in {} ({} segments of {} bytes)",
+                directory, outbox.getMaxSegments(), outbox.getSegmentBytes());
+        return new WriteAheadOutbox(directory, outbox.getSegmentBytes(), outbox.getMaxSegments());
+    }
+
+    @Bean(destroyMethod = "close")
+    public OutboxDrainer outboxDrainer(WriteAheadOutbox writeAheadOutbox,
+                                       KafkaProducerPool kafkaProducerPool,
+                                       KafkaCircuitBreaker circuitBreaker,
+                                       PublishMetrics publishMetrics,
+                                       WebhooksProperties properties,
+                                       MeterRegistry meterRegistry) {
+        return new OutboxDrainer(writeAheadOutbox, kafkaProducerPool, circuitBreaker, publishMetrics, properties, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public EventPublisher outboxEventPublisher(WriteAheadOutbox writeAheadOutbox,
+                                               WebhooksProperties properties,
+                                               ObjectMapper objectMapper,
+                                               PublishMetrics publishMetrics) {
+        return new OutboxEventPublisher(writeAheadOutbox, properties, objectMapper, publishMetrics);
+    }
+}
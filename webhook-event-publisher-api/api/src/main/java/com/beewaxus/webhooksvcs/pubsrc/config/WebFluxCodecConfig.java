@@ -0,0 +1,29 @@
+package com.beewaxus.webhooksvcs.pubsrc.config;
+
+import com.beewaxus.webhooksvcs.pubsrc.converter.FormatConverter;
+import com.beewaxus.webhooksvcs.pubsrc.converter.JsonNodeDecoder;
+import com.beewaxus.webhooksvcs.pubsrc.metrics.PublishMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+@Configuration
+public class WebFluxCodecConfig implements WebFluxConfigurer {
+
+    private final ObjectMapper objectMapper;
+    private final FormatConverter formatConverter;
+    private final PublishMetrics publishMetrics;
+
+    public WebFluxCodecConfig(ObjectMapper objectMapper, FormatConverter formatConverter, PublishMetrics publishMetrics) {
+        this.objectMapper = objectMapper;
+        this.formatConverter = formatConverter;
+        this.publishMetrics = publishMetrics;
+    }
+
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        // Default config applies spring.codec.max-in-memory-size to the joined body
+        configurer.customCodecs().registerWithDefaultConfig(new JsonNodeDecoder(objectMapper, formatConverter, publishMetrics));
+    }
+}
@@ -3,24 +3,66 @@
 package com.beewaxus.webhooksvcs.pubsrc.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @ConfigurationProperties(prefix = "webhooks")
 public record WebhooksProperties(
         DynamoProperties dynamodb,
         KafkaProperties kafka,
         CacheProperties cache,
-        ValidationProperties validation
+        ValidationProperties validation,
+        LedgerProperties ledger,
+        MetricsProperties metrics,
+        AdmissionProperties admission
 ) {
 
+    public LedgerProperties ledger() {
+        return ledger != null ? ledger : new LedgerProperties(null, null, null, null, null, null, null, null, null, null, null, null);
+    }
+
+    public MetricsProperties metrics() {
+        return metrics != null ? metrics : new MetricsProperties(null);
+    }
+
+    public AdmissionProperties admission() {
+        return admission != null ? admission : new AdmissionProperties(null, null, null, null, null, null, null, null, null);
+    }
+
     public record DynamoProperties(
             String tableName,
-            String idempotencyLedgerTableName
+            String idempotencyLedgerTableName,
+            String schemaIdIndexName,
+            String schemaRefIndexName,
+            Boolean requireIndexes,
+            Integer scanSegments
     ) {
         public String idempotencyLedgerTableName() {
             return idempotencyLedgerTableName != null ? idempotencyLedgerTableName : "EVENT_IDEMPOTENCY_LEDGER";
         }
+
+        // GSI on EVENT_SCHEMA_ID used by the schema_id lookups
+        public String getSchemaIdIndexName() {
+            return schemaIdIndexName != null ? schemaIdIndexName : "EVENT_SCHEMA_ID-index";
+        }
+
+        // GSI on SCHEMA_REF (domain#event#version) used by the publisher lookups
+        public String getSchemaRefIndexName() {
+            return schemaRefIndexName != null ? schemaRefIndexName : "SCHEMA_REF-index";
+        }
+
+        // Fail startup instead of falling back to table scans when an index is missing
+        public boolean isRequireIndexes() {
+            return Boolean.TRUE.equals(requireIndexes);
+        }
+
+        // Parallel scan segments used by full schema loads (fetchAllSchemas / evictAndReload)
+        public int getScanSegments() {
+            return scanSegments != null && scanSegments > 0 ? scanSegments : 4;
+        }
     }
 
     public record KafkaProperties(
@@ -28,7 +70,13 @@ public record WebhooksProperties(
             String ingressTopicPrefix,
             Duration publishTimeout,
             Integer maxRetries,
-            Duration retryBackoffInitialDelay
+            Duration retryBackoffInitialDelay,
+            Integer batchMaxEvents,
+            Integer streamConcurrency,
+            CircuitBreakerProperties circuitBreaker,
+            OutboxProperties outbox,
+            SenderProperties sender,
+            ProducerProperties producer
     ) {
         // Helper methods to get values with defaults (not overriding accessors to avoid recursion)
         public Duration getPublishTimeout() {
@@ -42,13 +90,205 @@ public record WebhooksProperties(
         public Duration getRetryBackoffInitialDelay() {
             return retryBackoffInitialDelay != null ? retryBackoffInitialDelay : Duration.ofSeconds(1);
         }
+
+        // Most events accepted by one /webhook/event/publisher/batch request
+        public int getBatchMaxEvents() {
+            return batchMaxEvents != null && batchMaxEvents > 0 ? batchMaxEvents : 500;
+        }
+
+        // Events of one /webhook/event/publisher/stream request in flight at once; bounds what is read ahead of Kafka
+        public int getStreamConcurrency() {
+            return streamConcurrency != null && streamConcurrency > 0 ? streamConcurrency : 64;
+        }
+
+        public CircuitBreakerProperties getCircuitBreaker() {
+            return circuitBreaker != null ? circuitBreaker : new CircuitBreakerProperties(null, null, null, null, null, null, null, null);
+        }
+
+        public OutboxProperties getOutbox() {
+            return outbox != null ? outbox : new OutboxProperties(null, null, null, null, null, null);
+        }
+
+        public SenderProperties getSender() {
+            return sender != null ? sender : new SenderProperties(null, null);
+        }
+
+        public ProducerProperties getProducer() {
+            return producer != null ? producer : new ProducerProperties(null, null, null);
+        }
+    }
+
+    public record SenderProperties(
+            Integer maxInFlight,
+            Integer maxQueued
+    ) {
+        // Records handed to one producer and not yet acknowledged; further sends wait in the sender's queue
+        public int getMaxInFlight() {
+            return maxInFlight != null && maxInFlight > 0 ? maxInFlight : 1024;
+        }
+
+        // Sends waiting for the in-flight window; beyond this they fail at once instead of piling up in memory
+        public int getMaxQueued() {
+            return maxQueued != null && maxQueued > 0 ? maxQueued : 10_000;
+        }
+    }
+
+    public record ProducerProperties(
+            String defaultProfile,
+            Map<String, ProducerProfileProperties> profiles,
+            Map<String, String> routes
+    ) {
+        public static final String LATENCY = "latency";
+        public static final String THROUGHPUT = "throughput";
+
+        // Few records per request, sent as soon as they arrive
+        private static final ProducerProfileProperties LATENCY_PROFILE =
+                new ProducerProfileProperties(Duration.ZERO, DataSize.ofKilobytes(16), "none", 5);
+        // Waits a little to fill large, compressed batches; fewer requests and broker bytes per event
+        private static final ProducerProfileProperties THROUGHPUT_PROFILE =
+                new ProducerProfileProperties(Duration.ofMillis(20), DataSize.ofKilobytes(256), "lz4", 5);
+
+        // Profile for topics and domains without a route
+        public String getDefaultProfile() {
+            return defaultProfile != null && !defaultProfile.isBlank() ? defaultProfile : LATENCY;
+        }
+
+        // The built-in latency and throughput profiles, replaced or joined by configured ones of the same name
+        public Map<String, ProducerProfileProperties> getProfiles() {
+            Map<String, ProducerProfileProperties> all = new LinkedHashMap<>();
+            all.put(LATENCY, LATENCY_PROFILE);
+            all.put(THROUGHPUT, THROUGHPUT_PROFILE);
+            if (profiles != null) {
+                all.putAll(profiles);
+            }
+            return all;
+        }
+
+        // Topic name or producer domain to profile name; a topic route wins over a domain route
+        public Map<String, String> getRoutes() {
+            return routes != null ? routes : Map.of();
+        }
+    }
+
+    public record ProducerProfileProperties(
+            Duration linger,
+            DataSize batchSize,
+            String compressionType,
+            Integer maxInFlightRequests
+    ) {
+        // Unset values fall back to the Kafka producer defaults
+        public Duration getLinger() {
+            return linger != null ? linger : Duration.ZERO;
+        }
+
+        public DataSize getBatchSize() {
+            return batchSize != null ? batchSize : DataSize.ofKilobytes(16);
+        }
+
+        // none, gzip, snappy, lz4 or zstd
+        public String getCompressionType() {
+            return compressionType != null ? compressionType : "none";
+        }
+
+        // Requests per broker connection awaiting a response; idempotent (and so ordered) only up to 5
+        public int getMaxInFlightRequests() {
+            return maxInFlightRequests != null && maxInFlightRequests > 0 ? maxInFlightRequests : 5;
+        }
+    }
+
+    public record CircuitBreakerProperties(
+            Boolean enabled,
+            Integer windowSize,
+            Integer minimumCalls,
+            Integer failureRateThreshold,
+            Duration openDuration,
+            Integer halfOpenProbes,
+            Double bufferUsageThreshold,
+            Duration producerCheckInterval
+    ) {
+        public boolean isEnabled() {
+            return enabled == null || Boolean.TRUE.equals(enabled);
+        }
+
+        // Most recent publish outcomes the failure rate is computed over
+        public int getWindowSize() {
+            return windowSize != null && windowSize > 0 ? windowSize : 20;
+        }
+
+        // Outcomes needed in the window before the failure rate can open the breaker
+        public int getMinimumCalls() {
+            return minimumCalls != null && minimumCalls > 0 ? Math.min(minimumCalls, getWindowSize()) : Math.min(10, getWindowSize());
+        }
+
+        // Percentage of failed publishes in the window that opens the breaker
+        public int getFailureRateThreshold() {
+            return failureRateThreshold != null && failureRateThreshold > 0 && failureRateThreshold <= 100 ? failureRateThreshold : 50;
+        }
+
+        // How long publishes fail fast before probes are let through; also the Retry-After given to clients
+        public Duration getOpenDuration() {
+            return openDuration != null ? openDuration : Duration.ofSeconds(10);
+        }
+
+        // Publishes let through while half-open; all must succeed to close the breaker again
+        public int getHalfOpenProbes() {
+            return halfOpenProbes != null && halfOpenProbes > 0 ? halfOpenProbes : 3;
+        }
+
+        // Share of the producer's buffer.memory in use that opens the breaker before sends start timing out
+        public double getBufferUsageThreshold() {
+            return bufferUsageThreshold != null && bufferUsageThreshold > 0 ? bufferUsageThreshold : 0.9;
+        }
+
+        public Duration getProducerCheckInterval() {
+            return producerCheckInterval != null ? producerCheckInterval : Duration.ofSeconds(1);
+        }
+    }
+
+    public record OutboxProperties(
+            Boolean enabled,
+            String directory,
+            Integer segmentBytes,
+            Integer maxSegments,
+            Integer drainBatchSize,
+            Duration retryBackoff
+    ) {
+        // Off by default: publishes are acknowledged by the brokers, not by the local disk
+        public boolean isEnabled() {
+            return Boolean.TRUE.equals(enabled);
+        }
+
+        public String getDirectory() {
+            return directory != null && !directory.isBlank() ? directory : "data/outbox";
+        }
+
+        // Size of each memory-mapped segment file; also bounds the largest record
+        public int getSegmentBytes() {
+            return segmentBytes != null && segmentBytes > 0 ? segmentBytes : 64 * 1024 * 1024;
+        }
+
+        // Segments kept before appends are refused with 503, i.e. how much Kafka backlog the disk absorbs
+        public int getMaxSegments() {
+            return maxSegments != null && maxSegments > 1 ? maxSegments : 16;
+        }
+
+        // Records handed to the producer before the drainer waits for their acks
+        public int getDrainBatchSize() {
+            return drainBatchSize != null && drainBatchSize > 0 ? drainBatchSize : 500;
+        }
+
+        public Duration getRetryBackoff() {
+            return retryBackoff != null ? retryBackoff : Duration.ofMillis(500);
+        }
     }
 
     public record CacheProperties(
             Boolean enabled,
             Duration schemaTtl,
             Duration schemaDetailTtl,
-            Integer maximumEntries
+            Integer maximumEntries,
+            Duration refreshAhead,
+            Duration staleIfError
     ) {
         public boolean isEnabled() {
             return enabled == null || Boolean.TRUE.equals(enabled);
@@ -65,13 +305,208 @@ public record WebhooksProperties(
         public         int getMaximumEntries() {
             return maximumEntries != null ? maximumEntries : 1000;
         }
+
+        // Window before the TTL in which entries are reloaded in the background (jittered per entry)
+        public Duration getRefreshAhead() {
+            return refreshAhead != null ? refreshAhead : Duration.ofMinutes(1);
+        }
+
+        // How long past the TTL the last known-good entry is served while DynamoDB reloads fail
+        public Duration getStaleIfError() {
+            return staleIfError != null ? staleIfError : Duration.ofMinutes(30);
+        }
     }
 
     public record ValidationProperties(
-            Boolean enabled
+            Boolean enabled,
+            Integer cpuThreads
     ) {
         public boolean isEnabled() {
             return enabled == null || Boolean.TRUE.equals(enabled);
         }
+
+        // Workers of the CPU pool that runs validation and serialization
+        public int getCpuThreads() {
+            return cpuThreads != null && cpuThreads > 0 ? cpuThreads : Runtime.getRuntime().availableProcessors();
+        }
+    }
+
+    public record LedgerProperties(
+            Integer queueCapacity,
+            Duration linger,
+            Integer maxAttempts,
+            Duration retryBackoff,
+            OverflowPolicy overflowPolicy,
+            Duration blockTimeout,
+            Integer maxSpillInFlight,
+            Boolean dedupeEnabled,
+            Duration dedupeWindow,
+            Integer dedupeCacheEntries,
+            String dedupeTableName,
+            Duration dedupeClaimLease
+    ) {
+        // Ledger writes buffered in memory before the overflow policy applies
+        public int getQueueCapacity() {
+            return queueCapacity != null ? queueCapacity : 10_000;
+        }
+
+        // Longest a write waits for a BatchWriteItem when fewer than 25 are queued
+        public Duration getLinger() {
+            return linger != null ? linger : Duration.ofMillis(200);
+        }
+
+        // BatchWriteItem attempts per batch, including retries of UnprocessedItems
+        public int getMaxAttempts() {
+            return maxAttempts != null ? maxAttempts : 5;
+        }
+
+        public Duration getRetryBackoff() {
+            return retryBackoff != null ? retryBackoff : Duration.ofMillis(50);
+        }
+
+        public OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy != null ? overflowPolicy : OverflowPolicy.DROP;
+        }
+
+        // BLOCK only: how long a write waits for queue space before it is dropped
+        public Duration getBlockTimeout() {
+            return blockTimeout != null ? blockTimeout : Duration.ofSeconds(1);
+        }
+
+        // SPILL only: PutItem calls in flight at once; writes overflowing beyond this are dropped
+        public int getMaxSpillInFlight() {
+            return maxSpillInFlight != null && maxSpillInFlight > 0 ? maxSpillInFlight : 100;
+        }
+
+        // Reject repeated Idempotency-Key / X-Event-Id values on the publish endpoints
+        public boolean isDedupeEnabled() {
+            return dedupeEnabled == null || Boolean.TRUE.equals(dedupeEnabled);
+        }
+
+        // How long a claimed idempotency key is remembered (written as the EXPIRES_AT TTL attribute)
+        public Duration getDedupeWindow() {
+            return dedupeWindow != null ? dedupeWindow : Duration.ofHours(24);
+        }
+
+        public int getDedupeCacheEntries() {
+            return dedupeCacheEntries != null ? dedupeCacheEntries : 100_000;
+        }
+
+        // How long a key stays claimed by a request still publishing; frees the key if that request's node dies
+        public Duration getDedupeClaimLease() {
+            return dedupeClaimLease != null && dedupeClaimLease.isPositive() ? dedupeClaimLease : Duration.ofMinutes(1);
+        }
+
+        public enum OverflowPolicy {
+            /** Discard the write and count it. */
+            DROP,
+            /** Wait up to block-timeout for queue space, then drop. */
+            BLOCK,
+            /** Write the item on its own with PutItem, bypassing the batch; at most max-spill-in-flight at once, then drop. */
+            SPILL
+        }
+    }
+
+    public record MetricsProperties(
+            Integer maxSchemaTags
+    ) {
+        // Distinct schema tag values on the publish metrics; further schemas are reported as "other"
+        public int getMaxSchemaTags() {
+            return maxSchemaTags != null && maxSchemaTags >= 0 ? maxSchemaTags : 100;
+        }
+    }
+
+    public record AdmissionProperties(
+            Boolean enabled,
+            String keyHeader,
+            Boolean trustKeyHeader,
+            Double defaultRate,
+            Integer defaultBurst,
+            Map<String, LimitProperties> limits,
+            Integer maxTrackedKeys,
+            Duration idleExpiry,
+            BodyBudgetProperties bodyBudget
+    ) {
+        // Turns on the per-key rate limits; the body budget has its own switch
+        public boolean isEnabled() {
+            return Boolean.TRUE.equals(enabled);
+        }
+
+        // Header naming the producer domain; only a trusted header can claim a key's entry in limits
+        public String getKeyHeader() {
+            return keyHeader != null && !keyHeader.isBlank() ? keyHeader : "X-Producer-Domain";
+        }
+
+        // Only for a gateway that authenticates the producer and overwrites the header; clients can send any value
+        public boolean isTrustKeyHeader() {
+            return Boolean.TRUE.equals(trustKeyHeader);
+        }
+
+        // Requests per second for keys without an entry in limits
+        public double getDefaultRate() {
+            return defaultRate != null && defaultRate > 0 ? defaultRate : 500;
+        }
+
+        public int getDefaultBurst() {
+            return defaultBurst != null && defaultBurst > 0 ? defaultBurst : (int) Math.ceil(getDefaultRate() * 2);
+        }
+
+        // Per-key limits, keyed by producer domain or schemaId
+        public Map<String, LimitProperties> getLimits() {
+            return limits != null ? limits : Map.of();
+        }
+
+        // Buckets kept for keys without an entry in limits; further keys share one "other" bucket until some go idle
+        public int getMaxTrackedKeys() {
+            return maxTrackedKeys != null && maxTrackedKeys > 0 ? maxTrackedKeys : 10_000;
+        }
+
+        public Duration getIdleExpiry() {
+            return idleExpiry != null ? idleExpiry : Duration.ofMinutes(10);
+        }
+
+        public BodyBudgetProperties getBodyBudget() {
+            return bodyBudget != null ? bodyBudget : new BodyBudgetProperties(null, null, null, null);
+        }
+    }
+
+    public record BodyBudgetProperties(
+            Boolean enabled,
+            DataSize maxBytes,
+            Duration queueTimeout,
+            Integer maxQueued
+    ) {
+        public boolean isEnabled() {
+            return enabled == null || Boolean.TRUE.equals(enabled);
+        }
+
+        // Request body bytes in flight across all publish requests; a quarter of the max heap by default, since
+        // each body is held several times over (raw, JsonNode, GenericRecord, Avro bytes) while it is processed
+        public long getMaxBytes() {
+            return maxBytes != null && maxBytes.toBytes() > 0 ? maxBytes.toBytes() : Runtime.getRuntime().maxMemory() / 4;
+        }
+
+        // How long a request waits for budget before it is shed with 503; zero sheds at once
+        public Duration getQueueTimeout() {
+            return queueTimeout != null && !queueTimeout.isNegative() ? queueTimeout : Duration.ofMillis(500);
+        }
+
+        public int getMaxQueued() {
+            return maxQueued != null && maxQueued >= 0 ? maxQueued : 1000;
+        }
+    }
+
+    public record LimitProperties(
+            Double rate,
+            Integer burst
+    ) {
+        public double getRate(double defaultRate) {
+            return rate != null && rate > 0 ? rate : defaultRate;
+        }
+
+        // Requests accepted at once after the key was idle; defaults to one second's worth
+        public int getBurst(double defaultRate) {
+            return burst != null && burst > 0 ? burst : Math.max(1, (int) Math.ceil(getRate(defaultRate)));
+        }
     }
 }
@@ -1,11 +1,14 @@
 package com.beewaxus.webhooksvcs.pubsrc.controller;
 
+import com.beewaxus.webhooksvcs.pubsrc.ledger.IdempotencyKeyInProgressException;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.KafkaCircuitOpenException;
 import com.beewaxus.webhooksvcs.pubsrc.publisher.KafkaPublishException;
 import com.beewaxus.webhooksvcs.pubsrc.schema.DynamoDbException;
 import com.beewaxus.webhooksvcs.pubsrc.validation.SchemaValidationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -47,7 +50,7 @@ public class ApiExceptionHandler {
         
         log.debug("Handling ResponseStatusException: status={}, message={}, path={}", status, message, path);
         
-        return Mono.just(ResponseEntity.status(status)
+        return Mono.just(withRetryAfter(ResponseEntity.status(status), ex)
                 .body(new ErrorResponse(
                         Instant.now(),
                         status.value(),
@@ -76,7 +79,7 @@ public class ApiExceptionHandler {
     @ExceptionHandler(KafkaPublishException.class)
     public Mono<ResponseEntity<ErrorResponse>> handleKafkaPublishException(KafkaPublishException ex, ServerWebExchange exchange) {
         String path = exchange.getRequest().getPath().value();
-        return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        return Mono.just(withRetryAfter(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE), ex)
                 .body(new ErrorResponse(
                         Instant.now(),
                         HttpStatus.SERVICE_UNAVAILABLE.value(),
@@ -137,7 +140,7 @@ public class ApiExceptionHandler {
         if (message != null && (message.contains("Kafka") || message.contains("broker") || 
                                 message.contains("connection") || message.contains("timeout") ||
                                 ex.getCause() instanceof KafkaPublishException)) {
-            return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            return Mono.just(withRetryAfter(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE), ex)
                     .body(new ErrorResponse(
                             Instant.now(),
                             HttpStatus.SERVICE_UNAVAILABLE.value(),
@@ -158,6 +161,22 @@ public class ApiExceptionHandler {
                 )));
     }
 
+    /**
+     * Adds Retry-After when the request failed fast on the open Kafka circuit breaker or on an idempotency key still
+     * being processed, however deeply it was wrapped.
+     */
+    private static ResponseEntity.BodyBuilder withRetryAfter(ResponseEntity.BodyBuilder response, Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof KafkaCircuitOpenException open) {
+                return response.header(HttpHeaders.RETRY_AFTER, String.valueOf(open.retryAfter().toSeconds()));
+            }
+            if (cause instanceof IdempotencyKeyInProgressException inProgress) {
+                return response.header(HttpHeaders.RETRY_AFTER, String.valueOf(inProgress.retryAfter().toSeconds()));
+            }
+        }
+        return response;
+    }
+
     public record ErrorResponse(
             Instant timestamp,
             int status,
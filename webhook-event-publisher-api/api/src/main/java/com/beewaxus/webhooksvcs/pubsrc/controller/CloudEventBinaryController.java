@@ -0,0 +1,213 @@
+package com.beewaxus.webhooksvcs.pubsrc.controller;
+
+import com.beewaxus.webhooksvcs.api.model.AckResponse;
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.ledger.IdempotencyLedgerService;
+import com.beewaxus.webhooksvcs.pubsrc.metrics.PublishMetrics;
+import com.beewaxus.webhooksvcs.pubsrc.model.EventEnvelope;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.EventPublisher;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaDefinition;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaFormatType;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaReference;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaService;
+import com.beewaxus.webhooksvcs.pubsrc.validation.JsonSchemaValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+
+/**
+ * CloudEvents binary content mode on {@code /webhook/event/publisherCE}: requests carrying a {@code ce-specversion}
+ * header have their attributes in {@code ce-*} headers and the event data as the body. The data is parsed only to
+ * validate it and is published byte for byte; the attributes become {@code ce_*} record headers, plus
+ * {@code content-type}, as in the CloudEvents Kafka protocol binding. Structured-mode requests, without the header,
+ * still go to {@link EventController#publishCloudEvent}.
+ * Not part of the generated {@link com.beewaxus.webhooksvcs.api.DefaultApi} because the body is consumed raw.
+ */
+@RestController
+public class CloudEventBinaryController {
+
+    private static final Logger log = LoggerFactory.getLogger(CloudEventBinaryController.class);
+
+    static final String HEADER_PREFIX = "ce-";
+    static final String KAFKA_HEADER_PREFIX = "ce_";
+    private static final List<String> REQUIRED_ATTRIBUTES = List.of("specversion", "id", "source", "type", "subject");
+
+    private final EventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final PublishMetrics publishMetrics;
+    private final PublishSupport publishSupport;
+
+    public CloudEventBinaryController(SchemaService schemaService,
+                                      JsonSchemaValidator jsonSchemaValidator,
+                                      EventPublisher eventPublisher,
+                                      ObjectMapper objectMapper,
+                                      WebhooksProperties properties,
+                                      IdempotencyLedgerService idempotencyLedgerService,
+                                      PublishMetrics publishMetrics) {
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.publishMetrics = publishMetrics;
+        this.publishSupport = new PublishSupport(schemaService, jsonSchemaValidator, properties, idempotencyLedgerService, publishMetrics);
+    }
+
+    @PostMapping(
+            value = "/webhook/event/publisherCE",
+            headers = "ce-specversion",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, "application/*+json"},
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public Mono<ResponseEntity<AckResponse>> publishBinaryCloudEvent(
+            @RequestBody(required = false) Mono<byte[]> data,
+            @RequestHeader HttpHeaders headers,
+            @RequestHeader(value = "X-Event-Id", required = false) UUID xEventId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+
+        Map<String, String> attributes = attributes(headers);
+        for (String attribute : REQUIRED_ATTRIBUTES) {
+            String value = attributes.get(attribute);
+            if (value == null || value.isEmpty()) {
+                return Mono.error(new ResponseStatusException(BAD_REQUEST, HEADER_PREFIX + attribute + " header is required"));
+            }
+        }
+        String eventId;
+        OffsetDateTime time;
+        try {
+            eventId = xEventId != null ? xEventId.toString() : UUID.fromString(attributes.get("id")).toString();
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new ResponseStatusException(BAD_REQUEST, "ce-id must be a UUID when X-Event-Id is not sent"));
+        }
+        try {
+            time = attributes.containsKey("time") ? OffsetDateTime.parse(attributes.get("time")) : null;
+        } catch (DateTimeParseException e) {
+            return Mono.error(new ResponseStatusException(BAD_REQUEST, "ce-time is not an RFC 3339 timestamp"));
+        }
+        String idempotencyKeyValue = idempotencyKey != null ? idempotencyKey : eventId;
+        String contentType = headers.getContentType() != null
+                ? headers.getContentType().toString() : MediaType.APPLICATION_JSON_VALUE;
+
+        // source → PRODUCER_DOMAIN, subject → EVENT_NAME, specversion → VERSION, as for structured mode
+        SchemaReference reference = new SchemaReference(
+                attributes.get("source"), attributes.get("subject"), attributes.get("specversion"));
+
+        return data
+                .filter(bytes -> bytes.length > 0)
+                .switchIfEmpty(Mono.error(new ResponseStatusException(BAD_REQUEST, "CloudEvent data required")))
+                .flatMap(bytes -> publishSupport.fetchCloudEventSchema(reference)
+                        .flatMap(schemaDefinition -> publishMetrics.countOutcome(SchemaFormatType.JSON_SCHEMA, reference,
+                                validate(bytes, schemaDefinition, reference, eventId)
+                                        .then(Mono.defer(() -> publish(reference, attributes, time, eventId,
+                                                idempotencyKeyValue, contentType, bytes))))))
+                .map(publishedEventId -> {
+                    AckResponse response = new AckResponse();
+                    response.setEventId(UUID.fromString(publishedEventId));
+                    return ResponseEntity.accepted().body(response);
+                })
+                .onErrorMap(throwable -> {
+                    if (throwable instanceof ResponseStatusException) {
+                        return throwable;
+                    }
+                    return new ResponseStatusException(INTERNAL_SERVER_ERROR,
+                            throwable.getMessage() != null ? throwable.getMessage() : "An unexpected error occurred",
+                            throwable);
+                });
+    }
+
+    /**
+     * Parses the data into a throwaway tree for the schema check; with validation disabled it is not parsed at all.
+     */
+    private Mono<Void> validate(byte[] bytes, SchemaDefinition schemaDefinition, SchemaReference reference, String eventId) {
+        if (!publishSupport.validationEnabled()) {
+            log.warn("Schema validation is DISABLED (webhooks.validation.enabled=false). Publishing CloudEvent data unchecked.");
+            return Mono.empty();
+        }
+        return publishSupport.requireJsonSchema(schemaDefinition, reference)
+                .then(Mono.defer(() -> publishMetrics.time(PublishMetrics.PARSE, SchemaFormatType.JSON_SCHEMA,
+                        Mono.fromCallable(() -> objectMapper.readTree(bytes)))))
+                .onErrorMap(e -> !(e instanceof ResponseStatusException),
+                        e -> new ResponseStatusException(BAD_REQUEST, "Invalid JSON payload: " + e.getMessage(), e))
+                .flatMap(jsonNode -> publishSupport.validateCloudEventData(jsonNode, schemaDefinition, reference, eventId))
+                .then();
+    }
+
+    private Mono<String> publish(SchemaReference reference,
+                                 Map<String, String> attributes,
+                                 OffsetDateTime time,
+                                 String eventId,
+                                 String idempotencyKeyValue,
+                                 String contentType,
+                                 byte[] bytes) {
+        // Same envelope as structured mode, without a time the request did not carry; the payload is the
+        // attributes, the data travels as the record value
+        ObjectNode payload = objectMapper.createObjectNode()
+                .put("type", attributes.get("type"))
+                .put("source", attributes.get("source"))
+                .put("subject", attributes.get("subject"))
+                .put("specVersion", attributes.get("specversion"));
+        if (time != null) {
+            payload.put("time", time.toString());
+        }
+        EventEnvelope envelope = new EventEnvelope(
+                eventId,
+                reference,
+                payload,
+                time != null ? time.toInstant() : Instant.now(),
+                Map.of(
+                        "Idempotency-Key", idempotencyKeyValue,
+                        "Event-Type", attributes.get("type"),
+                        "Source", attributes.get("source")
+                ),
+                SchemaFormatType.JSON_SCHEMA
+        );
+
+        Map<String, String> kafkaHeaders = new LinkedHashMap<>();
+        attributes.forEach((name, value) -> kafkaHeaders.put(KAFKA_HEADER_PREFIX + name, value));
+        kafkaHeaders.put("content-type", contentType);
+
+        return publishSupport.recordDelivery(
+                eventPublisher.publishJsonBytes(envelope, publishSupport.topicName(reference), bytes, kafkaHeaders),
+                reference, eventId);
+    }
+
+    /**
+     * The {@code ce-*} headers by attribute name; values are percent-decoded as the HTTP binding requires.
+     */
+    static Map<String, String> attributes(HttpHeaders headers) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        headers.forEach((name, values) -> {
+            String lower = name.toLowerCase(Locale.ROOT);
+            if (lower.startsWith(HEADER_PREFIX) && lower.length() > HEADER_PREFIX.length() && !values.isEmpty()) {
+                String value = values.get(0);
+                if (value.indexOf('%') >= 0) {
+                    // URLDecoder would otherwise turn a literal '+' into a space
+                    value = URLDecoder.decode(value.replace("+", "%2B"), StandardCharsets.UTF_8);
+                }
+                attributes.put(lower.substring(HEADER_PREFIX.length()), value);
+            }
+        });
+        return attributes;
+    }
+}
@@ -4,12 +4,22 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.beewaxus.webhooksvcs.api.DefaultApi;
 import com.beewaxus.webhooksvcs.api.model.AckResponse;
+import com.beewaxus.webhooksvcs.api.model.BatchItemResult;
+import com.beewaxus.webhooksvcs.api.model.BatchPublishRequest;
+import com.beewaxus.webhooksvcs.api.model.BatchPublishResponse;
 import com.beewaxus.webhooksvcs.api.model.CloudEvent;
 import com.beewaxus.webhooksvcs.api.model.SchemaMetadata;
+import com.beewaxus.webhooksvcs.pubsrc.batch.BatchItem;
+import com.beewaxus.webhooksvcs.pubsrc.batch.BatchItemOutcome;
+import com.beewaxus.webhooksvcs.pubsrc.batch.BatchPublishService;
 import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.ledger.IdempotencyKeyInProgressException;
+import com.beewaxus.webhooksvcs.pubsrc.ledger.IdempotencyKeyService;
 import com.beewaxus.webhooksvcs.pubsrc.ledger.IdempotencyLedgerService;
-import com.beewaxus.webhooksvcs.pubsrc.converter.AvroSerializer;
+import com.beewaxus.webhooksvcs.pubsrc.converter.AvroBinaryEncoder;
 import com.beewaxus.webhooksvcs.pubsrc.converter.FormatConverter;
+import com.beewaxus.webhooksvcs.pubsrc.converter.XmlPayload;
+import com.beewaxus.webhooksvcs.pubsrc.metrics.PublishMetrics;
 import com.beewaxus.webhooksvcs.pubsrc.model.EventEnvelope;
 import com.beewaxus.webhooksvcs.pubsrc.publisher.EventPublisher;
 import com.beewaxus.webhooksvcs.pubsrc.publisher.KafkaPublishException;
@@ -19,16 +29,10 @@ import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaDetailResponse;
 import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaFormat;
 import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaReference;
 import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaService;
-import com.beewaxus.webhooksvcs.pubsrc.validation.AvroSchemaValidator;
 import com.beewaxus.webhooksvcs.pubsrc.validation.JsonSchemaValidator;
 import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaFormatType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.apache.avro.Schema;
-import org.apache.avro.generic.GenericDatumReader;
-import org.apache.avro.generic.GenericRecord;
-import org.apache.avro.io.DecoderFactory;
-import org.apache.avro.io.JsonDecoder;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -38,13 +42,16 @@ import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CONFLICT;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
@@ -56,33 +63,41 @@ public class EventController implements DefaultApi {
     private static final Logger log = LoggerFactory.getLogger(EventController.class);
 
     private final SchemaService schemaService;
-    private final AvroSchemaValidator avroSchemaValidator;
     private final JsonSchemaValidator jsonSchemaValidator;
-    private final FormatConverter formatConverter;
     private final EventPublisher eventPublisher;
     private final ObjectMapper objectMapper;
-    private final AvroSerializer avroSerializer;
+    private final AvroBinaryEncoder avroBinaryEncoder;
+    private final FormatConverter formatConverter;
     private final WebhooksProperties properties;
     private final IdempotencyLedgerService idempotencyLedgerService;
+    private final IdempotencyKeyService idempotencyKeyService;
+    private final BatchPublishService batchPublishService;
+    private final PublishMetrics publishMetrics;
+    private final PublishSupport publishSupport;
 
     public EventController(SchemaService schemaService,
-                           AvroSchemaValidator avroSchemaValidator,
                            JsonSchemaValidator jsonSchemaValidator,
-                           FormatConverter formatConverter,
                            EventPublisher eventPublisher,
                            ObjectMapper objectMapper,
-                           AvroSerializer avroSerializer,
+                           AvroBinaryEncoder avroBinaryEncoder,
+                           FormatConverter formatConverter,
                            WebhooksProperties properties,
-                           IdempotencyLedgerService idempotencyLedgerService) {
+                           IdempotencyLedgerService idempotencyLedgerService,
+                           IdempotencyKeyService idempotencyKeyService,
+                           BatchPublishService batchPublishService,
+                           PublishMetrics publishMetrics) {
         this.schemaService = schemaService;
-        this.avroSchemaValidator = avroSchemaValidator;
         this.jsonSchemaValidator = jsonSchemaValidator;
-        this.formatConverter = formatConverter;
         this.eventPublisher = eventPublisher;
         this.objectMapper = objectMapper;
-        this.avroSerializer = avroSerializer;
+        this.avroBinaryEncoder = avroBinaryEncoder;
+        this.formatConverter = formatConverter;
         this.properties = properties;
         this.idempotencyLedgerService = idempotencyLedgerService;
+        this.idempotencyKeyService = idempotencyKeyService;
+        this.batchPublishService = batchPublishService;
+        this.publishMetrics = publishMetrics;
+        this.publishSupport = new PublishSupport(schemaService, jsonSchemaValidator, properties, idempotencyLedgerService, publishMetrics);
     }
 
     @Override
@@ -98,8 +113,12 @@ public class EventController implements DefaultApi {
         contentType = contentType != null ? contentType : MediaType.APPLICATION_JSON_VALUE;
         SchemaFormat format = SchemaFormat.fromContentType(contentType);
 
-        return inlineObject
+        // Read once; the idempotency claim needs the domain before the publish pipeline runs
+        Mono<com.beewaxus.webhooksvcs.api.model.InlineObject> request = inlineObject
                 .switchIfEmpty(Mono.error(new ResponseStatusException(BAD_REQUEST, "Body required")))
+                .cache();
+
+        Mono<ResponseEntity<AckResponse>> publish = request
                 .flatMap(body -> {
                     // Extract domain, eventName, version, and data from the body
                     String domain = body.getDomain();
@@ -109,10 +128,11 @@ public class EventController implements DefaultApi {
 
                     SchemaReference reference = new SchemaReference(domain, eventName, version);
 
-                    // Convert data to JSON string
-                    return Mono.fromCallable(() -> objectMapper.writeValueAsString(data))
+                    // data was parsed once with the body; copy it into a tree without going back through text
+                    return publishMetrics.time(PublishMetrics.PARSE, Mono.fromCallable(() -> objectMapper.<JsonNode>valueToTree(data)))
                             .onErrorMap(e -> new ResponseStatusException(BAD_REQUEST, "Invalid JSON payload: " + e.getMessage()))
-                            .flatMap(payload -> schemaService.fetchSchema(reference)
+                            .flatMap(jsonNode -> publishMetrics.time(PublishMetrics.SCHEMA_LOOKUP, SchemaDefinition::formatType,
+                                    schemaService.fetchSchema(reference))
                         .switchIfEmpty(Mono.error(new ResponseStatusException(NOT_FOUND, "Schema not found")))
                         .onErrorMap(DynamoDbException.class, e -> {
                             // Record processing failure for DynamoDB errors (fire and forget)
@@ -132,33 +152,19 @@ public class EventController implements DefaultApi {
                             return new ResponseStatusException(SERVICE_UNAVAILABLE, "DynamoDB service unavailable: " + e.getMessage(), e);
                         })
                         .flatMap(schemaDefinition -> {
-                            // Construct topic name: {prefix}.{domain}.{eventName}
-                            String topicName = "%s.%s.%s".formatted(
-                                    properties.kafka().ingressTopicPrefix(),
-                                    reference.domain(),
-                                    reference.eventName()
-                            );
-
-                            // Step 1: Convert payload to JSON
-                            return convertToJson(payload, format)
-                                    .flatMap(jsonNode -> {
-                                        // Branch based on schema format type
-                                        if (schemaDefinition.formatType() == SchemaFormatType.JSON_SCHEMA) {
-                                            // JSON Schema validation flow
-                                            return handleJsonSchemaValidation(jsonNode, schemaDefinition, reference,
-                                                    eventId, idempotencyKeyValue, format, topicName);
-                                        } else {
-                                            // Avro Schema validation flow (existing behavior)
-                                            return handleAvroSchemaValidation(jsonNode, schemaDefinition, reference,
-                                                    eventId, idempotencyKeyValue, format, topicName);
-                                        }
-                                    })
+                            String topicName = publishSupport.topicName(reference);
+
+                            // Branch based on schema format type
+                            Mono<String> published = schemaDefinition.formatType() == SchemaFormatType.JSON_SCHEMA
+                                    // JSON Schema validation flow
+                                    ? handleJsonSchemaValidation(jsonNode, schemaDefinition, reference,
+                                            eventId, idempotencyKeyValue, format, topicName)
+                                    // Avro Schema validation flow (existing behavior)
+                                    : handleAvroSchemaValidation(jsonNode, schemaDefinition, reference,
+                                            eventId, idempotencyKeyValue, format, topicName);
+                            return publishMetrics.countOutcome(schemaDefinition.formatType(), reference, published)
                                     .flatMap(publishedEventId -> {
-                                        // Construct schema ID from reference (format: SCHEMA_{DOMAIN}_{EVENT}_{VERSION})
-                                        String schemaId = String.format("SCHEMA_%s_%s_%s",
-                                                reference.domain().toUpperCase(),
-                                                reference.eventName().toUpperCase(),
-                                                reference.version().toUpperCase().replace(".", "_"));
+                                        String schemaId = PublishSupport.schemaId(reference);
                                         
                                         // Record status in idempotency ledger (non-blocking - don't fail request if ledger write fails)
                                         idempotencyLedgerService.recordEventStatus(
@@ -214,6 +220,62 @@ public class EventController implements DefaultApi {
                     response.setEventId(UUID.fromString(id));
                     return ResponseEntity.accepted().body(response);
                 });
+
+        // Without X-Event-Id or Idempotency-Key the key is a fresh random id, so there is nothing to deduplicate
+        if (idempotencyKey == null && xEventId == null) {
+            return publish;
+        }
+        return request.flatMap(body -> publishOnce(body.getDomain(), idempotencyKeyValue, eventId, publish));
+    }
+
+    @Override
+    public Mono<ResponseEntity<BatchPublishResponse>> publishEventBatch(
+            Mono<BatchPublishRequest> batchPublishRequest,
+            String contentType,
+            ServerWebExchange exchange) {
+
+        int maxEvents = properties.kafka().getBatchMaxEvents();
+        return batchPublishRequest
+                .switchIfEmpty(Mono.error(new ResponseStatusException(BAD_REQUEST, "Body required")))
+                .flatMap(request -> {
+                    List<com.beewaxus.webhooksvcs.api.model.BatchEvent> events = request.getEvents();
+                    if (events == null || events.isEmpty()) {
+                        return Mono.error(new ResponseStatusException(BAD_REQUEST, "events must contain at least one event"));
+                    }
+                    if (events.size() > maxEvents) {
+                        return Mono.error(new ResponseStatusException(BAD_REQUEST,
+                                "Batch of %d events exceeds the maximum of %d".formatted(events.size(), maxEvents)));
+                    }
+                    List<BatchItem> items = events.stream()
+                            .map(event -> new BatchItem(
+                                    event.getEventId() != null ? event.getEventId().toString() : null,
+                                    event.getIdempotencyKey(),
+                                    new SchemaReference(event.getDomain(), event.getEventName(), event.getVersion()),
+                                    event.getData() != null ? objectMapper.<JsonNode>valueToTree(event.getData()) : null))
+                            .toList();
+                    return batchPublishService.publish(items);
+                })
+                .map(outcomes -> {
+                    BatchPublishResponse response = new BatchPublishResponse();
+                    int accepted = 0;
+                    int rejected = 0;
+                    int failed = 0;
+                    for (BatchItemOutcome outcome : outcomes) {
+                        switch (outcome.status()) {
+                            case ACCEPTED, DUPLICATE -> accepted++;
+                            case REJECTED -> rejected++;
+                            case FAILED -> failed++;
+                        }
+                        response.addResultsItem(new BatchItemResult()
+                                .index(outcome.index())
+                                .eventId(UUID.fromString(outcome.eventId()))
+                                .status(BatchItemResult.StatusEnum.fromValue(outcome.status().name()))
+                                .message(outcome.message()));
+                    }
+                    log.info("Batch publish of {} events: {} accepted, {} rejected, {} failed",
+                            outcomes.size(), accepted, rejected, failed);
+                    return ResponseEntity.accepted().body(response.accepted(accepted).rejected(rejected).failed(failed));
+                });
     }
 
     @Override
@@ -258,23 +320,10 @@ public class EventController implements DefaultApi {
                             event.getSpecVersion() // specVersion → VERSION
                     );
 
-                    // Fetch schema from DynamoDB
-                    return schemaService.fetchSchema(reference)
-                            .switchIfEmpty(Mono.error(new ResponseStatusException(NOT_FOUND, 
-                                    "Schema not found for source=" + event.getSource() + 
-                                    ", subject=" + event.getSubject() + 
-                                    ", specVersion=" + event.getSpecVersion())))
-                            .onErrorMap(DynamoDbException.class, e -> {
-                                if (e.getMessage().contains("does not exist")) {
-                                    return new ResponseStatusException(INTERNAL_SERVER_ERROR, 
-                                            "DynamoDB table not found: " + e.getMessage(), e);
-                                }
-                                return new ResponseStatusException(SERVICE_UNAVAILABLE, 
-                                        "DynamoDB service unavailable: " + e.getMessage(), e);
-                            })
+                    return publishSupport.fetchCloudEventSchema(reference)
                             .flatMap(schemaDefinition -> {
                                 // Check if validation is enabled FIRST
-                                boolean validationEnabled = properties.validation() != null && properties.validation().isEnabled();
+                                boolean validationEnabled = publishSupport.validationEnabled();
                                 
                                 log.info("Fetched schema definition for source={}, subject={}, specVersion={}. " +
                                         "Has JSON Schema: {}, Has Avro Schema: {}, Format Type: {}, Event Schema ID: {}, Validation Enabled: {}", 
@@ -285,32 +334,6 @@ public class EventController implements DefaultApi {
                                         schemaDefinition.eventSchemaId(),
                                         validationEnabled);
                                 
-                                // Only validate schema existence and format if validation is enabled
-                                if (validationEnabled) {
-                                    // Validate that JSON Schema exists (required for this endpoint)
-                                    if (schemaDefinition.jsonSchema() == null || schemaDefinition.jsonSchema().isEmpty()) {
-                                        log.error("JSON Schema (EVENT_SCHEMA_DEFINITION) not configured for source={}, subject={}, specVersion={}", 
-                                                event.getSource(), event.getSubject(), event.getSpecVersion());
-                                        return Mono.error(new ResponseStatusException(BAD_REQUEST, 
-                                                "JSON Schema (EVENT_SCHEMA_DEFINITION) not configured for this event"));
-                                    }
-
-                                    // Check if EVENT_SCHEMA_DEFINITION is actually an Avro schema (starts with {"type":"record"})
-                                    String jsonSchemaStr = schemaDefinition.jsonSchema();
-                                    if (jsonSchemaStr != null && jsonSchemaStr.trim().startsWith("{\"type\":\"record\"")) {
-                                        log.error("EVENT_SCHEMA_DEFINITION contains Avro schema instead of JSON Schema for source={}, subject={}, specVersion={}. " +
-                                                "Schema preview: {}", 
-                                                event.getSource(), event.getSubject(), event.getSpecVersion(),
-                                                jsonSchemaStr.length() > 200 ? jsonSchemaStr.substring(0, 200) + "..." : jsonSchemaStr);
-                                        return Mono.error(new ResponseStatusException(BAD_REQUEST, 
-                                                "EVENT_SCHEMA_DEFINITION contains an Avro schema, but this endpoint requires a JSON Schema. " +
-                                                "Please provide a valid JSON Schema in EVENT_SCHEMA_DEFINITION or use EVENT_SCHEMA_DEFINITION_AVRO for Avro schemas."));
-                                    }
-                                } else {
-                                    log.warn("Schema validation is DISABLED (webhooks.validation.enabled=false). " +
-                                            "Skipping schema format checks and validation for testing purposes.");
-                                }
-
                                 // Convert data to JsonNode
                                 JsonNode dataJsonNode = objectMapper.valueToTree(event.getData());
                                 
@@ -321,27 +344,17 @@ public class EventController implements DefaultApi {
                                 // Validate data against JSON Schema (or skip if disabled)
                                 Mono<JsonNode> validatedJsonMono;
                                 if (!validationEnabled) {
-                                    log.warn("Skipping JSON Schema validation - validation is disabled for testing.");
+                                    log.warn("Schema validation is DISABLED (webhooks.validation.enabled=false). " +
+                                            "Skipping schema format checks and validation for testing purposes.");
                                     validatedJsonMono = Mono.just(dataJsonNode);
                                 } else {
-                                    String jsonSchemaStr = schemaDefinition.jsonSchema();
-                                    if (jsonSchemaStr != null) {
-                                        log.info("Using JSON Schema for validation (length: {} chars). Schema preview (first 500 chars): {}", 
-                                                jsonSchemaStr.length(), 
-                                                jsonSchemaStr.length() > 500 ? jsonSchemaStr.substring(0, 500) + "..." : jsonSchemaStr);
-                                    }
-                                    validatedJsonMono = jsonSchemaValidator.validate(dataJsonNode, schemaDefinition);
+                                    validatedJsonMono = publishSupport.requireJsonSchema(schemaDefinition, reference)
+                                            .then(Mono.defer(() -> publishSupport.validateCloudEventData(
+                                                    dataJsonNode, schemaDefinition, reference, eventId)));
                                 }
                                 
-                                return validatedJsonMono
+                                return publishMetrics.countOutcome(SchemaFormatType.JSON_SCHEMA, reference, validatedJsonMono
                                         .flatMap(validatedJson -> {
-                                            // Construct topic name: {prefix}.{domain}.{eventName}
-                                            String topicName = "%s.%s.%s".formatted(
-                                                    properties.kafka().ingressTopicPrefix(),
-                                                    reference.domain(),
-                                                    reference.eventName()
-                                            );
-
                                             // Create EventEnvelope
                                             EventEnvelope envelope = new EventEnvelope(
                                                     eventId,
@@ -363,87 +376,10 @@ public class EventController implements DefaultApi {
                                             );
 
                                             // Publish to Kafka
-                                            return eventPublisher.publishJson(envelope, topicName, validatedJson)
-                                                    .flatMap(publishedEventId -> {
-                                                        // Construct schema ID from reference (format: SCHEMA_{DOMAIN}_{EVENT}_{VERSION})
-                                                        String schemaId = String.format("SCHEMA_%s_%s_%s",
-                                                                reference.domain().toUpperCase(),
-                                                                reference.eventName().toUpperCase(),
-                                                                reference.version().toUpperCase().replace(".", "_"));
-                                                        
-                                                        // Record status in idempotency ledger (non-blocking - don't fail request if ledger write fails)
-                                                        idempotencyLedgerService.recordEventStatus(
-                                                                publishedEventId,
-                                                                IdempotencyLedgerService.EventStatus.EVENT_READY_FOR_DELIVERY,
-                                                                schemaId
-                                                        )
-                                                        .subscribe(
-                                                                null,
-                                                                error -> log.warn("Failed to record event status in idempotency ledger for eventId: {}. Error: {}", 
-                                                                        publishedEventId, error.getMessage())
-                                                        );
-                                                        return Mono.just(publishedEventId);
-                                                    })
-                                                    .onErrorResume(KafkaPublishException.class, e -> {
-                                                        // Record failure in ledger (fire and forget)
-                                                        idempotencyLedgerService.recordEventStatus(
-                                                                eventId,
-                                                                IdempotencyLedgerService.EventStatus.EVENT_DELIVERY_FAILED,
-                                                                null
-                                                        ).subscribe(
-                                                                null,
-                                                                error -> log.error("Failed to record delivery failure in ledger", error)
-                                                        );
-                                                        return Mono.error(new ResponseStatusException(SERVICE_UNAVAILABLE, 
-                                                                "Kafka is unavailable: " + e.getMessage(), e));
-                                                    });
-                                        })
-                                        .onErrorResume(throwable -> {
-                                            if (throwable instanceof ResponseStatusException) {
-                                                return Mono.error(throwable);
-                                            }
-                                            
-                                            // Extract detailed error message - get root cause
-                                            Throwable rootCause = throwable;
-                                            while (rootCause.getCause() != null && rootCause.getCause() != rootCause) {
-                                                rootCause = rootCause.getCause();
-                                            }
-                                            
-                                            String errorMessage = rootCause.getMessage();
-                                            if (errorMessage == null || errorMessage.isEmpty()) {
-                                                errorMessage = rootCause.getClass().getSimpleName();
-                                            }
-                                            
-                                            // Log full exception details for debugging
-                                            log.error("JSON Schema validation failed for CloudEvent. Source: {}, Subject: {}, SpecVersion: {}, " +
-                                                    "Error Type: {}, Error Message: {}, Root Cause: {}", 
-                                                    event.getSource(), event.getSubject(), event.getSpecVersion(), 
-                                                    throwable.getClass().getName(), errorMessage, rootCause.getClass().getName(), throwable);
-                                            
-                                            // Log the data and schema that failed validation
-                                            String schemaStr = schemaDefinition.jsonSchema();
-                                            if (schemaStr != null) {
-                                                log.error("Failed validation details - Data: {}, Schema length: {}", 
-                                                        dataJsonNode.toString(), schemaStr.length());
-                                            } else {
-                                                log.error("Failed validation details - Data: {}, Schema: null", 
-                                                        dataJsonNode.toString());
-                                            }
-                                            
-                                            // Record processing failure (fire and forget)
-                                            idempotencyLedgerService.recordEventStatus(
-                                                    eventId,
-                                                    IdempotencyLedgerService.EventStatus.EVENT_PROCESSING_FAILED,
-                                                    null
-                                            ).subscribe(
-                                                    null,
-                                                    error -> log.error("Failed to record processing failure in ledger", error)
-                                            );
-                                            
-                                            // Return error with full message
-                                            return Mono.error(new ResponseStatusException(BAD_REQUEST, 
-                                                    errorMessage, throwable));
-                                        });
+                                            return publishSupport.recordDelivery(
+                                                    eventPublisher.publishJson(envelope, publishSupport.topicName(reference), validatedJson),
+                                                    reference, eventId);
+                                        }));
                             });
                 })
                 .map(publishedEventId -> {
@@ -475,23 +411,12 @@ public class EventController implements DefaultApi {
         contentType = contentType != null ? contentType : MediaType.APPLICATION_JSON_VALUE;
         SchemaFormat format = SchemaFormat.fromContentType(contentType);
 
-        return requestBody
+        Mono<ResponseEntity<AckResponse>> publish = requestBody
                 .switchIfEmpty(Mono.error(new ResponseStatusException(BAD_REQUEST, "Body required")))
-                .flatMap(body -> {
-                    // Convert Object to Map<String, Object> if needed
-                    Map<String, Object> bodyMap;
-                    if (body instanceof Map) {
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> map = (Map<String, Object>) body;
-                        bodyMap = map;
-                    } else {
-                        // Convert to Map using ObjectMapper
-                        bodyMap = objectMapper.convertValue(body, Map.class);
-                    }
-                    return Mono.fromCallable(() -> objectMapper.writeValueAsString(bodyMap))
-                            .onErrorMap(e -> new ResponseStatusException(BAD_REQUEST, "Invalid JSON payload: " + e.getMessage()));
-                })
-                .flatMap(payload -> schemaService.fetchSchemaBySchemaId(schemaId)
+                // JsonNodeDecoder has already parsed JSON and Avro JSON into a tree; XML waits for the schema
+                .flatMap(body -> publishMetrics.time(PublishMetrics.SCHEMA_LOOKUP,
+                                detail -> schemaDetailToDefinition(detail).formatType(),
+                                schemaService.fetchSchemaBySchemaId(schemaId))
                         .switchIfEmpty(Mono.error(new ResponseStatusException(NOT_FOUND, "Schema not found for schemaId: " + schemaId)))
                         .onErrorMap(DynamoDbException.class, e -> {
                             // Record processing failure for DynamoDB errors (fire and forget)
@@ -544,20 +469,16 @@ public class EventController implements DefaultApi {
                                     schemaDetail.version()
                             );
 
-                            // Step 1: Convert payload to JSON
-                            return convertToJson(payload, format)
-                                    .flatMap(jsonNode -> {
-                                        // Branch based on schema format type
-                                        if (schemaDefinition.formatType() == SchemaFormatType.JSON_SCHEMA) {
+                            // Branch based on schema format type
+                            Mono<String> published = toJsonNode(body, schemaDefinition)
+                                    .flatMap(jsonNode -> schemaDefinition.formatType() == SchemaFormatType.JSON_SCHEMA
                                             // JSON Schema validation flow
-                                            return handleJsonSchemaValidationBySchemaId(jsonNode, schemaDefinition, reference,
-                                                    eventId, idempotencyKeyValue, format, schemaDetail.topicName(), schemaId);
-                                        } else {
+                                            ? handleJsonSchemaValidationBySchemaId(jsonNode, schemaDefinition, reference,
+                                                    eventId, idempotencyKeyValue, format, schemaDetail.topicName(), schemaId)
                                             // Avro Schema validation flow
-                                            return handleAvroSchemaValidationBySchemaId(jsonNode, schemaDefinition, reference,
-                                                    eventId, idempotencyKeyValue, format, schemaDetail.topicName(), schemaId, schemaDefinition.avroSchema());
-                                        }
-                                    })
+                                            : handleAvroSchemaValidationBySchemaId(jsonNode, schemaDefinition, reference,
+                                                    eventId, idempotencyKeyValue, format, schemaDetail.topicName(), schemaId));
+                            return publishMetrics.countOutcome(schemaDefinition.formatType(), reference, published)
                                     .flatMap(publishedEventId -> {
                                         // Record status in idempotency ledger (non-blocking - don't fail request if ledger write fails)
                                         idempotencyLedgerService.recordEventStatus(
@@ -681,6 +602,62 @@ public class EventController implements DefaultApi {
                             errorMessage != null ? errorMessage : "An unexpected error occurred: " + throwable.getClass().getSimpleName(), 
                             throwable);
                 });
+
+        // Without X-Event-Id or Idempotency-Key the key is a fresh random id, so there is nothing to deduplicate
+        if (idempotencyKey == null && xEventId == null) {
+            return publish;
+        }
+        return publishOnce(schemaId, idempotencyKeyValue, eventId, publish);
+    }
+
+    /**
+     * Runs the publish pipeline at most once per idempotency key within {@code scope} (the producer domain or
+     * schemaId) and the dedupe window. A key whose publish completed is answered with the original eventId without
+     * validating or publishing again, and one still being published with 409 and Retry-After. The key is marked
+     * completed once Kafka has acknowledged the event; a failed or cancelled publish releases it so the client can
+     * retry it.
+     */
+    private Mono<ResponseEntity<AckResponse>> publishOnce(String scope, String idempotencyKey, String eventId,
+                                                          Mono<ResponseEntity<AckResponse>> publish) {
+        return idempotencyKeyService.claim(scope, idempotencyKey, eventId)
+                .onErrorMap(IdempotencyKeyInProgressException.class,
+                        e -> new ResponseStatusException(CONFLICT, e.getMessage(), e))
+                .map(originalEventId -> {
+                    AckResponse response = new AckResponse();
+                    response.setEventId(UUID.fromString(originalEventId));
+                    return ResponseEntity.accepted().header("Idempotent-Replayed", "true").body(response);
+                })
+                .switchIfEmpty(Mono.defer(() -> {
+                    AtomicBoolean published = new AtomicBoolean();
+                    return publish
+                            .flatMap(response -> {
+                                published.set(true);
+                                return idempotencyKeyService.complete(scope, idempotencyKey, eventId).thenReturn(response);
+                            })
+                            // Error, cancel or no response: the key must not stay claimed for the whole lease
+                            .doFinally(signal -> {
+                                if (!published.get()) {
+                                    idempotencyKeyService.release(scope, idempotencyKey, eventId).subscribe(
+                                            null,
+                                            releaseError -> log.warn("Failed to release idempotency key {} after a failed publish: {}",
+                                                    idempotencyKey, releaseError.getMessage())
+                                    );
+                                }
+                            });
+                }));
+    }
+
+    /**
+     * The request body as a JSON tree. XML is only parsed here, against the schema, so its values come out
+     * typed and its array fields as arrays without another pass over the tree.
+     */
+    private Mono<JsonNode> toJsonNode(Object body, SchemaDefinition schemaDefinition) {
+        if (body instanceof XmlPayload xml) {
+            return publishMetrics.time(PublishMetrics.PARSE, schemaDefinition.formatType(),
+                            formatConverter.xmlToJson(xml.bytes(), schemaDefinition))
+                    .onErrorMap(IOException.class, e -> new ResponseStatusException(BAD_REQUEST, e.getMessage(), e));
+        }
+        return Mono.just(body instanceof JsonNode jsonNode ? jsonNode : objectMapper.valueToTree(body));
     }
 
     /**
@@ -697,7 +674,8 @@ public class EventController implements DefaultApi {
             log.warn("Schema validation is DISABLED (webhooks.validation.enabled=false). Skipping validation for testing purposes.");
             validatedJsonMono = Mono.just(jsonNode);
         } else {
-            validatedJsonMono = jsonSchemaValidator.validate(jsonNode, schemaDefinition);
+            validatedJsonMono = publishMetrics.time(PublishMetrics.VALIDATION, SchemaFormatType.JSON_SCHEMA,
+                    jsonSchemaValidator.validate(jsonNode, schemaDefinition));
         }
         
         return validatedJsonMono
@@ -729,7 +707,8 @@ public class EventController implements DefaultApi {
             log.warn("Schema validation is DISABLED (webhooks.validation.enabled=false). Skipping validation for testing purposes.");
             validatedJsonMono = Mono.just(jsonNode);
         } else {
-            validatedJsonMono = jsonSchemaValidator.validate(jsonNode, schemaDefinition);
+            validatedJsonMono = publishMetrics.time(PublishMetrics.VALIDATION, SchemaFormatType.JSON_SCHEMA,
+                    jsonSchemaValidator.validate(jsonNode, schemaDefinition));
         }
         
         return validatedJsonMono
@@ -756,31 +735,11 @@ public class EventController implements DefaultApi {
     private Mono<String> handleAvroSchemaValidationBySchemaId(JsonNode jsonNode, SchemaDefinition schemaDefinition,
                                                                SchemaReference reference, String eventId,
                                                                String idempotencyKey, SchemaFormat format,
-                                                               String topicName, String schemaId, String avroSchemaString) {
-        // Check if validation is enabled
-        boolean validationEnabled = properties.validation() != null && properties.validation().isEnabled();
-        
-        // Parse Avro schema for type coercion (needed even if validation is disabled for serialization)
-        Schema avroSchema = new Schema.Parser().parse(avroSchemaString);
-
-        // Coerce JSON types to match Avro schema
-        JsonNode coercedJson = coerceJsonToAvroTypes(jsonNode, avroSchema);
-
-        // Convert to Avro and validate against Avro schema (or skip validation if disabled)
-        Mono<GenericRecord> avroRecordMono;
-        if (!validationEnabled) {
-            log.warn("Schema validation is DISABLED (webhooks.validation.enabled=false). Skipping Avro validation for testing purposes.");
-            // Create a minimal GenericRecord without validation
-            avroRecordMono = convertJsonToAvroRecord(coercedJson, avroSchema);
-        } else {
-            avroRecordMono = avroSchemaValidator.validate(coercedJson, schemaDefinition);
-        }
-        
-        return avroRecordMono
-                .flatMap(avroRecord -> {
-                    // Serialize validated Avro record to binary
-                    return avroSerializer.serializeToAvro(avroRecord, avroSchema);
-                })
+                                                               String topicName, String schemaId) {
+        // Encoding walks the Avro schema, so the payload is checked against it even when
+        // webhooks.validation.enabled=false
+        return publishMetrics.time(PublishMetrics.AVRO_ENCODING, SchemaFormatType.AVRO_SCHEMA,
+                        avroBinaryEncoder.encode(jsonNode, schemaDefinition))
                 .flatMap(avroBytes -> {
                     EventEnvelope envelope = new EventEnvelope(
                             eventId,
@@ -818,27 +777,10 @@ public class EventController implements DefaultApi {
         if (avroSchemaString == null || avroSchemaString.isEmpty()) {
             return Mono.error(new ResponseStatusException(BAD_REQUEST, "Avro schema is required for serialization even when validation is disabled"));
         }
-        
-        // Parse schema once and make it final for use in lambda
-        final Schema avroSchema = new Schema.Parser().parse(avroSchemaString);
-        // Coerce JSON types to match Avro schema (important for XML where all values are strings)
-        final JsonNode coercedJson = coerceJsonToAvroTypes(jsonNode, avroSchema);
 
-        // Convert to Avro and validate against Avro schema (or skip validation if disabled)
-        Mono<GenericRecord> avroRecordMono;
-        if (!validationEnabled) {
-            log.warn("Schema validation is DISABLED (webhooks.validation.enabled=false). Skipping Avro validation for testing purposes.");
-            // Create a minimal GenericRecord without validation
-            avroRecordMono = convertJsonToAvroRecord(coercedJson, avroSchema);
-        } else {
-            avroRecordMono = avroSchemaValidator.validate(coercedJson, schemaDefinition);
-        }
-        
-        return avroRecordMono
-                .flatMap(avroRecord -> {
-                    // Serialize validated Avro record to binary
-                    return avroSerializer.serializeToAvro(avroRecord, avroSchema);
-                })
+        // Coerces (XML delivers every value as text), validates and serializes in one pass
+        return publishMetrics.time(PublishMetrics.AVRO_ENCODING, SchemaFormatType.AVRO_SCHEMA,
+                        avroBinaryEncoder.encode(jsonNode, schemaDefinition))
                 .flatMap(avroBytes -> {
                     EventEnvelope envelope = new EventEnvelope(
                             eventId,
@@ -852,21 +794,6 @@ public class EventController implements DefaultApi {
                 });
     }
 
-    /**
-     * Convert payload to JSON format based on Content-Type.
-     * For JSON/XML/Avro, all are converted to JsonNode for further processing.
-     * Validation against Avro schema happens later in the flow.
-     */
-    private Mono<JsonNode> convertToJson(String payload, SchemaFormat format) {
-        return switch (format) {
-            case JSON -> Mono.fromCallable(() -> objectMapper.readTree(payload))
-                    .subscribeOn(Schedulers.boundedElastic());
-            case XML -> formatConverter.xmlToJson(payload);
-            case AVRO -> Mono.fromCallable(() -> objectMapper.readTree(payload))
-                    .subscribeOn(Schedulers.boundedElastic());
-        };
-    }
-
     private SchemaDefinition schemaDetailToDefinition(SchemaDetailResponse detail) {
         SchemaReference reference = new SchemaReference(
                 detail.producerDomain(),
@@ -898,114 +825,6 @@ public class EventController implements DefaultApi {
         );
     }
 
-    private Mono<GenericRecord> convertJsonToAvroRecord(JsonNode jsonNode, Schema avroSchema) {
-        return Mono.fromCallable(() -> {
-                    // Convert JsonNode to Avro-compatible JSON with proper type coercion
-                    JsonNode coercedJson = coerceJsonToAvroTypes(jsonNode, avroSchema);
-                    String jsonString = coercedJson.toString();
-                    
-                    GenericDatumReader<GenericRecord> reader = new GenericDatumReader<>(avroSchema);
-                    JsonDecoder decoder = DecoderFactory.get().jsonDecoder(avroSchema, jsonString);
-                    return reader.read(null, decoder);
-                })
-                .subscribeOn(Schedulers.boundedElastic());
-    }
-
-    private JsonNode coerceJsonToAvroTypes(JsonNode jsonNode, Schema avroSchema) {
-        if (avroSchema.getType() == Schema.Type.RECORD) {
-            com.fasterxml.jackson.databind.node.ObjectNode result = objectMapper.createObjectNode();
-            
-            for (org.apache.avro.Schema.Field field : avroSchema.getFields()) {
-                String fieldName = field.name();
-                JsonNode fieldValue = jsonNode.get(fieldName);
-                
-                if (fieldValue != null && !fieldValue.isNull()) {
-                    JsonNode coercedValue = coerceValueToAvroType(fieldValue, field.schema());
-                    result.set(fieldName, coercedValue);
-                }
-                // Note: Default values are handled by Avro during deserialization
-            }
-            
-            return result;
-        }
-        
-        return coerceValueToAvroType(jsonNode, avroSchema);
-    }
-
-    private JsonNode coerceValueToAvroType(JsonNode value, Schema schema) {
-        return switch (schema.getType()) {
-            case STRING -> objectMapper.valueToTree(value.asText());
-            case INT -> objectMapper.valueToTree(value.asInt());
-            case LONG -> objectMapper.valueToTree(value.asLong());
-            case FLOAT -> objectMapper.valueToTree((float) value.asDouble());
-            case DOUBLE -> {
-                // Handle string-to-double conversion (common from XML)
-                if (value.isTextual()) {
-                    try {
-                        yield objectMapper.valueToTree(Double.parseDouble(value.asText()));
-                    } catch (NumberFormatException e) {
-                        yield objectMapper.valueToTree(value.asDouble());
-                    }
-                }
-                yield objectMapper.valueToTree(value.asDouble());
-            }
-            case BOOLEAN -> objectMapper.valueToTree(value.asBoolean());
-            case RECORD -> {
-                if (value.isObject()) {
-                    com.fasterxml.jackson.databind.node.ObjectNode recordNode = objectMapper.createObjectNode();
-                    for (org.apache.avro.Schema.Field field : schema.getFields()) {
-                        JsonNode fieldValue = value.get(field.name());
-                        if (fieldValue != null && !fieldValue.isNull()) {
-                            recordNode.set(field.name(), coerceValueToAvroType(fieldValue, field.schema()));
-                        }
-                    }
-                    yield recordNode;
-                }
-                yield value;
-            }
-            case ARRAY -> {
-                if (value.isArray()) {
-                    com.fasterxml.jackson.databind.node.ArrayNode arrayNode = objectMapper.createArrayNode();
-                    Schema elementSchema = schema.getElementType();
-                    value.forEach(element -> arrayNode.add(coerceValueToAvroType(element, elementSchema)));
-                    yield arrayNode;
-                }
-                yield value;
-            }
-            case MAP -> {
-                if (value.isObject()) {
-                    com.fasterxml.jackson.databind.node.ObjectNode mapNode = objectMapper.createObjectNode();
-                    Schema valueSchema = schema.getValueType();
-                    value.fields().forEachRemaining(entry -> 
-                        mapNode.set(entry.getKey(), coerceValueToAvroType(entry.getValue(), valueSchema)));
-                    yield mapNode;
-                }
-                yield value;
-            }
-            case UNION -> {
-                // For union types, try each schema type until one works
-                JsonNode result = value; // Default fallback
-                for (Schema unionSchema : schema.getTypes()) {
-                    if (unionSchema.getType() == Schema.Type.NULL && value.isNull()) {
-                        result = objectMapper.nullNode();
-                        break;
-                    }
-                    try {
-                        JsonNode coerced = coerceValueToAvroType(value, unionSchema);
-                        if (coerced != null && !coerced.isNull()) {
-                            result = coerced;
-                            break;
-                        }
-                    } catch (Exception e) {
-                        // Try next union type
-                    }
-                }
-                yield result;
-            }
-            default -> value;
-        };
-    }
-
     @Override
     public Mono<ResponseEntity<SchemaMetadata>> fetchSchema(Mono<com.beewaxus.webhooksvcs.api.model.SchemaLookupRequest> schemaLookupRequest, ServerWebExchange exchange) {
         return schemaLookupRequest
@@ -1029,12 +848,7 @@ public class EventController implements DefaultApi {
                             .map(this::convertToSchemaMetadata)
                             .map(ResponseEntity::ok)
                             .switchIfEmpty(Mono.error(new ResponseStatusException(NOT_FOUND, "Schema not found")))
-                            .onErrorMap(DynamoDbException.class, e -> {
-                                if (e.getMessage().contains("does not exist")) {
-                                    return new ResponseStatusException(INTERNAL_SERVER_ERROR, "DynamoDB table not found: " + e.getMessage(), e);
-                                }
-                                return new ResponseStatusException(SERVICE_UNAVAILABLE, "DynamoDB service unavailable: " + e.getMessage(), e);
-                            });
+                            .onErrorMap(DynamoDbException.class, PublishSupport::schemaStoreError);
                 });
     }
 
@@ -1043,12 +857,7 @@ public class EventController implements DefaultApi {
         return Mono.just(ResponseEntity.ok(
                 schemaService.fetchAllSchemas()
                         .map(this::convertToSchemaMetadata)
-                        .onErrorMap(DynamoDbException.class, e -> {
-                            if (e.getMessage().contains("does not exist")) {
-                                return new ResponseStatusException(INTERNAL_SERVER_ERROR, "DynamoDB table not found: " + e.getMessage(), e);
-                            }
-                            return new ResponseStatusException(SERVICE_UNAVAILABLE, "DynamoDB service unavailable: " + e.getMessage(), e);
-                        })
+                        .onErrorMap(DynamoDbException.class, PublishSupport::schemaStoreError)
         ));
     }
 
@@ -1058,12 +867,7 @@ public class EventController implements DefaultApi {
                 .map(this::convertToApiSchemaDetailResponse)
                 .map(ResponseEntity::ok)
                 .switchIfEmpty(Mono.error(new ResponseStatusException(NOT_FOUND, "Schema not found for schemaId: " + schemaId)))
-                .onErrorMap(DynamoDbException.class, e -> {
-                    if (e.getMessage().contains("does not exist")) {
-                        return new ResponseStatusException(INTERNAL_SERVER_ERROR, "DynamoDB table not found: " + e.getMessage(), e);
-                    }
-                    return new ResponseStatusException(SERVICE_UNAVAILABLE, "DynamoDB service unavailable: " + e.getMessage(), e);
-                });
+                .onErrorMap(DynamoDbException.class, PublishSupport::schemaStoreError);
     }
 
     private SchemaMetadata convertToSchemaMetadata(SchemaDefinition schemaDefinition) {
@@ -0,0 +1,65 @@
+package com.beewaxus.webhooksvcs.pubsrc.controller;
+
+import com.beewaxus.webhooksvcs.api.model.BatchItemResult;
+import com.beewaxus.webhooksvcs.pubsrc.batch.BatchItemOutcome;
+import com.beewaxus.webhooksvcs.pubsrc.batch.BatchPublishService;
+import com.beewaxus.webhooksvcs.pubsrc.batch.NdjsonEventReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streaming publish endpoint: the request body is newline-delimited JSON, one BatchEvent per line, and the response
+ * streams one BatchItemResult per event back as newline-delimited JSON while the body is still being read.
+ * Not part of the generated {@link com.beewaxus.webhooksvcs.api.DefaultApi} because the body is consumed raw.
+ */
+@RestController
+public class EventStreamController {
+
+    private static final Logger log = LoggerFactory.getLogger(EventStreamController.class);
+
+    private final NdjsonEventReader ndjsonEventReader;
+    private final BatchPublishService batchPublishService;
+
+    public EventStreamController(NdjsonEventReader ndjsonEventReader, BatchPublishService batchPublishService) {
+        this.ndjsonEventReader = ndjsonEventReader;
+        this.batchPublishService = batchPublishService;
+    }
+
+    @PostMapping(
+            value = "/webhook/event/publisher/stream",
+            consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE
+    )
+    public Flux<BatchItemResult> publishEventStream(@RequestBody Flux<DataBuffer> body) {
+        AtomicInteger results = new AtomicInteger();
+        return batchPublishService.publishStream(ndjsonEventReader.read(body))
+                .map(EventStreamController::toResult)
+                .doOnNext(result -> results.incrementAndGet())
+                // Every event before the bad one has its result; the last line tells the client where reading stopped
+                .onErrorResume(error -> {
+                    log.warn("Event stream ended after {} events: {}", results.get(), error.getMessage());
+                    return Mono.just(new BatchItemResult()
+                            .index(results.get())
+                            .status(BatchItemResult.StatusEnum.REJECTED)
+                            .message("Malformed event stream: " + error.getMessage()));
+                });
+    }
+
+    private static BatchItemResult toResult(BatchItemOutcome outcome) {
+        return new BatchItemResult()
+                .index(outcome.index())
+                .eventId(outcome.eventId() != null ? UUID.fromString(outcome.eventId()) : null)
+                .status(BatchItemResult.StatusEnum.fromValue(outcome.status().name()))
+                .message(outcome.message());
+    }
+}
@@ -0,0 +1,167 @@
+package com.beewaxus.webhooksvcs.pubsrc.controller;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.ledger.IdempotencyLedgerService;
+import com.beewaxus.webhooksvcs.pubsrc.metrics.PublishMetrics;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.KafkaPublishException;
+import com.beewaxus.webhooksvcs.pubsrc.schema.DynamoDbException;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaDefinition;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaFormatType;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaReference;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaService;
+import com.beewaxus.webhooksvcs.pubsrc.validation.JsonSchemaValidator;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * The steps the structured and binary CloudEvent endpoints share: schema lookup and its error mapping, JSON Schema
+ * validation, topic and schemaId naming, and the fire-and-forget ledger writes around the publish.
+ */
+final class PublishSupport {
+
+    private static final Logger log = LoggerFactory.getLogger(PublishSupport.class);
+
+    private final SchemaService schemaService;
+    private final JsonSchemaValidator jsonSchemaValidator;
+    private final WebhooksProperties properties;
+    private final IdempotencyLedgerService idempotencyLedgerService;
+    private final PublishMetrics publishMetrics;
+
+    PublishSupport(SchemaService schemaService,
+                   JsonSchemaValidator jsonSchemaValidator,
+                   WebhooksProperties properties,
+                   IdempotencyLedgerService idempotencyLedgerService,
+                   PublishMetrics publishMetrics) {
+        this.schemaService = schemaService;
+        this.jsonSchemaValidator = jsonSchemaValidator;
+        this.properties = properties;
+        this.idempotencyLedgerService = idempotencyLedgerService;
+        this.publishMetrics = publishMetrics;
+    }
+
+    /**
+     * The schema for a CloudEvent, with a missing schema as 404 and DynamoDB failures as 500/503.
+     */
+    Mono<SchemaDefinition> fetchCloudEventSchema(SchemaReference reference) {
+        return publishMetrics.time(PublishMetrics.SCHEMA_LOOKUP, SchemaDefinition::formatType,
+                        schemaService.fetchSchema(reference))
+                .switchIfEmpty(Mono.error(new ResponseStatusException(NOT_FOUND,
+                        "Schema not found for source=" + reference.domain() +
+                        ", subject=" + reference.eventName() +
+                        ", specVersion=" + reference.version())))
+                .onErrorMap(DynamoDbException.class, PublishSupport::schemaStoreError);
+    }
+
+    static ResponseStatusException schemaStoreError(DynamoDbException e) {
+        if (e.getMessage().contains("does not exist")) {
+            return new ResponseStatusException(INTERNAL_SERVER_ERROR, "DynamoDB table not found: " + e.getMessage(), e);
+        }
+        return new ResponseStatusException(SERVICE_UNAVAILABLE, "DynamoDB service unavailable: " + e.getMessage(), e);
+    }
+
+    boolean validationEnabled() {
+        return properties.validation() != null && properties.validation().isEnabled();
+    }
+
+    /**
+     * Fails with 400 unless EVENT_SCHEMA_DEFINITION holds a JSON Schema.
+     */
+    Mono<Void> requireJsonSchema(SchemaDefinition schemaDefinition, SchemaReference reference) {
+        String jsonSchema = schemaDefinition.jsonSchema();
+        if (jsonSchema == null || jsonSchema.isEmpty()) {
+            log.error("JSON Schema (EVENT_SCHEMA_DEFINITION) not configured for source={}, subject={}, specVersion={}",
+                    reference.domain(), reference.eventName(), reference.version());
+            return Mono.error(new ResponseStatusException(BAD_REQUEST,
+                    "JSON Schema (EVENT_SCHEMA_DEFINITION) not configured for this event"));
+        }
+        if (jsonSchema.trim().startsWith("{\"type\":\"record\"")) {
+            log.error("EVENT_SCHEMA_DEFINITION contains Avro schema instead of JSON Schema for source={}, subject={}, specVersion={}. " +
+                    "Schema preview: {}",
+                    reference.domain(), reference.eventName(), reference.version(),
+                    jsonSchema.length() > 200 ? jsonSchema.substring(0, 200) + "..." : jsonSchema);
+            return Mono.error(new ResponseStatusException(BAD_REQUEST,
+                    "EVENT_SCHEMA_DEFINITION contains an Avro schema, but this endpoint requires a JSON Schema. " +
+                    "Please provide a valid JSON Schema in EVENT_SCHEMA_DEFINITION or use EVENT_SCHEMA_DEFINITION_AVRO for Avro schemas."));
+        }
+        return Mono.empty();
+    }
+
+    /**
+     * Validates CloudEvent data against its JSON Schema. A failure is answered with 400 carrying the root cause's
+     * message and recorded in the ledger as EVENT_PROCESSING_FAILED.
+     */
+    Mono<JsonNode> validateCloudEventData(JsonNode data, SchemaDefinition schemaDefinition,
+                                          SchemaReference reference, String eventId) {
+        return publishMetrics.time(PublishMetrics.VALIDATION, SchemaFormatType.JSON_SCHEMA,
+                        jsonSchemaValidator.validate(data, schemaDefinition))
+                .onErrorResume(throwable -> {
+                    if (throwable instanceof ResponseStatusException) {
+                        return Mono.error(throwable);
+                    }
+                    Throwable rootCause = throwable;
+                    while (rootCause.getCause() != null && rootCause.getCause() != rootCause) {
+                        rootCause = rootCause.getCause();
+                    }
+                    String errorMessage = rootCause.getMessage();
+                    if (errorMessage == null || errorMessage.isEmpty()) {
+                        errorMessage = rootCause.getClass().getSimpleName();
+                    }
+                    log.error("JSON Schema validation failed for CloudEvent. Source: {}, Subject: {}, SpecVersion: {}, " +
+                            "Error Type: {}, Error Message: {}, Root Cause: {}",
+                            reference.domain(), reference.eventName(), reference.version(),
+                            throwable.getClass().getName(), errorMessage, rootCause.getClass().getName(), throwable);
+
+                    recordStatus(eventId, IdempotencyLedgerService.EventStatus.EVENT_PROCESSING_FAILED, null);
+                    return Mono.error(new ResponseStatusException(BAD_REQUEST, errorMessage, throwable));
+                });
+    }
+
+    /**
+     * Records the outcome of a publish in the ledger: EVENT_READY_FOR_DELIVERY with the schemaId once sent, or
+     * EVENT_DELIVERY_FAILED when Kafka is unavailable, which is answered with 503. The ledger writes never fail the
+     * request.
+     */
+    Mono<String> recordDelivery(Mono<String> published, SchemaReference reference, String eventId) {
+        return published
+                .doOnNext(publishedEventId -> recordStatus(publishedEventId,
+                        IdempotencyLedgerService.EventStatus.EVENT_READY_FOR_DELIVERY, schemaId(reference)))
+                .onErrorResume(KafkaPublishException.class, e -> {
+                    recordStatus(eventId, IdempotencyLedgerService.EventStatus.EVENT_DELIVERY_FAILED, null);
+                    return Mono.error(new ResponseStatusException(SERVICE_UNAVAILABLE,
+                            "Kafka is unavailable: " + e.getMessage(), e));
+                });
+    }
+
+    private void recordStatus(String eventId, IdempotencyLedgerService.EventStatus status, String schemaId) {
+        idempotencyLedgerService.recordEventStatus(eventId, status, schemaId).subscribe(
+                null,
+                error -> log.warn("Failed to record event status {} in idempotency ledger for eventId: {}. Error: {}",
+                        status, eventId, error.getMessage())
+        );
+    }
+
+    // {prefix}.{domain}.{eventName}
+    String topicName(SchemaReference reference) {
+        return "%s.%s.%s".formatted(
+                properties.kafka().ingressTopicPrefix(),
+                reference.domain(),
+                reference.eventName()
+        );
+    }
+
+    // SCHEMA_{DOMAIN}_{EVENT}_{VERSION}, the schemaId the ledger records
+    static String schemaId(SchemaReference reference) {
+        return String.format("SCHEMA_%s_%s_%s",
+                reference.domain().toUpperCase(),
+                reference.eventName().toUpperCase(),
+                reference.version().toUpperCase().replace(".", "_"));
+    }
+}
@@ -0,0 +1,251 @@
+package com.beewaxus.webhooksvcs.pubsrc.converter;
+
+import com.beewaxus.webhooksvcs.pubsrc.schema.CompiledSchemaCache;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaDefinition;
+import com.beewaxus.webhooksvcs.pubsrc.scheduling.CpuStageScheduler;
+import com.beewaxus.webhooksvcs.pubsrc.validation.SchemaValidationException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.util.Utf8;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes a Jackson tree straight to Avro binary in a single walk over the schema.
+ * Applies the same type coercion the publisher has always used for XML and loosely typed JSON
+ * (numbers and booleans given as strings, etc.) while writing, so no intermediate coerced tree,
+ * JSON string or {@code GenericRecord} is built. Validation failures are reported as
+ * {@link SchemaValidationException} with the JSON path of the offending field.
+ */
+@Component
+public class AvroBinaryEncoder {
+
+    private static final Logger log = LoggerFactory.getLogger(AvroBinaryEncoder.class);
+
+    private final CompiledSchemaCache compiledSchemaCache;
+    private final CpuStageScheduler cpuStageScheduler;
+
+    public AvroBinaryEncoder(CompiledSchemaCache compiledSchemaCache, CpuStageScheduler cpuStageScheduler) {
+        this.compiledSchemaCache = compiledSchemaCache;
+        this.cpuStageScheduler = cpuStageScheduler;
+    }
+
+    /**
+     * Encode the payload against the Avro schema of the definition, using the cached compiled schema
+     */
+    public Mono<byte[]> encode(JsonNode payload, SchemaDefinition schemaDefinition) {
+        return cpuStageScheduler.run("avro-encoding",
+                () -> encode(payload, compiledSchemaCache.compile(schemaDefinition).avroSchema()));
+    }
+
+    /**
+     * Encode the payload against the given Avro schema
+     */
+    public byte[] encode(JsonNode payload, Schema schema) {
+        try {
+            byte[] avroBytes = AvroEncodeBuffer.encode(schema, encoder -> write(payload, schema, "$", encoder));
+            log.debug("Encoded payload to {} Avro bytes", avroBytes.length);
+            return avroBytes;
+        } catch (IOException e) {
+            log.error("Failed to encode Avro payload", e);
+            throw new RuntimeException("Failed to serialize Avro record: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the schema's default for an absent field, as Avro would when reading with this schema.
+     */
+    private static void writeDefault(Schema.Field field, BinaryEncoder encoder) throws IOException {
+        Object defaultValue = GenericData.get().getDefaultValue(field);
+        new GenericDatumWriter<>(field.schema(), GenericData.get()).write(defaultValue, encoder);
+    }
+
+    private void write(JsonNode value, Schema schema, String path, BinaryEncoder encoder) throws IOException {
+        switch (schema.getType()) {
+            case RECORD -> {
+                if (!value.isObject()) {
+                    throw invalid(path, "object expected");
+                }
+                for (Schema.Field field : schema.getFields()) {
+                    String fieldPath = path + "." + field.name();
+                    JsonNode fieldValue = value.get(field.name());
+                    if (fieldValue == null && field.hasDefaultValue()) {
+                        writeDefault(field, encoder);
+                        continue;
+                    }
+                    if (fieldValue == null || fieldValue.isNull()) {
+                        if (!isNullable(field.schema())) {
+                            throw invalid(fieldPath, "is missing but it is required");
+                        }
+                        fieldValue = NullNode.getInstance();
+                    }
+                    write(fieldValue, field.schema(), fieldPath, encoder);
+                }
+            }
+            case ARRAY -> {
+                if (!value.isArray()) {
+                    throw invalid(path, "array expected");
+                }
+                Schema elementSchema = schema.getElementType();
+                encoder.writeArrayStart();
+                encoder.setItemCount(value.size());
+                for (int i = 0; i < value.size(); i++) {
+                    encoder.startItem();
+                    write(value.get(i), elementSchema, path + "[" + i + "]", encoder);
+                }
+                encoder.writeArrayEnd();
+            }
+            case MAP -> {
+                if (!value.isObject()) {
+                    throw invalid(path, "object expected");
+                }
+                Schema valueSchema = schema.getValueType();
+                Map<CharSequence, JsonNode> entries = mapEntries(value, schema);
+                encoder.writeMapStart();
+                encoder.setItemCount(entries.size());
+                for (Map.Entry<CharSequence, JsonNode> entry : entries.entrySet()) {
+                    encoder.startItem();
+                    encoder.writeString(entry.getKey().toString());
+                    write(entry.getValue(), valueSchema, path + "." + entry.getKey(), encoder);
+                }
+                encoder.writeMapEnd();
+            }
+            case UNION -> {
+                int branch = resolveUnionBranch(value, schema);
+                if (branch < 0) {
+                    throw invalid(path, "does not match any of " + schema.getTypes());
+                }
+                encoder.writeIndex(branch);
+                write(value, schema.getTypes().get(branch), path, encoder);
+            }
+            case ENUM -> {
+                if (!value.isTextual() || !schema.hasEnumSymbol(value.asText())) {
+                    throw invalid(path, "does not have a value in the enumeration " + schema.getEnumSymbols());
+                }
+                encoder.writeEnum(schema.getEnumOrdinal(value.asText()));
+            }
+            case FIXED -> {
+                if (!value.isTextual()) {
+                    throw invalid(path, "string expected");
+                }
+                byte[] bytes = value.asText().getBytes(StandardCharsets.ISO_8859_1);
+                if (bytes.length != schema.getFixedSize()) {
+                    throw invalid(path, "must be exactly " + schema.getFixedSize() + " bytes long");
+                }
+                encoder.writeFixed(bytes);
+            }
+            case BYTES -> {
+                if (!value.isTextual()) {
+                    throw invalid(path, "string expected");
+                }
+                encoder.writeBytes(value.asText().getBytes(StandardCharsets.ISO_8859_1));
+            }
+            case NULL -> {
+                if (!value.isNull()) {
+                    throw invalid(path, "null expected");
+                }
+                encoder.writeNull();
+            }
+            // Scalars are coerced the same way as before: XML delivers every value as text
+            case STRING -> encoder.writeString(value.asText());
+            case INT -> encoder.writeInt(value.asInt());
+            case LONG -> encoder.writeLong(value.asLong());
+            case FLOAT -> encoder.writeFloat((float) value.asDouble());
+            case DOUBLE -> encoder.writeDouble(value.asDouble());
+            case BOOLEAN -> encoder.writeBoolean(value.asBoolean());
+        }
+    }
+
+    /**
+     * Picks the union branch for a plain (non Avro-JSON-wrapped) value: a branch whose type matches
+     * the JSON node type wins, otherwise the first scalar branch the value can be coerced into.
+     */
+    private int resolveUnionBranch(JsonNode value, Schema union) {
+        List<Schema> types = union.getTypes();
+        if (value.isNull()) {
+            return indexOf(types, Schema.Type.NULL);
+        }
+        for (int i = 0; i < types.size(); i++) {
+            if (matchesNodeType(value, types.get(i))) {
+                return i;
+            }
+        }
+        if (value.isValueNode()) {
+            for (int i = 0; i < types.size(); i++) {
+                if (isCoercibleScalar(types.get(i).getType())) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private boolean matchesNodeType(JsonNode value, Schema schema) {
+        return switch (schema.getType()) {
+            case STRING -> value.isTextual();
+            case ENUM -> value.isTextual() && schema.hasEnumSymbol(value.asText());
+            case BYTES -> value.isTextual();
+            case FIXED -> value.isTextual()
+                    && value.asText().getBytes(StandardCharsets.ISO_8859_1).length == schema.getFixedSize();
+            case INT -> value.isIntegralNumber() && value.canConvertToInt();
+            case LONG -> value.isIntegralNumber() && value.canConvertToLong();
+            case FLOAT, DOUBLE -> value.isNumber();
+            case BOOLEAN -> value.isBoolean();
+            case RECORD, MAP -> value.isObject();
+            case ARRAY -> value.isArray();
+            case NULL, UNION -> false;
+        };
+    }
+
+    private static boolean isCoercibleScalar(Schema.Type type) {
+        return switch (type) {
+            case STRING, INT, LONG, FLOAT, DOUBLE, BOOLEAN -> true;
+            default -> false;
+        };
+    }
+
+    private static boolean isNullable(Schema schema) {
+        if (schema.getType() == Schema.Type.NULL) {
+            return true;
+        }
+        return schema.getType() == Schema.Type.UNION && indexOf(schema.getTypes(), Schema.Type.NULL) >= 0;
+    }
+
+    private static int indexOf(List<Schema> types, Schema.Type type) {
+        for (int i = 0; i < types.size(); i++) {
+            if (types.get(i).getType() == type) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Map entries in the order GenericDatumWriter emits them for a record read by GenericDatumReader
+     * (a HashMap keyed by Utf8, or String when the schema asks for java strings), so the encoded
+     * bytes are identical to the previous decode-then-serialize path.
+     */
+    private static Map<CharSequence, JsonNode> mapEntries(JsonNode value, Schema mapSchema) {
+        boolean javaStrings = GenericData.StringType.String.name().equals(mapSchema.getProp(GenericData.STRING_PROP));
+        Map<CharSequence, JsonNode> entries = new HashMap<>(1);
+        value.fields().forEachRemaining(entry ->
+                entries.put(javaStrings ? entry.getKey() : new Utf8(entry.getKey()), entry.getValue()));
+        return entries;
+    }
+
+    private static SchemaValidationException invalid(String path, String message) {
+        return new SchemaValidationException("Avro schema validation failed: " + path + ": " + message);
+    }
+}
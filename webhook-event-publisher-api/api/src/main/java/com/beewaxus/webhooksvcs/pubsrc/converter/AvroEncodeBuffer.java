@@ -0,0 +1,107 @@
+package com.beewaxus.webhooksvcs.pubsrc.converter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-thread output buffer and direct binary encoder shared by {@link AvroBinaryEncoder} and {@link AvroSerializer}.
+ * <ul>
+ *     <li>Nothing is allocated per record except the returned array. That array is exactly the record size and is
+ *     handed to {@code ByteArraySerializer} as is, so it is the only copy before the producer's own batch buffer.</li>
+ *     <li>Each schema keeps a running average of its encoded size. A thread's buffer is grown to that size up front
+ *     instead of doubling its way there, and is dropped when one outlier left it far larger than the schema needs.</li>
+ * </ul>
+ */
+final class AvroEncodeBuffer {
+
+    private static final int MIN_CAPACITY = 256;
+    // A buffer above this is always dropped after use
+    private static final int MAX_RETAINED_BYTES = 1024 * 1024;
+    // Buffers up to this size are kept whatever the schema's typical size
+    private static final int ALWAYS_RETAINED_BYTES = 64 * 1024;
+    private static final int OVERSIZE_FACTOR = 8;
+
+    private static final ThreadLocal<AvroEncodeBuffer> BUFFER = ThreadLocal.withInitial(AvroEncodeBuffer::new);
+
+    // Keyed by identity of the shared compiled Schema, so estimates go away with the compiled schema
+    private static final Cache<Schema, SizeEstimate> SIZES = Caffeine.newBuilder().weakKeys().build();
+
+    private final Output out = new Output();
+    private final BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+
+    private AvroEncodeBuffer() {
+    }
+
+    @FunctionalInterface
+    interface Writer {
+        void write(BinaryEncoder encoder) throws IOException;
+    }
+
+    static byte[] encode(Schema schema, Writer writer) throws IOException {
+        SizeEstimate size = SIZES.get(schema, key -> new SizeEstimate());
+        int expected = size.expected();
+        AvroEncodeBuffer buffer = BUFFER.get();
+        buffer.out.reset();
+        buffer.out.ensureCapacity(expected);
+        try {
+            writer.write(buffer.encoder);
+            buffer.encoder.flush();
+            byte[] bytes = buffer.out.toByteArray();
+            size.record(bytes.length);
+            return bytes;
+        } finally {
+            int capacity = buffer.out.capacity();
+            if (capacity > MAX_RETAINED_BYTES
+                    || (capacity > ALWAYS_RETAINED_BYTES && capacity > expected * OVERSIZE_FACTOR)) {
+                BUFFER.remove();
+            }
+        }
+    }
+
+    // Capacity of the calling thread's buffer, for tests
+    static int retainedCapacity() {
+        return BUFFER.get().out.capacity();
+    }
+
+    /**
+     * Exponentially weighted average (1/8 weight per sample) of encoded sizes, plus a quarter for headroom.
+     */
+    private static final class SizeEstimate {
+
+        private final AtomicInteger average = new AtomicInteger();
+
+        int expected() {
+            int current = average.get();
+            return Math.max(MIN_CAPACITY, current + current / 4);
+        }
+
+        void record(int bytes) {
+            average.updateAndGet(current -> current == 0 ? bytes : current + (bytes - current) / 8);
+        }
+    }
+
+    private static final class Output extends ByteArrayOutputStream {
+
+        Output() {
+            super(MIN_CAPACITY);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+
+        void ensureCapacity(int capacity) {
+            if (capacity > buf.length) {
+                buf = Arrays.copyOf(buf, capacity);
+            }
+        }
+    }
+}
@@ -1,17 +1,19 @@
 package com.beewaxus.webhooksvcs.pubsrc.converter;
 
+import com.beewaxus.webhooksvcs.pubsrc.schema.CompiledSchema;
+import com.beewaxus.webhooksvcs.pubsrc.schema.CompiledSchemaCache;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaDefinition;
+import com.beewaxus.webhooksvcs.pubsrc.scheduling.CpuStageScheduler;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.GenericRecord;
-import org.apache.avro.io.BinaryEncoder;
-import org.apache.avro.io.EncoderFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 @Component
@@ -19,28 +21,44 @@ public class AvroSerializer {
 
     private static final Logger log = LoggerFactory.getLogger(AvroSerializer.class);
 
+    private final CompiledSchemaCache compiledSchemaCache;
+    private final CpuStageScheduler cpuStageScheduler;
+
+    // Writers for schemas passed in directly; definitions use the writer of their compiled schema
+    private final Cache<Schema, GenericDatumWriter<GenericRecord>> writers = Caffeine.newBuilder().weakKeys().build();
+
+    public AvroSerializer(CompiledSchemaCache compiledSchemaCache, CpuStageScheduler cpuStageScheduler) {
+        this.compiledSchemaCache = compiledSchemaCache;
+        this.cpuStageScheduler = cpuStageScheduler;
+    }
+
+    /**
+     * Serialize Avro GenericRecord to binary format using the cached writer for the schema definition
+     */
+    public Mono<byte[]> serializeToAvro(GenericRecord record, SchemaDefinition schemaDefinition) {
+        return Mono.defer(() -> {
+            CompiledSchema compiled = compiledSchemaCache.compile(schemaDefinition);
+            return serialize(record, compiled.avroSchema(), compiled.avroWriter());
+        });
+    }
+
     /**
      * Serialize Avro GenericRecord to binary format
      */
     public Mono<byte[]> serializeToAvro(GenericRecord record, Schema schema) {
-        return Mono.fromCallable(() -> {
-                    try {
-                        GenericDatumWriter<GenericRecord> writer = new GenericDatumWriter<>(schema);
-                        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(outputStream, null);
-                        
-                        writer.write(record, encoder);
-                        encoder.flush();
-                        
-                        byte[] avroBytes = outputStream.toByteArray();
-                        log.debug("Serialized Avro record to {} bytes", avroBytes.length);
-                        return avroBytes;
-                    } catch (IOException e) {
-                        log.error("Failed to serialize Avro record", e);
-                        throw new RuntimeException("Failed to serialize Avro record: " + e.getMessage(), e);
-                    }
-                })
-                .subscribeOn(Schedulers.boundedElastic());
+        return Mono.defer(() -> serialize(record, schema, writers.get(schema, GenericDatumWriter::new)));
     }
-}
 
+    private Mono<byte[]> serialize(GenericRecord record, Schema schema, GenericDatumWriter<GenericRecord> writer) {
+        return cpuStageScheduler.run("avro-serialization", () -> {
+            try {
+                byte[] avroBytes = AvroEncodeBuffer.encode(schema, encoder -> writer.write(record, encoder));
+                log.debug("Serialized Avro record to {} bytes", avroBytes.length);
+                return avroBytes;
+            } catch (IOException e) {
+                log.error("Failed to serialize Avro record", e);
+                throw new RuntimeException("Failed to serialize Avro record: " + e.getMessage(), e);
+            }
+        });
+    }
+}
@@ -1,50 +1,83 @@
 package com.beewaxus.webhooksvcs.pubsrc.converter;
 
+import com.beewaxus.webhooksvcs.pubsrc.scheduling.CpuStageScheduler;
+import com.beewaxus.webhooksvcs.pubsrc.schema.CompiledSchema;
+import com.beewaxus.webhooksvcs.pubsrc.schema.CompiledSchemaCache;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaDefinition;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaFormatType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericRecord;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
 
 @Component
 public class FormatConverter {
 
-    private final XmlMapper xmlMapper = new XmlMapper();
+    private final StreamingXmlReader xmlReader = new StreamingXmlReader();
     private final ObjectMapper jsonMapper = new ObjectMapper();
+    private final CompiledSchemaCache compiledSchemaCache;
+    private final CpuStageScheduler cpuStageScheduler;
+
+    public FormatConverter(CompiledSchemaCache compiledSchemaCache, CpuStageScheduler cpuStageScheduler) {
+        this.compiledSchemaCache = compiledSchemaCache;
+        this.cpuStageScheduler = cpuStageScheduler;
+    }
 
     /**
-     * Convert XML string to JSON
+     * Convert an XML document to JSON on the calling thread, without a schema: leaves stay text and only
+     * repeated elements become arrays
      */
-    public Mono<JsonNode> xmlToJson(String xmlPayload) {
-        return Mono.fromCallable(() -> {
-                    return (JsonNode) xmlMapper.readTree(xmlPayload);
-                })
-                .subscribeOn(Schedulers.boundedElastic());
+    public JsonNode xmlToJson(byte[] xmlPayload) throws IOException {
+        return read(xmlPayload, XmlShape.UNTYPED);
+    }
+
+    /**
+     * Convert an XML document to the JSON its schema describes in one streaming pass: values are typed and
+     * array fields built from the Avro or JSON Schema as the elements are read
+     */
+    public Mono<JsonNode> xmlToJson(byte[] xmlPayload, SchemaDefinition schemaDefinition) {
+        return cpuStageScheduler.run("xml-to-json", () -> read(xmlPayload, shapeOf(schemaDefinition)));
     }
 
     /**
      * Convert JSON to Avro GenericRecord
      */
     public Mono<GenericRecord> jsonToAvro(JsonNode jsonPayload, Schema avroSchema) {
-        return Mono.fromCallable(() -> {
-                    // This is a simplified conversion - in production you'd use Avro's JSON encoder
-                    GenericRecord record = new GenericData.Record(avroSchema);
+        return cpuStageScheduler.run("json-to-avro", () -> {
+            // This is a simplified conversion - in production you'd use Avro's JSON encoder
+            GenericRecord record = new GenericData.Record(avroSchema);
+
+            // Map fields from JSON to Avro
+            avroSchema.getFields().forEach(field -> {
+                JsonNode value = jsonPayload.get(field.name());
+                if (value != null && !value.isNull()) {
+                    record.put(field.name(), convertValue(value, field.schema()));
+                }
+            });
 
-                    // Map fields from JSON to Avro
-                    avroSchema.getFields().forEach(field -> {
-                        JsonNode value = jsonPayload.get(field.name());
-                        if (value != null && !value.isNull()) {
-                            record.put(field.name(), convertValue(value, field.schema()));
-                        }
-                    });
+            return record;
+        });
+    }
+
+    private XmlShape shapeOf(SchemaDefinition schemaDefinition) {
+        CompiledSchema compiled = compiledSchemaCache.compile(schemaDefinition);
+        return schemaDefinition.formatType() == SchemaFormatType.AVRO_SCHEMA
+                ? XmlShape.of(compiled.avroSchema())
+                : XmlShape.of(compiled.jsonSchema().getSchemaNode());
+    }
 
-                    return record;
-                })
-                .subscribeOn(Schedulers.boundedElastic());
+    private JsonNode read(byte[] xmlPayload, XmlShape shape) throws IOException {
+        try {
+            return xmlReader.read(xmlPayload, shape);
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid XML: " + e.getMessage(), e);
+        }
     }
 
     private Object convertValue(JsonNode value, Schema schema) {
@@ -0,0 +1,233 @@
+package com.beewaxus.webhooksvcs.pubsrc.converter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Reads an XML document with StAX straight into the JSON tree the validators and the Avro encoder take, typing each
+ * value from an {@link XmlShape} as its element closes. Apart from the tree being built, the reader only holds one
+ * frame per open element, so its working memory follows the nesting depth rather than the document size.
+ * <ul>
+ *     <li>The root element becomes the top-level object; attributes become fields next to the child elements.</li>
+ *     <li>An element the schema declares as an array always yields an array, even when it occurs once. Both the
+ *     repeated form ({@code <tag>a</tag><tag>b</tag>}) and the wrapped form ({@code <tags><tag>a</tag></tags>})
+ *     are read; an element whose first child is not a field of the item type is taken as a wrapper.</li>
+ *     <li>Without a schema, elements that repeat become arrays and every leaf stays text, as with
+ *     {@code XmlMapper.readTree}.</li>
+ *     <li>{@code xsi:nil="true"} yields null; DTDs and external entities are refused.</li>
+ * </ul>
+ */
+final class StreamingXmlReader {
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    private final XMLInputFactory inputFactory;
+
+    StreamingXmlReader() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        this.inputFactory = factory;
+    }
+
+    JsonNode read(byte[] xml, XmlShape shape) throws XMLStreamException {
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(new ByteArrayInputStream(xml));
+        try {
+            Deque<Frame> open = new ArrayDeque<>();
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT -> {
+                        Frame parent = open.peek();
+                        Frame frame = parent == null
+                                ? new Frame(reader.getLocalName(), shape, Role.FIELD)
+                                : parent.child(reader.getLocalName());
+                        frame.attributes(reader);
+                        open.push(frame);
+                    }
+                    case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> {
+                        Frame frame = open.peek();
+                        if (frame != null) {
+                            frame.text(reader.getText());
+                        }
+                    }
+                    case XMLStreamConstants.END_ELEMENT -> {
+                        Frame frame = open.pop();
+                        JsonNode value = frame.close();
+                        if (open.isEmpty()) {
+                            return value;
+                        }
+                        open.peek().add(frame, value);
+                    }
+                    default -> {
+                    }
+                }
+            }
+            throw new XMLStreamException("XML document has no root element");
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * How an element relates to the field it fills in its parent.
+     */
+    private enum Role {
+        /** The value of a field, turned into an array only if the element repeats. */
+        FIELD,
+        /** Declared as an array, and not yet known to be one item or the wrapper of all items. */
+        UNDECIDED,
+        /** One item of an array field. */
+        ITEM,
+        /** Holds all items of an array field as its children. */
+        WRAPPER
+    }
+
+    /**
+     * One open element. Its object, text and item array are only created once something goes into them.
+     */
+    private static final class Frame {
+
+        private final String name;
+        private XmlShape shape;
+        private Role role;
+        private boolean nil;
+        private ObjectNode object;
+        private ArrayNode items;
+        private StringBuilder text;
+
+        Frame(String name, XmlShape shape, Role role) {
+            this.name = name;
+            this.shape = shape;
+            this.role = role;
+        }
+
+        Frame child(String childName) {
+            if (role == Role.UNDECIDED) {
+                // The first child tells an item (<tag><name/></tag>) from a wrapper (<tags><tag/></tags>)
+                shape = shape.items();
+                if (shape.hasField(childName)) {
+                    role = Role.ITEM;
+                } else {
+                    role = Role.WRAPPER;
+                    object = null;
+                }
+            }
+            if (role == Role.WRAPPER) {
+                return new Frame(childName, shape, Role.FIELD);
+            }
+            XmlShape childShape = shape.field(childName);
+            return new Frame(childName, childShape, childShape.isArray() ? Role.UNDECIDED : Role.FIELD);
+        }
+
+        void attributes(XMLStreamReader reader) {
+            XmlShape owner = role == Role.UNDECIDED ? shape.items() : shape;
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                String localName = reader.getAttributeLocalName(i);
+                if (XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI.equals(reader.getAttributeNamespace(i))) {
+                    nil |= "nil".equals(localName) && "true".equals(reader.getAttributeValue(i).trim());
+                    continue;
+                }
+                object().set(localName, owner.field(localName).scalar(reader.getAttributeValue(i)));
+            }
+        }
+
+        void text(String characters) {
+            if (text == null) {
+                text = new StringBuilder(characters.length());
+            }
+            text.append(characters);
+        }
+
+        void add(Frame child, JsonNode value) {
+            // Indentation between child elements is not content
+            if (isBlank(text)) {
+                text = null;
+            }
+            if (role == Role.WRAPPER) {
+                items().add(value);
+                return;
+            }
+            ObjectNode fields = object();
+            JsonNode existing = fields.get(child.name);
+            switch (child.role) {
+                case ITEM -> array(fields, existing, child.name).add(value);
+                case WRAPPER -> array(fields, existing, child.name).addAll((ArrayNode) value);
+                default -> {
+                    if (existing == null) {
+                        fields.set(child.name, value);
+                    } else if (existing instanceof ArrayNode repeated) {
+                        repeated.add(value);
+                    } else {
+                        // Repeated although not declared as an array, read the way XmlMapper does
+                        fields.putArray(child.name).add(existing).add(value);
+                    }
+                }
+            }
+        }
+
+        JsonNode close() {
+            if (nil) {
+                role = Role.FIELD;
+                return NullNode.getInstance();
+            }
+            if (role == Role.UNDECIDED) {
+                // No child elements: an empty wrapper, or a single item given as text and/or attributes
+                shape = shape.items();
+                role = object == null && isBlank(text) ? Role.WRAPPER : Role.ITEM;
+            }
+            if (role == Role.WRAPPER) {
+                return items();
+            }
+            if (object != null) {
+                if (!isBlank(text)) {
+                    object.put("", text.toString());
+                }
+                return object;
+            }
+            return shape.scalar(text == null ? "" : text.toString());
+        }
+
+        private static ArrayNode array(ObjectNode fields, JsonNode existing, String name) {
+            return existing instanceof ArrayNode array ? array : fields.putArray(name);
+        }
+
+        private static boolean isBlank(StringBuilder text) {
+            if (text != null) {
+                for (int i = 0; i < text.length(); i++) {
+                    if (!Character.isWhitespace(text.charAt(i))) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private ObjectNode object() {
+            if (object == null) {
+                object = NODES.objectNode();
+            }
+            return object;
+        }
+
+        private ArrayNode items() {
+            if (items == null) {
+                items = NODES.arrayNode();
+            }
+            return items;
+        }
+    }
+}
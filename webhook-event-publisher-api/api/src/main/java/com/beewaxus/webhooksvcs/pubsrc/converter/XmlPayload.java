@@ -0,0 +1,9 @@
+package com.beewaxus.webhooksvcs.pubsrc.converter;
+
+/**
+ * An XML request body, kept as bytes until the target schema is known so
+ * {@link FormatConverter#xmlToJson(byte[], com.beewaxus.webhooksvcs.pubsrc.schema.SchemaDefinition)}
+ * can type it while reading it once.
+ */
+public record XmlPayload(byte[] bytes) {
+}
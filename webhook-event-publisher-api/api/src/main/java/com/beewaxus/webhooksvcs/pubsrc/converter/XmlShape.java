@@ -0,0 +1,305 @@
+package com.beewaxus.webhooksvcs.pubsrc.converter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.BigIntegerNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.apache.avro.Schema;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * What the target schema expects at one position of an XML document, which is all {@link StreamingXmlReader}
+ * needs to type leaf text and to tell repeated elements from single ones while it reads.
+ * <p>
+ * Values the schema does not allow are left as text rather than rejected here, so the validator that runs next
+ * reports them with its usual messages.
+ */
+interface XmlShape {
+
+    /**
+     * No schema: every leaf is text and only elements that actually repeat become arrays.
+     */
+    XmlShape UNTYPED = new XmlShape() {
+        @Override
+        public XmlShape field(String name) {
+            return this;
+        }
+
+        @Override
+        public boolean hasField(String name) {
+            return false;
+        }
+
+        @Override
+        public boolean isArray() {
+            return false;
+        }
+
+        @Override
+        public XmlShape items() {
+            return this;
+        }
+
+        @Override
+        public JsonNode scalar(String text) {
+            return TextNode.valueOf(text);
+        }
+    };
+
+    /**
+     * Shape of a child element or attribute called {@code name}, {@link #UNTYPED} when the schema does not know it.
+     */
+    XmlShape field(String name);
+
+    /**
+     * Whether {@code name} is a declared field, used to tell an array item from a wrapper around the items.
+     */
+    boolean hasField(String name);
+
+    boolean isArray();
+
+    XmlShape items();
+
+    /**
+     * Typed value of an element without child elements.
+     */
+    JsonNode scalar(String text);
+
+    static XmlShape of(Schema avroSchema) {
+        return new AvroShape(avroSchema);
+    }
+
+    static XmlShape of(JsonNode jsonSchema) {
+        return new JsonSchemaShape(jsonSchema, jsonSchema);
+    }
+
+    final class AvroShape implements XmlShape {
+
+        private final Schema schema;
+
+        private AvroShape(Schema schema) {
+            this.schema = schema;
+        }
+
+        @Override
+        public XmlShape field(String name) {
+            Schema structure = structure();
+            if (structure.getType() == Schema.Type.MAP) {
+                return new AvroShape(structure.getValueType());
+            }
+            Schema.Field field = structure.getType() == Schema.Type.RECORD ? structure.getField(name) : null;
+            return field != null ? new AvroShape(field.schema()) : UNTYPED;
+        }
+
+        @Override
+        public boolean hasField(String name) {
+            Schema structure = structure();
+            return structure.getType() == Schema.Type.MAP
+                    || structure.getType() == Schema.Type.RECORD && structure.getField(name) != null;
+        }
+
+        @Override
+        public boolean isArray() {
+            return structure().getType() == Schema.Type.ARRAY;
+        }
+
+        @Override
+        public XmlShape items() {
+            Schema structure = structure();
+            return structure.getType() == Schema.Type.ARRAY ? new AvroShape(structure.getElementType()) : UNTYPED;
+        }
+
+        @Override
+        public JsonNode scalar(String text) {
+            List<Schema> branches = schema.getType() == Schema.Type.UNION ? schema.getTypes() : List.of(schema);
+            String trimmed = text.trim();
+            for (Schema branch : branches) {
+                JsonNode value = switch (branch.getType()) {
+                    case NULL -> trimmed.isEmpty() ? NullNode.getInstance() : null;
+                    case INT, LONG -> integer(trimmed);
+                    case FLOAT, DOUBLE -> number(trimmed);
+                    case BOOLEAN -> bool(trimmed);
+                    case STRING, ENUM, BYTES, FIXED -> TextNode.valueOf(text);
+                    default -> null;
+                };
+                if (value != null) {
+                    return value;
+                }
+            }
+            return TextNode.valueOf(text);
+        }
+
+        /**
+         * The record, map or array branch of a union, which decides how child elements are read.
+         */
+        private Schema structure() {
+            if (schema.getType() != Schema.Type.UNION) {
+                return schema;
+            }
+            for (Schema branch : schema.getTypes()) {
+                switch (branch.getType()) {
+                    case RECORD, MAP, ARRAY -> {
+                        return branch;
+                    }
+                    default -> {
+                    }
+                }
+            }
+            return schema;
+        }
+    }
+
+    final class JsonSchemaShape implements XmlShape {
+
+        private final JsonNode schema;
+        private final JsonNode root;
+
+        private JsonSchemaShape(JsonNode schema, JsonNode root) {
+            this.schema = resolve(schema, root);
+            this.root = root;
+        }
+
+        @Override
+        public XmlShape field(String name) {
+            JsonNode property = property(name);
+            return property != null ? new JsonSchemaShape(property, root) : UNTYPED;
+        }
+
+        @Override
+        public boolean hasField(String name) {
+            return property(name) != null;
+        }
+
+        @Override
+        public boolean isArray() {
+            return types().contains("array");
+        }
+
+        @Override
+        public XmlShape items() {
+            JsonNode items = schema.get("items");
+            if (items != null && items.isArray()) {
+                items = items.get(0);
+            }
+            return items != null && items.isObject() ? new JsonSchemaShape(items, root) : UNTYPED;
+        }
+
+        @Override
+        public JsonNode scalar(String text) {
+            String trimmed = text.trim();
+            for (String type : types()) {
+                JsonNode value = switch (type) {
+                    case "null" -> trimmed.isEmpty() ? NullNode.getInstance() : null;
+                    case "integer" -> integer(trimmed);
+                    case "number" -> number(trimmed);
+                    case "boolean" -> bool(trimmed);
+                    case "string" -> TextNode.valueOf(text);
+                    default -> null;
+                };
+                if (value != null) {
+                    return value;
+                }
+            }
+            return TextNode.valueOf(text);
+        }
+
+        private JsonNode property(String name) {
+            for (JsonNode candidate : alternatives()) {
+                JsonNode property = candidate.path("properties").get(name);
+                if (property != null) {
+                    return property;
+                }
+            }
+            JsonNode additional = schema.get("additionalProperties");
+            return additional != null && additional.isObject() ? additional : null;
+        }
+
+        private List<String> types() {
+            List<String> types = new ArrayList<>();
+            for (JsonNode candidate : alternatives()) {
+                JsonNode type = candidate.get("type");
+                if (type != null && type.isTextual()) {
+                    types.add(type.asText());
+                } else if (type != null && type.isArray()) {
+                    type.forEach(item -> types.add(item.asText()));
+                }
+            }
+            return types;
+        }
+
+        /**
+         * This schema followed by the subschemas of its allOf/anyOf/oneOf, which may declare properties too.
+         */
+        private List<JsonNode> alternatives() {
+            List<JsonNode> alternatives = new ArrayList<>(List.of(schema));
+            for (String keyword : List.of("allOf", "anyOf", "oneOf")) {
+                JsonNode subschemas = schema.get(keyword);
+                if (subschemas != null && subschemas.isArray()) {
+                    subschemas.forEach(subschema -> alternatives.add(resolve(subschema, root)));
+                }
+            }
+            return alternatives;
+        }
+
+        /**
+         * Follows local {@code $ref}s such as {@code #/definitions/address}; remote ones are left to the validator.
+         */
+        private static JsonNode resolve(JsonNode schema, JsonNode root) {
+            JsonNode resolved = schema;
+            for (int hops = 0; hops < 16; hops++) {
+                JsonNode ref = resolved.get("$ref");
+                if (ref == null || !ref.isTextual() || !ref.asText().startsWith("#")) {
+                    return resolved;
+                }
+                JsonNode target = root.at(ref.asText().substring(1));
+                if (target.isMissingNode()) {
+                    return resolved;
+                }
+                resolved = target;
+            }
+            return resolved;
+        }
+    }
+
+    Pattern INTEGER = Pattern.compile("-?(0|[1-9]\\d*)");
+    Pattern NUMBER = Pattern.compile("-?(0|[1-9]\\d*)(\\.\\d+)?([eE][+-]?\\d+)?");
+
+    private static JsonNode integer(String text) {
+        if (!INTEGER.matcher(text).matches()) {
+            return null;
+        }
+        if (text.length() < 10) {
+            return IntNode.valueOf(Integer.parseInt(text));
+        }
+        BigInteger value = new BigInteger(text);
+        if (value.bitLength() < 32) {
+            return IntNode.valueOf(value.intValue());
+        }
+        return value.bitLength() < 64 ? LongNode.valueOf(value.longValue()) : BigIntegerNode.valueOf(value);
+    }
+
+    private static JsonNode number(String text) {
+        JsonNode integer = integer(text);
+        if (integer != null) {
+            return integer;
+        }
+        return NUMBER.matcher(text).matches() ? DoubleNode.valueOf(Double.parseDouble(text)) : null;
+    }
+
+    private static JsonNode bool(String text) {
+        return switch (text) {
+            // xs:boolean also allows 1 and 0
+            case "true", "1" -> BooleanNode.TRUE;
+            case "false", "0" -> BooleanNode.FALSE;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package com.beewaxus.webhooksvcs.pubsrc.dynamodb;
+
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Bridges {@link DynamoDbAsyncClient} (Netty, non-blocking) with {@link Mono#fromFuture(Supplier)}.
+ * No thread is held while a request is in flight; concurrency is bounded by the Netty connection pool instead.
+ */
+public class AsyncReactiveDynamoDb implements ReactiveDynamoDb {
+
+    private final DynamoDbAsyncClient dynamoDbAsyncClient;
+
+    public AsyncReactiveDynamoDb(DynamoDbAsyncClient dynamoDbAsyncClient) {
+        this.dynamoDbAsyncClient = dynamoDbAsyncClient;
+    }
+
+    @Override
+    public Mono<GetItemResponse> getItem(GetItemRequest request) {
+        return call(() -> dynamoDbAsyncClient.getItem(request));
+    }
+
+    @Override
+    public Mono<PutItemResponse> putItem(PutItemRequest request) {
+        return call(() -> dynamoDbAsyncClient.putItem(request));
+    }
+
+    @Override
+    public Mono<DeleteItemResponse> deleteItem(DeleteItemRequest request) {
+        return call(() -> dynamoDbAsyncClient.deleteItem(request));
+    }
+
+    @Override
+    public Mono<QueryResponse> query(QueryRequest request) {
+        return call(() -> dynamoDbAsyncClient.query(request));
+    }
+
+    @Override
+    public Mono<ScanResponse> scan(ScanRequest request) {
+        return call(() -> dynamoDbAsyncClient.scan(request));
+    }
+
+    @Override
+    public Mono<BatchWriteItemResponse> batchWriteItem(BatchWriteItemRequest request) {
+        return call(() -> dynamoDbAsyncClient.batchWriteItem(request));
+    }
+
+    // fromFuture unwraps CompletionException, so callers see the SdkException itself
+    private static <T> Mono<T> call(Supplier<CompletableFuture<T>> call) {
+        return Mono.fromFuture(call);
+    }
+}
@@ -0,0 +1,66 @@
+package com.beewaxus.webhooksvcs.pubsrc.dynamodb;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Runs the blocking {@link DynamoDbClient} on the bounded elastic scheduler, so each call
+ * holds an elastic thread for its whole round trip.
+ */
+public class BlockingReactiveDynamoDb implements ReactiveDynamoDb {
+
+    private final DynamoDbClient dynamoDbClient;
+
+    public BlockingReactiveDynamoDb(DynamoDbClient dynamoDbClient) {
+        this.dynamoDbClient = dynamoDbClient;
+    }
+
+    @Override
+    public Mono<GetItemResponse> getItem(GetItemRequest request) {
+        return call(() -> dynamoDbClient.getItem(request));
+    }
+
+    @Override
+    public Mono<PutItemResponse> putItem(PutItemRequest request) {
+        return call(() -> dynamoDbClient.putItem(request));
+    }
+
+    @Override
+    public Mono<DeleteItemResponse> deleteItem(DeleteItemRequest request) {
+        return call(() -> dynamoDbClient.deleteItem(request));
+    }
+
+    @Override
+    public Mono<QueryResponse> query(QueryRequest request) {
+        return call(() -> dynamoDbClient.query(request));
+    }
+
+    @Override
+    public Mono<ScanResponse> scan(ScanRequest request) {
+        return call(() -> dynamoDbClient.scan(request));
+    }
+
+    @Override
+    public Mono<BatchWriteItemResponse> batchWriteItem(BatchWriteItemRequest request) {
+        return call(() -> dynamoDbClient.batchWriteItem(request));
+    }
+
+    private static <T> Mono<T> call(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(Schedulers.boundedElastic());
+    }
+}
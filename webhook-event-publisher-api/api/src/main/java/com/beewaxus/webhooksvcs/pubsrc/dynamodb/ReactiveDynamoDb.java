@@ -0,0 +1,36 @@
+package com.beewaxus.webhooksvcs.pubsrc.dynamodb;
+
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+/**
+ * DynamoDB calls made on the request path, exposed as {@link Mono}s.
+ * The implementation is picked with {@code webhooks.dynamodb.client-mode}:
+ * {@link BlockingReactiveDynamoDb} ({@code blocking}, default) or {@link AsyncReactiveDynamoDb} ({@code async}).
+ * SDK failures are signalled as the unwrapped {@code SdkException}.
+ */
+public interface ReactiveDynamoDb {
+
+    Mono<GetItemResponse> getItem(GetItemRequest request);
+
+    Mono<PutItemResponse> putItem(PutItemRequest request);
+
+    Mono<DeleteItemResponse> deleteItem(DeleteItemRequest request);
+
+    Mono<QueryResponse> query(QueryRequest request);
+
+    Mono<ScanResponse> scan(ScanRequest request);
+
+    Mono<BatchWriteItemResponse> batchWriteItem(BatchWriteItemRequest request);
+}
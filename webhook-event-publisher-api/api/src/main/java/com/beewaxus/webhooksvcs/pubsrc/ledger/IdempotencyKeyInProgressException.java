@@ -0,0 +1,23 @@
+package com.beewaxus.webhooksvcs.pubsrc.ledger;
+
+import java.time.Duration;
+
+/**
+ * Thrown by {@link IdempotencyKeyService#claim} while another request holds the key and has not published yet.
+ * Answered with 409 and a Retry-After of {@link #retryAfter()}; the retry then gets the original eventId, or the key
+ * itself if the first request failed.
+ */
+public class IdempotencyKeyInProgressException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public IdempotencyKeyInProgressException(String idempotencyKey, Duration retryAfter) {
+        super("A request with Idempotency-Key " + idempotencyKey + " is still being processed, retry after "
+                + retryAfter.toSeconds() + "s");
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration retryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,240 @@
+package com.beewaxus.webhooksvcs.pubsrc.ledger;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.dynamodb.ReactiveDynamoDb;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Claims Idempotency-Key values for the publish endpoints so client retries are not republished.
+ * <ul>
+ *     <li>Keys are scoped by the caller, to the producer domain or the schemaId, so two producers that happen to
+ *     send the same key do not collide.</li>
+ *     <li>A key is claimed with a conditional PutItem of an {@code IDEMPOTENCY_KEY#<scope>#<key>} item in the
+ *     {@code webhooks.ledger.dedupe-table-name} table (the event-status ledger table unless set), holding the event id
+ *     it was first accepted under, a {@code CLAIM_STATUS} and an {@code EXPIRES_AT} epoch-seconds TTL attribute.</li>
+ *     <li>A claim starts {@code IN_PROGRESS} with a {@code webhooks.ledger.dedupe-claim-lease} expiry, so a request
+ *     that dies without releasing the key holds it only briefly. Once Kafka has acknowledged the event,
+ *     {@link #complete} marks it {@code COMPLETED} for {@code webhooks.ledger.dedupe-window}. Enable DynamoDB TTL on
+ *     {@code EXPIRES_AT} so expired claims are deleted.</li>
+ *     <li>Only completed keys are answered with the original event id; a retry while the first request is still
+ *     running fails with {@link IdempotencyKeyInProgressException}, as that request may yet fail.</li>
+ *     <li>Completed keys are kept in a local Caffeine cache for the window, so hot retries skip DynamoDB.</li>
+ *     <li>If DynamoDB cannot be reached the request is let through (fail open) and counted.</li>
+ * </ul>
+ */
+@Service
+public class IdempotencyKeyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyKeyService.class);
+
+    private static final String KEY_PREFIX = "IDEMPOTENCY_KEY#";
+    private static final String IN_PROGRESS = "IN_PROGRESS";
+    private static final String COMPLETED = "COMPLETED";
+    // Publishes finish well within a second, so a retry soon after usually finds the key completed or released
+    private static final Duration IN_PROGRESS_RETRY_AFTER = Duration.ofSeconds(1);
+    // Claim attempts when the claim that blocked ours is gone by the time it is read
+    private static final int CLAIM_ATTEMPTS = 3;
+
+    private final ReactiveDynamoDb dynamoDb;
+    private final String tableName;
+    private final Duration window;
+    private final Duration lease;
+    private final boolean enabled;
+    private final Cache<String, String> completedKeys;
+    private final Counter duplicates;
+    private final Counter inProgress;
+    private final Counter unchecked;
+
+    public IdempotencyKeyService(ReactiveDynamoDb dynamoDb, WebhooksProperties properties, MeterRegistry meterRegistry) {
+        WebhooksProperties.LedgerProperties ledger = properties.ledger();
+        this.dynamoDb = dynamoDb;
+        this.tableName = ledger.dedupeTableName() != null
+                ? ledger.dedupeTableName() : properties.dynamodb().idempotencyLedgerTableName();
+        this.window = ledger.getDedupeWindow();
+        this.lease = ledger.getDedupeClaimLease();
+        this.enabled = ledger.isDedupeEnabled();
+        this.completedKeys = Caffeine.newBuilder()
+                .maximumSize(ledger.getDedupeCacheEntries())
+                .expireAfterWrite(window)
+                .build();
+        this.duplicates = Counter.builder("webhooks.idempotency.duplicates")
+                .description("Publish requests answered with the event id of an earlier request with the same idempotency key")
+                .register(meterRegistry);
+        this.inProgress = Counter.builder("webhooks.idempotency.in_progress")
+                .description("Publish requests turned away while an earlier request with the same idempotency key was still running")
+                .register(meterRegistry);
+        this.unchecked = Counter.builder("webhooks.idempotency.unchecked")
+                .description("Publish requests let through because the idempotency ledger could not be reached")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Claims the key within {@code scope} (producer domain or schemaId; may be null) for this event. Emits the event
+     * id the key was first published under when it is completed, fails with
+     * {@link IdempotencyKeyInProgressException} while another request holds it, or completes empty when this request
+     * owns the key and should be processed; it must then {@link #complete} or {@link #release} it.
+     */
+    public Mono<String> claim(String scope, String idempotencyKey, String eventId) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        String claimKey = claimKey(scope, idempotencyKey);
+        String cachedEventId = completedKeys.getIfPresent(claimKey);
+        if (cachedEventId != null) {
+            return duplicate(claimKey, cachedEventId);
+        }
+        return claim(claimKey, idempotencyKey, eventId, CLAIM_ATTEMPTS);
+    }
+
+    private Mono<String> claim(String claimKey, String idempotencyKey, String eventId, int attemptsLeft) {
+        long now = Instant.now().getEpochSecond();
+        return dynamoDb.putItem(PutItemRequest.builder()
+                        .tableName(tableName)
+                        .item(item(claimKey, eventId, IN_PROGRESS, now + lease.toSeconds()))
+                        // TTL deletes lazily, so an expired claim or lease still on the table counts as free
+                        .conditionExpression("attribute_not_exists(EVENT_ID) OR EXPIRES_AT < :now")
+                        .expressionAttributeValues(Map.of(":now", n(now)))
+                        .build())
+                .then(Mono.<String>empty())
+                .onErrorResume(ConditionalCheckFailedException.class, e -> readClaim(claimKey)
+                        .filter(claim -> claim.completed() || claim.expiresAt() >= now)
+                        .flatMap(claim -> {
+                            if (claim.completed()) {
+                                completedKeys.put(claimKey, claim.eventId());
+                                return duplicate(claimKey, claim.eventId());
+                            }
+                            return inProgress(claimKey, idempotencyKey);
+                        })
+                        // Released or expired since our PutItem failed: claim it again rather than go unclaimed
+                        .switchIfEmpty(Mono.defer(() -> attemptsLeft > 1
+                                ? claim(claimKey, idempotencyKey, eventId, attemptsLeft - 1)
+                                : inProgress(claimKey, idempotencyKey))))
+                .onErrorResume(SdkException.class, e -> {
+                    unchecked.increment();
+                    log.warn("Could not check idempotency key {} against table {}, processing the request: {}",
+                            claimKey, tableName, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Marks a key claimed by {@link #claim} as published under {@code eventId}, so retries within the dedupe window
+     * are answered with it. Never fails: if the write does not go through, the claim's lease runs out and a retry
+     * publishes again.
+     */
+    public Mono<Void> complete(String scope, String idempotencyKey, String eventId) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        String claimKey = claimKey(scope, idempotencyKey);
+        long now = Instant.now().getEpochSecond();
+        return dynamoDb.putItem(PutItemRequest.builder()
+                        .tableName(tableName)
+                        .item(item(claimKey, eventId, COMPLETED, now + window.toSeconds()))
+                        .conditionExpression("CLAIMED_EVENT_ID = :eventId")
+                        .expressionAttributeValues(Map.of(":eventId", s(eventId)))
+                        .build())
+                .doOnNext(response -> completedKeys.put(claimKey, eventId))
+                .onErrorResume(ConditionalCheckFailedException.class, e -> {
+                    log.warn("Idempotency key {} is no longer claimed for eventId {}, not marking it completed", claimKey, eventId);
+                    return Mono.empty();
+                })
+                .onErrorResume(SdkException.class, e -> {
+                    log.warn("Could not mark idempotency key {} as completed in table {}: {}",
+                            claimKey, tableName, e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Frees a key claimed by {@link #claim} after the request failed or was cancelled, so the client can retry it.
+     * A completed key is left alone.
+     */
+    public Mono<Void> release(String scope, String idempotencyKey, String eventId) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        String claimKey = claimKey(scope, idempotencyKey);
+        return dynamoDb.deleteItem(DeleteItemRequest.builder()
+                        .tableName(tableName)
+                        .key(Map.of("EVENT_ID", s(claimKey)))
+                        .conditionExpression("CLAIMED_EVENT_ID = :eventId AND CLAIM_STATUS = :inProgress")
+                        .expressionAttributeValues(Map.of(":eventId", s(eventId), ":inProgress", s(IN_PROGRESS)))
+                        .build())
+                .onErrorResume(ConditionalCheckFailedException.class, e -> Mono.empty())
+                .then();
+    }
+
+    private Mono<ExistingClaim> readClaim(String claimKey) {
+        return dynamoDb.getItem(GetItemRequest.builder()
+                        .tableName(tableName)
+                        .key(Map.of("EVENT_ID", s(claimKey)))
+                        .consistentRead(true)
+                        .build())
+                .mapNotNull(response -> {
+                    AttributeValue claimedEventId = response.item().get("CLAIMED_EVENT_ID");
+                    if (claimedEventId == null) {
+                        return null;
+                    }
+                    AttributeValue status = response.item().get("CLAIM_STATUS");
+                    AttributeValue expiresAt = response.item().get("EXPIRES_AT");
+                    // Claims written before CLAIM_STATUS existed were only made for published events
+                    return new ExistingClaim(claimedEventId.s(),
+                            status == null || COMPLETED.equals(status.s()),
+                            expiresAt != null ? Long.parseLong(expiresAt.n()) : Long.MAX_VALUE);
+                });
+    }
+
+    private Mono<String> inProgress(String claimKey, String idempotencyKey) {
+        inProgress.increment();
+        log.info("Idempotency key {} is still being processed by an earlier request", claimKey);
+        return Mono.error(new IdempotencyKeyInProgressException(idempotencyKey, IN_PROGRESS_RETRY_AFTER));
+    }
+
+    private Mono<String> duplicate(String claimKey, String originalEventId) {
+        duplicates.increment();
+        log.info("Duplicate idempotency key {}, returning original eventId {}", claimKey, originalEventId);
+        return Mono.just(originalEventId);
+    }
+
+    // Also the local cache key; domains and schemaIds do not contain '#'
+    private static String claimKey(String scope, String idempotencyKey) {
+        return KEY_PREFIX + (scope != null ? scope : "") + "#" + idempotencyKey;
+    }
+
+    private static Map<String, AttributeValue> item(String claimKey, String eventId, String status, long expiresAt) {
+        return Map.of(
+                "EVENT_ID", s(claimKey),
+                "CLAIMED_EVENT_ID", s(eventId),
+                "CLAIM_STATUS", s(status),
+                "EXPIRES_AT", n(expiresAt));
+    }
+
+    private static AttributeValue s(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+
+    private static AttributeValue n(long value) {
+        return AttributeValue.builder().n(Long.toString(value)).build();
+    }
+
+    private record ExistingClaim(String eventId, boolean completed, long expiresAt) {}
+}
@@ -1,14 +1,12 @@
 package com.beewaxus.webhooksvcs.pubsrc.ledger;
 
 import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.metrics.PublishMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
-import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
-import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
 import software.amazon.awssdk.core.exception.SdkException;
 
@@ -21,51 +19,51 @@ public class IdempotencyLedgerService {
 
     private static final Logger log = LoggerFactory.getLogger(IdempotencyLedgerService.class);
 
-    private final DynamoDbClient dynamoDbClient;
+    private final LedgerWriteBehindQueue writeBehindQueue;
     private final WebhooksProperties properties;
+    private final PublishMetrics publishMetrics;
 
-    public IdempotencyLedgerService(DynamoDbClient dynamoDbClient, WebhooksProperties properties) {
-        this.dynamoDbClient = dynamoDbClient;
+    public IdempotencyLedgerService(LedgerWriteBehindQueue writeBehindQueue, WebhooksProperties properties,
+                                    PublishMetrics publishMetrics) {
+        this.writeBehindQueue = writeBehindQueue;
         this.properties = properties;
+        this.publishMetrics = publishMetrics;
     }
 
+    /**
+     * Queues the status write on the {@link LedgerWriteBehindQueue}; the item reaches DynamoDB with the next batch flush.
+     * The {@code ledger_write} stage timer covers the enqueue, which only waits when the queue is full under the
+     * BLOCK overflow policy; the flush itself is timed by {@code webhooks.ledger.flush.latency}.
+     */
     public Mono<Void> recordEventStatus(String eventId, EventStatus status, String schemaId) {
-        return Mono.fromCallable(() -> {
-                    try {
-                        String tableName = properties.dynamodb().idempotencyLedgerTableName();
-                        Instant now = Instant.now();
-                        String timestamp = now.toString();
+        return publishMetrics.time(PublishMetrics.LEDGER_WRITE, Mono.defer(() -> {
+                    Instant now = Instant.now();
+                    String timestamp = now.toString();
 
-                        Map<String, AttributeValue> item = new HashMap<>();
-                        item.put("EVENT_ID", AttributeValue.builder().s(eventId).build());
-                        item.put("EVENT_STATUS", AttributeValue.builder().s(status.getValue()).build());
-                        item.put("CREATION_TIMESTAMP", AttributeValue.builder().s(timestamp).build());
-                        item.put("UPDATED_TIMESTAMP", AttributeValue.builder().s(timestamp).build());
-                        
-                        if (schemaId != null && !schemaId.isEmpty()) {
-                            item.put("EVENT_SCHEMAID", AttributeValue.builder().s(schemaId).build());
-                        }
+                    Map<String, AttributeValue> item = new HashMap<>();
+                    item.put("EVENT_ID", AttributeValue.builder().s(eventId).build());
+                    item.put("EVENT_STATUS", AttributeValue.builder().s(status.getValue()).build());
+                    item.put("CREATION_TIMESTAMP", AttributeValue.builder().s(timestamp).build());
+                    item.put("UPDATED_TIMESTAMP", AttributeValue.builder().s(timestamp).build());
 
-                        PutItemRequest putRequest = PutItemRequest.builder()
-                                .tableName(tableName)
-                                .item(item)
-                                .build();
+                    if (schemaId != null && !schemaId.isEmpty()) {
+                        item.put("EVENT_SCHEMAID", AttributeValue.builder().s(schemaId).build());
+                    }
 
-                        dynamoDbClient.putItem(putRequest);
-                        log.debug("Recorded event status: eventId={}, status={}, schemaId={}", 
-                                eventId, status, schemaId);
-                        return null;
-                    } catch (ResourceNotFoundException e) {
-                        log.error("DynamoDB table '{}' not found for idempotency ledger", 
+                    return writeBehindQueue.enqueue(eventId, item);
+                }))
+                .doOnSuccess(ignored -> log.debug("Queued event status: eventId={}, status={}, schemaId={}",
+                        eventId, status, schemaId))
+                .onErrorMap(SdkException.class, e -> {
+                    if (e instanceof ResourceNotFoundException) {
+                        log.error("DynamoDB table '{}' not found for idempotency ledger",
                                 properties.dynamodb().idempotencyLedgerTableName(), e);
-                        throw new IdempotencyLedgerException("Idempotency ledger table does not exist", e);
-                    } catch (SdkException e) {
-                        log.error("DynamoDB error while recording event status for eventId {}: {}", 
-                                eventId, e.getMessage(), e);
-                        throw new IdempotencyLedgerException("Failed to record event status: " + e.getMessage(), e);
+                        return new IdempotencyLedgerException("Idempotency ledger table does not exist", e);
                     }
+                    log.error("DynamoDB error while recording event status for eventId {}: {}",
+                            eventId, e.getMessage(), e);
+                    return new IdempotencyLedgerException("Failed to record event status: " + e.getMessage(), e);
                 })
-                .subscribeOn(Schedulers.boundedElastic())
                 .then();
     }
 
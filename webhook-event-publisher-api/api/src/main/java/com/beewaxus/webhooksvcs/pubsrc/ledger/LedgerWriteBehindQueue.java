@@ -0,0 +1,255 @@
+package com.beewaxus.webhooksvcs.pubsrc.ledger;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.dynamodb.ReactiveDynamoDb;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounded write-behind buffer for idempotency ledger items.
+ * <ul>
+ *     <li>Writes are flushed as BatchWriteItem calls of up to 25 items, once 25 are queued or every
+ *     {@code webhooks.ledger.linger}, whichever comes first. Only one flush runs at a time.</li>
+ *     <li>Within one flush only the last write per EVENT_ID is sent; BatchWriteItem rejects duplicate keys anyway.</li>
+ *     <li>UnprocessedItems and SDK errors are retried with exponential backoff up to
+ *     {@code webhooks.ledger.max-attempts}; what is left after that is logged and counted as failed.</li>
+ *     <li>When the queue is full, {@code webhooks.ledger.overflow-policy} decides: DROP, BLOCK or SPILL. SPILL writes
+ *     with PutItem, but only {@code webhooks.ledger.max-spill-in-flight} at a time; beyond that writes are dropped, so
+ *     a slow table cannot pile up an unbounded number of requests.</li>
+ * </ul>
+ */
+@Component
+public class LedgerWriteBehindQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerWriteBehindQueue.class);
+
+    static final int MAX_BATCH_SIZE = 25;
+
+    private final ReactiveDynamoDb dynamoDb;
+    private final WebhooksProperties.LedgerProperties ledger;
+    private final String tableName;
+    private final BlockingQueue<LedgerWrite> queue;
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private final Semaphore spillPermits;
+    private final Scheduler flushScheduler = Schedulers.newSingle("ledger-write-behind", true);
+    private final Disposable lingerTask;
+
+    private final Timer flushLatency;
+    private final Counter droppedWrites;
+    private final Counter spilledWrites;
+    private final Counter coalescedWrites;
+    private final Counter failedWrites;
+
+    public LedgerWriteBehindQueue(ReactiveDynamoDb dynamoDb, WebhooksProperties properties, MeterRegistry meterRegistry) {
+        this.dynamoDb = dynamoDb;
+        this.ledger = properties.ledger();
+        this.tableName = properties.dynamodb().idempotencyLedgerTableName();
+        this.queue = new ArrayBlockingQueue<>(ledger.getQueueCapacity());
+        this.spillPermits = new Semaphore(ledger.getMaxSpillInFlight());
+
+        Gauge.builder("webhooks.ledger.queue.depth", queue, BlockingQueue::size)
+                .description("Idempotency ledger writes waiting to be flushed")
+                .register(meterRegistry);
+        this.flushLatency = Timer.builder("webhooks.ledger.flush.latency")
+                .description("Time to write one flush of idempotency ledger items, retries included")
+                .register(meterRegistry);
+        this.droppedWrites = writesCounter(meterRegistry, "dropped", "Ledger writes discarded because the queue was full");
+        this.spilledWrites = writesCounter(meterRegistry, "spilled", "Ledger writes sent with PutItem because the queue was full");
+        this.coalescedWrites = writesCounter(meterRegistry, "coalesced", "Ledger writes superseded by a later write for the same EVENT_ID");
+        this.failedWrites = writesCounter(meterRegistry, "failed", "Ledger writes still unprocessed after all attempts");
+
+        Duration linger = ledger.getLinger();
+        this.lingerTask = flushScheduler.schedulePeriodically(this::triggerFlush,
+                linger.toMillis(), linger.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues an item for the next flush. Completes once the item is queued (or dropped), not once it is written.
+     */
+    public Mono<Void> enqueue(String eventId, Map<String, AttributeValue> item) {
+        LedgerWrite write = new LedgerWrite(eventId, item);
+        return Mono.defer(() -> {
+            if (queue.offer(write)) {
+                onQueued();
+                return Mono.empty();
+            }
+            return switch (ledger.getOverflowPolicy()) {
+                case DROP -> {
+                    drop(write);
+                    yield Mono.empty();
+                }
+                case BLOCK -> Mono.fromCallable(() -> queue.offer(write, ledger.getBlockTimeout().toMillis(), TimeUnit.MILLISECONDS))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .doOnNext(queued -> {
+                            if (queued) {
+                                onQueued();
+                            } else {
+                                drop(write);
+                            }
+                        })
+                        .then();
+                case SPILL -> {
+                    if (!spillPermits.tryAcquire()) {
+                        drop(write);
+                        yield Mono.empty();
+                    }
+                    spilledWrites.increment();
+                    yield dynamoDb.putItem(PutItemRequest.builder().tableName(tableName).item(item).build())
+                            .doFinally(signal -> spillPermits.release())
+                            .then();
+                }
+            };
+        });
+    }
+
+    /**
+     * Writes everything queued so far. Completes immediately if another flush is still running;
+     * that flush re-triggers when it finishes and 25 or more writes are waiting.
+     */
+    Mono<Void> flush() {
+        return Mono.defer(() -> {
+            if (!flushing.compareAndSet(false, true)) {
+                return Mono.empty();
+            }
+            List<LedgerWrite> drained = new ArrayList<>(queue.size());
+            queue.drainTo(drained);
+            if (drained.isEmpty()) {
+                flushing.set(false);
+                return Mono.empty();
+            }
+
+            // Last write per EVENT_ID wins
+            Map<String, LedgerWrite> latest = new LinkedHashMap<>();
+            drained.forEach(write -> latest.put(write.eventId(), write));
+            coalescedWrites.increment(drained.size() - latest.size());
+
+            List<WriteRequest> requests = latest.values().stream()
+                    .map(write -> WriteRequest.builder().putRequest(PutRequest.builder().item(write.item()).build()).build())
+                    .toList();
+            long start = System.nanoTime();
+            return Flux.fromIterable(partition(requests))
+                    .concatMap(batch -> writeBatch(batch, 1))
+                    .then()
+                    .doFinally(signal -> {
+                        flushLatency.record(Duration.ofNanos(System.nanoTime() - start));
+                        log.debug("Flushed {} ledger writes ({} coalesced) to table {}",
+                                latest.size(), drained.size() - latest.size(), tableName);
+                        flushing.set(false);
+                        if (queue.size() >= MAX_BATCH_SIZE) {
+                            triggerFlush();
+                        }
+                    });
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        lingerTask.dispose();
+        try {
+            // Let a running flush finish, then write what is still queued
+            Flux.interval(Duration.ZERO, Duration.ofMillis(10))
+                    .filter(tick -> !flushing.get())
+                    .next()
+                    .then(Mono.defer(this::flush))
+                    .block(Duration.ofSeconds(10));
+        } catch (RuntimeException e) {
+            log.warn("Could not flush {} ledger writes on shutdown: {}", queue.size(), e.getMessage());
+        }
+        flushScheduler.dispose();
+    }
+
+    int queueDepth() {
+        return queue.size();
+    }
+
+    private Mono<Void> writeBatch(List<WriteRequest> batch, int attempt) {
+        return dynamoDb.batchWriteItem(BatchWriteItemRequest.builder()
+                        .requestItems(Map.of(tableName, batch))
+                        .build())
+                .map(response -> response.unprocessedItems().getOrDefault(tableName, List.of()))
+                .onErrorResume(SdkException.class, e -> {
+                    log.warn("BatchWriteItem of {} ledger items to table {} failed (attempt {}/{}): {}",
+                            batch.size(), tableName, attempt, ledger.getMaxAttempts(), e.getMessage());
+                    return Mono.just(batch);
+                })
+                .flatMap(remaining -> {
+                    if (remaining.isEmpty()) {
+                        return Mono.<Void>empty();
+                    }
+                    if (attempt >= ledger.getMaxAttempts()) {
+                        failedWrites.increment(remaining.size());
+                        log.error("{} ledger writes to table {} still unprocessed after {} attempts",
+                                remaining.size(), tableName, attempt);
+                        return Mono.<Void>empty();
+                    }
+                    Duration backoff = ledger.getRetryBackoff().multipliedBy(1L << Math.min(attempt - 1, 10));
+                    return Mono.delay(backoff).then(writeBatch(remaining, attempt + 1));
+                });
+    }
+
+    private void onQueued() {
+        if (queue.size() >= MAX_BATCH_SIZE) {
+            triggerFlush();
+        }
+    }
+
+    private void triggerFlush() {
+        if (!flushing.get()) {
+            flush().subscribeOn(flushScheduler).subscribe(
+                    null,
+                    error -> log.error("Ledger flush failed: {}", error.getMessage(), error)
+            );
+        }
+    }
+
+    private void drop(LedgerWrite write) {
+        droppedWrites.increment();
+        log.debug("Ledger queue full ({} writes), dropped write for eventId {}", ledger.getQueueCapacity(), write.eventId());
+    }
+
+    private static List<List<WriteRequest>> partition(List<WriteRequest> requests) {
+        List<List<WriteRequest>> batches = new ArrayList<>((requests.size() + MAX_BATCH_SIZE - 1) / MAX_BATCH_SIZE);
+        for (int i = 0; i < requests.size(); i += MAX_BATCH_SIZE) {
+            batches.add(requests.subList(i, Math.min(i + MAX_BATCH_SIZE, requests.size())));
+        }
+        return batches;
+    }
+
+    private static Counter writesCounter(MeterRegistry meterRegistry, String outcome, String description) {
+        return Counter.builder("webhooks.ledger.writes")
+                .description(description)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private record LedgerWrite(String eventId, Map<String, AttributeValue> item) {
+    }
+}
@@ -0,0 +1,184 @@
+package com.beewaxus.webhooksvcs.pubsrc.metrics;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaFormatType;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaReference;
+import com.beewaxus.webhooksvcs.pubsrc.validation.SchemaValidationException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Times each stage of the publish path and counts event outcomes, so a latency spike can be traced to one stage.
+ * <ul>
+ *     <li>{@code webhooks.publish.stage} times parsing, schema lookup, validation, Avro encoding, the Kafka ack,
+ *     the outbox append (when the outbox is enabled) and the ledger write, tagged with {@code stage}, the schema
+ *     {@code format} ({@code unknown} before the schema is known) and the {@code outcome}: success, empty,
+ *     rejected, timeout, error or cancelled.</li>
+ *     <li>{@code webhooks.publish.events} counts published, rejected and failed events per format and schema.
+ *     Only the first {@code webhooks.metrics.max-schema-tags} schemas seen get their own {@code schema} value,
+ *     the rest share {@code other}, so clients sending arbitrary domains cannot grow the registry without bound.</li>
+ * </ul>
+ */
+@Component
+public class PublishMetrics {
+
+    public static final String PARSE = "parse";
+    public static final String SCHEMA_LOOKUP = "schema_lookup";
+    public static final String VALIDATION = "validation";
+    public static final String AVRO_ENCODING = "avro_encoding";
+    public static final String KAFKA_SEND = "kafka_send";
+    public static final String LEDGER_WRITE = "ledger_write";
+    public static final String OUTBOX_APPEND = "outbox_append";
+
+    static final String OTHER_SCHEMA = "other";
+
+    private final MeterRegistry meterRegistry;
+    private final int maxSchemaTags;
+    private final Set<String> schemaTags = ConcurrentHashMap.newKeySet();
+    // Looking a meter up in the registry allocates its id, so the hot path goes through these instead
+    private final Map<StageKey, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Map<EventKey, Counter> eventCounters = new ConcurrentHashMap<>();
+
+    public PublishMetrics(MeterRegistry meterRegistry, WebhooksProperties properties) {
+        this.meterRegistry = meterRegistry;
+        this.maxSchemaTags = properties.metrics().getMaxSchemaTags();
+    }
+
+    /**
+     * Times {@code work} from subscription until it completes, fails or is cancelled, for stages that run
+     * before the schema is known or do not depend on it.
+     */
+    public <T> Mono<T> time(String stage, Mono<T> work) {
+        return time(stage, null, null, work);
+    }
+
+    /**
+     * Times {@code work} from subscription until it completes, fails or is cancelled.
+     */
+    public <T> Mono<T> time(String stage, SchemaFormatType format, Mono<T> work) {
+        return time(stage, format, null, work);
+    }
+
+    /**
+     * Times {@code work}, taking the format tag from its result, e.g. the definition a schema lookup returns.
+     * Completing without a result is recorded as {@code empty}.
+     */
+    public <T> Mono<T> time(String stage, Function<? super T, SchemaFormatType> formatOf, Mono<T> work) {
+        return time(stage, null, formatOf, work);
+    }
+
+    /**
+     * Records a stage that was timed by the caller, for work that does not run as its own {@link Mono}.
+     */
+    public void record(String stage, SchemaFormatType format, Throwable error, long startNanos) {
+        record(stage, format, error != null ? outcome(error) : "success", startNanos);
+    }
+
+    /**
+     * Counts the event as published, rejected (bad payload or schema) or failed (Kafka or another dependency).
+     */
+    public <T> Mono<T> countOutcome(SchemaFormatType format, SchemaReference reference, Mono<T> published) {
+        return published
+                .doOnSuccess(value -> countEvent(format, reference, "published"))
+                .doOnError(error -> countEvent(format, reference, isFailure(error) ? "failed" : "rejected"));
+    }
+
+    private <T> Mono<T> time(String stage, SchemaFormatType format, Function<? super T, SchemaFormatType> formatOf,
+                             Mono<T> work) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return work
+                    .doOnSuccess(value -> {
+                        if (formatOf == null) {
+                            record(stage, format, "success", start);
+                        } else {
+                            record(stage, value != null ? formatOf.apply(value) : null, value != null ? "success" : "empty", start);
+                        }
+                    })
+                    .doOnError(error -> record(stage, format, outcome(error), start))
+                    .doOnCancel(() -> record(stage, format, "cancelled", start));
+        });
+    }
+
+    private void record(String stage, SchemaFormatType format, String outcome, long startNanos) {
+        stageTimers.computeIfAbsent(new StageKey(stage, format, outcome), key -> Timer.builder("webhooks.publish.stage")
+                        .description("Time spent in one stage of the publish path")
+                        .tag("stage", key.stage())
+                        .tag("format", formatTag(key.format()))
+                        .tag("outcome", key.outcome())
+                        .register(meterRegistry))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void countEvent(SchemaFormatType format, SchemaReference reference, String outcome) {
+        eventCounters.computeIfAbsent(new EventKey(format, schemaTag(reference), outcome), key -> Counter.builder("webhooks.publish.events")
+                        .description("Events handled by the single-event publish endpoints, by outcome")
+                        .tag("format", formatTag(key.format()))
+                        .tag("schema", key.schema())
+                        .tag("outcome", key.outcome())
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    String schemaTag(SchemaReference reference) {
+        String schema = reference.schemaRef();
+        if (schemaTags.contains(schema)) {
+            return schema;
+        }
+        synchronized (schemaTags) {
+            if (schemaTags.size() < maxSchemaTags) {
+                schemaTags.add(schema);
+                return schema;
+            }
+        }
+        return OTHER_SCHEMA;
+    }
+
+    private static String formatTag(SchemaFormatType format) {
+        return format != null ? format.name().toLowerCase() : "unknown";
+    }
+
+    private static String outcome(Throwable error) {
+        if (isTimeout(error)) {
+            return "timeout";
+        }
+        return isFailure(error) ? "error" : "rejected";
+    }
+
+    private static boolean isFailure(Throwable error) {
+        if (error instanceof SchemaValidationException || error instanceof IllegalArgumentException
+                || error instanceof DecodingException) {
+            return false;
+        }
+        if (error instanceof ResponseStatusException responseStatus) {
+            return responseStatus.getStatusCode().is5xxServerError();
+        }
+        return true;
+    }
+
+    private static boolean isTimeout(Throwable error) {
+        // KafkaPublishException wraps the timeout it was raised for
+        for (Throwable cause = error; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof java.util.concurrent.TimeoutException
+                    || cause instanceof org.apache.kafka.common.errors.TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record StageKey(String stage, SchemaFormatType format, String outcome) {}
+
+    private record EventKey(SchemaFormatType format, String schema, String outcome) {}
+}
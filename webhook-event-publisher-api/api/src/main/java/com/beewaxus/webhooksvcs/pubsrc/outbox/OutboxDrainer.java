@@ -0,0 +1,210 @@
+package com.beewaxus.webhooksvcs.pubsrc.outbox;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.metrics.PublishMetrics;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.BatchOutcome;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.KafkaCircuitBreaker;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.KafkaProducerPool;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves committed {@link WriteAheadOutbox} records to Kafka in log order, on its own thread.
+ * <ul>
+ *     <li>Up to {@code drain-batch-size} records are handed to the producer, then their acks are awaited (within
+ *     {@code publish-timeout}); the batch is acknowledged in the outbox once every record in it was delivered.</li>
+ *     <li>When a record fails on the broker side, the batch is sent again from that record onward, with a growing
+ *     {@code retry-backoff}, until it is delivered. Later records of the batch go again too, even if they were
+ *     delivered, so Kafka always holds the last copy of every record in log order. Records the producer rejects
+ *     on their own (too large, not serializable) are logged and dropped, as sending them again cannot
+ *     succeed.</li>
+ *     <li>Sends go through the {@link KafkaCircuitBreaker}: while it is open the drainer waits instead of sending,
+ *     and its outcomes keep the breaker up to date.</li>
+ * </ul>
+ */
+public class OutboxDrainer {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxDrainer.class);
+
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+    private final WriteAheadOutbox outbox;
+    private final KafkaProducerPool producerPool;
+    private final KafkaCircuitBreaker circuitBreaker;
+    private final PublishMetrics publishMetrics;
+    private final int batchSize;
+    private final Duration publishTimeout;
+    private final Duration retryBackoff;
+    private final Counter droppedRecords;
+    private final Scheduler drainScheduler = Schedulers.newSingle("outbox-drainer", true);
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile boolean running = true;
+
+    public OutboxDrainer(WriteAheadOutbox outbox,
+                         KafkaProducerPool producerPool,
+                         KafkaCircuitBreaker circuitBreaker,
+                         PublishMetrics publishMetrics,
+                         WebhooksProperties properties,
+                         MeterRegistry meterRegistry) {
+        this.outbox = outbox;
+        this.producerPool = producerPool;
+        this.circuitBreaker = circuitBreaker;
+        this.publishMetrics = publishMetrics;
+        this.batchSize = properties.kafka().getOutbox().getDrainBatchSize();
+        this.publishTimeout = properties.kafka().getPublishTimeout();
+        this.retryBackoff = properties.kafka().getOutbox().getRetryBackoff();
+
+        Gauge.builder("webhooks.outbox.pending", outbox, WriteAheadOutbox::pending)
+                .description("Events accepted into the outbox and not yet acknowledged by Kafka")
+                .register(meterRegistry);
+        this.droppedRecords = Counter.builder("webhooks.outbox.dropped")
+                .description("Outbox events Kafka rejected for the record itself, e.g. too large")
+                .register(meterRegistry);
+
+        outbox.onCommit(this::trigger);
+        // Whatever was recovered from disk goes out first
+        trigger();
+    }
+
+    public void close() {
+        running = false;
+        drainScheduler.dispose();
+    }
+
+    void trigger() {
+        if (running && scheduled.compareAndSet(false, true)) {
+            drainScheduler.schedule(() -> {
+                scheduled.set(false);
+                drain();
+            });
+        }
+    }
+
+    void drain() {
+        List<OutboxEntry> entries;
+        while (running && !(entries = outbox.poll(batchSize)).isEmpty()) {
+            if (!deliver(entries)) {
+                // Stopped while sending; the batch is not acknowledged and is sent again after a restart
+                return;
+            }
+            outbox.acknowledge(entries.get(entries.size() - 1).sequence());
+        }
+    }
+
+    private boolean deliver(List<OutboxEntry> entries) {
+        List<OutboxEntry> remaining = entries;
+        for (int attempt = 0; running; attempt++) {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                pause(circuitBreaker.retryAfter());
+                attempt--;
+                continue;
+            }
+            BatchOutcome outcome = new BatchOutcome();
+            remaining = send(remaining, outcome);
+            outcome.recordOn(circuitBreaker);
+            if (remaining.isEmpty()) {
+                return true;
+            }
+            log.warn("{} outbox events not delivered to Kafka (attempt {}), sending them again",
+                    remaining.size(), attempt + 1);
+            pause(backoff(attempt));
+        }
+        return false;
+    }
+
+    /**
+     * Sends all entries before waiting on any of them and returns the ones to send again: everything from the
+     * first broker-side failure onward, less the records dropped as rejected.
+     */
+    private List<OutboxEntry> send(List<OutboxEntry> entries, BatchOutcome outcome) {
+        long sentAt = System.nanoTime();
+        List<CompletableFuture<?>> sends = new ArrayList<>(entries.size());
+        for (OutboxEntry entry : entries) {
+            sends.add(send(entry.record()));
+        }
+
+        long deadline = sentAt + publishTimeout.toNanos();
+        List<OutboxEntry> resend = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            OutboxEntry entry = entries.get(i);
+            Throwable error = await(sends.get(i), deadline);
+            publishMetrics.record(PublishMetrics.KAFKA_SEND, entry.record().format(), error, sentAt);
+            if (error == null) {
+                outcome.succeeded();
+                if (!resend.isEmpty()) {
+                    resend.add(entry);
+                }
+                continue;
+            }
+            outcome.failed(error);
+            if (KafkaCircuitBreaker.countsAsBrokerFailure(error)) {
+                resend.add(entry);
+            } else {
+                droppedRecords.increment();
+                log.error("Dropping outbox event {} for topic {}, Kafka rejected it: {}",
+                        entry.record().key(), entry.record().topic(), error.getMessage());
+            }
+        }
+        return resend;
+    }
+
+    private CompletableFuture<?> send(OutboxRecord record) {
+        RecordHeaders headers = new RecordHeaders();
+        for (Map.Entry<String, byte[]> header : record.headers().entrySet()) {
+            headers.add(header.getKey(), header.getValue());
+        }
+        try {
+            // Records keep only their topic, so only topic routes pick their producer profile here
+            return producerPool.template(record.topic(), null)
+                    .send(new ProducerRecord<>(record.topic(), null, record.key(), record.value(), headers));
+        } catch (RuntimeException e) {
+            // Producer errors such as an exhausted buffer fail this record only
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static Throwable await(CompletableFuture<?> send, long deadline) {
+        try {
+            send.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause() != null ? e.getCause() : e;
+        } catch (TimeoutException e) {
+            return e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return e;
+        }
+    }
+
+    private Duration backoff(int attempt) {
+        Duration backoff = retryBackoff.multipliedBy(1L << Math.min(attempt, 10));
+        return backoff.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff;
+    }
+
+    private void pause(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.beewaxus.webhooksvcs.pubsrc.outbox;
+
+/**
+ * A committed record with its position in the outbox log, which {@link WriteAheadOutbox#acknowledge} takes back.
+ */
+public record OutboxEntry(long sequence, OutboxRecord record) {
+}
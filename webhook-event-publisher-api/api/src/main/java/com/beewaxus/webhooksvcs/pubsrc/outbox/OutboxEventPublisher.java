@@ -0,0 +1,149 @@
+package com.beewaxus.webhooksvcs.pubsrc.outbox;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.metrics.PublishMetrics;
+import com.beewaxus.webhooksvcs.pubsrc.model.EventEnvelope;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.EventPublisher;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.KafkaPublishException;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.OutboundEvent;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.PublishResult;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaFormatType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Publishes by appending to the {@link WriteAheadOutbox}: an event counts as published once it is on local disk,
+ * and the {@link OutboxDrainer} takes it to Kafka afterwards. Used instead of the Kafka publisher when
+ * {@code webhooks.kafka.outbox.enabled} is true, so broker slowdowns no longer hold up the response.
+ */
+public class OutboxEventPublisher implements EventPublisher {
+
+    private final WriteAheadOutbox outbox;
+    private final WebhooksProperties properties;
+    private final ObjectMapper objectMapper;
+    private final PublishMetrics publishMetrics;
+
+    public OutboxEventPublisher(WriteAheadOutbox outbox,
+                                WebhooksProperties properties,
+                                ObjectMapper objectMapper,
+                                PublishMetrics publishMetrics) {
+        this.outbox = outbox;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.publishMetrics = publishMetrics;
+    }
+
+    @Override
+    public Mono<String> publish(EventEnvelope envelope) {
+        String topic = "%s.%s.%s".formatted(
+                properties.kafka().ingressTopicPrefix(),
+                envelope.schemaReference().domain(),
+                envelope.schemaReference().eventName());
+        return Mono.fromCallable(() -> toBytes(envelope.payload()))
+                .flatMap(value -> append(envelope, new OutboxRecord(topic, envelope.eventId(), value, SchemaFormatType.JSON_SCHEMA)));
+    }
+
+    @Override
+    public Mono<String> publishAvro(EventEnvelope envelope, String topicName, byte[] avroBytes) {
+        if (topicName == null || topicName.isEmpty()) {
+            return Mono.error(new IllegalArgumentException("Topic name cannot be null or empty"));
+        }
+        return append(envelope, new OutboxRecord(topicName, envelope.eventId(), avroBytes, SchemaFormatType.AVRO_SCHEMA));
+    }
+
+    @Override
+    public Mono<String> publishJson(EventEnvelope envelope, String topicName, JsonNode jsonPayload) {
+        if (topicName == null || topicName.isEmpty()) {
+            return Mono.error(new IllegalArgumentException("Topic name cannot be null or empty"));
+        }
+        return Mono.fromCallable(() -> toBytes(jsonPayload))
+                .flatMap(value -> append(envelope, new OutboxRecord(topicName, envelope.eventId(), value, SchemaFormatType.JSON_SCHEMA)));
+    }
+
+    @Override
+    public Mono<String> publishJsonBytes(EventEnvelope envelope, String topicName, byte[] json, Map<String, String> headers) {
+        if (topicName == null || topicName.isEmpty()) {
+            return Mono.error(new IllegalArgumentException("Topic name cannot be null or empty"));
+        }
+        Map<String, byte[]> recordHeaders = new LinkedHashMap<>(headers.size() * 2);
+        headers.forEach((name, value) -> recordHeaders.put(name, value.getBytes(StandardCharsets.UTF_8)));
+        return append(envelope, new OutboxRecord(topicName, envelope.eventId(), json, SchemaFormatType.JSON_SCHEMA, recordHeaders));
+    }
+
+    /**
+     * Appends all events that serialize in one commit; they are accepted or failed together.
+     */
+    @Override
+    public Flux<PublishResult> publishBatch(List<OutboundEvent> events) {
+        if (events.isEmpty()) {
+            return Flux.empty();
+        }
+        return Mono.fromCallable(() -> {
+                    List<OutboxRecord> records = new ArrayList<>(events.size());
+                    PublishResult[] results = new PublishResult[events.size()];
+                    for (int i = 0; i < events.size(); i++) {
+                        OutboundEvent event = events.get(i);
+                        try {
+                            records.add(toRecord(event));
+                        } catch (IllegalArgumentException e) {
+                            results[i] = PublishResult.failed(event.envelope().eventId(),
+                                    new KafkaPublishException("Failed to serialize event for topic " + event.topicName(), e));
+                        }
+                    }
+                    return new BatchAppend(records, results);
+                })
+                .flatMapMany(batch -> publishMetrics.time(PublishMetrics.OUTBOX_APPEND, Mono.fromFuture(() -> outbox.append(batch.records())))
+                        .thenReturn(Optional.<KafkaPublishException>empty())
+                        .onErrorResume(error -> Mono.just(Optional.of(toPublishException(error))))
+                        .flatMapMany(error -> Flux.range(0, events.size()).map(i -> batch.result(i, events.get(i), error))));
+    }
+
+    private Mono<String> append(EventEnvelope envelope, OutboxRecord record) {
+        return publishMetrics.time(PublishMetrics.OUTBOX_APPEND, record.format(), Mono.fromFuture(() -> outbox.append(record)))
+                .onErrorMap(error -> !(error instanceof IllegalArgumentException), OutboxEventPublisher::toPublishException)
+                .thenReturn(envelope.eventId());
+    }
+
+    private OutboxRecord toRecord(OutboundEvent event) {
+        String eventId = event.envelope().eventId();
+        return event.isAvro()
+                ? new OutboxRecord(event.topicName(), eventId, event.avroBytes(), SchemaFormatType.AVRO_SCHEMA)
+                : new OutboxRecord(event.topicName(), eventId, toBytes(event.jsonPayload()), SchemaFormatType.JSON_SCHEMA);
+    }
+
+    private byte[] toBytes(Object payload) {
+        try {
+            return objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid event payload", e);
+        }
+    }
+
+    private static KafkaPublishException toPublishException(Throwable error) {
+        return error instanceof KafkaPublishException publishException
+                ? publishException
+                : new KafkaPublishException("Failed to write event to the outbox: " + error.getMessage(), error);
+    }
+
+    private record BatchAppend(List<OutboxRecord> records, PublishResult[] results) {
+
+        // Events that did not serialize keep their own failure, the rest share the append's outcome
+        PublishResult result(int index, OutboundEvent event, Optional<KafkaPublishException> appendError) {
+            if (results[index] != null) {
+                return results[index];
+            }
+            String eventId = event.envelope().eventId();
+            return appendError.map(error -> PublishResult.failed(eventId, error)).orElseGet(() -> PublishResult.published(eventId));
+        }
+    }
+}
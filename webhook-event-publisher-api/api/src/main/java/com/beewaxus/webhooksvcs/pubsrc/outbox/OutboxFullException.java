@@ -0,0 +1,14 @@
+package com.beewaxus.webhooksvcs.pubsrc.outbox;
+
+import com.beewaxus.webhooksvcs.pubsrc.publisher.KafkaPublishException;
+
+/**
+ * Thrown when the outbox already holds as much undelivered data as it may, i.e. Kafka has not been keeping up
+ * for a while. Answered with 503 like any other failure to publish.
+ */
+public class OutboxFullException extends KafkaPublishException {
+
+    public OutboxFullException(long pending, int maxSegments) {
+        super("Event outbox is full (%d undelivered events in %d segments) - Kafka is not keeping up".formatted(pending, maxSegments));
+    }
+}
@@ -0,0 +1,89 @@
+package com.beewaxus.webhooksvcs.pubsrc.outbox;
+
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaFormatType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A validated event as it is sent to Kafka: topic, key, the serialized value and any record headers.
+ * {@code format} only tags the send metrics; every value is already bytes.
+ */
+public record OutboxRecord(
+        String topic,
+        String key,
+        byte[] value,
+        SchemaFormatType format,
+        Map<String, byte[]> headers
+) {
+
+    public OutboxRecord {
+        headers = headers != null ? headers : Map.of();
+    }
+
+    public OutboxRecord(String topic, String key, byte[] value, SchemaFormatType format) {
+        this(topic, key, value, format, Map.of());
+    }
+
+    /**
+     * Serialized body as stored in a segment: topic, key (length -1 for none), format, headers, value.
+     */
+    byte[] encode() {
+        byte[] topicBytes = utf8(topic);
+        byte[] keyBytes = key != null ? utf8(key) : null;
+        byte[] formatBytes = utf8(format.name());
+        int size = 2 + topicBytes.length + 4 + (keyBytes != null ? keyBytes.length : 0) + 2 + formatBytes.length
+                + 2 + 4 + value.length;
+        for (Map.Entry<String, byte[]> header : headers.entrySet()) {
+            size += 2 + utf8(header.getKey()).length + 4 + header.getValue().length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putShort((short) topicBytes.length).put(topicBytes);
+        if (keyBytes != null) {
+            buffer.putInt(keyBytes.length).put(keyBytes);
+        } else {
+            buffer.putInt(-1);
+        }
+        buffer.putShort((short) formatBytes.length).put(formatBytes);
+        buffer.putShort((short) headers.size());
+        for (Map.Entry<String, byte[]> header : headers.entrySet()) {
+            byte[] name = utf8(header.getKey());
+            buffer.putShort((short) name.length).put(name);
+            buffer.putInt(header.getValue().length).put(header.getValue());
+        }
+        buffer.putInt(value.length).put(value);
+        return buffer.array();
+    }
+
+    static OutboxRecord decode(ByteBuffer body) {
+        String topic = string(body, body.getShort());
+        int keyLength = body.getInt();
+        String key = keyLength >= 0 ? string(body, keyLength) : null;
+        SchemaFormatType format = SchemaFormatType.valueOf(string(body, body.getShort()));
+        int headerCount = body.getShort();
+        Map<String, byte[]> headers = headerCount > 0 ? new LinkedHashMap<>(headerCount * 2) : Map.of();
+        for (int i = 0; i < headerCount; i++) {
+            String name = string(body, body.getShort());
+            headers.put(name, bytes(body, body.getInt()));
+        }
+        byte[] value = bytes(body, body.getInt());
+        return new OutboxRecord(topic, key, value, format, headers);
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(ByteBuffer body, int length) {
+        return new String(bytes(body, length), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(ByteBuffer body, int length) {
+        byte[] bytes = new byte[length];
+        body.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,196 @@
+package com.beewaxus.webhooksvcs.pubsrc.outbox;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * One memory-mapped file of the outbox log, named after the sequence of its first record. Records are framed as
+ * {@code [int body length][int CRC32C of sequence and body][long sequence][body]}; a zero length marks the end,
+ * as the file starts zero-filled. Only the log's lock holder appends, and the commit thread forces.
+ */
+final class OutboxSegment implements Closeable {
+
+    static final int HEADER_BYTES = 16;
+    private static final String SUFFIX = ".log";
+
+    private final Path path;
+    private final long baseSequence;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int writePosition;
+    private int forcedPosition;
+    private long lastSequence;
+
+    private OutboxSegment(Path path, long baseSequence, FileChannel channel, MappedByteBuffer buffer) {
+        this.path = path;
+        this.baseSequence = baseSequence;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.lastSequence = baseSequence - 1;
+    }
+
+    static OutboxSegment create(Path directory, long baseSequence, int size) throws IOException {
+        Path path = directory.resolve("%020d%s".formatted(baseSequence, SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new OutboxSegment(path, baseSequence, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+
+    /**
+     * Maps an existing segment and finds its end: the first record that is missing, torn (bad CRC) or out of
+     * sequence. Anything written past that point is zeroed so later appends start from a clean end marker.
+     */
+    static OutboxSegment open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        OutboxSegment segment = new OutboxSegment(path, baseSequence(path), channel,
+                channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+        segment.recover();
+        return segment;
+    }
+
+    static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.endsWith(SUFFIX) && name.length() == 20 + SUFFIX.length();
+    }
+
+    static long baseSequence(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * Writes one record after the last, or returns false when it does not fit and the log has to roll.
+     */
+    boolean append(long sequence, byte[] body) {
+        int position = writePosition;
+        if (!fits(position, body.length)) {
+            return false;
+        }
+        buffer.putLong(position + 8, sequence);
+        buffer.put(position + HEADER_BYTES, body);
+        buffer.putInt(position + 4, crc(position, body.length));
+        buffer.putInt(position, body.length);
+        writePosition = position + HEADER_BYTES + body.length;
+        lastSequence = sequence;
+        return true;
+    }
+
+    boolean fits(int position, int bodyLength) {
+        return (long) position + HEADER_BYTES + bodyLength <= buffer.capacity();
+    }
+
+    /**
+     * Body length of the record at {@code position}, 0 past the last record.
+     */
+    int bodyLength(int position) {
+        return position + HEADER_BYTES <= buffer.capacity() ? buffer.getInt(position) : 0;
+    }
+
+    OutboxRecord record(int position) {
+        return OutboxRecord.decode(buffer.slice(position + HEADER_BYTES, buffer.getInt(position)));
+    }
+
+    /**
+     * Flushes what was appended since the last call to disk, up to {@code to}.
+     */
+    void force(int to) {
+        if (to > forcedPosition) {
+            buffer.force(forcedPosition, to - forcedPosition);
+            forcedPosition = to;
+        }
+    }
+
+    /**
+     * Drops every record after {@code sequence} (all of them when it precedes this segment) and zeroes their bytes,
+     * so neither later appends nor a recovery scan see them.
+     */
+    void truncateAfter(long sequence) {
+        int position = 0;
+        long next = baseSequence;
+        while (next <= sequence && position < writePosition) {
+            position += HEADER_BYTES + buffer.getInt(position);
+            next++;
+        }
+        if (position < writePosition) {
+            buffer.put(position, new byte[writePosition - position]);
+        }
+        writePosition = position;
+        forcedPosition = Math.min(forcedPosition, position);
+        lastSequence = next - 1;
+    }
+
+    boolean isDirty() {
+        return writePosition > forcedPosition;
+    }
+
+    long baseSequence() {
+        return baseSequence;
+    }
+
+    long lastSequence() {
+        return lastSequence;
+    }
+
+    boolean isEmpty() {
+        return lastSequence < baseSequence;
+    }
+
+    int writePosition() {
+        return writePosition;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    Path path() {
+        return path;
+    }
+
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void recover() {
+        int position = 0;
+        long expected = baseSequence;
+        while (position + HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || !fits(position, length)
+                    || buffer.getLong(position + 8) != expected
+                    || buffer.getInt(position + 4) != crc(position, length)) {
+                break;
+            }
+            position += HEADER_BYTES + length;
+            expected++;
+        }
+        writePosition = position;
+        forcedPosition = position;
+        lastSequence = expected - 1;
+
+        if (position + 4 <= buffer.capacity() && buffer.getInt(position) != 0) {
+            byte[] zeros = new byte[Math.min(64 * 1024, buffer.capacity() - position)];
+            for (int offset = position; offset < buffer.capacity(); offset += zeros.length) {
+                buffer.put(offset, zeros, 0, Math.min(zeros.length, buffer.capacity() - offset));
+            }
+            buffer.force(position, buffer.capacity() - position);
+        }
+    }
+
+    private int crc(int position, int bodyLength) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(position + 8, 8 + bodyLength));
+        return (int) crc.getValue();
+    }
+}
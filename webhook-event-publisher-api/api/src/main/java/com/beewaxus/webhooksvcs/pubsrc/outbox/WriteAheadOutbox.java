@@ -0,0 +1,396 @@
+package com.beewaxus.webhooksvcs.pubsrc.outbox;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of accepted events on local disk, made of memory-mapped {@link OutboxSegment} files.
+ * <ul>
+ *     <li>{@link #append} copies records into the active segment and completes once they are forced to disk.
+ *     A single commit thread forces everything appended since its previous pass in one go, so concurrent appends
+ *     share one fsync (group commit) instead of paying for one each. When the force fails, every record appended
+ *     since the last successful commit is rolled back and its append fails, so a failed append is never delivered
+ *     later and a client retry does not publish it twice.</li>
+ *     <li>{@link #poll} hands out committed records in sequence order, and {@link #acknowledge} marks them
+ *     delivered; segments whose records are all delivered are deleted. The delivered sequence is checkpointed
+ *     next to the segments.</li>
+ *     <li>On startup the segments are scanned, a torn tail is cut off and every record past the checkpoint is
+ *     polled again. Delivery is therefore at least once: records sent but not yet checkpointed before a crash
+ *     are sent a second time.</li>
+ *     <li>Once {@code maxSegments} segments hold undelivered records, appends fail with
+ *     {@link OutboxFullException}.</li>
+ * </ul>
+ */
+public final class WriteAheadOutbox implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadOutbox.class);
+
+    private static final String CHECKPOINT = "acknowledged.checkpoint";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    // Oldest first; the last one is appended to
+    private final List<OutboxSegment> segments = new ArrayList<>();
+    private final List<CompletableFuture<Void>> waiting = new ArrayList<>();
+    private volatile long nextSequence;
+    private volatile long committedSequence;
+    private volatile long acknowledgedSequence;
+    private volatile boolean closed;
+    private volatile Runnable commitListener = () -> {
+    };
+    // Test seam: runs on the commit thread before each force
+    volatile Runnable beforeForce = () -> {
+    };
+
+    // Where poll continues; only moved by poll
+    private OutboxSegment readSegment;
+    private int readPosition;
+    private long readSequence;
+
+    private final Thread committer;
+
+    public WriteAheadOutbox(Path directory, int segmentBytes, int maxSegments) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(directory);
+        recover();
+        this.committer = Thread.ofPlatform().name("outbox-commit").daemon().start(this::commitLoop);
+    }
+
+    public CompletableFuture<Void> append(OutboxRecord record) {
+        return append(List.of(record));
+    }
+
+    /**
+     * Appends the records in order and completes once all of them are on disk. Either all are appended or,
+     * when they do not fit, none.
+     */
+    public CompletableFuture<Void> append(List<OutboxRecord> records) {
+        if (records.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<byte[]> bodies = new ArrayList<>(records.size());
+        for (OutboxRecord record : records) {
+            byte[] body = record.encode();
+            if ((long) OutboxSegment.HEADER_BYTES + body.length > segmentBytes) {
+                return CompletableFuture.failedFuture(new IllegalArgumentException(
+                        "Event of %d bytes does not fit in an outbox segment of %d bytes".formatted(body.length, segmentBytes)));
+            }
+            bodies.add(body);
+        }
+
+        lock.lock();
+        try {
+            if (closed) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Outbox is closed"));
+            }
+            if (segmentsNeeded(bodies) > maxSegments) {
+                return CompletableFuture.failedFuture(new OutboxFullException(pending(), maxSegments));
+            }
+            for (byte[] body : bodies) {
+                long sequence = nextSequence;
+                if (!active().append(sequence, body)) {
+                    segments.add(OutboxSegment.create(directory, sequence, segmentBytes));
+                    active().append(sequence, body);
+                }
+                nextSequence = sequence + 1;
+            }
+            CompletableFuture<Void> committed = new CompletableFuture<>();
+            waiting.add(committed);
+            appended.signal();
+            return committed;
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException("Could not create outbox segment", e));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Up to {@code max} committed records following the ones polled before, oldest first.
+     */
+    public List<OutboxEntry> poll(int max) {
+        lock.lock();
+        try {
+            List<OutboxEntry> entries = new ArrayList<>(Math.min(max, 64));
+            while (entries.size() < max && readSequence <= committedSequence) {
+                int length = readSegment.bodyLength(readPosition);
+                if (length == 0) {
+                    if (!nextReadSegment()) {
+                        break;
+                    }
+                    continue;
+                }
+                entries.add(new OutboxEntry(readSequence, readSegment.record(readPosition)));
+                readPosition += OutboxSegment.HEADER_BYTES + length;
+                readSequence++;
+            }
+            return entries;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks every record up to and including {@code sequence} delivered and deletes the segments that held only
+     * delivered records.
+     */
+    public void acknowledge(long sequence) {
+        lock.lock();
+        try {
+            if (sequence <= acknowledgedSequence) {
+                return;
+            }
+            acknowledgedSequence = sequence;
+            while (segments.size() > 1 && segments.get(0) != readSegment && segments.get(0).lastSequence() <= sequence) {
+                OutboxSegment delivered = segments.remove(0);
+                try {
+                    delivered.delete();
+                } catch (IOException e) {
+                    log.warn("Could not delete delivered outbox segment {}: {}", delivered.path(), e.getMessage());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        writeCheckpoint(sequence);
+    }
+
+    /**
+     * Called on the commit thread after each commit, e.g. to wake up whoever polls.
+     */
+    public void onCommit(Runnable listener) {
+        this.commitListener = listener;
+    }
+
+    /**
+     * Records appended but not yet acknowledged.
+     */
+    public long pending() {
+        return nextSequence - 1 - acknowledgedSequence;
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            appended.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            committer.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            for (OutboxSegment segment : segments) {
+                try {
+                    segment.close();
+                } catch (IOException e) {
+                    log.warn("Could not close outbox segment {}: {}", segment.path(), e.getMessage());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void commitLoop() {
+        while (true) {
+            List<CompletableFuture<Void>> batch;
+            List<OutboxSegment> dirty = new ArrayList<>(2);
+            List<Integer> dirtyTo = new ArrayList<>(2);
+            long upTo;
+            lock.lock();
+            try {
+                while (waiting.isEmpty() && !closed) {
+                    appended.awaitUninterruptibly();
+                }
+                if (waiting.isEmpty()) {
+                    return;
+                }
+                batch = new ArrayList<>(waiting);
+                waiting.clear();
+                for (OutboxSegment segment : segments) {
+                    if (segment.isDirty()) {
+                        dirty.add(segment);
+                        dirtyTo.add(segment.writePosition());
+                    }
+                }
+                upTo = nextSequence - 1;
+            } finally {
+                lock.unlock();
+            }
+
+            // Appends carry on into the same segments while these regions are forced
+            try {
+                beforeForce.run();
+                for (int i = 0; i < dirty.size(); i++) {
+                    dirty.get(i).force(dirtyTo.get(i));
+                }
+            } catch (RuntimeException e) {
+                log.error("Could not force outbox segments to disk, rolling back uncommitted records: {}", e.getMessage(), e);
+                batch.addAll(rollBack());
+                batch.forEach(committed -> committed.completeExceptionally(e));
+                continue;
+            }
+            committedSequence = upTo;
+            batch.forEach(committed -> committed.complete(null));
+            try {
+                commitListener.run();
+            } catch (RuntimeException e) {
+                log.warn("Outbox commit listener failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Drops every record after {@link #committedSequence}, including ones appended while the failed force ran,
+     * and hands back the appends still waiting for a commit; they all fail.
+     */
+    private List<CompletableFuture<Void>> rollBack() {
+        lock.lock();
+        try {
+            long committed = committedSequence;
+            // Segments started after the last committed record hold nothing committed
+            while (segments.size() > 1 && active().baseSequence() > committed + 1) {
+                OutboxSegment dropped = segments.remove(segments.size() - 1);
+                try {
+                    dropped.delete();
+                } catch (IOException e) {
+                    log.warn("Could not delete rolled back outbox segment {}: {}", dropped.path(), e.getMessage());
+                }
+                if (dropped == readSegment) {
+                    readSegment = active();
+                    readPosition = -1;
+                }
+            }
+            active().truncateAfter(committed);
+            if (readPosition < 0) {
+                readPosition = active().writePosition();
+                readSequence = committed + 1;
+            }
+            nextSequence = committed + 1;
+            List<CompletableFuture<Void>> failed = new ArrayList<>(waiting);
+            waiting.clear();
+            return failed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        long acknowledged = readCheckpoint();
+        long lastSeen = acknowledged;
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(OutboxSegment::isSegment)
+                    .sorted((a, b) -> Long.compare(OutboxSegment.baseSequence(a), OutboxSegment.baseSequence(b)))
+                    .toList();
+        }
+        for (Path file : files) {
+            OutboxSegment segment = OutboxSegment.open(file);
+            lastSeen = Math.max(lastSeen, segment.lastSequence());
+            if (segment.isEmpty() || segment.lastSequence() <= acknowledged) {
+                segment.delete();
+            } else {
+                segments.add(segment);
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.add(OutboxSegment.create(directory, lastSeen + 1, segmentBytes));
+        }
+
+        nextSequence = active().lastSequence() + 1;
+        committedSequence = nextSequence - 1;
+        acknowledgedSequence = acknowledged;
+        readSegment = segments.get(0);
+        readPosition = 0;
+        readSequence = readSegment.baseSequence();
+        // Skip what was delivered before the restart
+        while (readSequence <= acknowledged) {
+            int length = readSegment.bodyLength(readPosition);
+            readPosition += OutboxSegment.HEADER_BYTES + length;
+            readSequence++;
+        }
+        if (pending() > 0) {
+            log.info("Recovered {} undelivered outbox records from {} segments in {}", pending(), segments.size(), directory);
+        }
+    }
+
+    private boolean nextReadSegment() {
+        int index = segments.indexOf(readSegment);
+        if (index < 0 || index + 1 >= segments.size()) {
+            return false;
+        }
+        readSegment = segments.get(index + 1);
+        readPosition = 0;
+        // A segment cut short by a crash leaves a gap; nothing in it was ever committed
+        readSequence = readSegment.baseSequence();
+        return true;
+    }
+
+    private int segmentsNeeded(List<byte[]> bodies) {
+        OutboxSegment active = active();
+        int needed = segments.size();
+        long position = active.writePosition();
+        long capacity = active.capacity();
+        for (byte[] body : bodies) {
+            long frame = OutboxSegment.HEADER_BYTES + body.length;
+            if (position + frame > capacity) {
+                needed++;
+                position = 0;
+                capacity = segmentBytes;
+            }
+            position += frame;
+        }
+        return needed;
+    }
+
+    private OutboxSegment active() {
+        return segments.get(segments.size() - 1);
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path checkpoint = directory.resolve(CHECKPOINT);
+        if (!Files.exists(checkpoint)) {
+            return -1;
+        }
+        byte[] bytes = Files.readAllBytes(checkpoint);
+        return bytes.length == Long.BYTES ? ByteBuffer.wrap(bytes).getLong() : -1;
+    }
+
+    // Not forced: losing the latest checkpoint in a crash only means sending a few records again
+    private void writeCheckpoint(long sequence) {
+        Path checkpoint = directory.resolve(CHECKPOINT);
+        Path next = directory.resolve(CHECKPOINT + ".tmp");
+        try {
+            Files.write(next, ByteBuffer.allocate(Long.BYTES).putLong(sequence).array());
+            Files.move(next, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write outbox checkpoint {}: {}", checkpoint, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.beewaxus.webhooksvcs.pubsrc.publisher;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Folds a batch's per-record results into the single outcome its one {@link KafkaCircuitBreaker} permission allows:
+ * a broker failure if any record hit one, otherwise a success if any record was sent. When every record was rejected
+ * on its own merits, or none was sent at all, the permission is handed back, as for a single publish.
+ */
+public final class BatchOutcome {
+
+    private final AtomicBoolean anySucceeded = new AtomicBoolean();
+    private final AtomicReference<Throwable> brokerFailure = new AtomicReference<>();
+
+    public void succeeded() {
+        anySucceeded.set(true);
+    }
+
+    public void failed(Throwable error) {
+        if (KafkaCircuitBreaker.countsAsBrokerFailure(error)) {
+            brokerFailure.compareAndSet(null, error);
+        }
+    }
+
+    public void recordOn(KafkaCircuitBreaker circuitBreaker) {
+        if (brokerFailure.get() != null) {
+            circuitBreaker.onError(brokerFailure.get());
+        } else if (anySucceeded.get()) {
+            circuitBreaker.onSuccess();
+        } else {
+            circuitBreaker.releasePermission();
+        }
+    }
+}
@@ -2,8 +2,12 @@ package com.beewaxus.webhooksvcs.pubsrc.publisher;
 
 import com.beewaxus.webhooksvcs.pubsrc.model.EventEnvelope;
 import com.fasterxml.jackson.databind.JsonNode;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.Map;
+
 public interface EventPublisher {
 
     Mono<String> publish(EventEnvelope envelope);
@@ -11,4 +15,15 @@ public interface EventPublisher {
     Mono<String> publishAvro(EventEnvelope envelope, String topicName, byte[] avroBytes);
 
     Mono<String> publishJson(EventEnvelope envelope, String topicName, JsonNode jsonPayload);
+
+    /**
+     * Publishes JSON that was already validated exactly as received, with {@code headers} as record headers.
+     */
+    Mono<String> publishJsonBytes(EventEnvelope envelope, String topicName, byte[] json, Map<String, String> headers);
+
+    /**
+     * Sends all events before waiting on any of them and emits one result per event, in order.
+     * A failed event does not fail the others.
+     */
+    Flux<PublishResult> publishBatch(List<OutboundEvent> events);
 }
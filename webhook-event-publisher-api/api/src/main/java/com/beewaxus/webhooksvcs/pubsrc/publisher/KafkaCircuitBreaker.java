@@ -0,0 +1,259 @@
+package com.beewaxus.webhooksvcs.pubsrc.publisher;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.common.errors.InvalidTopicException;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.apache.kafka.common.errors.SerializationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Stops sending to Kafka while the brokers are failing, so publishes fail fast with a {@link KafkaCircuitOpenException}
+ * instead of each one waiting out the publish timeout and its retries.
+ * <ul>
+ *     <li>CLOSED: publishes go through. The breaker opens once {@code failure-rate-threshold} percent of the last
+ *     {@code window-size} outcomes (and at least {@code minimum-calls} of them) are broker failures or timeouts,
+ *     or when {@link KafkaProducerHealthMonitor} sees the producer buffer filling up.</li>
+ *     <li>OPEN: every publish is rejected for {@code open-duration}, which is also the Retry-After given to clients.</li>
+ *     <li>HALF_OPEN: up to {@code half-open-probes} publishes are let through. All succeeding closes the breaker,
+ *     any failing opens it again.</li>
+ * </ul>
+ * Records the producer rejects on their own (too large, not serializable, bad topic) say nothing about the brokers
+ * and are not counted.
+ */
+@Component
+public class KafkaCircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(KafkaCircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final WebhooksProperties.CircuitBreakerProperties config;
+    private final Ticker ticker;
+    private final Counter rejected;
+    private final Map<State, Counter> transitions = new EnumMap<>(State.class);
+
+    // Outcomes of the most recent publishes while CLOSED, true for a failure
+    private final boolean[] window;
+    private int windowNext;
+    private int windowCount;
+    private int windowFailures;
+
+    private volatile State state = State.CLOSED;
+    private long openedAt;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    @Autowired
+    public KafkaCircuitBreaker(WebhooksProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, Ticker.systemTicker());
+    }
+
+    KafkaCircuitBreaker(WebhooksProperties properties, MeterRegistry meterRegistry, Ticker ticker) {
+        this.config = properties.kafka() != null
+                ? properties.kafka().getCircuitBreaker()
+                : new WebhooksProperties.CircuitBreakerProperties(null, null, null, null, null, null, null, null);
+        this.ticker = ticker;
+        this.window = new boolean[config.getWindowSize()];
+
+        Gauge.builder("webhooks.kafka.circuit.state", this, breaker -> breaker.state().ordinal())
+                .description("Kafka circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("webhooks.kafka.circuit.rejected")
+                .description("Publishes failed fast because the Kafka circuit breaker was open")
+                .register(meterRegistry);
+        for (State to : State.values()) {
+            transitions.put(to, Counter.builder("webhooks.kafka.circuit.transitions")
+                    .description("Kafka circuit breaker state changes, by the state entered")
+                    .tag("state", to.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Assembles and runs the publish when the breaker lets it through and records how it ended, or fails fast
+     * when it does not. The publish is only assembled once permitted, since assembling it may already send.
+     */
+    public <T> Mono<T> protect(Supplier<Mono<T>> publish) {
+        return Mono.defer(() -> {
+            if (!tryAcquirePermission()) {
+                return Mono.error(openException());
+            }
+            Mono<T> started;
+            try {
+                started = publish.get();
+            } catch (RuntimeException e) {
+                onError(e);
+                return Mono.error(e);
+            }
+            return started
+                    .doOnSuccess(result -> onSuccess())
+                    .doOnError(this::onError)
+                    .doOnCancel(this::releasePermission);
+        });
+    }
+
+    public State state() {
+        State current = state;
+        if (current == State.OPEN && elapsedSinceOpened() >= config.getOpenDuration().toNanos()) {
+            synchronized (this) {
+                if (state == State.OPEN && elapsedSinceOpened() >= config.getOpenDuration().toNanos()) {
+                    transitionTo(State.HALF_OPEN, "open duration elapsed");
+                }
+                return state;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Time left until probes are let through again, rounded up to whole seconds for the Retry-After header.
+     */
+    public Duration retryAfter() {
+        long remaining = state() == State.OPEN ? config.getOpenDuration().toNanos() - elapsedSinceOpened() : 0;
+        return Duration.ofSeconds(Math.max(1, (remaining + 999_999_999) / 1_000_000_000));
+    }
+
+    public KafkaCircuitOpenException openException() {
+        return new KafkaCircuitOpenException(retryAfter());
+    }
+
+    /**
+     * Whether a publish may start now; a true answer in HALF_OPEN takes one of the probe slots.
+     */
+    public boolean tryAcquirePermission() {
+        if (!config.isEnabled()) {
+            return true;
+        }
+        State current = state();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.HALF_OPEN) {
+            synchronized (this) {
+                if (state == State.CLOSED) {
+                    return true;
+                }
+                if (state == State.HALF_OPEN && probesStarted < config.getHalfOpenProbes()) {
+                    probesStarted++;
+                    return true;
+                }
+            }
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * Gives back a probe slot taken by a publish that was cancelled before it completed.
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && probesStarted > probesSucceeded) {
+            probesStarted--;
+        }
+    }
+
+    public void onSuccess() {
+        record(false);
+    }
+
+    public void onError(Throwable error) {
+        if (countsAsBrokerFailure(error)) {
+            record(true);
+        } else {
+            // Says nothing about the brokers either way
+            releasePermission();
+        }
+    }
+
+    /**
+     * Opens the breaker right away on a signal other than publish outcomes, such as the producer buffer filling up.
+     */
+    public synchronized void tripOpen(String reason) {
+        if (config.isEnabled() && state != State.OPEN) {
+            transitionTo(State.OPEN, reason);
+        }
+    }
+
+    private synchronized void record(boolean failure) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        switch (state) {
+            case CLOSED -> {
+                if (windowCount == window.length) {
+                    windowFailures -= window[windowNext] ? 1 : 0;
+                } else {
+                    windowCount++;
+                }
+                window[windowNext] = failure;
+                windowFailures += failure ? 1 : 0;
+                windowNext = (windowNext + 1) % window.length;
+                if (windowCount >= config.getMinimumCalls()
+                        && windowFailures * 100 >= config.getFailureRateThreshold() * windowCount) {
+                    transitionTo(State.OPEN, "%d of the last %d publishes failed".formatted(windowFailures, windowCount));
+                }
+            }
+            case HALF_OPEN -> {
+                if (failure) {
+                    transitionTo(State.OPEN, "probe publish failed");
+                } else if (++probesSucceeded >= config.getHalfOpenProbes()) {
+                    transitionTo(State.CLOSED, "%d probe publishes succeeded".formatted(probesSucceeded));
+                }
+            }
+            // Publishes started before the breaker opened; the open period is not extended by them
+            case OPEN -> {
+            }
+        }
+    }
+
+    private void transitionTo(State next, String reason) {
+        State previous = state;
+        state = next;
+        if (next == State.OPEN) {
+            openedAt = ticker.read();
+        }
+        probesStarted = 0;
+        probesSucceeded = 0;
+        windowNext = 0;
+        windowCount = 0;
+        windowFailures = 0;
+        transitions.get(next).increment();
+        if (next == State.OPEN) {
+            log.warn("Kafka circuit breaker {} -> OPEN for {}: {}", previous, config.getOpenDuration(), reason);
+        } else {
+            log.info("Kafka circuit breaker {} -> {}: {}", previous, next, reason);
+        }
+    }
+
+    private long elapsedSinceOpened() {
+        return ticker.read() - openedAt;
+    }
+
+    /**
+     * False for errors caused by the record itself rather than the brokers; sending it again would fail the same way.
+     */
+    public static boolean countsAsBrokerFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RecordTooLargeException
+                    || cause instanceof SerializationException
+                    || cause instanceof InvalidTopicException
+                    || cause instanceof IllegalArgumentException) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,31 @@
+package com.beewaxus.webhooksvcs.pubsrc.publisher;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the {@link KafkaCircuitBreaker} as {@code kafkaCircuitBreaker} under /actuator/health. OPEN is
+ * OUT_OF_SERVICE (503), so load balancers move traffic to healthy instances; HALF_OPEN is UP again so the
+ * probe publishes that can close the breaker get to this instance.
+ */
+@Component
+public class KafkaCircuitBreakerHealthIndicator implements HealthIndicator {
+
+    private final KafkaCircuitBreaker circuitBreaker;
+
+    public KafkaCircuitBreakerHealthIndicator(KafkaCircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public Health health() {
+        KafkaCircuitBreaker.State state = circuitBreaker.state();
+        Health.Builder health = state == KafkaCircuitBreaker.State.OPEN ? Health.outOfService() : Health.up();
+        health.withDetail("state", state);
+        if (state == KafkaCircuitBreaker.State.OPEN) {
+            health.withDetail("retryAfterSeconds", circuitBreaker.retryAfter().toSeconds());
+        }
+        return health.build();
+    }
+}
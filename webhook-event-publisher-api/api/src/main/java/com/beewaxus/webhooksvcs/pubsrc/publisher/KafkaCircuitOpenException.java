@@ -0,0 +1,21 @@
+package com.beewaxus.webhooksvcs.pubsrc.publisher;
+
+import java.time.Duration;
+
+/**
+ * Thrown instead of sending while the {@link KafkaCircuitBreaker} is open. Answered with 503 and a Retry-After
+ * of {@link #retryAfter()}.
+ */
+public class KafkaCircuitOpenException extends KafkaPublishException {
+
+    private final Duration retryAfter;
+
+    public KafkaCircuitOpenException(Duration retryAfter) {
+        super("Kafka circuit breaker is open - publishing is paused, retry after " + retryAfter.toSeconds() + "s");
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration retryAfter() {
+        return retryAfter;
+    }
+}
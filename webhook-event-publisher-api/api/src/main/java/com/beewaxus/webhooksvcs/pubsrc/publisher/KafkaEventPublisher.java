@@ -4,38 +4,45 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.metrics.PublishMetrics;
 import com.beewaxus.webhooksvcs.pubsrc.model.EventEnvelope;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaFormatType;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
-import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.concurrent.CompletableFuture;
+import java.util.List;
+import java.util.Map;
 
 @Component
 public class KafkaEventPublisher implements EventPublisher {
 
     private static final Logger log = LoggerFactory.getLogger(KafkaEventPublisher.class);
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
-    private final KafkaTemplate<String, byte[]> avroKafkaTemplate;
+    private final KafkaProducerPool producerPool;
     private final WebhooksProperties properties;
     private final ObjectMapper objectMapper;
+    private final PublishMetrics publishMetrics;
+    private final KafkaCircuitBreaker circuitBreaker;
 
-    public KafkaEventPublisher(KafkaTemplate<String, String> kafkaTemplate,
-                               KafkaTemplate<String, byte[]> avroKafkaTemplate,
+    public KafkaEventPublisher(KafkaProducerPool producerPool,
                                WebhooksProperties properties,
-                               ObjectMapper objectMapper) {
-        this.kafkaTemplate = kafkaTemplate;
-        this.avroKafkaTemplate = avroKafkaTemplate;
+                               ObjectMapper objectMapper,
+                               PublishMetrics publishMetrics,
+                               KafkaCircuitBreaker circuitBreaker) {
+        this.producerPool = producerPool;
         this.properties = properties;
         this.objectMapper = objectMapper;
+        this.publishMetrics = publishMetrics;
+        this.circuitBreaker = circuitBreaker;
     }
 
     @Override
@@ -45,12 +52,9 @@ public class KafkaEventPublisher implements EventPublisher {
         Duration retryDelay = properties.kafka().getRetryBackoffInitialDelay();
         
         return Mono.fromCallable(() -> toJson(envelope))
-                .flatMap(payload -> Mono.fromFuture(send(envelope, payload))
+                .flatMap(payload -> circuitBreaker.protect(() -> publishMetrics.time(PublishMetrics.KAFKA_SEND, envelope.schemaFormatType(), send(envelope, payload)
                         .timeout(timeout)
-                        .retryWhen(Retry.backoff(maxRetries, retryDelay)
-                                .filter(throwable -> throwable instanceof org.apache.kafka.common.errors.TimeoutException 
-                                        || (throwable.getCause() != null && throwable.getCause() instanceof org.apache.kafka.common.errors.TimeoutException)
-                                        || throwable instanceof org.apache.kafka.common.errors.RetriableException))
+                        .retryWhen(Retry.backoff(maxRetries, retryDelay).filter(this::isRetriable))
                         .doOnError(error -> log.error("Failed to publish event {} to Kafka: {}", envelope.eventId(), error.getMessage(), error))
                         .onErrorMap(throwable -> {
                             if (throwable instanceof org.apache.kafka.common.errors.TimeoutException 
@@ -59,20 +63,19 @@ public class KafkaEventPublisher implements EventPublisher {
                                 return new KafkaPublishException("Kafka publish timeout - broker may be unavailable", throwable);
                             }
                             return new KafkaPublishException("Failed to publish event to Kafka: " + throwable.getMessage(), throwable);
-                        }))
-                .map(result -> {
-                    RecordMetadata metadata = result.getRecordMetadata();
+                        }))))
+                .map(metadata -> {
                     log.debug("Published event {} to {}-{}@{}", envelope.eventId(), metadata.topic(), metadata.partition(), metadata.offset());
                     return envelope.eventId();
                 });
     }
 
-    private CompletableFuture<SendResult<String, String>> send(EventEnvelope envelope, String payload) {
+    private Mono<RecordMetadata> send(EventEnvelope envelope, byte[] payload) {
         String topic = "%s.%s.%s".formatted(
                 properties.kafka().ingressTopicPrefix(),
                 envelope.schemaReference().domain(),
                 envelope.schemaReference().eventName());
-        return kafkaTemplate.send(topic, envelope.eventId(), payload).toCompletableFuture();
+        return sendBytes(envelope, topic, payload, Map.of());
     }
 
     @Override
@@ -85,12 +88,9 @@ public class KafkaEventPublisher implements EventPublisher {
         int maxRetries = properties.kafka().getMaxRetries();
         Duration retryDelay = properties.kafka().getRetryBackoffInitialDelay();
         
-        return Mono.fromFuture(sendAvro(envelope, topicName, avroBytes))
+        return circuitBreaker.protect(() -> publishMetrics.time(PublishMetrics.KAFKA_SEND, SchemaFormatType.AVRO_SCHEMA, sendAvro(envelope, topicName, avroBytes)
                 .timeout(timeout)
-                .retryWhen(Retry.backoff(maxRetries, retryDelay)
-                        .filter(throwable -> throwable instanceof org.apache.kafka.common.errors.TimeoutException 
-                                || (throwable.getCause() != null && throwable.getCause() instanceof org.apache.kafka.common.errors.TimeoutException)
-                                || throwable instanceof org.apache.kafka.common.errors.RetriableException))
+                .retryWhen(Retry.backoff(maxRetries, retryDelay).filter(this::isRetriable))
                 .doOnError(error -> log.error("Failed to publish Avro event {} to topic {}: {}", 
                         envelope.eventId(), topicName, error.getMessage(), error))
                 .onErrorMap(throwable -> {
@@ -100,16 +100,15 @@ public class KafkaEventPublisher implements EventPublisher {
                         return new KafkaPublishException("Kafka publish timeout - broker may be unavailable for topic: " + topicName, throwable);
                     }
                     return new KafkaPublishException("Failed to publish Avro event to Kafka topic " + topicName + ": " + throwable.getMessage(), throwable);
-                })
-                .map(result -> {
-                    RecordMetadata metadata = result.getRecordMetadata();
+                })))
+                .map(metadata -> {
                     log.debug("Published Avro event {} to {}-{}@{}", envelope.eventId(), metadata.topic(), metadata.partition(), metadata.offset());
                     return envelope.eventId();
                 });
     }
 
-    private CompletableFuture<SendResult<String, byte[]>> sendAvro(EventEnvelope envelope, String topicName, byte[] avroBytes) {
-        return avroKafkaTemplate.send(topicName, envelope.eventId(), avroBytes).toCompletableFuture();
+    private Mono<RecordMetadata> sendAvro(EventEnvelope envelope, String topicName, byte[] avroBytes) {
+        return sendBytes(envelope, topicName, avroBytes, Map.of());
     }
 
     @Override
@@ -117,42 +116,124 @@ public class KafkaEventPublisher implements EventPublisher {
         if (topicName == null || topicName.isEmpty()) {
             return Mono.error(new IllegalArgumentException("Topic name cannot be null or empty"));
         }
+        return Mono.fromCallable(() -> objectMapper.writeValueAsBytes(jsonPayload))
+                .flatMap(jsonBytes -> publishJsonBytes(envelope, topicName, jsonBytes, Map.of()));
+    }
+
+    @Override
+    public Mono<String> publishJsonBytes(EventEnvelope envelope, String topicName, byte[] json, Map<String, String> headers) {
+        if (topicName == null || topicName.isEmpty()) {
+            return Mono.error(new IllegalArgumentException("Topic name cannot be null or empty"));
+        }
 
         Duration timeout = properties.kafka().getPublishTimeout();
         int maxRetries = properties.kafka().getMaxRetries();
         Duration retryDelay = properties.kafka().getRetryBackoffInitialDelay();
 
-        return Mono.fromCallable(() -> objectMapper.writeValueAsString(jsonPayload))
-                .flatMap(jsonString -> Mono.fromFuture(sendJson(envelope, topicName, jsonString))
-                        .timeout(timeout)
-                        .retryWhen(Retry.backoff(maxRetries, retryDelay)
-                                .filter(throwable -> throwable instanceof org.apache.kafka.common.errors.TimeoutException
-                                        || (throwable.getCause() != null && throwable.getCause() instanceof org.apache.kafka.common.errors.TimeoutException)
-                                        || throwable instanceof org.apache.kafka.common.errors.RetriableException))
-                        .doOnError(error -> log.error("Failed to publish JSON event {} to topic {}: {}",
-                                envelope.eventId(), topicName, error.getMessage(), error))
-                        .onErrorMap(throwable -> {
-                            if (throwable instanceof org.apache.kafka.common.errors.TimeoutException
-                                    || throwable instanceof java.util.concurrent.TimeoutException
-                                    || (throwable.getCause() != null && throwable.getCause() instanceof org.apache.kafka.common.errors.TimeoutException)) {
-                                return new KafkaPublishException("Kafka publish timeout - broker may be unavailable for topic: " + topicName, throwable);
-                            }
-                            return new KafkaPublishException("Failed to publish JSON event to Kafka topic " + topicName + ": " + throwable.getMessage(), throwable);
-                        })
-                        .map(result -> {
-                            RecordMetadata metadata = result.getRecordMetadata();
-                            log.debug("Published JSON event {} to {}-{}@{}", envelope.eventId(), metadata.topic(), metadata.partition(), metadata.offset());
-                            return envelope.eventId();
-                        }));
+        return circuitBreaker.protect(() -> publishMetrics.time(PublishMetrics.KAFKA_SEND, SchemaFormatType.JSON_SCHEMA, sendJson(envelope, topicName, json, headers)
+                .timeout(timeout)
+                .retryWhen(Retry.backoff(maxRetries, retryDelay).filter(this::isRetriable))
+                .doOnError(error -> log.error("Failed to publish JSON event {} to topic {}: {}",
+                        envelope.eventId(), topicName, error.getMessage(), error))
+                .onErrorMap(throwable -> {
+                    if (throwable instanceof org.apache.kafka.common.errors.TimeoutException
+                            || throwable instanceof java.util.concurrent.TimeoutException
+                            || (throwable.getCause() != null && throwable.getCause() instanceof org.apache.kafka.common.errors.TimeoutException)) {
+                        return new KafkaPublishException("Kafka publish timeout - broker may be unavailable for topic: " + topicName, throwable);
+                    }
+                    return new KafkaPublishException("Failed to publish JSON event to Kafka topic " + topicName + ": " + throwable.getMessage(), throwable);
+                })))
+                .map(metadata -> {
+                    log.debug("Published JSON event {} to {}-{}@{}", envelope.eventId(), metadata.topic(), metadata.partition(), metadata.offset());
+                    return envelope.eventId();
+                });
     }
 
-    private CompletableFuture<SendResult<String, String>> sendJson(EventEnvelope envelope, String topicName, String jsonString) {
-        return kafkaTemplate.send(topicName, envelope.eventId(), jsonString).toCompletableFuture();
+    private Mono<RecordMetadata> sendJson(EventEnvelope envelope, String topicName, byte[] jsonBytes, Map<String, String> headers) {
+        return sendBytes(envelope, topicName, jsonBytes, headers);
+    }
+
+    // JSON and Avro values alike go out through the producer profile routed to the topic or the event's domain
+    private Mono<RecordMetadata> sendBytes(EventEnvelope envelope, String topicName, byte[] value, Map<String, String> headers) {
+        String domain = envelope.schemaReference() != null ? envelope.schemaReference().domain() : null;
+        RecordHeaders recordHeaders = new RecordHeaders();
+        headers.forEach((name, headerValue) -> recordHeaders.add(name, headerValue.getBytes(StandardCharsets.UTF_8)));
+        return producerPool.sender(topicName, domain)
+                .send(new ProducerRecord<>(topicName, null, envelope.eventId(), value, recordHeaders));
+    }
+
+    @Override
+    public Flux<PublishResult> publishBatch(List<OutboundEvent> events) {
+        if (events.isEmpty()) {
+            return Flux.empty();
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            KafkaCircuitOpenException open = circuitBreaker.openException();
+            return Flux.fromIterable(events).map(event -> PublishResult.failed(event.envelope().eventId(), open));
+        }
+        Duration timeout = properties.kafka().getPublishTimeout();
+
+        // Every record is queued with the sender at once, so they leave in as few producer requests as the
+        // in-flight window allows; results come back in request order
+        long sentAt = System.nanoTime();
+        BatchOutcome outcome = new BatchOutcome();
+        return Flux.fromIterable(events)
+                .flatMapSequential(event -> {
+                    String eventId = event.envelope().eventId();
+                    SchemaFormatType format = event.isAvro() ? SchemaFormatType.AVRO_SCHEMA : SchemaFormatType.JSON_SCHEMA;
+                    // Timed from the publishBatch call, just before the whole batch is handed to the sender
+                    return sendOutbound(event)
+                            .timeout(timeout)
+                            .doOnEach(signal -> {
+                                if (signal.isOnNext() || signal.isOnError()) {
+                                    publishMetrics.record(PublishMetrics.KAFKA_SEND, format, signal.getThrowable(), sentAt);
+                                }
+                            })
+                            .doOnSuccess(result -> outcome.succeeded())
+                            .doOnError(outcome::failed)
+                            .map(result -> PublishResult.published(eventId))
+                            .onErrorResume(throwable -> {
+                                log.error("Failed to publish batched event {} to topic {}: {}",
+                                        eventId, event.topicName(), throwable.getMessage());
+                                return Mono.just(PublishResult.failed(eventId, toPublishException(throwable, event.topicName())));
+                            });
+                }, events.size())
+                .doOnComplete(() -> outcome.recordOn(circuitBreaker))
+                .doOnCancel(circuitBreaker::releasePermission);
+    }
+
+    private Mono<RecordMetadata> sendOutbound(OutboundEvent event) {
+        if (event.isAvro()) {
+            return sendAvro(event.envelope(), event.topicName(), event.avroBytes());
+        }
+        try {
+            return sendJson(event.envelope(), event.topicName(), objectMapper.writeValueAsBytes(event.jsonPayload()), Map.of());
+        } catch (JsonProcessingException e) {
+            // Fails this event only
+            return Mono.error(e);
+        }
+    }
+
+    // Retries stop as soon as the breaker opens, so waiting requests are released instead of riding out the backoff
+    private boolean isRetriable(Throwable throwable) {
+        return (throwable instanceof org.apache.kafka.common.errors.TimeoutException
+                || (throwable.getCause() != null && throwable.getCause() instanceof org.apache.kafka.common.errors.TimeoutException)
+                || throwable instanceof org.apache.kafka.common.errors.RetriableException)
+                && circuitBreaker.state() != KafkaCircuitBreaker.State.OPEN;
+    }
+
+    private KafkaPublishException toPublishException(Throwable throwable, String topicName) {
+        if (throwable instanceof org.apache.kafka.common.errors.TimeoutException
+                || throwable instanceof java.util.concurrent.TimeoutException
+                || (throwable.getCause() != null && throwable.getCause() instanceof org.apache.kafka.common.errors.TimeoutException)) {
+            return new KafkaPublishException("Kafka publish timeout - broker may be unavailable for topic: " + topicName, throwable);
+        }
+        return new KafkaPublishException("Failed to publish event to Kafka topic " + topicName + ": " + throwable.getMessage(), throwable);
     }
 
-    private String toJson(EventEnvelope envelope) {
+    private byte[] toJson(EventEnvelope envelope) {
         try {
-            return objectMapper.writeValueAsString(envelope.payload());
+            return objectMapper.writeValueAsBytes(envelope.payload());
         } catch (JsonProcessingException e) {
             throw new IllegalArgumentException("Invalid event payload", e);
         }
@@ -0,0 +1,101 @@
+package com.beewaxus.webhooksvcs.pubsrc.publisher;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opens the {@link KafkaCircuitBreaker} from the producers' own metrics. When the brokers stop acknowledging,
+ * records pile up in the producer's buffer long before the first send times out, so a buffer past
+ * {@code buffer-usage-threshold} trips the breaker without waiting for publish failures.
+ */
+@Component
+public class KafkaProducerHealthMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(KafkaProducerHealthMonitor.class);
+
+    private static final String PRODUCER_METRICS = "producer-metrics";
+
+    private final KafkaProducerPool producerPool;
+    private final KafkaCircuitBreaker circuitBreaker;
+    private final double bufferUsageThreshold;
+    private final Scheduler checkScheduler = Schedulers.newSingle("kafka-producer-health", true);
+    private final Disposable checkTask;
+
+    public KafkaProducerHealthMonitor(KafkaProducerPool producerPool,
+                                      KafkaCircuitBreaker circuitBreaker,
+                                      WebhooksProperties properties) {
+        WebhooksProperties.CircuitBreakerProperties config = properties.kafka() != null
+                ? properties.kafka().getCircuitBreaker()
+                : new WebhooksProperties.CircuitBreakerProperties(null, null, null, null, null, null, null, null);
+        this.producerPool = producerPool;
+        this.circuitBreaker = circuitBreaker;
+        this.bufferUsageThreshold = config.getBufferUsageThreshold();
+
+        Duration interval = config.getProducerCheckInterval();
+        this.checkTask = config.isEnabled()
+                ? checkScheduler.schedulePeriodically(this::check, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS)
+                : null;
+    }
+
+    void check() {
+        try {
+            for (KafkaTemplate<String, byte[]> template : producerPool.templates()) {
+                double usage = bufferUsage(template.metrics());
+                if (usage >= bufferUsageThreshold) {
+                    circuitBreaker.tripOpen("producer buffer %.0f%% full".formatted(usage * 100));
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.debug("Could not read Kafka producer metrics: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Share of buffer.memory holding records not yet acknowledged, 0 when the producer has not reported it.
+     */
+    static double bufferUsage(Map<MetricName, ? extends Metric> metrics) {
+        if (metrics == null) {
+            return 0;
+        }
+        double total = 0;
+        double available = 0;
+        for (Map.Entry<MetricName, ? extends Metric> metric : metrics.entrySet()) {
+            if (!PRODUCER_METRICS.equals(metric.getKey().group())) {
+                continue;
+            }
+            switch (metric.getKey().name()) {
+                case "buffer-total-bytes" -> total = value(metric.getValue());
+                case "buffer-available-bytes" -> available = value(metric.getValue());
+                default -> {
+                }
+            }
+        }
+        return total > 0 ? 1 - available / total : 0;
+    }
+
+    private static double value(Metric metric) {
+        return metric.metricValue() instanceof Number number ? number.doubleValue() : 0;
+    }
+
+    @PreDestroy
+    void stop() {
+        if (checkTask != null) {
+            checkTask.dispose();
+        }
+        checkScheduler.dispose();
+    }
+}
@@ -0,0 +1,90 @@
+package com.beewaxus.webhooksvcs.pubsrc.publisher;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One byte[]-valued producer per producer profile in use, picked per record by its topic or producer domain
+ * ({@code webhooks.kafka.producer.routes}). Values are serialized before they get here, JSON included, so every
+ * format shares the same producers and their batches.
+ * <p>
+ * Each producer is reached through a {@link ReactiveKafkaSender} for publishes and a {@link KafkaTemplate} for the
+ * outbox drainer and the producer health checks; both wrap the same producer.
+ */
+public class KafkaProducerPool implements AutoCloseable {
+
+    private final String defaultProfile;
+    private final Map<String, String> routes;
+    private final Map<String, ProducerFactory<String, byte[]>> producerFactories;
+    private final Map<String, ReactiveKafkaSender<byte[]>> senders = new LinkedHashMap<>();
+    private final Map<String, KafkaTemplate<String, byte[]>> templates = new LinkedHashMap<>();
+
+    /**
+     * @param producerFactories producer factory per profile name; must cover the default profile and every route
+     */
+    public KafkaProducerPool(Map<String, ProducerFactory<String, byte[]>> producerFactories,
+                             WebhooksProperties.ProducerProperties producer,
+                             WebhooksProperties.SenderProperties sender,
+                             MeterRegistry meterRegistry) {
+        this.defaultProfile = producer.getDefaultProfile();
+        this.routes = Map.copyOf(producer.getRoutes());
+        this.producerFactories = Map.copyOf(producerFactories);
+        requireProfile(defaultProfile, "webhooks.kafka.producer.default-profile");
+        routes.forEach((target, profile) -> requireProfile(profile, "webhooks.kafka.producer.routes." + target));
+        for (Map.Entry<String, ProducerFactory<String, byte[]>> factory : producerFactories.entrySet()) {
+            senders.put(factory.getKey(), new ReactiveKafkaSender<>(factory.getKey(), factory.getValue(),
+                    sender.getMaxInFlight(), sender.getMaxQueued(), meterRegistry));
+            templates.put(factory.getKey(), new KafkaTemplate<>(factory.getValue()));
+        }
+    }
+
+    /**
+     * Sender of the profile routed to {@code topic}, else to {@code domain} (may be null), else the default.
+     */
+    public ReactiveKafkaSender<byte[]> sender(String topic, String domain) {
+        return senders.get(profileFor(topic, domain));
+    }
+
+    public KafkaTemplate<String, byte[]> template(String topic, String domain) {
+        return templates.get(profileFor(topic, domain));
+    }
+
+    public Collection<KafkaTemplate<String, byte[]>> templates() {
+        return templates.values();
+    }
+
+    String profileFor(String topic, String domain) {
+        String profile = routes.get(topic);
+        if (profile == null && domain != null) {
+            profile = routes.get(domain);
+        }
+        return profile != null ? profile : defaultProfile;
+    }
+
+    private void requireProfile(String profile, String property) {
+        if (!producerFactories.containsKey(profile)) {
+            throw new IllegalArgumentException(property + " names producer profile '" + profile
+                    + "', which is not one of " + producerFactories.keySet());
+        }
+    }
+
+    /**
+     * Fails records still queued in the senders, then closes the producers, which send what they already hold.
+     */
+    @Override
+    public void close() throws Exception {
+        senders.values().forEach(ReactiveKafkaSender::close);
+        for (ProducerFactory<String, byte[]> factory : producerFactories.values()) {
+            if (factory instanceof DisposableBean disposable) {
+                disposable.destroy();
+            }
+        }
+    }
+}
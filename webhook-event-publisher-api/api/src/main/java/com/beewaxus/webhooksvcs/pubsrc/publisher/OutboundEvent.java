@@ -0,0 +1,27 @@
+package com.beewaxus.webhooksvcs.pubsrc.publisher;
+
+import com.beewaxus.webhooksvcs.pubsrc.model.EventEnvelope;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * A validated event ready to be sent, carrying either a JSON payload or Avro bytes.
+ */
+public record OutboundEvent(
+        EventEnvelope envelope,
+        String topicName,
+        JsonNode jsonPayload,
+        byte[] avroBytes
+) {
+
+    public static OutboundEvent json(EventEnvelope envelope, String topicName, JsonNode jsonPayload) {
+        return new OutboundEvent(envelope, topicName, jsonPayload, null);
+    }
+
+    public static OutboundEvent avro(EventEnvelope envelope, String topicName, byte[] avroBytes) {
+        return new OutboundEvent(envelope, topicName, null, avroBytes);
+    }
+
+    public boolean isAvro() {
+        return avroBytes != null;
+    }
+}
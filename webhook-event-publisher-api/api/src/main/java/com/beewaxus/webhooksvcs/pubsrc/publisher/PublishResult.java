@@ -0,0 +1,19 @@
+package com.beewaxus.webhooksvcs.pubsrc.publisher;
+
+/**
+ * Outcome of sending one {@link OutboundEvent}; {@code error} is null when the broker acknowledged it.
+ */
+public record PublishResult(String eventId, KafkaPublishException error) {
+
+    public static PublishResult published(String eventId) {
+        return new PublishResult(eventId, null);
+    }
+
+    public static PublishResult failed(String eventId, KafkaPublishException error) {
+        return new PublishResult(eventId, error);
+    }
+
+    public boolean isPublished() {
+        return error == null;
+    }
+}
@@ -0,0 +1,161 @@
+package com.beewaxus.webhooksvcs.pubsrc.publisher;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.kafka.core.ProducerFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends records through one Kafka producer without blocking the caller.
+ * <p>
+ * {@link #send} only queues the record. A dedicated "kafka-sender-*" thread hands queued records to the producer
+ * while fewer than {@code maxInFlight} are unacknowledged, and the producer's callback completes the returned Mono
+ * and lets the next one in. So no thread waits on a send result, and when the producer's {@code buffer.memory} is
+ * full it is the sender thread that blocks in {@code producer.send}, never a Netty event loop.
+ * Records still queued when their Mono is cancelled (e.g. by a publish timeout) are dropped unsent; once more than
+ * {@code maxQueued} wait, further sends fail straight away.
+ */
+public class ReactiveKafkaSender<V> implements AutoCloseable {
+
+    private final String name;
+    private final Producer<String, V> producer;
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final ExecutorService executor;
+    private final Queue<PendingSend<V>> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Drain requests not yet served; only the caller that raises it from zero starts a drain
+    private final AtomicInteger drainRequests = new AtomicInteger();
+    private volatile boolean closed;
+
+    public ReactiveKafkaSender(String name, ProducerFactory<String, V> producerFactory, int maxInFlight, int maxQueued,
+                               MeterRegistry meterRegistry) {
+        this.name = name;
+        this.producer = producerFactory.createProducer();
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+        this.executor = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("kafka-sender-" + name).daemon().factory());
+
+        Gauge.builder("webhooks.kafka.sender.in.flight", inFlight, AtomicInteger::get)
+                .description("Records handed to the producer and not yet acknowledged")
+                .tag("sender", name)
+                .register(meterRegistry);
+        Gauge.builder("webhooks.kafka.sender.queued", queued, AtomicInteger::get)
+                .description("Records waiting for room in the in-flight window")
+                .tag("sender", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues {@code record} on subscription; completes with its metadata once the broker acknowledges it.
+     * Each subscription sends the record again, so retries resend it.
+     */
+    public Mono<RecordMetadata> send(ProducerRecord<String, V> record) {
+        return Mono.create(sink -> {
+            if (closed) {
+                sink.error(new KafkaPublishException("Kafka sender " + name + " is closed"));
+                return;
+            }
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                sink.error(new KafkaPublishException("Kafka sender " + name + " has " + maxQueued
+                        + " records waiting to be sent; the brokers are not keeping up"));
+                return;
+            }
+            PendingSend<V> pending = new PendingSend<>(record, sink);
+            sink.onCancel(() -> pending.cancelled = true);
+            queue.offer(pending);
+            requestDrain();
+        });
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    int queued() {
+        return queued.get();
+    }
+
+    private void requestDrain() {
+        if (!closed && drainRequests.getAndIncrement() == 0) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        int requests = drainRequests.get();
+        while (true) {
+            while (inFlight.get() < maxInFlight) {
+                PendingSend<V> next = queue.poll();
+                if (next == null) {
+                    break;
+                }
+                queued.decrementAndGet();
+                if (!next.cancelled) {
+                    hand(next);
+                }
+            }
+            requests = drainRequests.addAndGet(-requests);
+            if (requests == 0) {
+                return;
+            }
+        }
+    }
+
+    private void hand(PendingSend<V> pending) {
+        inFlight.incrementAndGet();
+        try {
+            producer.send(pending.record, (metadata, error) -> {
+                inFlight.decrementAndGet();
+                requestDrain();
+                if (error != null) {
+                    pending.sink.error(error);
+                } else {
+                    pending.sink.success(metadata);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Thrown rather than passed to the callback, e.g. when the producer is closed
+            inFlight.decrementAndGet();
+            pending.sink.error(e);
+        }
+    }
+
+    /**
+     * Fails whatever is still queued; records already handed to the producer complete as the producer shuts down.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        executor.shutdown();
+        PendingSend<V> pending;
+        while ((pending = queue.poll()) != null) {
+            queued.decrementAndGet();
+            pending.sink.error(new KafkaPublishException("Kafka sender " + name + " closed before the record was sent"));
+        }
+    }
+
+    private static final class PendingSend<V> {
+
+        private final ProducerRecord<String, V> record;
+        private final MonoSink<RecordMetadata> sink;
+        private volatile boolean cancelled;
+
+        private PendingSend(ProducerRecord<String, V> record, MonoSink<RecordMetadata> sink) {
+            this.record = record;
+            this.sink = sink;
+        }
+    }
+}
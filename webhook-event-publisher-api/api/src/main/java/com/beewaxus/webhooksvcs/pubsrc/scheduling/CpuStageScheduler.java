@@ -0,0 +1,127 @@
+package com.beewaxus.webhooksvcs.pubsrc.scheduling;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.NonBlocking;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the CPU-bound stages of the publish path (schema validation, XML and Avro conversion, Avro serialization)
+ * on a fixed pool of {@code webhooks.validation.cpu-threads} workers, apart from the bounded elastic threads that
+ * wait on DynamoDB and Kafka.
+ * <ul>
+ *     <li>A stage subscribed from a CPU worker, typically right after the event's previous stage, runs inline,
+ *     so an event hops onto the pool at most once however many CPU stages it goes through.</li>
+ *     <li>Per stage, {@code webhooks.cpu.stage.queued} reports the work waiting for a worker and
+ *     {@code webhooks.cpu.stage.queue.time} how long it waited.</li>
+ * </ul>
+ */
+@Component
+public class CpuStageScheduler {
+
+    private final Scheduler scheduler;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, StageMeters> stages = new ConcurrentHashMap<>();
+
+    public CpuStageScheduler(WebhooksProperties properties, MeterRegistry meterRegistry) {
+        int threads = properties.validation() != null
+                ? properties.validation().getCpuThreads()
+                : Runtime.getRuntime().availableProcessors();
+        this.scheduler = Schedulers.newParallel(threads, new CpuThreadFactory());
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Runs {@code work} on a CPU worker, or right away when already on one.
+     */
+    public <T> Mono<T> run(String stage, Callable<T> work) {
+        StageMeters meters = stages.computeIfAbsent(stage, this::registerStage);
+        return Mono.defer(() -> {
+            if (isCpuThread()) {
+                return Mono.fromCallable(work);
+            }
+            AtomicBoolean started = new AtomicBoolean();
+            long enqueuedAt = System.nanoTime();
+            meters.queued.incrementAndGet();
+            return Mono.fromCallable(() -> {
+                        if (started.compareAndSet(false, true)) {
+                            meters.queued.decrementAndGet();
+                        }
+                        meters.queueTime.record(Duration.ofNanos(System.nanoTime() - enqueuedAt));
+                        return work.call();
+                    })
+                    .subscribeOn(scheduler)
+                    .doFinally(signal -> {
+                        // Cancelled before a worker picked it up
+                        if (started.compareAndSet(false, true)) {
+                            meters.queued.decrementAndGet();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * The CPU pool itself, for callers that spread a whole batch over it with {@code parallel().runOn(...)}.
+     */
+    public Scheduler scheduler() {
+        return scheduler;
+    }
+
+    public static boolean isCpuThread() {
+        return Thread.currentThread() instanceof CpuThread;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.dispose();
+    }
+
+    private StageMeters registerStage(String stage) {
+        AtomicInteger queued = new AtomicInteger();
+        Gauge.builder("webhooks.cpu.stage.queued", queued, AtomicInteger::get)
+                .description("CPU stage work waiting for a CPU worker")
+                .tag("stage", stage)
+                .register(meterRegistry);
+        Timer queueTime = Timer.builder("webhooks.cpu.stage.queue.time")
+                .description("Time CPU stage work waited for a CPU worker")
+                .tag("stage", stage)
+                .register(meterRegistry);
+        return new StageMeters(queued, queueTime);
+    }
+
+    private record StageMeters(AtomicInteger queued, Timer queueTime) {}
+
+    private static final class CpuThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new CpuThread(task, "webhooks-cpu-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    // NonBlocking makes Reactor reject block() calls on these threads, as on Schedulers.parallel()
+    private static final class CpuThread extends Thread implements NonBlocking {
+
+        CpuThread(Runnable task, String name) {
+            super(task, name);
+        }
+    }
+}
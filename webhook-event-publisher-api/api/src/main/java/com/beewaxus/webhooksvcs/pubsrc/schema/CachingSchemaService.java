@@ -1,8 +1,7 @@
 package com.beewaxus.webhooksvcs.pubsrc.schema;
 
 import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Primary;
@@ -19,36 +18,40 @@ public class CachingSchemaService implements SchemaService {
     private static final Logger log = LoggerFactory.getLogger(CachingSchemaService.class);
 
     private final SchemaService delegate;
-    private final Cache<SchemaReference, SchemaDefinition> schemaCache;
-    private final Cache<String, SchemaDetailResponse> schemaDetailCache;
+    private final RefreshAheadCache<SchemaReference, SchemaDefinition> schemaCache;
+    private final RefreshAheadCache<String, SchemaDetailResponse> schemaDetailCache;
+    private final CompiledSchemaCache compiledSchemaCache;
     private final boolean cacheEnabled;
 
-    public CachingSchemaService(DynamoSchemaService delegate, WebhooksProperties properties) {
+    public CachingSchemaService(DynamoSchemaService delegate,
+                                CompiledSchemaCache compiledSchemaCache,
+                                WebhooksProperties properties,
+                                MeterRegistry meterRegistry) {
         this.delegate = delegate;
+        this.compiledSchemaCache = compiledSchemaCache;
 
         WebhooksProperties.CacheProperties cacheProps = properties.cache();
         Duration schemaTtl = Duration.ofMinutes(5);
         Duration schemaDetailTtl = Duration.ofMinutes(5);
+        Duration refreshAhead = Duration.ofMinutes(1);
+        Duration staleIfError = Duration.ofMinutes(30);
         int maxEntries = 1000;
 
         if (cacheProps != null) {
             schemaTtl = cacheProps.getSchemaTtl();
             schemaDetailTtl = cacheProps.getSchemaDetailTtl();
+            refreshAhead = cacheProps.getRefreshAhead();
+            staleIfError = cacheProps.getStaleIfError();
             maxEntries = cacheProps.getMaximumEntries();
         }
 
         this.cacheEnabled = cacheProps == null || cacheProps.isEnabled();
 
         if (cacheEnabled) {
-            this.schemaCache = Caffeine.newBuilder()
-                    .maximumSize(maxEntries)
-                    .expireAfterWrite(schemaTtl)
-                    .build();
-
-            this.schemaDetailCache = Caffeine.newBuilder()
-                    .maximumSize(maxEntries)
-                    .expireAfterWrite(schemaDetailTtl)
-                    .build();
+            this.schemaCache = new RefreshAheadCache<>("Schema", "schema", maxEntries, schemaTtl, refreshAhead,
+                    staleIfError, meterRegistry);
+            this.schemaDetailCache = new RefreshAheadCache<>("Schema detail", "schema_detail", maxEntries, schemaDetailTtl,
+                    refreshAhead, staleIfError, meterRegistry);
         } else {
             this.schemaCache = null;
             this.schemaDetailCache = null;
@@ -62,25 +65,7 @@ public class CachingSchemaService implements SchemaService {
             return delegate.fetchSchema(reference);
         }
 
-        SchemaDefinition cached = schemaCache.getIfPresent(reference);
-        if (cached != null) {
-            log.debug("Cache HIT for schema reference: {} (domain={}, eventName={}, version={})", 
-                    reference, reference.domain(), reference.eventName(), reference.version());
-            return Mono.just(cached);
-        }
-
-        log.debug("Cache MISS for schema reference: {} (domain={}, eventName={}, version={}). Fetching from DynamoDB...", 
-                reference, reference.domain(), reference.eventName(), reference.version());
-        return delegate.fetchSchema(reference)
-                .doOnNext(schemaDefinition -> {
-                    schemaCache.put(reference, schemaDefinition);
-                    log.debug("Cached schema for reference: {} (domain={}, eventName={}, version={})", 
-                            reference, reference.domain(), reference.eventName(), reference.version());
-                })
-                .doOnError(error -> {
-                    log.warn("Failed to fetch schema from DynamoDB for reference: {} (domain={}, eventName={}, version={}). Error: {}", 
-                            reference, reference.domain(), reference.eventName(), reference.version(), error.getMessage());
-                });
+        return schemaCache.get(reference, this::loadSchema);
     }
 
     @Override
@@ -99,14 +84,40 @@ public class CachingSchemaService implements SchemaService {
             return delegate.fetchSchemaBySchemaId(schemaId);
         }
 
-        SchemaDetailResponse cached = schemaDetailCache.getIfPresent(schemaId);
-        if (cached != null) {
-            return Mono.just(cached);
+        return schemaDetailCache.get(schemaId, this::loadSchemaDetail);
+    }
+
+    @Override
+    public Mono<Void> evictAndReload() {
+        if (!cacheEnabled) {
+            return Mono.empty();
         }
 
+        schemaCache.invalidateAll();
+        schemaDetailCache.invalidateAll();
+        compiledSchemaCache.invalidateAll();
+
+        // Reload schema cache with one full (parallel, paginated) scan of the table
+        return delegate.fetchAllSchemas()
+                .doOnNext(schemaDefinition -> schemaCache.put(schemaDefinition.reference(), schemaDefinition))
+                .count()
+                .doOnNext(count -> log.info("Reloaded {} schemas into the cache", count))
+                .then();
+    }
+
+    private Mono<SchemaDefinition> loadSchema(SchemaReference reference) {
+        log.debug("Fetching schema from DynamoDB for reference: {} (domain={}, eventName={}, version={})",
+                reference, reference.domain(), reference.eventName(), reference.version());
+        return delegate.fetchSchema(reference)
+                .doOnError(error -> {
+                    log.warn("Failed to fetch schema from DynamoDB for reference: {} (domain={}, eventName={}, version={}). Error: {}", 
+                            reference, reference.domain(), reference.eventName(), reference.version(), error.getMessage());
+                });
+    }
+
+    private Mono<SchemaDetailResponse> loadSchemaDetail(String schemaId) {
         return delegate.fetchSchemaBySchemaId(schemaId)
                 .doOnNext(schemaDetail -> {
-                    schemaDetailCache.put(schemaId, schemaDetail);
                     boolean hasReferenceData = schemaDetail.producerDomain() != null
                             && schemaDetail.eventName() != null
                             && schemaDetail.version() != null;
@@ -144,19 +155,4 @@ public class CachingSchemaService implements SchemaService {
                     }
                 });
     }
-
-    @Override
-    public Mono<Void> evictAndReload() {
-        if (!cacheEnabled) {
-            return Mono.empty();
-        }
-
-        schemaCache.invalidateAll();
-        schemaDetailCache.invalidateAll();
-
-        // Reload schema cache by scanning all schemas once
-        return delegate.fetchAllSchemas()
-                .doOnNext(schemaDefinition -> schemaCache.put(schemaDefinition.reference(), schemaDefinition))
-                .then();
-    }
 }
@@ -0,0 +1,108 @@
+package com.beewaxus.webhooksvcs.pubsrc.schema;
+
+import com.networknt.schema.JsonSchema;
+import com.networknt.schema.JsonSchemaFactory;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Parsed, reusable form of a {@link SchemaDefinition}.
+ * Each part is compiled on first use and then shared across requests, so a JSON_SCHEMA
+ * definition never pays for (or fails on) its Avro counterpart and vice versa.
+ * Avro readers/writers and networknt {@link JsonSchema} instances are safe to share between threads.
+ */
+public final class CompiledSchema {
+
+    private final SchemaReference reference;
+    private final Instant updatedAt;
+    private final String jsonSchemaSource;
+    private final String avroSchemaSource;
+    private final JsonSchemaFactory jsonSchemaFactory;
+
+    private volatile AvroParts avroParts;
+    private volatile JsonSchema jsonSchema;
+
+    CompiledSchema(SchemaDefinition definition, JsonSchemaFactory jsonSchemaFactory) {
+        this.reference = definition.reference();
+        this.updatedAt = definition.updatedAt();
+        this.jsonSchemaSource = definition.jsonSchema();
+        this.avroSchemaSource = definition.avroSchema();
+        this.jsonSchemaFactory = jsonSchemaFactory;
+    }
+
+    public SchemaReference reference() {
+        return reference;
+    }
+
+    public Instant updatedAt() {
+        return updatedAt;
+    }
+
+    public Schema avroSchema() {
+        return avroParts().schema();
+    }
+
+    public GenericDatumReader<GenericRecord> avroReader() {
+        return avroParts().reader();
+    }
+
+    public GenericDatumWriter<GenericRecord> avroWriter() {
+        return avroParts().writer();
+    }
+
+    public JsonSchema jsonSchema() {
+        JsonSchema compiled = jsonSchema;
+        if (compiled == null) {
+            synchronized (this) {
+                compiled = jsonSchema;
+                if (compiled == null) {
+                    if (jsonSchemaSource == null || jsonSchemaSource.isEmpty()) {
+                        throw new IllegalStateException("JSON Schema is not configured for " + reference);
+                    }
+                    compiled = jsonSchemaFactory.getSchema(jsonSchemaSource);
+                    jsonSchema = compiled;
+                }
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * Returns true when this compiled form was built from the same revision of the definition.
+     * A changed UPDATE_TS (or schema text) means the schema was edited and must be recompiled.
+     */
+    boolean isCompiledFrom(SchemaDefinition definition) {
+        return Objects.equals(updatedAt, definition.updatedAt())
+                && Objects.equals(jsonSchemaSource, definition.jsonSchema())
+                && Objects.equals(avroSchemaSource, definition.avroSchema());
+    }
+
+    private AvroParts avroParts() {
+        AvroParts parts = avroParts;
+        if (parts == null) {
+            synchronized (this) {
+                parts = avroParts;
+                if (parts == null) {
+                    if (avroSchemaSource == null || avroSchemaSource.isEmpty()) {
+                        throw new IllegalStateException("Avro schema is not configured for " + reference);
+                    }
+                    Schema schema = new Schema.Parser().parse(avroSchemaSource);
+                    parts = new AvroParts(schema, new GenericDatumReader<>(schema), new GenericDatumWriter<>(schema));
+                    avroParts = parts;
+                }
+            }
+        }
+        return parts;
+    }
+
+    private record AvroParts(
+            Schema schema,
+            GenericDatumReader<GenericRecord> reader,
+            GenericDatumWriter<GenericRecord> writer
+    ) {}
+}
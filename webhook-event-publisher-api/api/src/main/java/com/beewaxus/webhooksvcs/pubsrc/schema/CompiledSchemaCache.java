@@ -0,0 +1,63 @@
+package com.beewaxus.webhooksvcs.pubsrc.schema;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.networknt.schema.JsonSchemaFactory;
+import com.networknt.schema.SpecVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds the compiled form of each schema next to its {@link SchemaDefinition}.
+ * Entries are keyed by {@link SchemaReference} and replaced as soon as a definition
+ * with a different UPDATE_TS is seen, so schema edits in DynamoDB are picked up
+ * together with the definition cache in {@link CachingSchemaService}.
+ */
+@Component
+public class CompiledSchemaCache {
+
+    private static final Logger log = LoggerFactory.getLogger(CompiledSchemaCache.class);
+
+    private final Cache<SchemaReference, CompiledSchema> compiledSchemas;
+    private final JsonSchemaFactory jsonSchemaFactory;
+
+    public CompiledSchemaCache(WebhooksProperties properties) {
+        int maxEntries = 1000;
+        if (properties != null && properties.cache() != null) {
+            maxEntries = properties.cache().getMaximumEntries();
+        }
+        this.compiledSchemas = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .build();
+        this.jsonSchemaFactory = JsonSchemaFactory.getInstance(SpecVersion.VersionFlag.V7);
+    }
+
+    public CompiledSchema compile(SchemaDefinition definition) {
+        SchemaReference reference = definition.reference();
+        CompiledSchema cached = compiledSchemas.getIfPresent(reference);
+        if (cached != null && cached.isCompiledFrom(definition)) {
+            return cached;
+        }
+
+        return compiledSchemas.asMap().compute(reference, (key, existing) -> {
+            if (existing != null && existing.isCompiledFrom(definition)) {
+                return existing;
+            }
+            if (existing != null) {
+                log.debug("Schema {} changed (updatedAt {} -> {}), dropping compiled form",
+                        reference, existing.updatedAt(), definition.updatedAt());
+            }
+            return new CompiledSchema(definition, jsonSchemaFactory);
+        });
+    }
+
+    public void invalidate(SchemaReference reference) {
+        compiledSchemas.invalidate(reference);
+    }
+
+    public void invalidateAll() {
+        compiledSchemas.invalidateAll();
+    }
+}
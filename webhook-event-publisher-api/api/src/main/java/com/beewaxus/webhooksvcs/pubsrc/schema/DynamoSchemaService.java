@@ -1,14 +1,15 @@
 package com.beewaxus.webhooksvcs.pubsrc.schema;
 
 import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.dynamodb.ReactiveDynamoDb;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
-import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
 import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
 import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
 import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
@@ -18,6 +19,7 @@ import reactor.core.publisher.Flux;
 import java.time.Instant;
 import java.time.format.DateTimeParseException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -25,184 +27,207 @@ public class DynamoSchemaService implements SchemaService {
 
     private static final Logger log = LoggerFactory.getLogger(DynamoSchemaService.class);
 
-    private final DynamoDbClient dynamoDbClient;
+    private final ReactiveDynamoDb dynamoDb;
     private final WebhooksProperties properties;
+    private final SchemaTableIndexes schemaTableIndexes;
 
     public DynamoSchemaService(
-            DynamoDbClient dynamoDbClient,
-            WebhooksProperties properties) {
-        this.dynamoDbClient = dynamoDbClient;
+            ReactiveDynamoDb dynamoDb,
+            WebhooksProperties properties,
+            SchemaTableIndexes schemaTableIndexes) {
+        this.dynamoDb = dynamoDb;
         this.properties = properties;
+        this.schemaTableIndexes = schemaTableIndexes;
     }
 
     @Override
     public Mono<SchemaDefinition> fetchSchema(SchemaReference reference) {
-        return Mono.fromCallable(() -> {
-                    try {
-                        // First try to query by PK/SK format (if data follows expected format)
-                        Map<String, AttributeValue> item = null;
-                        try {
-                            item = dynamoDbClient.getItem(GetItemRequest.builder()
-                                    .tableName(properties.dynamodb().tableName())
-                                    .key(Map.of(
-                                            "PK", AttributeValue.builder().s(reference.partitionKey()).build(),
-                                            "SK", AttributeValue.builder().s(reference.sortKey()).build()))
-                                    .build()).item();
-                        } catch (Exception e) {
-                            log.debug("GetItem by PK/SK failed, trying scan with filter: {}", e.getMessage());
-                        }
-
-                        // If GetItem didn't return a result, try scanning with filter expression
-                        if (item == null || item.isEmpty()) {
-                            log.debug("Querying schema by attributes: domain={}, event={}, version={}", 
-                                    reference.domain(), reference.eventName(), reference.version());
-                            
-                            Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
-                            expressionAttributeValues.put(":domain", AttributeValue.builder().s(reference.domain()).build());
-                            expressionAttributeValues.put(":eventName", AttributeValue.builder().s(reference.eventName()).build());
-                            expressionAttributeValues.put(":version", AttributeValue.builder().s(reference.version()).build());
-                            
-                            ScanRequest scanRequest = ScanRequest.builder()
-                                    .tableName(properties.dynamodb().tableName())
-                                    .filterExpression("PRODUCER_DOMAIN = :domain AND EVENT_NAME = :eventName AND VERSION = :version")
-                                    .expressionAttributeValues(expressionAttributeValues)
-                                    .build();
-                            
-                            ScanResponse scanResponse = dynamoDbClient.scan(scanRequest);
-                            
-                            if (scanResponse.items().isEmpty()) {
-                                log.debug("No schema found for domain={}, event={}, version={}", 
-                                        reference.domain(), reference.eventName(), reference.version());
-                                return null;
-                            }
-                            
-                            // Use the first matching item
-                            item = scanResponse.items().get(0);
-                            log.debug("Found schema via scan for domain={}, event={}, version={}", 
-                                    reference.domain(), reference.eventName(), reference.version());
-                        }
-
-                        if (item == null || item.isEmpty()) {
-                            return null;
-                        }
-
-                        // Read both schema definitions
-                        String jsonSchema = stringValue(item, "EVENT_SCHEMA_DEFINITION", null);
-                        String avroSchema = stringValue(item, "EVENT_SCHEMA_DEFINITION_AVRO", null);
-
-                        // Determine schema format type
-                        SchemaFormatType formatType;
-                        if (jsonSchema != null && !jsonSchema.isEmpty()) {
-                            formatType = SchemaFormatType.JSON_SCHEMA;
-                        } else if (avroSchema != null && !avroSchema.isEmpty()) {
-                            formatType = SchemaFormatType.AVRO_SCHEMA;
-                        } else {
-                            return null; // No schema available
-                        }
-
-                        return new SchemaDefinition(
-                                reference,
-                                jsonSchema,
-                                avroSchema,
-                                formatType,
-                                "ACTIVE".equals(stringValue(item, "EVENT_SCHEMA_STATUS", "INACTIVE")),
-                                Instant.parse(stringValue(item, "UPDATE_TS", Instant.now().toString())),
-                                stringValue(item, "EVENT_SCHEMA_ID", null)
-                        );
-                    } catch (ResourceNotFoundException e) {
-                        log.error("DynamoDB table '{}' not found", properties.dynamodb().tableName(), e);
-                        throw new DynamoDbException("DynamoDB table '" + properties.dynamodb().tableName() + "' does not exist", e);
-                    } catch (SdkException e) {
-                        log.error("DynamoDB error while fetching schema for {}: {}", reference, e.getMessage(), e);
-                        throw new DynamoDbException("DynamoDB service unavailable: " + e.getMessage(), e);
+        // GetItem on the PK/SK layout is the cheapest read; the index or the scan only finds items stored otherwise
+        Mono<Map<String, AttributeValue>> lookup = getByKey(reference)
+                .switchIfEmpty(Mono.defer(() -> schemaTableIndexes.schemaRefIndexAvailable()
+                        ? queryFirst(properties.dynamodb().getSchemaRefIndexName(), "SCHEMA_REF", reference.schemaRef())
+                        : scanByAttributes(reference)));
+
+        return lookup
+                .doOnSuccess(item -> {
+                    if (item == null) {
+                        log.debug("No schema found for domain={}, event={}, version={}",
+                                reference.domain(), reference.eventName(), reference.version());
                     }
                 })
-                .subscribeOn(Schedulers.boundedElastic())
-                .filter(SchemaDefinition::active)
-                .onErrorMap(SdkException.class, e -> {
-                    if (e instanceof ResourceNotFoundException) {
-                        return new DynamoDbException("DynamoDB table '" + properties.dynamodb().tableName() + "' does not exist", e);
+                .mapNotNull(item -> {
+                    // Read both schema definitions
+                    String jsonSchema = stringValue(item, "EVENT_SCHEMA_DEFINITION", null);
+                    String avroSchema = stringValue(item, "EVENT_SCHEMA_DEFINITION_AVRO", null);
+
+                    // Determine schema format type
+                    SchemaFormatType formatType;
+                    if (jsonSchema != null && !jsonSchema.isEmpty()) {
+                        formatType = SchemaFormatType.JSON_SCHEMA;
+                    } else if (avroSchema != null && !avroSchema.isEmpty()) {
+                        formatType = SchemaFormatType.AVRO_SCHEMA;
+                    } else {
+                        return null; // No schema available
                     }
-                    return new DynamoDbException("DynamoDB service unavailable: " + e.getMessage(), e);
-                });
+
+                    return new SchemaDefinition(
+                            reference,
+                            jsonSchema,
+                            avroSchema,
+                            formatType,
+                            "ACTIVE".equals(stringValue(item, "EVENT_SCHEMA_STATUS", "INACTIVE")),
+                            Instant.parse(stringValue(item, "UPDATE_TS", Instant.now().toString())),
+                            stringValue(item, "EVENT_SCHEMA_ID", null)
+                    );
+                })
+                .filter(SchemaDefinition::active)
+                .doOnError(SdkException.class, e -> logSdkError("fetching schema for " + reference, e))
+                .onErrorMap(SdkException.class, this::toDynamoDbException);
     }
 
+    /**
+     * Streams every active schema in the table. The table is read as a DynamoDB parallel scan with
+     * {@code webhooks.dynamodb.scan-segments} segments; each segment follows LastEvaluatedKey page by page
+     * and items are emitted as soon as their page arrives, so large registries are read completely.
+     */
     @Override
     public Flux<SchemaDefinition> fetchAllSchemas() {
-        return Mono.fromCallable(() -> {
-                    try {
-                        String tableName = properties.dynamodb().tableName();
-                        log.debug("Scanning DynamoDB table: {}", tableName);
-                        
-                        ScanResponse scanResponse = dynamoDbClient.scan(ScanRequest.builder()
-                                .tableName(tableName)
-                                .build());
-                        
-                        log.debug("Scan completed. Found {} items in table {}", 
-                                scanResponse.items().size(), tableName);
-                        return scanResponse;
-                    } catch (ResourceNotFoundException e) {
-                        log.error("DynamoDB table '{}' not found. Error details: {}", 
-                                properties.dynamodb().tableName(), e.getMessage(), e);
-                        throw new DynamoDbException("DynamoDB table '" + properties.dynamodb().tableName() + "' does not exist", e);
-                    } catch (SdkException e) {
-                        log.error("DynamoDB error while fetching all schemas from table '{}': {}", 
-                                properties.dynamodb().tableName(), e.getMessage(), e);
-                        throw new DynamoDbException("DynamoDB service unavailable: " + e.getMessage(), e);
-                    }
-                })
-                .subscribeOn(Schedulers.boundedElastic())
-                .flatMapMany(scanResponse -> Flux.fromIterable(scanResponse.items()))
+        String tableName = properties.dynamodb().tableName();
+        int totalSegments = properties.dynamodb().getScanSegments();
+        log.debug("Scanning DynamoDB table {} in {} segment(s)", tableName, totalSegments);
+
+        return Flux.range(0, totalSegments)
+                .flatMap(segment -> scanSegment(tableName, segment, totalSegments), totalSegments)
                 .map(this::itemToSchemaDefinition)
                 .filter(item -> item != null) // Filter out null items (invalid formats)
                 .filter(SchemaDefinition::active)
-                .onErrorMap(SdkException.class, e -> {
-                    if (e instanceof ResourceNotFoundException) {
-                        return new DynamoDbException("DynamoDB table '" + properties.dynamodb().tableName() + "' does not exist", e);
-                    }
-                    return new DynamoDbException("DynamoDB service unavailable: " + e.getMessage(), e);
-                });
+                .doOnError(SdkException.class, e -> logSdkError("fetching all schemas", e))
+                .onErrorMap(SdkException.class, this::toDynamoDbException);
+    }
+
+    /**
+     * Reads one parallel-scan segment, requesting the next page only after the previous one has arrived.
+     */
+    private Flux<Map<String, AttributeValue>> scanSegment(String tableName, int segment, int totalSegments) {
+        return scanPage(tableName, segment, totalSegments, null)
+                .expand(page -> page.hasLastEvaluatedKey() && !page.lastEvaluatedKey().isEmpty()
+                        ? scanPage(tableName, segment, totalSegments, page.lastEvaluatedKey())
+                        : Mono.empty())
+                .doOnNext(page -> log.debug("Scanned page of {} items from table {} (segment {}/{})",
+                        page.count(), tableName, segment + 1, totalSegments))
+                .concatMapIterable(ScanResponse::items);
+    }
+
+    private Mono<ScanResponse> scanPage(String tableName, int segment, int totalSegments,
+                                        Map<String, AttributeValue> exclusiveStartKey) {
+        ScanRequest.Builder request = ScanRequest.builder()
+                .tableName(tableName)
+                .exclusiveStartKey(exclusiveStartKey);
+        if (totalSegments > 1) {
+            request.segment(segment).totalSegments(totalSegments);
+        }
+        return dynamoDb.scan(request.build());
     }
 
     @Override
     public Mono<SchemaDetailResponse> fetchSchemaBySchemaId(String schemaId) {
-        return Mono.fromCallable(() -> {
-                    try {
-                        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
-                        expressionAttributeValues.put(":schemaId", AttributeValue.builder().s(schemaId).build());
-                        
-                        ScanRequest scanRequest = ScanRequest.builder()
-                                .tableName(properties.dynamodb().tableName())
-                                .filterExpression("EVENT_SCHEMA_ID = :schemaId")
-                                .expressionAttributeValues(expressionAttributeValues)
-                                .build();
-                        
-                        ScanResponse scanResponse = dynamoDbClient.scan(scanRequest);
-                        
-                        if (scanResponse.items().isEmpty()) {
-                            return null;
-                        }
-                        
-                        // Return the first matching item (assuming EVENT_SCHEMA_ID is unique)
-                        return scanResponse.items().get(0);
-                    } catch (ResourceNotFoundException e) {
-                        log.error("DynamoDB table '{}' not found while fetching schemaId: {}", properties.dynamodb().tableName(), schemaId, e);
-                        throw new DynamoDbException("DynamoDB table '" + properties.dynamodb().tableName() + "' does not exist", e);
-                    } catch (SdkException e) {
-                        log.error("DynamoDB error while fetching schema by schemaId {}: {}", schemaId, e.getMessage(), e);
-                        throw new DynamoDbException("DynamoDB service unavailable: " + e.getMessage(), e);
-                    }
-                })
-                .subscribeOn(Schedulers.boundedElastic())
+        Mono<Map<String, AttributeValue>> lookup;
+        if (schemaTableIndexes.schemaIdIndexAvailable()) {
+            lookup = queryFirst(properties.dynamodb().getSchemaIdIndexName(), "EVENT_SCHEMA_ID", schemaId);
+        } else {
+            Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+            expressionAttributeValues.put(":schemaId", AttributeValue.builder().s(schemaId).build());
+
+            // Return the first matching item (assuming EVENT_SCHEMA_ID is unique)
+            lookup = dynamoDb.scan(ScanRequest.builder()
+                            .tableName(properties.dynamodb().tableName())
+                            .filterExpression("EVENT_SCHEMA_ID = :schemaId")
+                            .expressionAttributeValues(expressionAttributeValues)
+                            .build())
+                    .mapNotNull(response -> firstItem(response.items()));
+        }
+
+        return lookup
                 .map(this::itemToSchemaDetailResponse)
-                .onErrorMap(SdkException.class, e -> {
-                    if (e instanceof ResourceNotFoundException) {
-                        return new DynamoDbException("DynamoDB table '" + properties.dynamodb().tableName() + "' does not exist", e);
-                    }
-                    return new DynamoDbException("DynamoDB service unavailable: " + e.getMessage(), e);
+                .doOnError(SdkException.class, e -> logSdkError("fetching schema by schemaId " + schemaId, e))
+                .onErrorMap(SdkException.class, this::toDynamoDbException);
+    }
+
+    /**
+     * Emits the first item of a GSI whose hash key matches. The indexes project ALL attributes.
+     */
+    private Mono<Map<String, AttributeValue>> queryFirst(String indexName, String keyAttribute, String keyValue) {
+        return dynamoDb.query(QueryRequest.builder()
+                        .tableName(properties.dynamodb().tableName())
+                        .indexName(indexName)
+                        .keyConditionExpression("#key = :value")
+                        .expressionAttributeNames(Map.of("#key", keyAttribute))
+                        .expressionAttributeValues(Map.of(":value", AttributeValue.builder().s(keyValue).build()))
+                        .limit(1)
+                        .build())
+                .mapNotNull(response -> firstItem(response.items()));
+    }
+
+    /**
+     * GetItem on the PK/SK layout ({@code SCHEMA#domain#event} / {@code v<version>}). Empty when the item is not
+     * there or the table is keyed differently.
+     */
+    private Mono<Map<String, AttributeValue>> getByKey(SchemaReference reference) {
+        return dynamoDb.getItem(GetItemRequest.builder()
+                        .tableName(properties.dynamodb().tableName())
+                        .key(Map.of(
+                                "PK", AttributeValue.builder().s(reference.partitionKey()).build(),
+                                "SK", AttributeValue.builder().s(reference.sortKey()).build()))
+                        .build())
+                .filter(GetItemResponse::hasItem)
+                .map(GetItemResponse::item)
+                .filter(item -> !item.isEmpty())
+                .onErrorResume(e -> {
+                    log.debug("GetItem by PK/SK failed, falling back: {}", e.getMessage());
+                    return Mono.empty();
                 });
     }
 
+    /**
+     * Filtered table scan, used when the SCHEMA_REF index is not available.
+     */
+    private Mono<Map<String, AttributeValue>> scanByAttributes(SchemaReference reference) {
+        log.debug("Scanning for schema by attributes: domain={}, event={}, version={}",
+                reference.domain(), reference.eventName(), reference.version());
+
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+        expressionAttributeValues.put(":domain", AttributeValue.builder().s(reference.domain()).build());
+        expressionAttributeValues.put(":eventName", AttributeValue.builder().s(reference.eventName()).build());
+        expressionAttributeValues.put(":version", AttributeValue.builder().s(reference.version()).build());
+
+        // Use the first matching item
+        return dynamoDb.scan(ScanRequest.builder()
+                        .tableName(properties.dynamodb().tableName())
+                        .filterExpression("PRODUCER_DOMAIN = :domain AND EVENT_NAME = :eventName AND VERSION = :version")
+                        .expressionAttributeValues(expressionAttributeValues)
+                        .build())
+                .mapNotNull(response -> firstItem(response.items()));
+    }
+
+    private static Map<String, AttributeValue> firstItem(List<Map<String, AttributeValue>> items) {
+        return items.isEmpty() ? null : items.get(0);
+    }
+
+    private void logSdkError(String operation, SdkException e) {
+        if (e instanceof ResourceNotFoundException) {
+            log.error("DynamoDB table '{}' not found while {}", properties.dynamodb().tableName(), operation, e);
+        } else {
+            log.error("DynamoDB error while {}: {}", operation, e.getMessage(), e);
+        }
+    }
+
+    private DynamoDbException toDynamoDbException(SdkException e) {
+        if (e instanceof ResourceNotFoundException) {
+            return new DynamoDbException("DynamoDB table '" + properties.dynamodb().tableName() + "' does not exist", e);
+        }
+        return new DynamoDbException("DynamoDB service unavailable: " + e.getMessage(), e);
+    }
+
     private String stringValue(Map<String, AttributeValue> item, String key, String fallback) {
         AttributeValue value = item.get(key);
         if (value != null && value.s() != null) {
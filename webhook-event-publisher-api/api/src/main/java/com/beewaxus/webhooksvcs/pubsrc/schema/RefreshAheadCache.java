@@ -0,0 +1,237 @@
+package com.beewaxus.webhooksvcs.pubsrc.schema;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Caffeine-backed cache that reloads entries in the background before they expire.
+ * <ul>
+ *     <li>Until its refresh point an entry is served as-is. The refresh point is picked at random
+ *     inside the last {@code refreshAhead} of the TTL, so nodes do not all reload together.</li>
+ *     <li>Between the refresh point and the TTL the entry is still served, and one background
+ *     reload is started.</li>
+ *     <li>After the TTL the entry is reloaded inline. If that reload fails, the last known-good
+ *     value is served until {@code ttl + staleIfError}, when Caffeine drops the entry.</li>
+ * </ul>
+ * Loads are single-flight per key: concurrent misses, inline reloads and background refreshes for
+ * the same key share one call to the loader, and every extra caller is counted on
+ * {@code webhooks.schema.cache.coalesced.loads}. {@link #invalidateAll()} starts a new generation: entries and
+ * loads from before it are never served or stored afterwards.
+ * <p>
+ * Per cache, {@code webhooks.schema.cache.gets} counts lookups by result ({@code hit}, {@code refresh} when served
+ * while a refresh ahead is due, {@code miss} when loaded inline), {@code webhooks.schema.cache.load} times the loader
+ * by outcome and {@code webhooks.schema.cache.size} reports the number of entries.
+ */
+class RefreshAheadCache<K, V> {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshAheadCache.class);
+
+    private final String name;
+    private final Cache<K, Entry<V>> cache;
+    private final Ticker ticker;
+    private final long ttlNanos;
+    private final long refreshAheadNanos;
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlightLoads = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final Counter coalescedLoads;
+    private final Counter hits;
+    private final Counter refreshes;
+    private final Counter misses;
+    private final Timer successfulLoads;
+    private final Timer emptyLoads;
+    private final Timer failedLoads;
+
+    RefreshAheadCache(String name, String cacheTag, int maxEntries, Duration ttl, Duration refreshAhead,
+                      Duration staleIfError, MeterRegistry meterRegistry) {
+        this(name, cacheTag, maxEntries, ttl, refreshAhead, staleIfError, meterRegistry, Ticker.systemTicker());
+    }
+
+    RefreshAheadCache(String name, String cacheTag, int maxEntries, Duration ttl, Duration refreshAhead,
+                      Duration staleIfError, MeterRegistry meterRegistry, Ticker ticker) {
+        this.name = name;
+        this.ticker = ticker;
+        this.ttlNanos = ttl.toNanos();
+        this.refreshAheadNanos = Math.min(refreshAhead.toNanos(), ttlNanos);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl.plus(staleIfError))
+                .ticker(ticker)
+                .build();
+
+        this.coalescedLoads = Counter.builder("webhooks.schema.cache.coalesced.loads")
+                .description("Schema cache lookups that joined a DynamoDB load already in flight for the same key")
+                .tag("cache", cacheTag)
+                .register(meterRegistry);
+        this.hits = getsCounter(meterRegistry, cacheTag, "hit");
+        this.refreshes = getsCounter(meterRegistry, cacheTag, "refresh");
+        this.misses = getsCounter(meterRegistry, cacheTag, "miss");
+        this.successfulLoads = loadTimer(meterRegistry, cacheTag, "success");
+        this.emptyLoads = loadTimer(meterRegistry, cacheTag, "empty");
+        this.failedLoads = loadTimer(meterRegistry, cacheTag, "error");
+        Gauge.builder("webhooks.schema.cache.size", cache, Cache::estimatedSize)
+                .description("Entries in the schema cache, including stale ones kept for stale-if-error")
+                .tag("cache", cacheTag)
+                .register(meterRegistry);
+    }
+
+    Mono<V> get(K key, Function<K, Mono<V>> loader) {
+        Entry<V> entry = cache.getIfPresent(key);
+        if (entry != null && entry.generation != generation.get()) {
+            // Written by a load that started before invalidateAll and finished after it
+            cache.asMap().remove(key, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            log.debug("{} cache MISS for {}", name, key);
+            return load(key, loader);
+        }
+
+        long now = ticker.read();
+        if (now < entry.refreshAt) {
+            hits.increment();
+            log.debug("{} cache HIT for {}", name, key);
+            return Mono.just(entry.value);
+        }
+        if (now < entry.expiresAt) {
+            refreshes.increment();
+            refreshInBackground(key, entry, loader);
+            return Mono.just(entry.value);
+        }
+
+        misses.increment();
+        log.debug("{} cache entry for {} is past its TTL, reloading", name, key);
+        Entry<V> expired = entry;
+        return load(key, loader)
+                .switchIfEmpty(Mono.fromRunnable(() -> cache.asMap().remove(key, expired)))
+                .onErrorResume(error -> {
+                    log.warn("{} reload failed for {}, serving last known-good entry: {}", name, key, error.getMessage());
+                    return Mono.just(expired.value);
+                });
+    }
+
+    void put(K key, V value) {
+        cache.put(key, newEntry(value, generation.get()));
+    }
+
+    void invalidateAll() {
+        generation.incrementAndGet();
+        // Later misses start their own load instead of joining one that may return what was just invalidated
+        inFlightLoads.clear();
+        cache.invalidateAll();
+    }
+
+    private Mono<V> load(K key, Function<K, Mono<V>> loader) {
+        return Mono.defer(() -> {
+            CompletableFuture<V> load = new CompletableFuture<>();
+            CompletableFuture<V> pending = inFlightLoads.putIfAbsent(key, load);
+            if (pending != null) {
+                coalescedLoads.increment();
+                log.debug("{} load for {} already in flight, waiting for it", name, key);
+                return Mono.fromFuture(pending, true);
+            }
+
+            // Not tied to this subscriber: a cancelled caller must not cancel the load other callers wait on.
+            // Deferred so a loader that throws instead of returning an error completes the load like one that fails.
+            long start = ticker.read();
+            long loadGeneration = generation.get();
+            Mono.defer(() -> loader.apply(key)).subscribe(
+                    value -> {
+                        successfulLoads.record(ticker.read() - start, TimeUnit.NANOSECONDS);
+                        // Not stored if invalidateAll ran meanwhile; if it races with the check, the entry carries
+                        // the old generation and get() drops it
+                        if (loadGeneration == generation.get()) {
+                            cache.put(key, newEntry(value, loadGeneration));
+                        }
+                        inFlightLoads.remove(key, load);
+                        load.complete(value);
+                    },
+                    error -> {
+                        failedLoads.record(ticker.read() - start, TimeUnit.NANOSECONDS);
+                        inFlightLoads.remove(key, load);
+                        load.completeExceptionally(error);
+                    },
+                    () -> {
+                        if (!load.isDone()) {
+                            emptyLoads.record(ticker.read() - start, TimeUnit.NANOSECONDS);
+                        }
+                        inFlightLoads.remove(key, load);
+                        load.complete(null);
+                    }
+            );
+            return Mono.fromFuture(load, true);
+        });
+    }
+
+    private void refreshInBackground(K key, Entry<V> entry, Function<K, Mono<V>> loader) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        log.debug("{} refreshing {} ahead of expiry", name, key);
+        load(key, loader)
+                .switchIfEmpty(Mono.fromRunnable(() -> cache.asMap().remove(key, entry)))
+                .subscribe(
+                        null,
+                        error -> {
+                            // Keep serving the current entry; the next request in the window retries
+                            entry.refreshing.set(false);
+                            log.warn("{} background refresh failed for {}: {}", name, key, error.getMessage());
+                        }
+                );
+    }
+
+    private static Counter getsCounter(MeterRegistry meterRegistry, String cacheTag, String result) {
+        return Counter.builder("webhooks.schema.cache.gets")
+                .description("Schema cache lookups by result")
+                .tag("cache", cacheTag)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Timer loadTimer(MeterRegistry meterRegistry, String cacheTag, String outcome) {
+        return Timer.builder("webhooks.schema.cache.load")
+                .description("Time to load a schema cache entry from DynamoDB")
+                .tag("cache", cacheTag)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private Entry<V> newEntry(V value, long generation) {
+        long now = ticker.read();
+        long jitter = refreshAheadNanos > 0 ? ThreadLocalRandom.current().nextLong(1, refreshAheadNanos + 1) : 0;
+        return new Entry<>(value, now + ttlNanos - jitter, now + ttlNanos, generation);
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long refreshAt;
+        private final long expiresAt;
+        private final long generation;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Entry(V value, long refreshAt, long expiresAt, long generation) {
+            this.value = value;
+            this.refreshAt = refreshAt;
+            this.expiresAt = expiresAt;
+            this.generation = generation;
+        }
+    }
+}
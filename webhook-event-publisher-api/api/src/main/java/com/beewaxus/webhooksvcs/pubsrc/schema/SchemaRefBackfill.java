@@ -0,0 +1,113 @@
+package com.beewaxus.webhooksvcs.pubsrc.schema;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One-off migration that writes the SCHEMA_REF attribute (domain#event#version) on existing schema items,
+ * so they show up in the SCHEMA_REF index. Items that already carry it are left alone.
+ * Run the service once with {@code --webhooks.dynamodb.backfill-schema-ref=true}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "webhooks.dynamodb", name = "backfill-schema-ref", havingValue = "true")
+public class SchemaRefBackfill implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaRefBackfill.class);
+
+    private final DynamoDbClient dynamoDbClient;
+    private final WebhooksProperties properties;
+
+    public SchemaRefBackfill(DynamoDbClient dynamoDbClient, WebhooksProperties properties) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.properties = properties;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        backfill();
+    }
+
+    public long backfill() {
+        String tableName = properties.dynamodb().tableName();
+        List<String> keyAttributes = dynamoDbClient.describeTable(DescribeTableRequest.builder().tableName(tableName).build())
+                .table().keySchema().stream()
+                .map(KeySchemaElement::attributeName)
+                .toList();
+
+        Map<String, String> names = new HashMap<>();
+        StringBuilder projection = new StringBuilder();
+        for (int i = 0; i < keyAttributes.size(); i++) {
+            names.put("#key" + i, keyAttributes.get(i));
+            projection.append("#key").append(i).append(", ");
+        }
+        names.put("#domain", "PRODUCER_DOMAIN");
+        names.put("#event", "EVENT_NAME");
+        names.put("#version", "VERSION");
+        names.put("#ref", "SCHEMA_REF");
+        projection.append("#domain, #event, #version, #ref");
+
+        log.info("Backfilling SCHEMA_REF on table '{}' (key attributes {})", tableName, keyAttributes);
+        long updated = 0;
+        long skipped = 0;
+        for (Map<String, AttributeValue> item : dynamoDbClient.scanPaginator(ScanRequest.builder()
+                .tableName(tableName)
+                .projectionExpression(projection.toString())
+                .expressionAttributeNames(names)
+                .build()).items()) {
+            if (item.containsKey("SCHEMA_REF")) {
+                continue;
+            }
+            String domain = stringValue(item, "PRODUCER_DOMAIN");
+            String eventName = stringValue(item, "EVENT_NAME");
+            String version = stringValue(item, "VERSION");
+            if (domain == null || eventName == null || version == null) {
+                skipped++;
+                continue;
+            }
+
+            Map<String, AttributeValue> key = new HashMap<>();
+            keyAttributes.forEach(attribute -> key.put(attribute, item.get(attribute)));
+            try {
+                dynamoDbClient.updateItem(UpdateItemRequest.builder()
+                        .tableName(tableName)
+                        .key(key)
+                        .updateExpression("SET SCHEMA_REF = :ref")
+                        .conditionExpression("attribute_exists(#key)")
+                        .expressionAttributeNames(Map.of("#key", keyAttributes.get(0)))
+                        .expressionAttributeValues(Map.of(":ref", AttributeValue.builder()
+                                .s(new SchemaReference(domain, eventName, version).schemaRef())
+                                .build()))
+                        .build());
+                updated++;
+            } catch (ConditionalCheckFailedException e) {
+                // Deleted since the scan read it
+                skipped++;
+            }
+        }
+
+        log.info("SCHEMA_REF backfill on table '{}' finished: {} item(s) updated, {} skipped (deleted or missing PRODUCER_DOMAIN/EVENT_NAME/VERSION)",
+                tableName, updated, skipped);
+        return updated;
+    }
+
+    private String stringValue(Map<String, AttributeValue> item, String key) {
+        AttributeValue value = item.get(key);
+        return value != null ? value.s() : null;
+    }
+}
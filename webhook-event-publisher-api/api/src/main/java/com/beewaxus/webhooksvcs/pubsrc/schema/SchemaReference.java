@@ -9,4 +9,11 @@ public record SchemaReference(String domain, String eventName, String version) {
     public String sortKey() {
         return "v%s".formatted(version);
     }
+
+    /**
+     * Value of the SCHEMA_REF attribute, the hash key of the index used to look a schema up by domain, event and version.
+     */
+    public String schemaRef() {
+        return "%s#%s#%s".formatted(domain, eventName, version);
+    }
 }
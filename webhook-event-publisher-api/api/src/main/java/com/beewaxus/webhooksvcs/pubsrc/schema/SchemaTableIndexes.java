@@ -0,0 +1,82 @@
+package com.beewaxus.webhooksvcs.pubsrc.schema;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndexDescription;
+import software.amazon.awssdk.services.dynamodb.model.IndexStatus;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Checks at startup which lookup indexes exist on the schema table.
+ * {@link DynamoSchemaService} queries an index only when it is ACTIVE and otherwise falls back to
+ * the filtered table scan, unless {@code webhooks.dynamodb.require-indexes=true}, in which case a
+ * missing index fails startup.
+ */
+@Component
+public class SchemaTableIndexes {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaTableIndexes.class);
+
+    private final DynamoDbClient dynamoDbClient;
+    private final WebhooksProperties properties;
+
+    private volatile boolean schemaIdIndexAvailable;
+    private volatile boolean schemaRefIndexAvailable;
+
+    public SchemaTableIndexes(DynamoDbClient dynamoDbClient, WebhooksProperties properties) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void verify() {
+        WebhooksProperties.DynamoProperties dynamo = properties.dynamodb();
+        Set<String> activeIndexes = Set.of();
+        try {
+            TableDescription table = dynamoDbClient.describeTable(DescribeTableRequest.builder()
+                    .tableName(dynamo.tableName())
+                    .build()).table();
+            activeIndexes = table.globalSecondaryIndexes().stream()
+                    .filter(index -> index.indexStatus() == IndexStatus.ACTIVE)
+                    .map(GlobalSecondaryIndexDescription::indexName)
+                    .collect(Collectors.toSet());
+        } catch (SdkException e) {
+            log.warn("Could not describe DynamoDB table '{}' to check its indexes: {}", dynamo.tableName(), e.getMessage());
+        }
+
+        schemaIdIndexAvailable = activeIndexes.contains(dynamo.getSchemaIdIndexName());
+        schemaRefIndexAvailable = activeIndexes.contains(dynamo.getSchemaRefIndexName());
+
+        if (schemaIdIndexAvailable && schemaRefIndexAvailable) {
+            log.info("Schema lookups use indexes {} and {} on table '{}'",
+                    dynamo.getSchemaIdIndexName(), dynamo.getSchemaRefIndexName(), dynamo.tableName());
+            return;
+        }
+
+        String missing = (schemaIdIndexAvailable ? "" : dynamo.getSchemaIdIndexName() + " ")
+                + (schemaRefIndexAvailable ? "" : dynamo.getSchemaRefIndexName());
+        if (dynamo.isRequireIndexes()) {
+            throw new IllegalStateException("DynamoDB table '" + dynamo.tableName() + "' is missing ACTIVE index(es): "
+                    + missing.trim() + " (webhooks.dynamodb.require-indexes=true)");
+        }
+        log.warn("DynamoDB table '{}' is missing ACTIVE index(es): {}. Schema lookups will fall back to table scans",
+                dynamo.tableName(), missing.trim());
+    }
+
+    public boolean schemaIdIndexAvailable() {
+        return schemaIdIndexAvailable;
+    }
+
+    public boolean schemaRefIndexAvailable() {
+        return schemaRefIndexAvailable;
+    }
+}
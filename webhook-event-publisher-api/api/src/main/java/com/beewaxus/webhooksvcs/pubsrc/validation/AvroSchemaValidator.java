@@ -1,37 +1,45 @@
 package com.beewaxus.webhooksvcs.pubsrc.validation;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.beewaxus.webhooksvcs.pubsrc.schema.CompiledSchema;
+import com.beewaxus.webhooksvcs.pubsrc.schema.CompiledSchemaCache;
 import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaDefinition;
+import com.beewaxus.webhooksvcs.pubsrc.scheduling.CpuStageScheduler;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericData;
-import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.JsonDecoder;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 @Component
 public class AvroSchemaValidator {
 
+    private final CompiledSchemaCache compiledSchemaCache;
+    private final CpuStageScheduler cpuStageScheduler;
+
+    public AvroSchemaValidator(CompiledSchemaCache compiledSchemaCache, CpuStageScheduler cpuStageScheduler) {
+        this.compiledSchemaCache = compiledSchemaCache;
+        this.cpuStageScheduler = cpuStageScheduler;
+    }
+
     public Mono<GenericRecord> validate(JsonNode payload, SchemaDefinition schemaDefinition) {
-        return Mono.fromCallable(() -> {
-                    Schema schema = new Schema.Parser().parse(schemaDefinition.avroSchema());
-                    GenericDatumReader<GenericRecord> reader = new GenericDatumReader<>(schema);
+        return cpuStageScheduler.run("avro-validation", () -> {
+            CompiledSchema compiled = compiledSchemaCache.compile(schemaDefinition);
+            Schema schema = compiled.avroSchema();
 
-                    String jsonString = payload.toString();
-                    JsonDecoder decoder = DecoderFactory.get().jsonDecoder(schema, jsonString);
+            String jsonString = payload.toString();
+            JsonDecoder decoder = DecoderFactory.get().jsonDecoder(schema, jsonString);
 
-                    GenericRecord record = reader.read(null, decoder);
+            GenericRecord record = compiled.avroReader().read(null, decoder);
 
-                    // Validate the record
-                    if (!GenericData.get().validate(schema, record)) {
-                        throw new SchemaValidationException("Avro schema validation failed");
-                    }
+            // Validate the record
+            if (!GenericData.get().validate(schema, record)) {
+                throw new SchemaValidationException("Avro schema validation failed");
+            }
 
-                    return record;
-                })
-                .subscribeOn(Schedulers.boundedElastic());
+            return record;
+        });
     }
 }
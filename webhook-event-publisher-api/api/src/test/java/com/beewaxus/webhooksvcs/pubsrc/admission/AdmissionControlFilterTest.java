@@ -0,0 +1,180 @@
+package com.beewaxus.webhooksvcs.pubsrc.admission;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControlFilterTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger passed = new AtomicInteger();
+    private final WebFilterChain chain = exchange -> {
+        passed.incrementAndGet();
+        return Mono.empty();
+    };
+
+    @Test
+    void filter_RejectsOverBurstWithRetryAfterAndRefillsOverTime() {
+        AdmissionControlFilter filter = filter(true, Map.of("orders", new WebhooksProperties.LimitProperties(2.0, 2)));
+
+        assertNull(filter(filter, publish("orders")).getResponse().getStatusCode());
+        assertNull(filter(filter, publish("orders")).getResponse().getStatusCode());
+        MockServerWebExchange rejected = filter(filter, publish("orders"));
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+        assertEquals("1", rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertTrue(rejected.getResponse().getBodyAsString().block().contains("'orders'"));
+        assertEquals(2, passed.get());
+        assertEquals(0.0, meterRegistry.get("webhooks.admission.tokens").tag("key", "orders").gauge().value());
+
+        // Half a second refills one token at 2/s
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertNull(filter(filter, publish("orders")).getResponse().getStatusCode());
+        assertEquals(1.0, meterRegistry.get("webhooks.admission.requests").tags("key", "orders", "outcome", "rejected").counter().count());
+    }
+
+    @Test
+    void filter_KeepsDomainsApart() {
+        AdmissionControlFilter filter = filter(true, Map.of("noisy", new WebhooksProperties.LimitProperties(1.0, 1)));
+
+        filter(filter, publish("noisy"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, filter(filter, publish("noisy")).getResponse().getStatusCode());
+        for (int i = 0; i < 5; i++) {
+            assertNull(filter(filter, publish("quiet")).getResponse().getStatusCode());
+        }
+
+        assertEquals(6, passed.get());
+        assertEquals(5.0, meterRegistry.get("webhooks.admission.requests").tags("key", "other", "outcome", "admitted").counter().count());
+    }
+
+    @Test
+    void admissionKey_PrefersTrustedHeaderThenSchemaIdAndSkipsOtherRequests() {
+        AdmissionControlFilter filter = filter(true, Map.of(
+                "orders", new WebhooksProperties.LimitProperties(1.0, 1),
+                "SCHEMA_1", new WebhooksProperties.LimitProperties(1.0, 1)));
+
+        assertEquals(new AdmissionControlFilter.AdmissionKey("orders", true),
+                filter.admissionKey(MockServerHttpRequest.post("/webhook/schema/schema_id/SCHEMA_1")
+                        .header("X-Producer-Domain", "orders").build()));
+        assertEquals(new AdmissionControlFilter.AdmissionKey("SCHEMA_1", true),
+                filter.admissionKey(MockServerHttpRequest.post("/webhook/schema/schema_id/SCHEMA_1").build()));
+        assertEquals(new AdmissionControlFilter.AdmissionKey(AdmissionControlFilter.OTHER_KEYS, true),
+                filter.admissionKey(MockServerHttpRequest.post("/webhook/event/publisher").build()));
+        assertNull(filter.admissionKey(MockServerHttpRequest.get("/webhook/schema/schema_id/SCHEMA_1").build()));
+        assertNull(filter.admissionKey(MockServerHttpRequest.post("/webhook/schema/evict/all").build()));
+    }
+
+    @Test
+    void admissionKey_UntrustedHeaderComesAfterSchemaIdAndCannotClaimALimit() {
+        AdmissionControlFilter filter = filter(true, false, Map.of("orders", new WebhooksProperties.LimitProperties(1.0, 1)));
+
+        assertEquals(new AdmissionControlFilter.AdmissionKey("orders", false), filter.admissionKey(publish("orders")));
+        assertEquals(new AdmissionControlFilter.AdmissionKey("SCHEMA_1", true),
+                filter.admissionKey(MockServerHttpRequest.post("/webhook/schema/schema_id/SCHEMA_1")
+                        .header("X-Producer-Domain", "orders").build()));
+
+        // The configured 1/s limit does not apply, the default burst of 100 does
+        for (int i = 0; i < 3; i++) {
+            assertNull(filter(filter, publish("orders")).getResponse().getStatusCode());
+        }
+    }
+
+    @Test
+    void filter_FloodOnOneUnconfiguredKeyDoesNotRejectAnother() {
+        AdmissionControlFilter filter = filter(true, false, Map.of());
+
+        for (int i = 0; i < 100; i++) {
+            filter(filter, publish("noisy"));
+            filter(filter, MockServerHttpRequest.post("/webhook/schema/schema_id/SCHEMA_NOISY").build());
+        }
+        MockServerWebExchange flooded = filter(filter, publish("noisy"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, flooded.getResponse().getStatusCode());
+        assertTrue(flooded.getResponse().getBodyAsString().block().contains("'noisy'"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS,
+                filter(filter, MockServerHttpRequest.post("/webhook/schema/schema_id/SCHEMA_NOISY").build()).getResponse().getStatusCode());
+
+        assertNull(filter(filter, publish("quiet")).getResponse().getStatusCode());
+        assertNull(filter(filter, MockServerHttpRequest.post("/webhook/schema/schema_id/SCHEMA_QUIET").build()).getResponse().getStatusCode());
+        assertNull(filter(filter, MockServerHttpRequest.post("/webhook/event/publisher").build()).getResponse().getStatusCode());
+        assertEquals(2.0, meterRegistry.get("webhooks.admission.requests").tags("key", "other", "outcome", "rejected").counter().count());
+    }
+
+    @Test
+    void filter_KeysBeyondMaxTrackedShareTheOtherBucketUntilOnesGoIdle() {
+        AdmissionControlFilter filter = filter(true, false, Map.of(), 1);
+
+        assertNull(filter(filter, publish("tracked")).getResponse().getStatusCode());
+        // A new key value per request must not earn a fresh burst once max-tracked-keys are in use
+        for (int i = 0; i < 100; i++) {
+            assertNull(filter(filter, publish("random-" + i)).getResponse().getStatusCode());
+        }
+        MockServerWebExchange rejected = filter(filter, publish("random-100"));
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+        assertTrue(rejected.getResponse().getBodyAsString().block().contains("'other'"));
+        assertNull(filter(filter, publish("tracked")).getResponse().getStatusCode());
+        assertEquals(1.0, meterRegistry.get("webhooks.admission.tracked.keys").gauge().value());
+
+        // Once the tracked key has been idle for idle-expiry its slot is free again
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(11));
+        for (int i = 0; i < 100; i++) {
+            assertNull(filter(filter, publish("random-101")).getResponse().getStatusCode());
+        }
+        assertTrue(filter(filter, publish("random-101")).getResponse().getBodyAsString().block().contains("'random-101'"));
+    }
+
+    @Test
+    void filter_PassesEverythingWhenDisabled() {
+        AdmissionControlFilter filter = filter(false, Map.of("orders", new WebhooksProperties.LimitProperties(1.0, 1)));
+
+        for (int i = 0; i < 3; i++) {
+            assertNull(filter(filter, publish("orders")).getResponse().getStatusCode());
+        }
+        assertEquals(3, passed.get());
+    }
+
+    private MockServerWebExchange filter(AdmissionControlFilter filter, MockServerHttpRequest request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    private static MockServerHttpRequest publish(String domain) {
+        return MockServerHttpRequest.post("/webhook/event/publisher").header("X-Producer-Domain", domain).build();
+    }
+
+    private AdmissionControlFilter filter(boolean enabled, Map<String, WebhooksProperties.LimitProperties> limits) {
+        return filter(enabled, true, limits);
+    }
+
+    private AdmissionControlFilter filter(boolean enabled, boolean trustKeyHeader, Map<String, WebhooksProperties.LimitProperties> limits) {
+        return filter(enabled, trustKeyHeader, limits, null);
+    }
+
+    private AdmissionControlFilter filter(boolean enabled, boolean trustKeyHeader, Map<String, WebhooksProperties.LimitProperties> limits,
+                                          Integer maxTrackedKeys) {
+        WebhooksProperties properties = new WebhooksProperties(null, null, null, null, null, null,
+                new WebhooksProperties.AdmissionProperties(enabled, null, trustKeyHeader, 100.0, 100, limits,
+                        maxTrackedKeys, null, null));
+        return new AdmissionControlFilter(properties, meterRegistry, new ObjectMapper().registerModule(new JavaTimeModule()), nanos::get);
+    }
+}
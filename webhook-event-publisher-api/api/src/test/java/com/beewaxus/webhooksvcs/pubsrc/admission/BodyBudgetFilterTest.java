@@ -0,0 +1,136 @@
+package com.beewaxus.webhooksvcs.pubsrc.admission;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BodyBudgetFilterTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Sinks.Empty<Void> inFlight = Sinks.empty();
+    private final AtomicInteger passed = new AtomicInteger();
+    // Holds every admitted request open until inFlight completes
+    private final WebFilterChain holdingChain = exchange -> {
+        passed.incrementAndGet();
+        return inFlight.asMono();
+    };
+
+    @Test
+    void filter_QueuedRequestProceedsOnceEarlierBodiesComplete() {
+        BodyBudgetFilter filter = filter(100, Duration.ofSeconds(5));
+
+        filter.filter(exchange(publish(60)), holdingChain).subscribe();
+        MockServerWebExchange queued = exchange(publish(60));
+        filter.filter(queued, holdingChain).subscribe();
+
+        assertEquals(1, passed.get());
+        assertEquals(60.0, gauge("webhooks.admission.body.reserved"));
+        assertEquals(1.0, gauge("webhooks.admission.body.queued"));
+
+        inFlight.tryEmitEmpty();
+
+        assertEquals(2, passed.get());
+        assertNull(queued.getResponse().getStatusCode());
+        assertEquals(0.0, gauge("webhooks.admission.body.reserved"));
+    }
+
+    @Test
+    void filter_ShedsWith503WhenNoRoomFreesUpInTime() {
+        BodyBudgetFilter filter = filter(100, Duration.ofMillis(50));
+
+        filter.filter(exchange(publish(60)), holdingChain).subscribe();
+        MockServerWebExchange shed = exchange(publish(60));
+        filter.filter(shed, holdingChain).block(Duration.ofSeconds(5));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, shed.getResponse().getStatusCode());
+        assertEquals("1", shed.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, passed.get());
+        assertEquals(1.0, meterRegistry.get("webhooks.admission.body.rejected").tag("reason", "timeout").counter().count());
+        assertEquals(0.0, gauge("webhooks.admission.body.queued"));
+    }
+
+    @Test
+    void filter_RejectsBodyLargerThanTheWholeBudget() {
+        BodyBudgetFilter filter = filter(100, Duration.ofSeconds(5));
+
+        MockServerWebExchange tooLarge = exchange(publish(101));
+        filter.filter(tooLarge, holdingChain).block(Duration.ofSeconds(5));
+
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, tooLarge.getResponse().getStatusCode());
+        assertEquals(0, passed.get());
+    }
+
+    @Test
+    void filter_ChargesChunkedBodiesAsTheyAreRead() {
+        BodyBudgetFilter filter = filter(100, Duration.ofSeconds(5));
+        MockServerWebExchange chunked = exchange(MockServerHttpRequest.post("/webhook/event/publisher")
+                .body(Flux.just(buffer(40), buffer(40), buffer(40))));
+
+        WebFilterChain readingChain = exchange -> DataBufferUtils.join(exchange.getRequest().getBody())
+                .doOnNext(DataBufferUtils::release)
+                .then();
+
+        ResponseStatusException exhausted = assertThrows(ResponseStatusException.class,
+                () -> filter.filter(chunked, readingChain).block(Duration.ofSeconds(5)));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exhausted.getStatusCode());
+        assertEquals(0.0, gauge("webhooks.admission.body.reserved"));
+    }
+
+    @Test
+    void filter_LeavesOtherRequestsAlone() {
+        BodyBudgetFilter filter = filter(100, Duration.ofSeconds(5));
+
+        filter.filter(exchange(MockServerHttpRequest.post("/webhook/event/publisher/stream").contentLength(500).build()), holdingChain).subscribe();
+        filter.filter(exchange(MockServerHttpRequest.get("/webhook/schema/all").build()), holdingChain).subscribe();
+
+        assertEquals(2, passed.get());
+        assertEquals(0.0, gauge("webhooks.admission.body.reserved"));
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+
+    private static MockServerWebExchange exchange(MockServerHttpRequest request) {
+        return MockServerWebExchange.from(request);
+    }
+
+    private static MockServerHttpRequest publish(int contentLength) {
+        return MockServerHttpRequest.post("/webhook/event/publisher").contentLength(contentLength).build();
+    }
+
+    private static DataBuffer buffer(int size) {
+        return DefaultDataBufferFactory.sharedInstance.wrap("x".repeat(size).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private BodyBudgetFilter filter(long maxBytes, Duration queueTimeout) {
+        WebhooksProperties properties = new WebhooksProperties(null, null, null, null, null, null,
+                new WebhooksProperties.AdmissionProperties(null, null, null, null, null, null, null, null,
+                        new WebhooksProperties.BodyBudgetProperties(true, DataSize.ofBytes(maxBytes), queueTimeout, 10)));
+        return new BodyBudgetFilter(properties, meterRegistry, new ObjectMapper().registerModule(new JavaTimeModule()));
+    }
+}
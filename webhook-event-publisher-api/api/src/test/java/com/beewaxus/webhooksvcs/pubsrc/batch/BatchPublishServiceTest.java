@@ -0,0 +1,157 @@
+package com.beewaxus.webhooksvcs.pubsrc.batch;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.converter.AvroBinaryEncoder;
+import com.beewaxus.webhooksvcs.pubsrc.ledger.IdempotencyKeyInProgressException;
+import com.beewaxus.webhooksvcs.pubsrc.ledger.IdempotencyKeyService;
+import com.beewaxus.webhooksvcs.pubsrc.ledger.IdempotencyLedgerService;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.EventPublisher;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.KafkaPublishException;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.OutboundEvent;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.PublishResult;
+import com.beewaxus.webhooksvcs.pubsrc.scheduling.CpuStageScheduler;
+import com.beewaxus.webhooksvcs.pubsrc.schema.CompiledSchemaCache;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaDefinition;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaFormatType;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaReference;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaService;
+import com.beewaxus.webhooksvcs.pubsrc.validation.JsonSchemaValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchPublishServiceTest {
+
+    private static final SchemaReference REFERENCE = new SchemaReference("demo", "UserEvent", "v1");
+
+    private final SchemaService schemaService = Mockito.mock(SchemaService.class);
+    private final EventPublisher eventPublisher = Mockito.mock(EventPublisher.class);
+    private final IdempotencyLedgerService idempotencyLedgerService = Mockito.mock(IdempotencyLedgerService.class);
+    private final IdempotencyKeyService idempotencyKeyService = Mockito.mock(IdempotencyKeyService.class);
+    private BatchPublishService batchPublishService;
+
+    @BeforeEach
+    void setUp() {
+        WebhooksProperties properties = new WebhooksProperties(
+                null,
+                new WebhooksProperties.KafkaProperties("localhost:9092", "wh.ingress", null, null, null, null, null, null, null, null, null),
+                null,
+                new WebhooksProperties.ValidationProperties(true, null),
+                null,
+                null,
+                null
+        );
+        CompiledSchemaCache compiledSchemaCache = new CompiledSchemaCache(properties);
+        CpuStageScheduler cpuStageScheduler = new CpuStageScheduler(properties, new SimpleMeterRegistry());
+        batchPublishService = new BatchPublishService(schemaService, compiledSchemaCache,
+                new JsonSchemaValidator(compiledSchemaCache, cpuStageScheduler),
+                new AvroBinaryEncoder(compiledSchemaCache, cpuStageScheduler),
+                eventPublisher, new ObjectMapper(), properties, idempotencyLedgerService, idempotencyKeyService,
+                cpuStageScheduler);
+
+        SchemaDefinition definition = new SchemaDefinition(REFERENCE,
+                "{\"type\":\"object\",\"required\":[\"userId\"]}", null, SchemaFormatType.JSON_SCHEMA, true, Instant.now(), null);
+        when(schemaService.fetchSchema(REFERENCE)).thenReturn(Mono.just(definition));
+        when(idempotencyLedgerService.recordEventStatus(any(), any(), any())).thenReturn(Mono.empty());
+        when(idempotencyKeyService.claim(any(), any(), any())).thenReturn(Mono.empty());
+        when(idempotencyKeyService.complete(any(), any(), any())).thenReturn(Mono.empty());
+        when(idempotencyKeyService.release(any(), any(), any())).thenReturn(Mono.empty());
+    }
+
+    @Test
+    void publish_ManyEventsForOneSchema_LooksSchemaUpOnceAndSendsOneBatch() {
+        when(eventPublisher.publishBatch(anyList())).thenAnswer(invocation -> {
+            List<OutboundEvent> events = invocation.getArgument(0);
+            return Flux.fromIterable(events).map(event -> PublishResult.published(event.envelope().eventId()));
+        });
+
+        List<BatchItemOutcome> outcomes = batchPublishService.publish(List.of(
+                item(null, Map.of("userId", "u1")),
+                item(null, Map.of("userId", "u2")),
+                item(null, Map.of("userId", "u3")))).block();
+
+        assertEquals(3, outcomes.size());
+        outcomes.forEach(outcome -> assertEquals(BatchItemOutcome.Status.ACCEPTED, outcome.status()));
+        assertEquals(List.of(0, 1, 2), outcomes.stream().map(BatchItemOutcome::index).toList());
+        verify(schemaService, times(1)).fetchSchema(REFERENCE);
+        ArgumentCaptor<List<OutboundEvent>> sent = ArgumentCaptor.forClass(List.class);
+        verify(eventPublisher, times(1)).publishBatch(sent.capture());
+        assertEquals(3, sent.getValue().size());
+        assertEquals("wh.ingress.demo.UserEvent", sent.getValue().get(0).topicName());
+    }
+
+    @Test
+    void publish_DuplicateAndKafkaFailure_ReportsPerEventAndReleasesFailedKey() {
+        String duplicateId = "6f1c2d3e-0000-4000-8000-00000000c001";
+        String failingId = "6f1c2d3e-0000-4000-8000-00000000c002";
+        when(idempotencyKeyService.claim(eq("demo"), eq(duplicateId), eq(duplicateId))).thenReturn(Mono.just("6f1c2d3e-0000-4000-8000-00000000c000"));
+        when(eventPublisher.publishBatch(anyList())).thenAnswer(invocation -> {
+            List<OutboundEvent> events = invocation.getArgument(0);
+            return Flux.fromIterable(events).map(event -> failingId.equals(event.envelope().eventId())
+                    ? PublishResult.failed(failingId, new KafkaPublishException("broker down"))
+                    : PublishResult.published(event.envelope().eventId()));
+        });
+
+        List<BatchItemOutcome> outcomes = batchPublishService.publish(List.of(
+                item(duplicateId, Map.of("userId", "u1")),
+                item(failingId, Map.of("userId", "u2")),
+                item(null, Map.of("userId", "u3")))).block();
+
+        assertEquals(BatchItemOutcome.Status.DUPLICATE, outcomes.get(0).status());
+        assertEquals("6f1c2d3e-0000-4000-8000-00000000c000", outcomes.get(0).eventId());
+        assertEquals(BatchItemOutcome.Status.FAILED, outcomes.get(1).status());
+        assertEquals(BatchItemOutcome.Status.ACCEPTED, outcomes.get(2).status());
+        verify(idempotencyKeyService).release("demo", failingId, failingId);
+        verify(idempotencyKeyService, never()).release(any(), eq(duplicateId), any());
+        verify(idempotencyKeyService, never()).complete(any(), any(), any());
+        verify(idempotencyLedgerService).recordEventStatus(eq(failingId),
+                eq(IdempotencyLedgerService.EventStatus.EVENT_DELIVERY_FAILED), any());
+    }
+
+    @Test
+    void publish_KeyStillInProgress_FailsThatEventWithoutReleasingAndCompletesPublishedKeys() {
+        String busyId = "6f1c2d3e-0000-4000-8000-00000000c003";
+        String publishedId = "6f1c2d3e-0000-4000-8000-00000000c004";
+        when(idempotencyKeyService.claim(eq("demo"), eq(busyId), eq(busyId)))
+                .thenReturn(Mono.error(new IdempotencyKeyInProgressException(busyId, Duration.ofSeconds(1))));
+        when(eventPublisher.publishBatch(anyList())).thenAnswer(invocation -> {
+            List<OutboundEvent> events = invocation.getArgument(0);
+            return Flux.fromIterable(events).map(event -> PublishResult.published(event.envelope().eventId()));
+        });
+
+        List<BatchItemOutcome> outcomes = batchPublishService.publish(List.of(
+                item(busyId, Map.of("userId", "u1")),
+                item(publishedId, Map.of("userId", "u2")))).block();
+
+        assertEquals(BatchItemOutcome.Status.FAILED, outcomes.get(0).status());
+        assertTrue(outcomes.get(0).message().contains("still being processed"));
+        assertEquals(BatchItemOutcome.Status.ACCEPTED, outcomes.get(1).status());
+        verify(idempotencyKeyService).complete("demo", publishedId, publishedId);
+        verify(idempotencyKeyService, never()).complete(any(), eq(busyId), any());
+        verify(idempotencyKeyService, never()).release(any(), any(), any());
+    }
+
+    private static BatchItem item(String eventId, Map<String, Object> data) {
+        return new BatchItem(eventId, null, REFERENCE, new ObjectMapper().valueToTree(data));
+    }
+}
@@ -0,0 +1,59 @@
+package com.beewaxus.webhooksvcs.pubsrc.batch;
+
+import com.fasterxml.jackson.core.exc.StreamConstraintsException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+
+class NdjsonEventReaderTest {
+
+    private final NdjsonEventReader reader = new NdjsonEventReader(new ObjectMapper());
+
+    @Test
+    void read_EventsSplitAcrossChunks_EmitsEachEventOnce() {
+        StepVerifier.create(reader.read(chunks(
+                        "{\"eventName\":\"A\",\"data\":{\"n\":1}}\n{\"event",
+                        "Name\":\"B\",\"data\":{\"n\":[1,2]}}\n",
+                        "{\"eventName\":\"C\"}")))
+                .expectNextMatches(event -> event.get("eventName").asText().equals("A") && event.get("data").get("n").asInt() == 1)
+                .expectNextMatches(event -> event.get("eventName").asText().equals("B") && event.get("data").get("n").size() == 2)
+                .expectNextMatches(event -> event.get("eventName").asText().equals("C"))
+                .verifyComplete();
+    }
+
+    @Test
+    void read_MalformedLine_EmitsEventsBeforeItThenFails() {
+        StepVerifier.create(reader.read(chunks("{\"eventName\":\"A\"}\n{\"eventName\":}\n{\"eventName\":\"C\"}\n")))
+                .expectNextMatches(event -> event.get("eventName").asText().equals("A"))
+                .verifyError();
+    }
+
+    @Test
+    void read_BodyEndsInsideEvent_Fails() {
+        StepVerifier.create(reader.read(chunks("{\"eventName\":\"A\"}\n{\"eventName\":\"B\"")))
+                .expectNextCount(1)
+                .verifyError();
+    }
+
+    @Test
+    void read_StringLongerThanAnEvent_FailsWhileItIsStillBeingRead() {
+        // The string never ends, so only the parser's own limit can stop it growing
+        String chunk = "x".repeat(64 * 1024);
+        Flux<DataBuffer> body = Flux.concat(
+                chunks("{\"eventName\":\"A\",\"data\":{\"s\":\""),
+                Flux.range(0, NdjsonEventReader.MAX_EVENT_BYTES / chunk.length() + 2).concatMap(i -> chunks(chunk)));
+
+        StepVerifier.create(reader.read(body))
+                .expectErrorMatches(e -> e.getCause() instanceof StreamConstraintsException)
+                .verify();
+    }
+
+    private static Flux<DataBuffer> chunks(String... chunks) {
+        return Flux.just(chunks).map(chunk -> DefaultDataBufferFactory.sharedInstance.wrap(chunk.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -1,26 +1,40 @@
 package com.beewaxus.webhooksvcs.pubsrc.controller;
 
+import com.beewaxus.webhooksvcs.pubsrc.batch.BatchPublishService;
+import com.beewaxus.webhooksvcs.pubsrc.batch.NdjsonEventReader;
 import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
-import com.beewaxus.webhooksvcs.pubsrc.converter.AvroSerializer;
+import com.beewaxus.webhooksvcs.pubsrc.converter.AvroBinaryEncoder;
 import com.beewaxus.webhooksvcs.pubsrc.converter.FormatConverter;
-import com.beewaxus.webhooksvcs.pubsrc.validation.AvroSchemaValidator;
+import com.beewaxus.webhooksvcs.pubsrc.ledger.IdempotencyKeyInProgressException;
+import com.beewaxus.webhooksvcs.pubsrc.ledger.IdempotencyKeyService;
+import com.beewaxus.webhooksvcs.pubsrc.ledger.IdempotencyLedgerService;
+import com.beewaxus.webhooksvcs.pubsrc.metrics.PublishMetrics;
+import com.beewaxus.webhooksvcs.pubsrc.schema.CompiledSchemaCache;
 import com.beewaxus.webhooksvcs.pubsrc.validation.JsonSchemaValidator;
 import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaFormatType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.beewaxus.webhooksvcs.pubsrc.model.EventEnvelope;
 import com.beewaxus.webhooksvcs.pubsrc.publisher.EventPublisher;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.OutboundEvent;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.PublishResult;
+import com.beewaxus.webhooksvcs.pubsrc.scheduling.CpuStageScheduler;
 import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaDefinition;
 import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaDetailResponse;
 import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaReference;
 import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Primary;
@@ -31,9 +45,23 @@ import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-
-@WebFluxTest(controllers = {EventController.class, ApiExceptionHandler.class})
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(controllers = {EventController.class, EventStreamController.class, CloudEventBinaryController.class,
+        ApiExceptionHandler.class})
 @Import({EventControllerTest.TestConfig.class})
 class EventControllerTest {
 
@@ -46,6 +74,15 @@ class EventControllerTest {
     @MockBean
     private KafkaTemplate<String, byte[]> avroKafkaTemplate;
 
+    @MockBean
+    private IdempotencyLedgerService idempotencyLedgerService;
+
+    @MockBean
+    private IdempotencyKeyService idempotencyKeyService;
+
+    @SpyBean
+    private EventPublisher eventPublisher;
+
     private final WebTestClient webTestClient;
 
     @Autowired
@@ -53,12 +90,20 @@ class EventControllerTest {
         this.webTestClient = webTestClient;
     }
 
+    @BeforeEach
+    void stubLedger() {
+        when(idempotencyLedgerService.recordEventStatus(any(), any(), any())).thenReturn(Mono.empty());
+        when(idempotencyKeyService.claim(any(), any(), any())).thenReturn(Mono.empty());
+        when(idempotencyKeyService.complete(any(), any(), any())).thenReturn(Mono.empty());
+        when(idempotencyKeyService.release(any(), any(), any())).thenReturn(Mono.empty());
+    }
+
     @Test
     void acceptsValidEvent() {
         webTestClient.post()
-                .uri("/events/demo/CustomerUpdated/v1")
+                .uri("/webhook/event/publisher")
                 .header("Content-Type", "application/json")
-                .bodyValue("{\"customerId\":\"123\"}")
+                .bodyValue("{\"domain\":\"demo\",\"eventName\":\"CustomerUpdated\",\"version\":\"v1\",\"data\":{\"customerId\":\"123\"}}")
                 .exchange()
                 .expectStatus().isAccepted()
                 .expectBody()
@@ -68,24 +113,77 @@ class EventControllerTest {
     @Test
     void publishEventBySchemaId_WithValidJsonPayload_ReturnsAccepted() {
         webTestClient.post()
-                .uri("/events/schema_id/SCHEMA_0001")
+                .uri("/webhook/schema/schema_id/SCHEMA_0001")
                 .header("Content-Type", "application/json")
-                .header("X-Event-Id", "evt-test-123")
+                .header("X-Event-Id", "6f1c2d3e-0000-4000-8000-000000000123")
                 .header("Idempotency-Key", "idem-test-456")
                 .bodyValue("{\"customerId\":\"123\",\"status\":\"ACTIVE\"}")
                 .exchange()
                 .expectStatus().isAccepted()
                 .expectBody()
                 .jsonPath("$.eventId").exists()
-                .jsonPath("$.eventId").isEqualTo("evt-test-123");
+                .jsonPath("$.eventId").isEqualTo("6f1c2d3e-0000-4000-8000-000000000123");
+
+        verify(idempotencyKeyService).complete("SCHEMA_0001", "idem-test-456", "6f1c2d3e-0000-4000-8000-000000000123");
+        verify(idempotencyKeyService, never()).release(any(), any(), any());
+    }
+
+    @Test
+    void publishEventBySchemaId_WhileFirstRequestIsStillPublishing_Returns409WithRetryAfter() {
+        when(idempotencyKeyService.claim(eq("SCHEMA_0001"), eq("idem-busy"), any()))
+                .thenReturn(Mono.error(new IdempotencyKeyInProgressException("idem-busy", Duration.ofSeconds(1))));
+
+        webTestClient.post()
+                .uri("/webhook/schema/schema_id/SCHEMA_0001")
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", "idem-busy")
+                .bodyValue("{\"customerId\":\"123\",\"status\":\"ACTIVE\"}")
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectHeader().valueEquals("Retry-After", "1")
+                .expectHeader().doesNotExist("Idempotent-Replayed");
+
+        verify(idempotencyKeyService, never()).release(any(), any(), any());
+        verify(idempotencyLedgerService, never()).recordEventStatus(any(), any(), any());
+    }
+
+    @Test
+    void publishEventBySchemaId_WithRepeatedIdempotencyKey_ReturnsOriginalEventIdWithoutPublishing() {
+        when(idempotencyKeyService.claim(eq("SCHEMA_0001"), eq("idem-repeat"), any())).thenReturn(Mono.just("6f1c2d3e-0000-4000-8000-000000000001"));
+
+        webTestClient.post()
+                .uri("/webhook/schema/schema_id/SCHEMA_0001")
+                .header("Content-Type", "application/json")
+                .header("X-Event-Id", "6f1c2d3e-0000-4000-8000-000000000002")
+                .header("Idempotency-Key", "idem-repeat")
+                .bodyValue("{\"customerId\":\"123\",\"status\":\"ACTIVE\"}")
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectHeader().valueEquals("Idempotent-Replayed", "true")
+                .expectBody()
+                .jsonPath("$.eventId").isEqualTo("6f1c2d3e-0000-4000-8000-000000000001");
+
+        verify(idempotencyLedgerService, never()).recordEventStatus(any(), any(), any());
+    }
+
+    @Test
+    void publishEvent_WithoutEventIdOrIdempotencyKey_SkipsIdempotencyCheck() {
+        webTestClient.post()
+                .uri("/webhook/event/publisher")
+                .header("Content-Type", "application/json")
+                .bodyValue("{\"domain\":\"demo\",\"eventName\":\"CustomerUpdated\",\"version\":\"v1\",\"data\":{\"customerId\":\"123\"}}")
+                .exchange()
+                .expectStatus().isAccepted();
+
+        verify(idempotencyKeyService, never()).claim(any(), any(), any());
     }
 
     @Test
     void publishEventBySchemaId_WithValidXmlPayload_ReturnsAccepted() {
         webTestClient.post()
-                .uri("/events/schema_id/SCHEMA_0001")
+                .uri("/webhook/schema/schema_id/SCHEMA_0001")
                 .header("Content-Type", "application/xml")
-                .header("X-Event-Id", "evt-test-456")
+                .header("X-Event-Id", "6f1c2d3e-0000-4000-8000-000000000456")
                 .bodyValue("<event><customerId>123</customerId><status>ACTIVE</status></event>")
                 .exchange()
                 .expectStatus().isAccepted()
@@ -96,9 +194,9 @@ class EventControllerTest {
     @Test
     void publishEventBySchemaId_WithValidAvroPayload_ReturnsAccepted() {
         webTestClient.post()
-                .uri("/events/schema_id/SCHEMA_0001")
+                .uri("/webhook/schema/schema_id/SCHEMA_0001")
                 .header("Content-Type", "application/avro")
-                .header("X-Event-Id", "evt-test-789")
+                .header("X-Event-Id", "6f1c2d3e-0000-4000-8000-000000000789")
                 .bodyValue("{\"customerId\":\"123\",\"status\":\"ACTIVE\"}")
                 .exchange()
                 .expectStatus().isAccepted()
@@ -109,7 +207,7 @@ class EventControllerTest {
     @Test
     void publishEventBySchemaId_WhenSchemaNotFound_ReturnsNotFound() {
         webTestClient.post()
-                .uri("/events/schema_id/NONEXISTENT_SCHEMA")
+                .uri("/webhook/schema/schema_id/NONEXISTENT_SCHEMA")
                 .header("Content-Type", "application/json")
                 .bodyValue("{\"customerId\":\"123\"}")
                 .exchange()
@@ -121,7 +219,7 @@ class EventControllerTest {
     @Test
     void publishEventBySchemaId_WhenSchemaInactive_ReturnsBadRequest() {
         webTestClient.post()
-                .uri("/events/schema_id/INACTIVE_SCHEMA")
+                .uri("/webhook/schema/schema_id/INACTIVE_SCHEMA")
                 .header("Content-Type", "application/json")
                 .bodyValue("{\"customerId\":\"123\"}")
                 .exchange()
@@ -131,7 +229,7 @@ class EventControllerTest {
     @Test
     void publishEventBySchemaId_WhenTopicInactive_ReturnsBadRequest() {
         webTestClient.post()
-                .uri("/events/schema_id/INACTIVE_TOPIC_SCHEMA")
+                .uri("/webhook/schema/schema_id/INACTIVE_TOPIC_SCHEMA")
                 .header("Content-Type", "application/json")
                 .bodyValue("{\"customerId\":\"123\"}")
                 .exchange()
@@ -141,7 +239,7 @@ class EventControllerTest {
     @Test
     void publishEventBySchemaId_WhenTopicNameMissing_ReturnsBadRequest() {
         webTestClient.post()
-                .uri("/events/schema_id/NO_TOPIC_SCHEMA")
+                .uri("/webhook/schema/schema_id/NO_TOPIC_SCHEMA")
                 .header("Content-Type", "application/json")
                 .bodyValue("{\"customerId\":\"123\"}")
                 .exchange()
@@ -151,7 +249,7 @@ class EventControllerTest {
     @Test
     void publishEventBySchemaId_WhenSchemaDefinitionMissing_ReturnsBadRequest() {
         webTestClient.post()
-                .uri("/events/schema_id/NO_SCHEMA_DEFINITION")
+                .uri("/webhook/schema/schema_id/NO_SCHEMA_DEFINITION")
                 .header("Content-Type", "application/json")
                 .bodyValue("{\"customerId\":\"123\"}")
                 .exchange()
@@ -162,21 +260,21 @@ class EventControllerTest {
     void publishEventBySchemaId_WithFallbackToAvroSchema_ReturnsAccepted() {
         // Test that when EVENT_SCHEMA_DEFINITION is null, it falls back to EVENT_SCHEMA_DEFINITION_AVRO
         webTestClient.post()
-                .uri("/events/schema_id/FALLBACK_SCHEMA")
+                .uri("/webhook/schema/schema_id/FALLBACK_SCHEMA")
                 .header("Content-Type", "application/json")
-                .header("X-Event-Id", "evt-fallback-test")
+                .header("X-Event-Id", "6f1c2d3e-0000-4000-8000-00000000fa11")
                 .bodyValue("{\"customerId\":\"123\",\"status\":\"ACTIVE\"}")
                 .exchange()
                 .expectStatus().isAccepted()
                 .expectBody()
                 .jsonPath("$.eventId").exists()
-                .jsonPath("$.eventId").isEqualTo("evt-fallback-test");
+                .jsonPath("$.eventId").isEqualTo("6f1c2d3e-0000-4000-8000-00000000fa11");
     }
 
     @Test
     void publishEventBySchemaId_WhenBodyMissing_ReturnsBadRequest() {
         webTestClient.post()
-                .uri("/events/schema_id/SCHEMA_0001")
+                .uri("/webhook/schema/schema_id/SCHEMA_0001")
                 .header("Content-Type", "application/json")
                 .exchange()
                 .expectStatus().isBadRequest();
@@ -185,7 +283,7 @@ class EventControllerTest {
     @Test
     void publishEventBySchemaId_GeneratesEventId_WhenNotProvided() {
         webTestClient.post()
-                .uri("/events/schema_id/SCHEMA_0001")
+                .uri("/webhook/schema/schema_id/SCHEMA_0001")
                 .header("Content-Type", "application/json")
                 .bodyValue("{\"customerId\":\"123\",\"status\":\"ACTIVE\"}")
                 .exchange()
@@ -198,9 +296,9 @@ class EventControllerTest {
     @Test
     void publishEvent_WithJsonSchema_ReturnsAccepted() {
         webTestClient.post()
-                .uri("/events/demo/UserEvent/v1")
+                .uri("/webhook/event/publisher")
                 .header("Content-Type", "application/json")
-                .bodyValue("{\"userId\":\"user123\",\"action\":\"LOGIN\"}")
+                .bodyValue("{\"domain\":\"demo\",\"eventName\":\"UserEvent\",\"version\":\"v1\",\"data\":{\"userId\":\"user123\",\"action\":\"LOGIN\"}}")
                 .exchange()
                 .expectStatus().isAccepted()
                 .expectBody()
@@ -210,9 +308,9 @@ class EventControllerTest {
     @Test
     void publishEvent_WithAvroSchema_ReturnsAccepted() {
         webTestClient.post()
-                .uri("/events/demo/CustomerUpdated/v1")
+                .uri("/webhook/event/publisher")
                 .header("Content-Type", "application/json")
-                .bodyValue("{\"customerId\":\"123\"}")
+                .bodyValue("{\"domain\":\"demo\",\"eventName\":\"CustomerUpdated\",\"version\":\"v1\",\"data\":{\"customerId\":\"123\"}}")
                 .exchange()
                 .expectStatus().isAccepted()
                 .expectBody()
@@ -222,14 +320,164 @@ class EventControllerTest {
     @Test
     void publishEventBySchemaId_WithJsonSchema_ReturnsAccepted() {
         webTestClient.post()
-                .uri("/events/schema_id/JSON_SCHEMA_001")
+                .uri("/webhook/schema/schema_id/JSON_SCHEMA_001")
                 .header("Content-Type", "application/json")
-                .header("X-Event-Id", "evt-json-test")
+                .header("X-Event-Id", "6f1c2d3e-0000-4000-8000-00000000a501")
                 .bodyValue("{\"userId\":\"user123\",\"action\":\"LOGIN\"}")
                 .exchange()
                 .expectStatus().isAccepted()
                 .expectBody()
-                .jsonPath("$.eventId").isEqualTo("evt-json-test");
+                .jsonPath("$.eventId").isEqualTo("6f1c2d3e-0000-4000-8000-00000000a501");
+    }
+
+    @Test
+    void publishEventBatch_WithValidAndInvalidEvents_ReportsEachEvent() {
+        webTestClient.post()
+                .uri("/webhook/event/publisher/batch")
+                .header("Content-Type", "application/json")
+                .bodyValue("""
+                        {"events":[
+                          {"eventId":"6f1c2d3e-0000-4000-8000-00000000b001","domain":"demo","eventName":"UserEvent","version":"v1","data":{"userId":"user123","action":"LOGIN"}},
+                          {"eventId":"6f1c2d3e-0000-4000-8000-00000000b002","domain":"demo","eventName":"UserEvent","version":"v1","data":{"userId":"user123"}},
+                          {"eventId":"6f1c2d3e-0000-4000-8000-00000000b003","domain":"demo","eventName":"CustomerUpdated","version":"v1","data":{"customerId":"123"}}
+                        ]}
+                        """)
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody()
+                .jsonPath("$.accepted").isEqualTo(2)
+                .jsonPath("$.rejected").isEqualTo(1)
+                .jsonPath("$.failed").isEqualTo(0)
+                .jsonPath("$.results[0].status").isEqualTo("ACCEPTED")
+                .jsonPath("$.results[0].eventId").isEqualTo("6f1c2d3e-0000-4000-8000-00000000b001")
+                .jsonPath("$.results[1].status").isEqualTo("REJECTED")
+                .jsonPath("$.results[1].message").value(containsString("action"))
+                .jsonPath("$.results[2].status").isEqualTo("ACCEPTED");
+    }
+
+    @Test
+    void publishEventBatch_WithEmptyEvents_ReturnsBadRequest() {
+        webTestClient.post()
+                .uri("/webhook/event/publisher/batch")
+                .header("Content-Type", "application/json")
+                .bodyValue("{\"events\":[]}")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void publishEventStream_WithNdjsonEvents_StreamsOneResultPerEvent() {
+        webTestClient.post()
+                .uri("/webhook/event/publisher/stream")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue("""
+                        {"eventId":"6f1c2d3e-0000-4000-8000-00000000d001","domain":"demo","eventName":"UserEvent","version":"v1","data":{"userId":"user123","action":"LOGIN"}}
+                        {"eventId":"6f1c2d3e-0000-4000-8000-00000000d002","domain":"demo","eventName":"UserEvent","version":"v1","data":{"userId":"user123"}}
+                        {"domain":"demo","eventName":"CustomerUpdated","version":"v1","data":{"customerId":"123"}}
+                        """)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .value(body -> {
+                    String[] lines = body.strip().split("\n");
+                    assertEquals(3, lines.length);
+                    assertThat(lines[0], containsString("\"status\":\"ACCEPTED\""));
+                    assertThat(lines[0], containsString("6f1c2d3e-0000-4000-8000-00000000d001"));
+                    assertThat(lines[1], containsString("\"status\":\"REJECTED\""));
+                    assertThat(lines[2], containsString("\"index\":2"));
+                    assertThat(lines[2], containsString("\"status\":\"ACCEPTED\""));
+                });
+    }
+
+    @Test
+    void publishEventStream_WithMalformedLine_EndsWithRejectedResult() {
+        webTestClient.post()
+                .uri("/webhook/event/publisher/stream")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue("""
+                        {"domain":"demo","eventName":"CustomerUpdated","version":"v1","data":{"customerId":"123"}}
+                        {"domain":
+                        """)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .value(body -> {
+                    String[] lines = body.strip().split("\n");
+                    assertEquals(2, lines.length);
+                    assertThat(lines[0], containsString("\"status\":\"ACCEPTED\""));
+                    assertThat(lines[1], containsString("\"index\":1"));
+                    assertThat(lines[1], containsString("\"status\":\"REJECTED\""));
+                });
+    }
+
+    @Test
+    void publishBinaryCloudEvent_PublishesDataBytesWithAttributesAsRecordHeaders() {
+        String data = "{\"userId\":\"user123\",  \"action\":\"LOGIN\"}";
+
+        webTestClient.post()
+                .uri("/webhook/event/publisherCE")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("ce-specversion", "v1")
+                .header("ce-id", "6f1c2d3e-0000-4000-8000-00000000ce01")
+                .header("ce-source", "demo")
+                .header("ce-subject", "UserEvent")
+                .header("ce-type", "com.example.user.login")
+                .header("ce-traceparent", "00-4bf92f%2035")
+                .bodyValue(data)
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody()
+                .jsonPath("$.eventId").isEqualTo("6f1c2d3e-0000-4000-8000-00000000ce01");
+
+        ArgumentCaptor<EventEnvelope> envelope = ArgumentCaptor.forClass(EventEnvelope.class);
+        ArgumentCaptor<byte[]> bytes = ArgumentCaptor.forClass(byte[].class);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, String>> headers = ArgumentCaptor.forClass(Map.class);
+        verify(eventPublisher).publishJsonBytes(envelope.capture(), eq("wh.ingress.demo.UserEvent"), bytes.capture(), headers.capture());
+        // No ce-time header, so no time attribute rather than an empty one
+        assertFalse(envelope.getValue().payload().has("time"));
+        // Forwarded as received, whitespace included, rather than re-serialized
+        assertEquals(data, new String(bytes.getValue(), StandardCharsets.UTF_8));
+        assertEquals("demo", headers.getValue().get("ce_source"));
+        assertEquals("com.example.user.login", headers.getValue().get("ce_type"));
+        assertEquals("00-4bf92f 35", headers.getValue().get("ce_traceparent"));
+        assertEquals(MediaType.APPLICATION_JSON_VALUE, headers.getValue().get("content-type"));
+    }
+
+    @Test
+    void publishBinaryCloudEvent_WithoutSubjectHeader_ReturnsBadRequest() {
+        webTestClient.post()
+                .uri("/webhook/event/publisherCE")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("ce-specversion", "v1")
+                .header("ce-id", "6f1c2d3e-0000-4000-8000-00000000ce02")
+                .header("ce-source", "demo")
+                .header("ce-type", "com.example.user.login")
+                .bodyValue("{\"userId\":\"user123\",\"action\":\"LOGIN\"}")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verify(eventPublisher, never()).publishJsonBytes(any(), any(), any(), any());
+    }
+
+    @Test
+    void publishBinaryCloudEvent_WithDataFailingSchema_ReturnsBadRequest() {
+        webTestClient.post()
+                .uri("/webhook/event/publisherCE")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("ce-specversion", "v1")
+                .header("ce-id", "6f1c2d3e-0000-4000-8000-00000000ce03")
+                .header("ce-source", "demo")
+                .header("ce-subject", "UserEvent")
+                .header("ce-type", "com.example.user.login")
+                .bodyValue("{\"userId\":\"user123\"}")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verify(eventPublisher, never()).publishJsonBytes(any(), any(), any(), any());
     }
 
     @TestConfiguration
@@ -487,37 +735,87 @@ class EventControllerTest {
                 public Mono<String> publishJson(EventEnvelope envelope, String topicName, JsonNode jsonPayload) {
                     return Mono.just(envelope.eventId());
                 }
+
+                @Override
+                public Mono<String> publishJsonBytes(EventEnvelope envelope, String topicName, byte[] json,
+                                                     Map<String, String> headers) {
+                    return Mono.just(envelope.eventId());
+                }
+
+                @Override
+                public Flux<PublishResult> publishBatch(List<OutboundEvent> events) {
+                    return Flux.fromIterable(events).map(event -> PublishResult.published(event.envelope().eventId()));
+                }
             };
         }
 
         @Bean
-        @Primary
-        AvroSerializer avroSerializer() {
-            return new AvroSerializer();
+        BatchPublishService batchPublishService(SchemaService schemaService,
+                                                CompiledSchemaCache compiledSchemaCache,
+                                                JsonSchemaValidator jsonSchemaValidator,
+                                                AvroBinaryEncoder avroBinaryEncoder,
+                                                EventPublisher eventPublisher,
+                                                ObjectMapper objectMapper,
+                                                WebhooksProperties webhooksProperties,
+                                                IdempotencyLedgerService idempotencyLedgerService,
+                                                IdempotencyKeyService idempotencyKeyService,
+                                                CpuStageScheduler cpuStageScheduler) {
+            return new BatchPublishService(schemaService, compiledSchemaCache, jsonSchemaValidator, avroBinaryEncoder,
+                    eventPublisher, objectMapper, webhooksProperties, idempotencyLedgerService, idempotencyKeyService,
+                    cpuStageScheduler);
+        }
+
+        @Bean
+        NdjsonEventReader ndjsonEventReader(ObjectMapper objectMapper) {
+            return new NdjsonEventReader(objectMapper);
+        }
+
+        @Bean
+        CpuStageScheduler cpuStageScheduler(WebhooksProperties webhooksProperties) {
+            return new CpuStageScheduler(webhooksProperties, new SimpleMeterRegistry());
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            // Needed by the admission filter, which the WebFlux slice picks up with the controllers
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        PublishMetrics publishMetrics(WebhooksProperties webhooksProperties) {
+            return new PublishMetrics(new SimpleMeterRegistry(), webhooksProperties);
+        }
+
+        @Bean
+        CompiledSchemaCache compiledSchemaCache(WebhooksProperties webhooksProperties) {
+            return new CompiledSchemaCache(webhooksProperties);
         }
 
         @Bean
         @Primary
-        AvroSchemaValidator avroSchemaValidator() {
-            return new AvroSchemaValidator();
+        AvroBinaryEncoder avroBinaryEncoder(CompiledSchemaCache compiledSchemaCache,
+                                             CpuStageScheduler cpuStageScheduler) {
+            return new AvroBinaryEncoder(compiledSchemaCache, cpuStageScheduler);
         }
 
         @Bean
         @Primary
-        JsonSchemaValidator jsonSchemaValidator() {
-            return new JsonSchemaValidator();
+        JsonSchemaValidator jsonSchemaValidator(CompiledSchemaCache compiledSchemaCache,
+                                                 CpuStageScheduler cpuStageScheduler) {
+            return new JsonSchemaValidator(compiledSchemaCache, cpuStageScheduler);
         }
 
         @Bean
         @Primary
-        FormatConverter formatConverter() {
-            return new FormatConverter();
+        FormatConverter formatConverter(CompiledSchemaCache compiledSchemaCache,
+                                         CpuStageScheduler cpuStageScheduler) {
+            return new FormatConverter(compiledSchemaCache, cpuStageScheduler);
         }
 
         @Bean
         @Primary
         ObjectMapper objectMapper() {
-            return new ObjectMapper();
+            return new ObjectMapper().findAndRegisterModules();
         }
 
         @Bean
@@ -527,22 +825,37 @@ class EventControllerTest {
             return new WebhooksProperties(
                     new WebhooksProperties.DynamoProperties(
                             "event_schema",
-                            "EVENT_IDEMPOTENCY_LEDGER"
+                            "EVENT_IDEMPOTENCY_LEDGER",
+                            null,
+                            null,
+                            null,
+                            null
                     ),
                     new WebhooksProperties.KafkaProperties(
                             "localhost:9092",
                             "wh.ingress",
                             Duration.ofSeconds(30),
                             2,
-                            Duration.ofSeconds(1)
+                            Duration.ofSeconds(1),
+                            null,
+                            null,
+                            null,
+                            null,
+                            null,
+                            null
                     ),
                     new WebhooksProperties.CacheProperties(
                             true,
                             Duration.ofMinutes(5),
                             Duration.ofMinutes(5),
-                            100
+                            100,
+                            null,
+                            null
                     ),
-                    new WebhooksProperties.ValidationProperties(true)
+                    new WebhooksProperties.ValidationProperties(true, null),
+                    null,
+                    null,
+                    null
             );
         }
     }
@@ -0,0 +1,184 @@
+package com.beewaxus.webhooksvcs.pubsrc.converter;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.scheduling.CpuStageScheduler;
+import com.beewaxus.webhooksvcs.pubsrc.schema.CompiledSchemaCache;
+import com.beewaxus.webhooksvcs.pubsrc.validation.SchemaValidationException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AvroBinaryEncoderTest {
+
+    private static final String SCHEMA = """
+            {
+              "type": "record",
+              "name": "CustomerUpdated",
+              "fields": [
+                {"name": "customerId", "type": "string"},
+                {"name": "age", "type": "int"},
+                {"name": "balance", "type": "long"},
+                {"name": "score", "type": "float"},
+                {"name": "rate", "type": "double"},
+                {"name": "active", "type": "boolean"},
+                {"name": "tier", "type": {"type": "enum", "name": "Tier", "symbols": ["BRONZE", "SILVER", "GOLD"]}},
+                {"name": "token", "type": "bytes"},
+                {"name": "code", "type": {"type": "fixed", "name": "Code", "size": 2}},
+                {"name": "address", "type": {"type": "record", "name": "Address", "fields": [
+                  {"name": "city", "type": "string"},
+                  {"name": "zip", "type": "int"}
+                ]}},
+                {"name": "tags", "type": {"type": "array", "items": "string"}},
+                {"name": "limits", "type": {"type": "map", "values": "long"}}
+              ]
+            }
+            """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private AvroBinaryEncoder encoder;
+    private Schema schema;
+
+    @BeforeEach
+    void setUp() {
+        WebhooksProperties properties = new WebhooksProperties(null, null, null, null, null, null, null);
+        encoder = new AvroBinaryEncoder(new CompiledSchemaCache(properties),
+                new CpuStageScheduler(properties, new SimpleMeterRegistry()));
+        schema = new Schema.Parser().parse(SCHEMA);
+    }
+
+    @Test
+    void encode_TypedPayload_MatchesDecodeThenSerialize() throws Exception {
+        String payload = """
+                {"customerId": "cust-1", "age": 42, "balance": 9000000000, "score": 1.1, "rate": 0.25,
+                 "active": true, "tier": "GOLD", "token": "\\u00ffab", "code": "AZ",
+                 "address": {"city": "Zürich", "zip": 8001},
+                 "tags": ["a", "b", "c"],
+                 "limits": {"daily": 10, "weekly": 70, "monthly": 300, "yearly": 3650, "x": 1, "yy": 2}}
+                """;
+
+        assertArrayEquals(decodeThenSerialize(payload), encoder.encode(objectMapper.readTree(payload), schema));
+    }
+
+    @Test
+    void encode_StringlyTypedPayload_IsCoercedLikeTypedPayload() throws Exception {
+        String typed = """
+                {"customerId": "123", "age": 42, "balance": 7, "score": 1.5, "rate": 2.75, "active": true,
+                 "tier": "SILVER", "token": "", "code": "AZ", "address": {"city": "Bern", "zip": 3000},
+                 "tags": [], "limits": {}}
+                """;
+        // What the XML converter hands over: every scalar as text
+        String stringly = """
+                {"customerId": 123, "age": "42", "balance": "7", "score": "1.5", "rate": "2.75", "active": "true",
+                 "tier": "SILVER", "token": "", "code": "AZ", "address": {"city": "Bern", "zip": "3000"},
+                 "tags": [], "limits": {}, "ignored": "extra"}
+                """;
+
+        assertArrayEquals(decodeThenSerialize(typed), encoder.encode(objectMapper.readTree(stringly), schema));
+    }
+
+    @Test
+    void encode_NullableUnion_WritesSelectedBranch() throws Exception {
+        Schema unionSchema = new Schema.Parser().parse("""
+                {"type": "record", "name": "Order", "fields": [
+                  {"name": "id", "type": "string"},
+                  {"name": "note", "type": ["null", "string"], "default": null},
+                  {"name": "qty", "type": ["null", "int"], "default": null}
+                ]}
+                """);
+
+        // Avro's own JSON encoding wraps union values with the branch name
+        byte[] expected = decodeThenSerialize(unionSchema, """
+                {"id": "o-1", "note": null, "qty": {"int": 3}}
+                """);
+
+        assertArrayEquals(expected, encoder.encode(objectMapper.readTree("{\"id\": \"o-1\", \"qty\": \"3\"}"), unionSchema));
+        assertArrayEquals(expected, encoder.encode(objectMapper.readTree("{\"id\": \"o-1\", \"note\": null, \"qty\": 3}"), unionSchema));
+    }
+
+    @Test
+    void encode_MissingFieldWithDefault_WritesTheDefault() throws Exception {
+        Schema defaultsSchema = new Schema.Parser().parse("""
+                {"type": "record", "name": "Order", "fields": [
+                  {"name": "id", "type": "string"},
+                  {"name": "qty", "type": "int", "default": 1},
+                  {"name": "channel", "type": "string", "default": "web"},
+                  {"name": "tier", "type": {"type": "enum", "name": "Tier", "symbols": ["BRONZE", "GOLD"]}, "default": "GOLD"},
+                  {"name": "token", "type": "bytes", "default": "\\u00ff"},
+                  {"name": "shipTo", "type": {"type": "record", "name": "ShipTo", "fields": [
+                    {"name": "zip", "type": "int"}
+                  ]}, "default": {"zip": 8001}}
+                ]}
+                """);
+
+        byte[] expected = decodeThenSerialize(defaultsSchema, """
+                {"id": "o-1", "qty": 1, "channel": "web", "tier": "GOLD", "token": "\\u00ff", "shipTo": {"zip": 8001}}
+                """);
+
+        assertArrayEquals(expected, encoder.encode(objectMapper.readTree("{\"id\": \"o-1\"}"), defaultsSchema));
+    }
+
+    @Test
+    void encode_MissingNestedField_ReportsFieldPath() throws Exception {
+        String payload = """
+                {"customerId": "cust-1", "age": 42, "balance": 1, "score": 1.0, "rate": 1.0, "active": true,
+                 "tier": "GOLD", "token": "", "code": "AZ", "address": {"city": "Bern"}, "tags": [], "limits": {}}
+                """;
+
+        SchemaValidationException ex = assertThrows(SchemaValidationException.class,
+                () -> encoder.encode(objectMapper.readTree(payload), schema));
+        assertTrue(ex.getMessage().contains("$.address.zip"), ex.getMessage());
+    }
+
+    @Test
+    void encode_UnknownEnumSymbol_ReportsFieldPath() throws Exception {
+        String payload = """
+                {"customerId": "cust-1", "age": 42, "balance": 1, "score": 1.0, "rate": 1.0, "active": true,
+                 "tier": "PLATINUM", "token": "", "code": "AZ", "address": {"city": "Bern", "zip": 3000},
+                 "tags": [], "limits": {}}
+                """;
+
+        SchemaValidationException ex = assertThrows(SchemaValidationException.class,
+                () -> encoder.encode(objectMapper.readTree(payload), schema));
+        assertTrue(ex.getMessage().contains("$.tier"), ex.getMessage());
+    }
+
+    @Test
+    void encode_ReusesBufferWithoutLeakingPreviousPayload() throws Exception {
+        Schema small = new Schema.Parser().parse(
+                "{\"type\":\"record\",\"name\":\"Small\",\"fields\":[{\"name\":\"id\",\"type\":\"string\"}]}");
+        String large = "{\"id\":\"" + "x".repeat(4096) + "\"}";
+
+        encoder.encode(objectMapper.readTree(large), small);
+        byte[] bytes = encoder.encode(objectMapper.readTree("{\"id\":\"a\"}"), small);
+
+        assertArrayEquals(decodeThenSerialize(small, "{\"id\":\"a\"}"), bytes);
+    }
+
+    private byte[] decodeThenSerialize(String json) throws Exception {
+        return decodeThenSerialize(schema, json);
+    }
+
+    private static byte[] decodeThenSerialize(Schema schema, String json) throws Exception {
+        GenericRecord record = new GenericDatumReader<GenericRecord>(schema)
+                .read(null, DecoderFactory.get().jsonDecoder(schema, json));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryEncoder binaryEncoder = EncoderFactory.get().binaryEncoder(out, null);
+        new GenericDatumWriter<GenericRecord>(schema).write(record, binaryEncoder);
+        binaryEncoder.flush();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,38 @@
+package com.beewaxus.webhooksvcs.pubsrc.converter;
+
+import org.apache.avro.Schema;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AvroEncodeBufferTest {
+
+    private static final String RECORD = "{\"type\":\"record\",\"name\":\"Event\",\"fields\":[{\"name\":\"id\",\"type\":\"string\"}]}";
+
+    @Test
+    void encode_ReturnsArraysThatLaterWritesDoNotTouch() throws Exception {
+        Schema schema = new Schema.Parser().parse(RECORD);
+
+        byte[] first = AvroEncodeBuffer.encode(schema, encoder -> encoder.writeString("first"));
+        byte[] copy = first.clone();
+        AvroEncodeBuffer.encode(schema, encoder -> encoder.writeString("second-and-longer"));
+
+        assertArrayEquals(copy, first);
+    }
+
+    @Test
+    void encode_OutlierPayload_DoesNotStayOnTheThread() throws Exception {
+        Schema schema = new Schema.Parser().parse(RECORD);
+        for (int i = 0; i < 20; i++) {
+            AvroEncodeBuffer.encode(schema, encoder -> encoder.writeString("small"));
+        }
+
+        byte[] outlier = "x".repeat(256 * 1024).getBytes(StandardCharsets.UTF_8);
+        AvroEncodeBuffer.encode(schema, encoder -> encoder.writeBytes(outlier));
+
+        assertTrue(AvroEncodeBuffer.retainedCapacity() < 64 * 1024, "capacity " + AvroEncodeBuffer.retainedCapacity());
+    }
+}
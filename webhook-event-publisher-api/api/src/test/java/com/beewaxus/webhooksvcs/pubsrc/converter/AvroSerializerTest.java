@@ -1,5 +1,9 @@
 package com.beewaxus.webhooksvcs.pubsrc.converter;
 
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.scheduling.CpuStageScheduler;
+import com.beewaxus.webhooksvcs.pubsrc.schema.CompiledSchemaCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericRecord;
@@ -16,7 +20,9 @@ class AvroSerializerTest {
 
     @BeforeEach
     void setUp() {
-        avroSerializer = new AvroSerializer();
+        WebhooksProperties properties = new WebhooksProperties(null, null, null, null, null, null, null);
+        avroSerializer = new AvroSerializer(new CompiledSchemaCache(properties),
+                new CpuStageScheduler(properties, new SimpleMeterRegistry()));
         
         // Create a simple test schema
         String schemaJson = """
@@ -0,0 +1,152 @@
+package com.beewaxus.webhooksvcs.pubsrc.converter;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.scheduling.CpuStageScheduler;
+import com.beewaxus.webhooksvcs.pubsrc.schema.CompiledSchemaCache;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaDefinition;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaFormatType;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FormatConverterTest {
+
+    private static final String AVRO_SCHEMA = """
+            {
+              "type": "record",
+              "name": "OrderPlaced",
+              "fields": [
+                {"name": "orderId", "type": "string"},
+                {"name": "quantity", "type": "int"},
+                {"name": "total", "type": "double"},
+                {"name": "express", "type": "boolean"},
+                {"name": "note", "type": ["null", "long"], "default": null},
+                {"name": "tags", "type": {"type": "array", "items": "string"}},
+                {"name": "lines", "type": {"type": "array", "items": {"type": "record", "name": "Line", "fields": [
+                  {"name": "sku", "type": "string"},
+                  {"name": "units", "type": "int"}
+                ]}}},
+                {"name": "codes", "type": {"type": "array", "items": "int"}}
+              ]
+            }
+            """;
+
+    private static final String JSON_SCHEMA = """
+            {
+              "type": "object",
+              "definitions": {
+                "line": {"type": "object", "properties": {"sku": {"type": "string"}, "units": {"type": "integer"}}}
+              },
+              "properties": {
+                "orderId": {"type": "string"},
+                "total": {"type": "number"},
+                "express": {"type": ["boolean", "null"]},
+                "lines": {"type": "array", "items": {"$ref": "#/definitions/line"}},
+                "customer": {"type": "object", "properties": {"id": {"type": "integer"}, "vip": {"type": "boolean"}}}
+              }
+            }
+            """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final WebhooksProperties properties = new WebhooksProperties(null, null, null, null, null, null, null);
+    private final FormatConverter converter = new FormatConverter(new CompiledSchemaCache(properties),
+            new CpuStageScheduler(properties, new SimpleMeterRegistry()));
+
+    @Test
+    void xmlToJson_AvroSchema_TypesValuesAndBuildsArrays() throws Exception {
+        String xml = """
+                <order>
+                  <orderId>0042</orderId>
+                  <quantity>3</quantity>
+                  <total>19.90</total>
+                  <express>true</express>
+                  <note/>
+                  <tags>gift</tags>
+                  <lines><sku>A-1</sku><units>2</units></lines>
+                  <lines><sku>B-2</sku><units>1</units></lines>
+                  <codes><code>7</code><code>8</code></codes>
+                </order>
+                """;
+
+        JsonNode json = converter.xmlToJson(bytes(xml), definition(SchemaFormatType.AVRO_SCHEMA)).block();
+
+        // A single <tags> is still an array, repeated <lines> are one array, <codes> wraps its items
+        assertEquals(objectMapper.readTree("""
+                {"orderId":"0042","quantity":3,"total":19.9,"express":true,"note":null,"tags":["gift"],
+                 "lines":[{"sku":"A-1","units":2},{"sku":"B-2","units":1}],"codes":[7,8]}
+                """), json);
+    }
+
+    @Test
+    void xmlToJson_JsonSchema_FollowsRefsAndReadsAttributes() throws Exception {
+        String xml = """
+                <order orderId="o-1">
+                  <total>5</total>
+                  <express/>
+                  <lines><line><sku>A-1</sku><units>2</units></line></lines>
+                  <customer vip="false"><id>77</id></customer>
+                </order>
+                """;
+
+        JsonNode json = converter.xmlToJson(bytes(xml), definition(SchemaFormatType.JSON_SCHEMA)).block();
+
+        assertEquals(objectMapper.readTree("""
+                {"orderId":"o-1","total":5,"express":null,"lines":[{"sku":"A-1","units":2}],
+                 "customer":{"vip":false,"id":77}}
+                """), json);
+    }
+
+    @Test
+    void xmlToJson_ValueNotMatchingTheSchema_IsLeftAsTextForTheValidator() throws Exception {
+        String xml = "<order><orderId>o-1</orderId><quantity>three</quantity></order>";
+
+        JsonNode json = converter.xmlToJson(bytes(xml), definition(SchemaFormatType.AVRO_SCHEMA)).block();
+
+        assertEquals("three", json.get("quantity").textValue());
+    }
+
+    @Test
+    void xmlToJson_WithoutSchema_MatchesXmlMapper() throws Exception {
+        String xml = """
+                <event id="e-1">
+                  <customerId>123</customerId>
+                  <tag>a</tag>
+                  <tag>b</tag>
+                  <address><city>Springfield</city><zip>12345</zip></address>
+                </event>
+                """;
+
+        assertEquals(new XmlMapper().readTree(xml), converter.xmlToJson(bytes(xml)));
+    }
+
+    @Test
+    void xmlToJson_MalformedOrWithDoctype_Fails() {
+        assertThrows(IOException.class, () -> converter.xmlToJson(bytes("<event><customerId>")));
+        assertThrows(IOException.class, () -> converter.xmlToJson(bytes(
+                "<!DOCTYPE event [<!ENTITY x SYSTEM \"file:///etc/passwd\">]><event>&x;</event>")));
+
+        StepVerifier.create(converter.xmlToJson(bytes("<order>"), definition(SchemaFormatType.AVRO_SCHEMA)))
+                .expectError(IOException.class)
+                .verify();
+    }
+
+    private static SchemaDefinition definition(SchemaFormatType formatType) {
+        return new SchemaDefinition(new SchemaReference("orders", "OrderPlaced", formatType.name()),
+                JSON_SCHEMA, AVRO_SCHEMA, formatType, true, Instant.parse("2025-01-01T00:00:00Z"), null);
+    }
+
+    private static byte[] bytes(String xml) {
+        return xml.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,77 @@
+package com.beewaxus.webhooksvcs.pubsrc.converter;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.metrics.PublishMetrics;
+import com.beewaxus.webhooksvcs.pubsrc.scheduling.CpuStageScheduler;
+import com.beewaxus.webhooksvcs.pubsrc.schema.CompiledSchemaCache;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.util.MimeType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonNodeDecoderTest {
+
+    private static final ResolvableType OBJECT = ResolvableType.forClass(Object.class);
+    private static final ResolvableType JSON_NODE = ResolvableType.forClass(JsonNode.class);
+
+    private static final WebhooksProperties PROPERTIES = new WebhooksProperties(null, null, null, null, null, null, null);
+
+    private final JsonNodeDecoder decoder = new JsonNodeDecoder(new ObjectMapper(),
+            new FormatConverter(new CompiledSchemaCache(PROPERTIES), new CpuStageScheduler(PROPERTIES, new SimpleMeterRegistry())),
+            new PublishMetrics(new SimpleMeterRegistry(), PROPERTIES));
+
+    @Test
+    void canDecode_OnlyObjectOrJsonNodeWithSupportedContentType() {
+        assertTrue(decoder.canDecode(OBJECT, MimeType.valueOf("application/json")));
+        assertTrue(decoder.canDecode(ResolvableType.forClass(JsonNode.class), MimeType.valueOf("application/avro")));
+        assertFalse(decoder.canDecode(ResolvableType.forClass(Map.class), MimeType.valueOf("application/json")));
+        assertFalse(decoder.canDecode(OBJECT, MimeType.valueOf("text/plain")));
+        // Without a Content-Type it must not claim Object, or WebFlux would order it after the Jackson decoder
+        assertFalse(decoder.canDecode(OBJECT, null));
+    }
+
+    @Test
+    void decode_JsonAndXml_ProduceTheSameTree() {
+        JsonNode fromJson = (JsonNode) decode("{\"customerId\":\"123\",\"status\":\"ACTIVE\"}", "application/json", OBJECT);
+        JsonNode fromXml = (JsonNode) decode("<event><customerId>123</customerId><status>ACTIVE</status></event>",
+                "application/xml", JSON_NODE);
+
+        assertEquals("123", fromJson.get("customerId").asText());
+        assertEquals(fromJson, fromXml);
+    }
+
+    @Test
+    void decode_XmlAsObject_IsKeptForTheSchemaDirectedConversion() {
+        String xml = "<event><customerId>123</customerId></event>";
+
+        Object decoded = decode(xml, "application/xml", OBJECT);
+
+        assertInstanceOf(XmlPayload.class, decoded);
+        assertArrayEquals(xml.getBytes(StandardCharsets.UTF_8), ((XmlPayload) decoded).bytes());
+    }
+
+    @Test
+    void decode_MalformedPayload_ThrowsDecodingException() {
+        assertThrows(DecodingException.class, () -> decode("{\"customerId\":", "application/json", OBJECT));
+        assertThrows(DecodingException.class, () -> decode("<event><customerId>", "application/xml", JSON_NODE));
+    }
+
+    private Object decode(String body, String contentType, ResolvableType targetType) {
+        return decoder.decode(DefaultDataBufferFactory.sharedInstance.wrap(body.getBytes(StandardCharsets.UTF_8)),
+                targetType, MimeType.valueOf(contentType), Map.of());
+    }
+}
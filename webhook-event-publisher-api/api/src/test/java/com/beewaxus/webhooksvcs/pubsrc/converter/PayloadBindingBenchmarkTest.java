@@ -0,0 +1,73 @@
+package com.beewaxus.webhooksvcs.pubsrc.converter;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.metrics.PublishMetrics;
+import com.beewaxus.webhooksvcs.pubsrc.scheduling.CpuStageScheduler;
+import com.beewaxus.webhooksvcs.pubsrc.schema.CompiledSchemaCache;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.util.MimeType;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Compares bytes allocated per event by the old publish-path binding (body to Map, Map to String, String to JsonNode)
+ * with decoding the body straight to a JsonNode. Runs on demand:
+ * <pre>
+ * mvn test -Dtest=PayloadBindingBenchmarkTest -Dpayload.benchmark=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "payload.benchmark", matches = "true")
+class PayloadBindingBenchmarkTest {
+
+    private static final int WARMUP = 20_000;
+    private static final int EVENTS = 100_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final WebhooksProperties properties = new WebhooksProperties(null, null, null, null, null, null, null);
+    private final JsonNodeDecoder decoder = new JsonNodeDecoder(objectMapper,
+            new FormatConverter(new CompiledSchemaCache(properties), new CpuStageScheduler(properties, new SimpleMeterRegistry())),
+            new PublishMetrics(new SimpleMeterRegistry(), properties));
+    private final MimeType json = MimeType.valueOf("application/json");
+    private final byte[] body = ("{\"customerId\":\"c-123456\",\"status\":\"ACTIVE\",\"age\":42,\"tags\":[\"a\",\"b\",\"c\"],"
+            + "\"address\":{\"street\":\"1 Main St\",\"city\":\"Springfield\",\"zip\":\"12345\"},\"score\":98.6}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void bytesAllocatedPerEvent_RoundTripVersusDirectDecode() throws Exception {
+        Callable<JsonNode> roundTrip = () -> {
+            Map<?, ?> bound = objectMapper.readValue(body, Map.class);
+            return objectMapper.readTree(objectMapper.writeValueAsString(bound));
+        };
+        Callable<JsonNode> direct = () -> (JsonNode) decoder.decode(DefaultDataBufferFactory.sharedInstance.wrap(body),
+                ResolvableType.forClass(Object.class), json, Map.of());
+
+        report("Map -> String -> JsonNode", roundTrip);
+        report("bytes -> JsonNode        ", direct);
+    }
+
+    private static void report(String name, Callable<JsonNode> binding) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            binding.call();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < EVENTS; i++) {
+            binding.call();
+        }
+        long nanos = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+        System.out.printf("%s | %,8d bytes/event | %6.2f us/event%n",
+                name, allocated / EVENTS, nanos / 1_000.0 / EVENTS);
+    }
+}
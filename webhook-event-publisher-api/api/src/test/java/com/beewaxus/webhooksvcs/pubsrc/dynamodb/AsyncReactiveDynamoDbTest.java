@@ -0,0 +1,50 @@
+package com.beewaxus.webhooksvcs.pubsrc.dynamodb;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AsyncReactiveDynamoDbTest {
+
+    private final DynamoDbAsyncClient dynamoDbAsyncClient = Mockito.mock(DynamoDbAsyncClient.class);
+    private final AsyncReactiveDynamoDb dynamoDb = new AsyncReactiveDynamoDb(dynamoDbAsyncClient);
+
+    @Test
+    void getItem_IsNotSentUntilSubscribed() {
+        GetItemResponse response = GetItemResponse.builder()
+                .item(Map.of("PK", AttributeValue.builder().s("SCHEMA_0001").build()))
+                .build();
+        when(dynamoDbAsyncClient.getItem(any(GetItemRequest.class))).thenReturn(CompletableFuture.completedFuture(response));
+
+        var getItem = dynamoDb.getItem(GetItemRequest.builder().tableName("event_schema").build());
+        verify(dynamoDbAsyncClient, never()).getItem(any(GetItemRequest.class));
+
+        StepVerifier.create(getItem)
+                .expectNext(response)
+                .verifyComplete();
+    }
+
+    @Test
+    void getItem_FailedFuture_SignalsUnwrappedSdkException() {
+        when(dynamoDbAsyncClient.getItem(any(GetItemRequest.class))).thenReturn(CompletableFuture.failedFuture(
+                new CompletionException(ResourceNotFoundException.builder().message("missing").build())));
+
+        StepVerifier.create(dynamoDb.getItem(GetItemRequest.builder().tableName("event_schema").build()))
+                .expectError(ResourceNotFoundException.class)
+                .verify();
+    }
+}
@@ -0,0 +1,110 @@
+package com.beewaxus.webhooksvcs.pubsrc.dynamodb;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import reactor.core.publisher.Flux;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Compares request-path throughput of the blocking client on bounded elastic with the async Netty client
+ * at increasing concurrency. Needs a running DynamoDB Local and is skipped otherwise:
+ * <pre>
+ * docker run -p 8000:8000 amazon/dynamodb-local -jar DynamoDBLocal.jar -inMemory
+ * mvn test -Dtest=DynamoClientModeBenchmarkTest -Ddynamodb.benchmark.endpoint=http://localhost:8000
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "dynamodb.benchmark.endpoint", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class DynamoClientModeBenchmarkTest {
+
+    private static final String TABLE = "client_mode_benchmark";
+    private static final int REQUESTS = 20_000;
+    private static final int MAX_CONNECTIONS = 200;
+
+    private DynamoDbClient dynamoDbClient;
+    private DynamoDbAsyncClient dynamoDbAsyncClient;
+
+    @BeforeAll
+    void connect() {
+        URI endpoint = URI.create(System.getProperty("dynamodb.benchmark.endpoint"));
+        StaticCredentialsProvider credentials = StaticCredentialsProvider.create(AwsBasicCredentials.create("dummy", "dummy"));
+        dynamoDbClient = DynamoDbClient.builder()
+                .endpointOverride(endpoint)
+                .credentialsProvider(credentials)
+                .region(Region.US_EAST_1)
+                .httpClientBuilder(ApacheHttpClient.builder().maxConnections(MAX_CONNECTIONS))
+                .build();
+        dynamoDbAsyncClient = DynamoDbAsyncClient.builder()
+                .endpointOverride(endpoint)
+                .credentialsProvider(credentials)
+                .region(Region.US_EAST_1)
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder().maxConcurrency(MAX_CONNECTIONS))
+                .build();
+
+        dynamoDbClient.createTable(request -> request
+                .tableName(TABLE)
+                .billingMode(BillingMode.PAY_PER_REQUEST)
+                .attributeDefinitions(AttributeDefinition.builder().attributeName("PK").attributeType(ScalarAttributeType.S).build())
+                .keySchema(KeySchemaElement.builder().attributeName("PK").keyType(KeyType.HASH).build()));
+        dynamoDbClient.putItem(request -> request.tableName(TABLE).item(Map.of(
+                "PK", AttributeValue.builder().s("SCHEMA_0001").build(),
+                "EVENT_SCHEMA_DEFINITION", AttributeValue.builder().s("{\"type\":\"object\"}").build())));
+    }
+
+    @AfterAll
+    void close() {
+        dynamoDbClient.deleteTable(request -> request.tableName(TABLE));
+        dynamoDbClient.close();
+        dynamoDbAsyncClient.close();
+    }
+
+    @ParameterizedTest(name = "concurrency {0}")
+    @ValueSource(ints = {16, 64, 256})
+    void getItemThroughput_BlockingVersusAsync(int concurrency) {
+        report("blocking", concurrency, new BlockingReactiveDynamoDb(dynamoDbClient));
+        report("async   ", concurrency, new AsyncReactiveDynamoDb(dynamoDbAsyncClient));
+    }
+
+    private void report(String mode, int concurrency, ReactiveDynamoDb dynamoDb) {
+        GetItemRequest request = GetItemRequest.builder()
+                .tableName(TABLE)
+                .key(Map.of("PK", AttributeValue.builder().s("SCHEMA_0001").build()))
+                .build();
+
+        // Warm up connections and JIT before measuring
+        run(dynamoDb, request, concurrency, 1_000);
+        long start = System.nanoTime();
+        run(dynamoDb, request, concurrency, REQUESTS);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        System.out.printf("%s | concurrency %4d | %,8.0f req/s | %d requests in %d ms%n",
+                mode, concurrency, REQUESTS / (elapsed.toNanos() / 1e9), REQUESTS, elapsed.toMillis());
+    }
+
+    private static void run(ReactiveDynamoDb dynamoDb, GetItemRequest request, int concurrency, int requests) {
+        Flux.range(0, requests)
+                .flatMap(i -> dynamoDb.getItem(request), concurrency)
+                .blockLast();
+    }
+}
@@ -0,0 +1,186 @@
+package com.beewaxus.webhooksvcs.pubsrc.ledger;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.dynamodb.ReactiveDynamoDb;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.InternalServerErrorException;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyKeyServiceTest {
+
+    private ReactiveDynamoDb dynamoDb;
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotencyKeyService idempotencyKeyService;
+
+    @BeforeEach
+    void setUp() {
+        dynamoDb = Mockito.mock(ReactiveDynamoDb.class);
+        meterRegistry = new SimpleMeterRegistry();
+        WebhooksProperties properties = new WebhooksProperties(
+                new WebhooksProperties.DynamoProperties("event_schema", "EVENT_IDEMPOTENCY_LEDGER", null, null, null, null),
+                null,
+                null,
+                null,
+                new WebhooksProperties.LedgerProperties(null, null, null, null, null, null, null, true, Duration.ofHours(1), 100, null,
+                        Duration.ofSeconds(30)),
+                null,
+                null
+        );
+        idempotencyKeyService = new IdempotencyKeyService(dynamoDb, properties, meterRegistry);
+    }
+
+    @Test
+    void claim_NewKey_WritesInProgressClaimWithLeaseAndCompletesEmpty() {
+        when(dynamoDb.putItem(any(PutItemRequest.class))).thenReturn(Mono.just(PutItemResponse.builder().build()));
+
+        StepVerifier.create(idempotencyKeyService.claim("orders", "idem-1", "evt-1"))
+                .verifyComplete();
+
+        ArgumentCaptor<PutItemRequest> request = ArgumentCaptor.forClass(PutItemRequest.class);
+        verify(dynamoDb).putItem(request.capture());
+        Map<String, AttributeValue> item = request.getValue().item();
+        assertEquals("IDEMPOTENCY_KEY#orders#idem-1", item.get("EVENT_ID").s());
+        assertEquals("evt-1", item.get("CLAIMED_EVENT_ID").s());
+        assertEquals("IN_PROGRESS", item.get("CLAIM_STATUS").s());
+        // The lease, not the dedupe window, until the publish completes
+        long expiresAt = Long.parseLong(item.get("EXPIRES_AT").n());
+        assertTrue(expiresAt > Instant.now().plus(Duration.ofSeconds(29)).getEpochSecond());
+        assertTrue(expiresAt <= Instant.now().plus(Duration.ofSeconds(31)).getEpochSecond());
+    }
+
+    @Test
+    void claim_KeyClaimedOnAnotherNode_ReturnsOriginalEventIdAndCachesIt() {
+        when(dynamoDb.putItem(any(PutItemRequest.class)))
+                .thenReturn(Mono.error(ConditionalCheckFailedException.builder().message("exists").build()));
+        when(dynamoDb.getItem(any(GetItemRequest.class))).thenReturn(Mono.just(GetItemResponse.builder()
+                .item(Map.of(
+                        "CLAIMED_EVENT_ID", AttributeValue.builder().s("evt-original").build(),
+                        "CLAIM_STATUS", AttributeValue.builder().s("COMPLETED").build()))
+                .build()));
+
+        StepVerifier.create(idempotencyKeyService.claim("orders", "idem-1", "evt-retry"))
+                .expectNext("evt-original")
+                .verifyComplete();
+        StepVerifier.create(idempotencyKeyService.claim("orders", "idem-1", "evt-retry-2"))
+                .expectNext("evt-original")
+                .verifyComplete();
+
+        verify(dynamoDb, times(1)).putItem(any(PutItemRequest.class));
+        assertEquals(2.0, meterRegistry.get("webhooks.idempotency.duplicates").counter().count());
+    }
+
+    @Test
+    void claim_KeyStillInProgress_FailsWithRetryAfterAndIsNotCached() {
+        when(dynamoDb.putItem(any(PutItemRequest.class)))
+                .thenReturn(Mono.error(ConditionalCheckFailedException.builder().message("exists").build()));
+        when(dynamoDb.getItem(any(GetItemRequest.class))).thenReturn(Mono.just(GetItemResponse.builder()
+                .item(Map.of(
+                        "CLAIMED_EVENT_ID", AttributeValue.builder().s("evt-original").build(),
+                        "CLAIM_STATUS", AttributeValue.builder().s("IN_PROGRESS").build(),
+                        "EXPIRES_AT", AttributeValue.builder().n(Long.toString(Instant.now().getEpochSecond() + 30)).build()))
+                .build()));
+
+        StepVerifier.create(idempotencyKeyService.claim("orders", "idem-1", "evt-retry"))
+                .expectErrorSatisfies(error -> assertEquals(Duration.ofSeconds(1),
+                        ((IdempotencyKeyInProgressException) error).retryAfter()))
+                .verify();
+        StepVerifier.create(idempotencyKeyService.claim("orders", "idem-1", "evt-retry-2"))
+                .expectError(IdempotencyKeyInProgressException.class)
+                .verify();
+
+        verify(dynamoDb, times(2)).putItem(any(PutItemRequest.class));
+        assertEquals(2.0, meterRegistry.get("webhooks.idempotency.in_progress").counter().count());
+    }
+
+    @Test
+    void claim_BlockingClaimReleasedBeforeItIsRead_ClaimsAgain() {
+        when(dynamoDb.putItem(any(PutItemRequest.class)))
+                .thenReturn(Mono.error(ConditionalCheckFailedException.builder().message("exists").build()))
+                .thenReturn(Mono.just(PutItemResponse.builder().build()));
+        when(dynamoDb.getItem(any(GetItemRequest.class))).thenReturn(Mono.just(GetItemResponse.builder().build()));
+
+        StepVerifier.create(idempotencyKeyService.claim("orders", "idem-1", "evt-retry"))
+                .verifyComplete();
+
+        verify(dynamoDb, times(2)).putItem(any(PutItemRequest.class));
+    }
+
+    @Test
+    void complete_MarksClaimCompletedForTheWindowAndCachesIt() {
+        when(dynamoDb.putItem(any(PutItemRequest.class))).thenReturn(Mono.just(PutItemResponse.builder().build()));
+
+        StepVerifier.create(idempotencyKeyService.complete("orders", "idem-1", "evt-1"))
+                .verifyComplete();
+        StepVerifier.create(idempotencyKeyService.claim("orders", "idem-1", "evt-retry"))
+                .expectNext("evt-1")
+                .verifyComplete();
+
+        ArgumentCaptor<PutItemRequest> request = ArgumentCaptor.forClass(PutItemRequest.class);
+        verify(dynamoDb, times(1)).putItem(request.capture());
+        assertEquals("COMPLETED", request.getValue().item().get("CLAIM_STATUS").s());
+        assertEquals("CLAIMED_EVENT_ID = :eventId", request.getValue().conditionExpression());
+        long expiresAt = Long.parseLong(request.getValue().item().get("EXPIRES_AT").n());
+        assertTrue(expiresAt > Instant.now().plus(Duration.ofMinutes(59)).getEpochSecond());
+    }
+
+    @Test
+    void release_OnlyDeletesAClaimStillInProgressForThisEvent() {
+        when(dynamoDb.deleteItem(any(DeleteItemRequest.class)))
+                .thenReturn(Mono.error(ConditionalCheckFailedException.builder().message("completed").build()));
+
+        StepVerifier.create(idempotencyKeyService.release("orders", "idem-1", "evt-1"))
+                .verifyComplete();
+
+        ArgumentCaptor<DeleteItemRequest> request = ArgumentCaptor.forClass(DeleteItemRequest.class);
+        verify(dynamoDb).deleteItem(request.capture());
+        assertEquals("CLAIMED_EVENT_ID = :eventId AND CLAIM_STATUS = :inProgress", request.getValue().conditionExpression());
+    }
+
+    @Test
+    void claim_SameKeyFromAnotherDomain_IsClaimedSeparately() {
+        when(dynamoDb.putItem(any(PutItemRequest.class))).thenReturn(Mono.just(PutItemResponse.builder().build()));
+
+        StepVerifier.create(idempotencyKeyService.claim("orders", "idem-1", "evt-1"))
+                .verifyComplete();
+        StepVerifier.create(idempotencyKeyService.claim("billing", "idem-1", "evt-2"))
+                .verifyComplete();
+
+        ArgumentCaptor<PutItemRequest> request = ArgumentCaptor.forClass(PutItemRequest.class);
+        verify(dynamoDb, times(2)).putItem(request.capture());
+        assertEquals("IDEMPOTENCY_KEY#billing#idem-1", request.getAllValues().get(1).item().get("EVENT_ID").s());
+    }
+
+    @Test
+    void claim_LedgerUnavailable_LetsRequestThrough() {
+        when(dynamoDb.putItem(any(PutItemRequest.class)))
+                .thenReturn(Mono.error(InternalServerErrorException.builder().message("boom").build()));
+
+        StepVerifier.create(idempotencyKeyService.claim("orders", "idem-1", "evt-1"))
+                .verifyComplete();
+
+        assertEquals(1.0, meterRegistry.get("webhooks.idempotency.unchecked").counter().count());
+    }
+}
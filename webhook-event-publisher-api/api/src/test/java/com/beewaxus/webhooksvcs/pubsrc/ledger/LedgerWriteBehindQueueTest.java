@@ -0,0 +1,139 @@
+package com.beewaxus.webhooksvcs.pubsrc.ledger;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.dynamodb.ReactiveDynamoDb;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LedgerWriteBehindQueueTest {
+
+    private static final String TABLE = "EVENT_IDEMPOTENCY_LEDGER";
+
+    private final ReactiveDynamoDb dynamoDb = Mockito.mock(ReactiveDynamoDb.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private LedgerWriteBehindQueue queue;
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    @Test
+    void flush_SameEventIdInOneWindow_WritesOnlyTheLastStatus() {
+        queue = newQueue(100, WebhooksProperties.LedgerProperties.OverflowPolicy.DROP);
+        when(dynamoDb.batchWriteItem(any(BatchWriteItemRequest.class))).thenReturn(Mono.just(BatchWriteItemResponse.builder().build()));
+
+        queue.enqueue("evt-1", item("evt-1", "EVENT_READY_FOR_PROCESSING")).block();
+        queue.enqueue("evt-2", item("evt-2", "EVENT_READY_FOR_DELIVERY")).block();
+        queue.enqueue("evt-1", item("evt-1", "EVENT_DELIVERY_FAILED")).block();
+
+        StepVerifier.create(queue.flush()).verifyComplete();
+
+        ArgumentCaptor<BatchWriteItemRequest> request = ArgumentCaptor.forClass(BatchWriteItemRequest.class);
+        verify(dynamoDb).batchWriteItem(request.capture());
+        List<WriteRequest> writes = request.getValue().requestItems().get(TABLE);
+        assertEquals(2, writes.size());
+        assertEquals("EVENT_DELIVERY_FAILED", writes.get(0).putRequest().item().get("EVENT_STATUS").s());
+        assertEquals(1.0, meterRegistry.get("webhooks.ledger.writes").tag("outcome", "coalesced").counter().count());
+    }
+
+    @Test
+    void flush_UnprocessedItems_RetriesOnlyThoseItems() {
+        queue = newQueue(100, WebhooksProperties.LedgerProperties.OverflowPolicy.DROP);
+        WriteRequest unprocessed = WriteRequest.builder()
+                .putRequest(request -> request.item(item("evt-2", "EVENT_READY_FOR_DELIVERY")))
+                .build();
+        when(dynamoDb.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(Mono.just(BatchWriteItemResponse.builder().unprocessedItems(Map.of(TABLE, List.of(unprocessed))).build()))
+                .thenReturn(Mono.just(BatchWriteItemResponse.builder().build()));
+
+        queue.enqueue("evt-1", item("evt-1", "EVENT_READY_FOR_DELIVERY")).block();
+        queue.enqueue("evt-2", item("evt-2", "EVENT_READY_FOR_DELIVERY")).block();
+
+        StepVerifier.create(queue.flush()).verifyComplete();
+
+        ArgumentCaptor<BatchWriteItemRequest> request = ArgumentCaptor.forClass(BatchWriteItemRequest.class);
+        verify(dynamoDb, times(2)).batchWriteItem(request.capture());
+        assertEquals(List.of(unprocessed), request.getAllValues().get(1).requestItems().get(TABLE));
+        assertEquals(0.0, meterRegistry.get("webhooks.ledger.writes").tag("outcome", "failed").counter().count());
+    }
+
+    @Test
+    void enqueue_QueueFullWithDropPolicy_CountsAndDiscardsWrite() {
+        queue = newQueue(1, WebhooksProperties.LedgerProperties.OverflowPolicy.DROP);
+        when(dynamoDb.batchWriteItem(any(BatchWriteItemRequest.class))).thenReturn(Mono.just(BatchWriteItemResponse.builder().build()));
+
+        queue.enqueue("evt-1", item("evt-1", "EVENT_READY_FOR_DELIVERY")).block();
+        StepVerifier.create(queue.enqueue("evt-2", item("evt-2", "EVENT_READY_FOR_DELIVERY")))
+                .verifyComplete();
+
+        assertEquals(1, queue.queueDepth());
+        assertEquals(1.0, meterRegistry.get("webhooks.ledger.writes").tag("outcome", "dropped").counter().count());
+        verify(dynamoDb, never()).putItem(any());
+    }
+
+    @Test
+    void enqueue_QueueFullWithSpillPolicy_DropsOnceTheSpillLimitIsInFlight() {
+        queue = newQueue(1, WebhooksProperties.LedgerProperties.OverflowPolicy.SPILL);
+        when(dynamoDb.putItem(any(PutItemRequest.class))).thenReturn(Mono.never());
+
+        queue.enqueue("evt-1", item("evt-1", "EVENT_READY_FOR_DELIVERY")).block();
+        Disposable spilling = queue.enqueue("evt-2", item("evt-2", "EVENT_READY_FOR_DELIVERY")).subscribe();
+        StepVerifier.create(queue.enqueue("evt-3", item("evt-3", "EVENT_READY_FOR_DELIVERY")))
+                .verifyComplete();
+
+        verify(dynamoDb, times(1)).putItem(any(PutItemRequest.class));
+        assertEquals(1.0, meterRegistry.get("webhooks.ledger.writes").tag("outcome", "spilled").counter().count());
+        assertEquals(1.0, meterRegistry.get("webhooks.ledger.writes").tag("outcome", "dropped").counter().count());
+
+        // The permit comes back once the spilled write ends
+        spilling.dispose();
+        queue.enqueue("evt-4", item("evt-4", "EVENT_READY_FOR_DELIVERY")).subscribe();
+        verify(dynamoDb, times(2)).putItem(any(PutItemRequest.class));
+    }
+
+    private LedgerWriteBehindQueue newQueue(int capacity, WebhooksProperties.LedgerProperties.OverflowPolicy overflowPolicy) {
+        WebhooksProperties properties = new WebhooksProperties(
+                new WebhooksProperties.DynamoProperties("event_schema", TABLE, null, null, null, null),
+                null,
+                null,
+                null,
+                // Long linger so only the explicit flush() calls write
+                new WebhooksProperties.LedgerProperties(capacity, Duration.ofHours(1), 3, Duration.ofMillis(1), overflowPolicy, null,
+                        1, null, null, null, null, null),
+                null,
+                null
+        );
+        return new LedgerWriteBehindQueue(dynamoDb, properties, meterRegistry);
+    }
+
+    private static Map<String, AttributeValue> item(String eventId, String status) {
+        return Map.of(
+                "EVENT_ID", AttributeValue.builder().s(eventId).build(),
+                "EVENT_STATUS", AttributeValue.builder().s(status).build());
+    }
+}
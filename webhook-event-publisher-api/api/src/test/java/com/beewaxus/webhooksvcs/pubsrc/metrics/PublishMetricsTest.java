@@ -0,0 +1,86 @@
+package com.beewaxus.webhooksvcs.pubsrc.metrics;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaFormatType;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaReference;
+import com.beewaxus.webhooksvcs.pubsrc.validation.SchemaValidationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PublishMetricsTest {
+
+    private static final SchemaReference CUSTOMER = new SchemaReference("demo", "CustomerUpdated", "v1");
+
+    private SimpleMeterRegistry meterRegistry;
+    private PublishMetrics publishMetrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        WebhooksProperties properties = new WebhooksProperties(null, null, null, null, null,
+                new WebhooksProperties.MetricsProperties(2), null);
+        publishMetrics = new PublishMetrics(meterRegistry, properties);
+    }
+
+    @Test
+    void time_TagsStageFormatAndOutcome() {
+        StepVerifier.create(publishMetrics.time(PublishMetrics.VALIDATION, SchemaFormatType.JSON_SCHEMA, Mono.just("ok")))
+                .expectNext("ok")
+                .verifyComplete();
+        StepVerifier.create(publishMetrics.time(PublishMetrics.VALIDATION, SchemaFormatType.JSON_SCHEMA,
+                        Mono.error(new SchemaValidationException("missing customerId"))))
+                .verifyError(SchemaValidationException.class);
+        StepVerifier.create(publishMetrics.time(PublishMetrics.KAFKA_SEND, SchemaFormatType.AVRO_SCHEMA,
+                        Mono.error(new RuntimeException("send failed", new TimeoutException("no ack")))))
+                .verifyError(RuntimeException.class);
+
+        assertEquals(1, stageCount(PublishMetrics.VALIDATION, "json_schema", "success"));
+        assertEquals(1, stageCount(PublishMetrics.VALIDATION, "json_schema", "rejected"));
+        assertEquals(1, stageCount(PublishMetrics.KAFKA_SEND, "avro_schema", "timeout"));
+    }
+
+    @Test
+    void time_WithFormatFromResult_RecordsEmptyLookupAsUnknown() {
+        StepVerifier.create(publishMetrics.time(PublishMetrics.SCHEMA_LOOKUP, (String value) -> SchemaFormatType.AVRO_SCHEMA,
+                        Mono.<String>empty()))
+                .verifyComplete();
+
+        assertEquals(1, stageCount(PublishMetrics.SCHEMA_LOOKUP, "unknown", "empty"));
+    }
+
+    @Test
+    void countOutcome_SchemasPastTheLimitShareTheOtherTag() {
+        List<SchemaReference> references = List.of(CUSTOMER,
+                new SchemaReference("demo", "OrderPlaced", "v1"),
+                new SchemaReference("demo", "OrderShipped", "v1"));
+        references.forEach(reference -> publishMetrics.countOutcome(SchemaFormatType.JSON_SCHEMA, reference, Mono.just("id")).block());
+        publishMetrics.countOutcome(SchemaFormatType.JSON_SCHEMA, CUSTOMER, Mono.error(new IllegalStateException("broker down")))
+                .onErrorResume(error -> Mono.empty())
+                .block();
+
+        assertEquals(1.0, eventCount(CUSTOMER.schemaRef(), "published"));
+        assertEquals(1.0, eventCount(CUSTOMER.schemaRef(), "failed"));
+        assertEquals(1.0, eventCount(PublishMetrics.OTHER_SCHEMA, "published"));
+        assertEquals(4, meterRegistry.find("webhooks.publish.events").counters().size());
+    }
+
+    private long stageCount(String stage, String format, String outcome) {
+        return meterRegistry.get("webhooks.publish.stage")
+                .tag("stage", stage).tag("format", format).tag("outcome", outcome)
+                .timer().count();
+    }
+
+    private double eventCount(String schema, String outcome) {
+        return meterRegistry.get("webhooks.publish.events")
+                .tag("schema", schema).tag("outcome", outcome)
+                .counter().count();
+    }
+}
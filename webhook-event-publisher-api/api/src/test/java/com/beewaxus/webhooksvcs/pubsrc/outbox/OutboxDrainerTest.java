@@ -0,0 +1,138 @@
+package com.beewaxus.webhooksvcs.pubsrc.outbox;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.metrics.PublishMetrics;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.KafkaCircuitBreaker;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.KafkaProducerPool;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaFormatType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboxDrainerTest {
+
+    @TempDir
+    Path directory;
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, byte[]> kafkaTemplate = Mockito.mock(KafkaTemplate.class);
+    private final KafkaProducerPool producerPool = Mockito.mock(KafkaProducerPool.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private KafkaCircuitBreaker breaker;
+    private WriteAheadOutbox outbox;
+    private OutboxDrainer drainer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        WebhooksProperties.CircuitBreakerProperties circuitBreaker = new WebhooksProperties.CircuitBreakerProperties(
+                true, 10, 4, 50, Duration.ofMillis(1), 2, null, null);
+        WebhooksProperties properties = new WebhooksProperties(null,
+                new WebhooksProperties.KafkaProperties(null, null, Duration.ofSeconds(1), null, null, null, null, circuitBreaker,
+                        new WebhooksProperties.OutboxProperties(true, null, null, null, 10, Duration.ofMillis(10)), null, null),
+                null, null, null, null, null);
+        when(producerPool.template(any(), any())).thenReturn(kafkaTemplate);
+        outbox = new WriteAheadOutbox(directory, 64 * 1024, 4);
+        breaker = new KafkaCircuitBreaker(properties, meterRegistry);
+        drainer = new OutboxDrainer(outbox, producerPool, breaker,
+                new PublishMetrics(meterRegistry, properties), properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        drainer.close();
+        outbox.close();
+    }
+
+    @Test
+    void drain_SendsCommittedRecordsInOrderAndAcknowledgesThem() throws Exception {
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(Mockito.mock(SendResult.class)));
+
+        outbox.append(List.of(record("evt-1"), record("evt-2"), record("evt-3"))).join();
+
+        awaitDelivered();
+        assertEquals(List.of("evt-1", "evt-2", "evt-3"), sentKeys());
+    }
+
+    @Test
+    void drain_RetriesBrokerFailuresAndDropsRejectedRecords() throws Exception {
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException("no ack")))
+                .thenReturn(CompletableFuture.failedFuture(new RecordTooLargeException("1MB")))
+                .thenReturn(CompletableFuture.completedFuture(Mockito.mock(SendResult.class)));
+
+        outbox.append(List.of(record("evt-1"), record("evt-2"))).join();
+
+        awaitDelivered();
+        // evt-1 timed out and went again, evt-2 was too large and is not retried
+        assertEquals(List.of("evt-1", "evt-2", "evt-1"), sentKeys());
+        assertEquals(1, meterRegistry.counter("webhooks.outbox.dropped").count());
+    }
+
+    @Test
+    void drain_ResendsFromTheFirstFailedRecordToKeepLogOrder() throws Exception {
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException("no ack")))
+                .thenReturn(CompletableFuture.completedFuture(Mockito.mock(SendResult.class)));
+
+        outbox.append(List.of(record("evt-1"), record("evt-2"))).join();
+
+        awaitDelivered();
+        // evt-2 was delivered but goes again after evt-1, so it does not end up ahead of it
+        assertEquals(List.of("evt-1", "evt-2", "evt-1", "evt-2"), sentKeys());
+    }
+
+    @Test
+    void drain_HalfOpen_CountsTheBatchAsOneProbe() throws Exception {
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(Mockito.mock(SendResult.class)));
+        breaker.tripOpen("test");
+        Thread.sleep(5);
+        assertEquals(KafkaCircuitBreaker.State.HALF_OPEN, breaker.state());
+
+        outbox.append(List.of(record("evt-1"), record("evt-2"), record("evt-3"))).join();
+
+        awaitDelivered();
+        // One permission, one success: the second probe is still needed to close
+        assertEquals(KafkaCircuitBreaker.State.HALF_OPEN, breaker.state());
+    }
+
+    private void awaitDelivered() throws InterruptedException {
+        for (int i = 0; i < 200 && outbox.pending() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, outbox.pending());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> sentKeys() {
+        ArgumentCaptor<ProducerRecord<String, byte[]>> sent = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, atLeast(1)).send(sent.capture());
+        return sent.getAllValues().stream().map(ProducerRecord::key).toList();
+    }
+
+    private static OutboxRecord record(String key) {
+        return new OutboxRecord("orders", key, ("{\"key\":\"" + key + "\"}").getBytes(StandardCharsets.UTF_8),
+                SchemaFormatType.JSON_SCHEMA);
+    }
+}
@@ -0,0 +1,147 @@
+package com.beewaxus.webhooksvcs.pubsrc.outbox;
+
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaFormatType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WriteAheadOutboxTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void append_CommittedRecordsArePolledInOrder() throws Exception {
+        try (WriteAheadOutbox outbox = new WriteAheadOutbox(directory, 4096, 4)) {
+            outbox.append(new OutboxRecord("orders", "evt-1", bytes("{\"a\":1}"), SchemaFormatType.JSON_SCHEMA,
+                    Map.of("ce_type", bytes("OrderPlaced")))).join();
+            outbox.append(List.of(record("evt-2"), new OutboxRecord("orders", null, bytes("avro"), SchemaFormatType.AVRO_SCHEMA))).join();
+
+            List<OutboxEntry> entries = outbox.poll(10);
+
+            assertEquals(List.of(0L, 1L, 2L), entries.stream().map(OutboxEntry::sequence).toList());
+            OutboxRecord first = entries.get(0).record();
+            assertEquals("orders", first.topic());
+            assertEquals("evt-1", first.key());
+            assertArrayEquals(bytes("{\"a\":1}"), first.value());
+            assertArrayEquals(bytes("OrderPlaced"), first.headers().get("ce_type"));
+            assertNull(entries.get(2).record().key());
+            assertEquals(SchemaFormatType.AVRO_SCHEMA, entries.get(2).record().format());
+            assertEquals(List.of(), outbox.poll(10));
+
+            outbox.acknowledge(2);
+            assertEquals(0, outbox.pending());
+        }
+    }
+
+    @Test
+    void recover_ReplaysRecordsPastTheCheckpoint() throws Exception {
+        try (WriteAheadOutbox outbox = new WriteAheadOutbox(directory, 4096, 4)) {
+            outbox.append(List.of(record("evt-1"), record("evt-2"), record("evt-3"))).join();
+            outbox.poll(3);
+            outbox.acknowledge(0);
+        }
+
+        try (WriteAheadOutbox outbox = new WriteAheadOutbox(directory, 4096, 4)) {
+            assertEquals(2, outbox.pending());
+            outbox.append(record("evt-4")).join();
+
+            assertEquals(List.of("evt-2", "evt-3", "evt-4"), outbox.poll(10).stream().map(entry -> entry.record().key()).toList());
+        }
+    }
+
+    @Test
+    void recover_TornTailIsCutOff() throws Exception {
+        try (WriteAheadOutbox outbox = new WriteAheadOutbox(directory, 4096, 4)) {
+            outbox.append(List.of(record("evt-1"), record("evt-2"))).join();
+        }
+        // Corrupt the last byte of the second record, as if the crash hit mid-write
+        Path segment = segments().get(0);
+        int secondRecordEnd = 2 * (OutboxSegment.HEADER_BYTES + record("evt-1").encode().length);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(secondRecordEnd - 1);
+            file.write(0x7f);
+        }
+
+        try (WriteAheadOutbox outbox = new WriteAheadOutbox(directory, 4096, 4)) {
+            outbox.append(record("evt-3")).join();
+
+            List<OutboxEntry> entries = outbox.poll(10);
+            assertEquals(List.of("evt-1", "evt-3"), entries.stream().map(entry -> entry.record().key()).toList());
+            assertEquals(List.of(0L, 1L), entries.stream().map(OutboxEntry::sequence).toList());
+        }
+    }
+
+    @Test
+    void append_RollsSegmentsUntilFullAndDeletesDeliveredOnes() throws Exception {
+        int frame = OutboxSegment.HEADER_BYTES + record("evt-0").encode().length;
+        try (WriteAheadOutbox outbox = new WriteAheadOutbox(directory, 2 * frame, 2)) {
+            outbox.append(List.of(record("evt-0"), record("evt-1"), record("evt-2"), record("evt-3"))).join();
+            assertEquals(2, segments().size());
+
+            CompletionException full = assertThrows(CompletionException.class, () -> outbox.append(record("evt-4")).join());
+            assertInstanceOf(OutboxFullException.class, full.getCause());
+
+            outbox.poll(4);
+            outbox.acknowledge(3);
+            assertEquals(1, segments().size());
+            outbox.append(List.of(record("evt-4"), record("evt-5"))).join();
+            assertEquals(List.of(4L, 5L), outbox.poll(10).stream().map(OutboxEntry::sequence).toList());
+        }
+    }
+
+    @Test
+    void append_FailedForceRollsBackSoTheRecordsAreNeverDelivered() throws Exception {
+        int frame = OutboxSegment.HEADER_BYTES + record("evt-0").encode().length;
+        try (WriteAheadOutbox outbox = new WriteAheadOutbox(directory, 2 * frame, 4)) {
+            outbox.append(record("evt-0")).join();
+
+            outbox.beforeForce = () -> {
+                throw new UncheckedIOException(new IOException("disk gone"));
+            };
+            // Fills the first segment and starts a second one, both rolled back
+            assertThrows(CompletionException.class, () -> outbox.append(List.of(record("evt-1"), record("evt-2"))).join());
+            assertEquals(1, segments().size());
+            assertEquals(1, outbox.pending());
+
+            outbox.beforeForce = () -> {
+            };
+            outbox.append(record("evt-3")).join();
+            assertEquals(List.of("evt-0", "evt-3"), outbox.poll(10).stream().map(entry -> entry.record().key()).toList());
+        }
+
+        try (WriteAheadOutbox outbox = new WriteAheadOutbox(directory, 2 * frame, 4)) {
+            assertEquals(List.of(0L, 1L), outbox.poll(10).stream().map(OutboxEntry::sequence).toList());
+        }
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(OutboxSegment::isSegment).sorted().toList();
+        }
+    }
+
+    private static OutboxRecord record(String key) {
+        return new OutboxRecord("orders", key, bytes("{\"key\":\"" + key + "\"}"), SchemaFormatType.JSON_SCHEMA);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,134 @@
+package com.beewaxus.webhooksvcs.pubsrc.publisher;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.metrics.KafkaMetric;
+import org.apache.kafka.common.metrics.Measurable;
+import org.apache.kafka.common.metrics.MetricConfig;
+import org.apache.kafka.common.utils.Time;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KafkaCircuitBreakerTest {
+
+    private static final Duration OPEN_DURATION = Duration.ofSeconds(10);
+
+    private final AtomicLong nanos = new AtomicLong();
+    private KafkaCircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        WebhooksProperties.CircuitBreakerProperties circuitBreaker = new WebhooksProperties.CircuitBreakerProperties(
+                true, 10, 4, 50, OPEN_DURATION, 2, null, null);
+        WebhooksProperties properties = new WebhooksProperties(null,
+                new WebhooksProperties.KafkaProperties(null, null, null, null, null, null, null, circuitBreaker, null, null, null),
+                null, null, null, null, null);
+        breaker = new KafkaCircuitBreaker(properties, new SimpleMeterRegistry(), nanos::get);
+    }
+
+    @Test
+    void protect_FailureRateOverThreshold_OpensAndFailsFastWithoutSending() {
+        publish(Mono.just("ok"));
+        publish(Mono.just("ok"));
+        publish(Mono.error(new TimeoutException("no ack")));
+        assertEquals(KafkaCircuitBreaker.State.CLOSED, breaker.state());
+
+        publish(Mono.error(new KafkaPublishException("broker down", new TimeoutException("no ack"))));
+        assertEquals(KafkaCircuitBreaker.State.OPEN, breaker.state());
+
+        AtomicInteger sends = new AtomicInteger();
+        StepVerifier.create(breaker.protect(() -> {
+                    sends.incrementAndGet();
+                    return Mono.just("sent");
+                }))
+                .expectErrorSatisfies(error -> assertEquals(OPEN_DURATION,
+                        ((KafkaCircuitOpenException) error).retryAfter()))
+                .verify();
+        assertEquals(0, sends.get());
+    }
+
+    @Test
+    void protect_RecordLevelErrors_DoNotOpen() {
+        for (int i = 0; i < 10; i++) {
+            publish(Mono.error(new KafkaPublishException("too large", new RecordTooLargeException("1MB"))));
+        }
+
+        assertEquals(KafkaCircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void protect_AfterOpenDuration_ClosesOnceAllProbesSucceed() {
+        breaker.tripOpen("test");
+        nanos.addAndGet(OPEN_DURATION.minusSeconds(4).toNanos());
+        assertEquals(Duration.ofSeconds(4), breaker.retryAfter());
+
+        nanos.addAndGet(Duration.ofSeconds(4).toNanos());
+        assertEquals(KafkaCircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertTrue(breaker.tryAcquirePermission());
+        assertTrue(breaker.tryAcquirePermission());
+        // Only two probes are let through at a time
+        assertFalse(breaker.tryAcquirePermission());
+
+        breaker.onSuccess();
+        breaker.onSuccess();
+
+        assertEquals(KafkaCircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void protect_FailedProbe_OpensAgain() {
+        breaker.tripOpen("test");
+        nanos.addAndGet(OPEN_DURATION.toNanos());
+
+        publish(Mono.error(new TimeoutException("still no ack")));
+
+        assertEquals(KafkaCircuitBreaker.State.OPEN, breaker.state());
+        assertEquals(OPEN_DURATION, breaker.retryAfter());
+    }
+
+    @Test
+    void health_OpenBreaker_IsOutOfService() {
+        KafkaCircuitBreakerHealthIndicator health = new KafkaCircuitBreakerHealthIndicator(breaker);
+        assertEquals(Status.UP, health.health().getStatus());
+
+        breaker.tripOpen("test");
+
+        assertEquals(Status.OUT_OF_SERVICE, health.health().getStatus());
+        assertEquals(10L, health.health().getDetails().get("retryAfterSeconds"));
+    }
+
+    @Test
+    void bufferUsage_ReadFromProducerMetrics() {
+        Map<MetricName, KafkaMetric> metrics = Map.ofEntries(
+                metric("buffer-total-bytes", 1000),
+                metric("buffer-available-bytes", 50));
+
+        assertEquals(0.95, KafkaProducerHealthMonitor.bufferUsage(metrics), 1e-9);
+        assertEquals(0, KafkaProducerHealthMonitor.bufferUsage(Map.of()));
+    }
+
+    private void publish(Mono<String> send) {
+        breaker.protect(() -> send).onErrorResume(error -> Mono.empty()).block();
+    }
+
+    private static Map.Entry<MetricName, KafkaMetric> metric(String name, double value) {
+        MetricName metricName = new MetricName(name, "producer-metrics", "", Map.of());
+        return Map.entry(metricName, new KafkaMetric(new Object(), metricName, (Measurable) (config, now) -> value,
+                new MetricConfig(), Time.SYSTEM));
+    }
+}
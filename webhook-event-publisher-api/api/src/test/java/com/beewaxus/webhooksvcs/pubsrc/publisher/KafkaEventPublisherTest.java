@@ -0,0 +1,100 @@
+package com.beewaxus.webhooksvcs.pubsrc.publisher;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.metrics.PublishMetrics;
+import com.beewaxus.webhooksvcs.pubsrc.model.EventEnvelope;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaFormatType;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class KafkaEventPublisherTest {
+
+    private static final Duration OPEN_DURATION = Duration.ofSeconds(10);
+    private static final SchemaReference REFERENCE = new SchemaReference("demo", "UserEvent", "v1");
+
+    private final AtomicLong nanos = new AtomicLong();
+    @SuppressWarnings("unchecked")
+    private final ReactiveKafkaSender<byte[]> sender = mock(ReactiveKafkaSender.class);
+    private KafkaCircuitBreaker breaker;
+    private KafkaEventPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        WebhooksProperties.CircuitBreakerProperties circuitBreaker = new WebhooksProperties.CircuitBreakerProperties(
+                true, 10, 4, 50, OPEN_DURATION, 2, null, null);
+        WebhooksProperties properties = new WebhooksProperties(null,
+                new WebhooksProperties.KafkaProperties(null, null, Duration.ofSeconds(5), null, null, null, null, circuitBreaker, null, null, null),
+                null, null, null, null, null);
+        breaker = new KafkaCircuitBreaker(properties, new SimpleMeterRegistry(), nanos::get);
+        KafkaProducerPool producerPool = mock(KafkaProducerPool.class);
+        when(producerPool.sender(any(), any())).thenReturn(sender);
+        publisher = new KafkaEventPublisher(producerPool, properties, new ObjectMapper(),
+                new PublishMetrics(new SimpleMeterRegistry(), properties), breaker);
+    }
+
+    @Test
+    void publishBatch_HalfOpen_CountsTheBatchAsOneProbe() {
+        halfOpen();
+        when(sender.send(any())).thenReturn(Mono.just(metadata()));
+
+        StepVerifier.create(publisher.publishBatch(events(3)))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        // One permission, one success: the second probe is still needed to close
+        assertEquals(KafkaCircuitBreaker.State.HALF_OPEN, breaker.state());
+        StepVerifier.create(publisher.publishBatch(events(1)))
+                .expectNextCount(1)
+                .verifyComplete();
+        assertEquals(KafkaCircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void publishBatch_HalfOpenWithOneBrokerFailure_OpensAgain() {
+        halfOpen();
+        when(sender.send(any())).thenReturn(Mono.just(metadata()), Mono.error(new TimeoutException("no ack")));
+
+        StepVerifier.create(publisher.publishBatch(events(2)))
+                .expectNextCount(2)
+                .verifyComplete();
+
+        assertEquals(KafkaCircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    private void halfOpen() {
+        breaker.tripOpen("test");
+        nanos.addAndGet(OPEN_DURATION.toNanos());
+        assertEquals(KafkaCircuitBreaker.State.HALF_OPEN, breaker.state());
+    }
+
+    private static List<OutboundEvent> events(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> OutboundEvent.avro(new EventEnvelope("evt-" + i, REFERENCE, null, Instant.now(), Map.of(),
+                        SchemaFormatType.AVRO_SCHEMA), "wh.ingress.demo.UserEvent", new byte[]{1}))
+                .toList();
+    }
+
+    private static RecordMetadata metadata() {
+        return new RecordMetadata(new TopicPartition("wh.ingress.demo.UserEvent", 0), 0, 0, 0, 0, 0);
+    }
+}
@@ -0,0 +1,68 @@
+package com.beewaxus.webhooksvcs.pubsrc.publisher;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+class KafkaProducerPoolTest {
+
+    @Test
+    void profileFor_PrefersTopicRouteOverDomainRouteOverDefault() throws Exception {
+        WebhooksProperties.ProducerProperties producer = new WebhooksProperties.ProducerProperties(null, null,
+                Map.of("wh.ingress.orders.Audit", "latency", "orders", "throughput"));
+
+        try (KafkaProducerPool pool = pool(producer, "latency", "throughput")) {
+            assertEquals("latency", pool.profileFor("wh.ingress.orders.Audit", "orders"));
+            assertEquals("throughput", pool.profileFor("wh.ingress.orders.Created", "orders"));
+            assertEquals("latency", pool.profileFor("wh.ingress.billing.Paid", "billing"));
+            assertEquals("latency", pool.profileFor("wh.ingress.orders.Created", null));
+            assertTrue(pool.sender("wh.ingress.orders.Created", "orders") != pool.sender("wh.ingress.billing.Paid", "billing"));
+        }
+    }
+
+    @Test
+    void constructor_RejectsRouteToUnknownProfile() {
+        WebhooksProperties.ProducerProperties producer = new WebhooksProperties.ProducerProperties(null, null,
+                Map.of("orders", "bulk"));
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> pool(producer, "latency"));
+        assertTrue(error.getMessage().contains("webhooks.kafka.producer.routes.orders"));
+    }
+
+    @Test
+    void getProfiles_ConfiguredProfileReplacesBuiltInOfTheSameName() {
+        WebhooksProperties.ProducerProperties producer = new WebhooksProperties.ProducerProperties("throughput",
+                Map.of("throughput", new WebhooksProperties.ProducerProfileProperties(null, null, "zstd", null)), null);
+
+        Map<String, WebhooksProperties.ProducerProfileProperties> profiles = producer.getProfiles();
+        assertEquals("zstd", profiles.get("throughput").getCompressionType());
+        assertEquals(0, profiles.get("throughput").getLinger().toMillis());
+        assertEquals("none", profiles.get("latency").getCompressionType());
+        assertEquals("throughput", producer.getDefaultProfile());
+    }
+
+    private static KafkaProducerPool pool(WebhooksProperties.ProducerProperties producer, String... profiles) {
+        Map<String, ProducerFactory<String, byte[]>> factories = new LinkedHashMap<>();
+        for (String profile : profiles) {
+            @SuppressWarnings("unchecked")
+            ProducerFactory<String, byte[]> factory = Mockito.mock(ProducerFactory.class);
+            when(factory.createProducer()).thenReturn(new MockProducer<>(true, new StringSerializer(), new ByteArraySerializer()));
+            factories.put(profile, factory);
+        }
+        return new KafkaProducerPool(factories, producer, new WebhooksProperties.SenderProperties(null, null),
+                new SimpleMeterRegistry());
+    }
+}
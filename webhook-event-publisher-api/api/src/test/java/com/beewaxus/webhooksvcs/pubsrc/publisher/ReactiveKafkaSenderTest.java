@@ -0,0 +1,110 @@
+package com.beewaxus.webhooksvcs.pubsrc.publisher;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.errors.NotEnoughReplicasException;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.kafka.core.ProducerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+class ReactiveKafkaSenderTest {
+
+    private final MockProducer<String, String> producer = new MockProducer<>(false, new StringSerializer(), new StringSerializer());
+    private ReactiveKafkaSender<String> sender;
+
+    @AfterEach
+    void tearDown() {
+        sender.close();
+    }
+
+    @Test
+    void send_KeepsAtMostMaxInFlightWithTheProducer() throws Exception {
+        sender = sender(2, 100);
+
+        List<CompletableFuture<RecordMetadata>> results = List.of(
+                sender.send(record("evt-1")).toFuture(),
+                sender.send(record("evt-2")).toFuture(),
+                sender.send(record("evt-3")).toFuture());
+
+        await(() -> producer.history().size() == 2);
+        assertEquals(1, sender.queued());
+
+        assertTrue(producer.completeNext());
+        await(() -> producer.history().size() == 3);
+        assertEquals("orders", results.get(0).get().topic());
+
+        producer.errorNext(new NotEnoughReplicasException("isr"));
+        producer.completeNext();
+        assertInstanceOf(NotEnoughReplicasException.class,
+                assertThrows(Exception.class, () -> results.get(1).join()).getCause());
+        assertEquals("orders", results.get(2).get().topic());
+        await(() -> sender.inFlight() == 0);
+    }
+
+    @Test
+    void send_FailsAtOnceWhenTheQueueIsFull() throws Exception {
+        sender = sender(1, 1);
+
+        sender.send(record("evt-1")).subscribe();
+        await(() -> producer.history().size() == 1);
+        sender.send(record("evt-2")).subscribe();
+
+        KafkaPublishException full = assertThrows(KafkaPublishException.class,
+                () -> sender.send(record("evt-3")).block(Duration.ofSeconds(5)));
+        assertTrue(full.getMessage().contains("records waiting"));
+    }
+
+    @Test
+    void send_DropsRecordsCancelledBeforeTheyWereSent() throws Exception {
+        sender = sender(1, 10);
+
+        sender.send(record("evt-1")).subscribe();
+        await(() -> producer.history().size() == 1);
+        Disposable timedOut = sender.send(record("evt-2")).subscribe();
+        Mono<RecordMetadata> third = sender.send(record("evt-3"));
+        CompletableFuture<RecordMetadata> thirdResult = third.toFuture();
+        timedOut.dispose();
+
+        producer.completeNext();
+        await(() -> producer.history().size() == 2);
+        producer.completeNext();
+
+        thirdResult.get();
+        assertEquals(List.of("evt-1", "evt-3"), producer.history().stream().map(ProducerRecord::key).toList());
+    }
+
+    private ReactiveKafkaSender<String> sender(int maxInFlight, int maxQueued) {
+        @SuppressWarnings("unchecked")
+        ProducerFactory<String, String> factory = Mockito.mock(ProducerFactory.class);
+        when(factory.createProducer()).thenReturn(producer);
+        return new ReactiveKafkaSender<>("test", factory, maxInFlight, maxQueued, new SimpleMeterRegistry());
+    }
+
+    private static ProducerRecord<String, String> record(String key) {
+        return new ProducerRecord<>("orders", key, "{\"key\":\"" + key + "\"}");
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 200 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,54 @@
+package com.beewaxus.webhooksvcs.pubsrc.scheduling;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CpuStageSchedulerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CpuStageScheduler cpuStageScheduler;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        WebhooksProperties properties = new WebhooksProperties(null, null, null,
+                new WebhooksProperties.ValidationProperties(true, 2), null, null, null);
+        cpuStageScheduler = new CpuStageScheduler(properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cpuStageScheduler.shutdown();
+    }
+
+    @Test
+    void run_FromCallerThread_HopsOntoCpuWorkerAndRecordsQueueTime() {
+        StepVerifier.create(cpuStageScheduler.run("validate", () -> Thread.currentThread().getName()))
+                .assertNext(thread -> assertTrue(thread.startsWith("webhooks-cpu-"), thread))
+                .verifyComplete();
+
+        assertEquals(1, meterRegistry.get("webhooks.cpu.stage.queue.time").tag("stage", "validate").timer().count());
+        assertEquals(0.0, meterRegistry.get("webhooks.cpu.stage.queued").tag("stage", "validate").gauge().value());
+    }
+
+    @Test
+    void run_ChainedStages_RunOnTheSameWorkerWithOneHop() {
+        StepVerifier.create(cpuStageScheduler.run("validate", () -> Thread.currentThread().getName())
+                        .flatMap(first -> cpuStageScheduler.run("encode",
+                                () -> List.of(first, Thread.currentThread().getName()))))
+                .assertNext(threads -> assertEquals(threads.get(0), threads.get(1)))
+                .verifyComplete();
+
+        assertEquals(1, meterRegistry.get("webhooks.cpu.stage.queue.time").tag("stage", "validate").timer().count());
+        assertEquals(0, meterRegistry.get("webhooks.cpu.stage.queue.time").tag("stage", "encode").timer().count());
+    }
+}
@@ -1,16 +1,19 @@
 package com.beewaxus.webhooksvcs.pubsrc.schema;
 
 import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
 
 import java.time.Duration;
 import java.time.Instant;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -20,30 +23,43 @@ class CachingSchemaServiceTest {
 
     private DynamoSchemaService delegate;
     private CachingSchemaService cachingSchemaService;
+    private SimpleMeterRegistry meterRegistry;
 
     @BeforeEach
     void setUp() {
         delegate = Mockito.mock(DynamoSchemaService.class);
 
         WebhooksProperties properties = new WebhooksProperties(
-                new WebhooksProperties.DynamoProperties("event_schema", "EVENT_IDEMPOTENCY_LEDGER"),
+                new WebhooksProperties.DynamoProperties("event_schema", "EVENT_IDEMPOTENCY_LEDGER", null, null, null, null),
                 new WebhooksProperties.KafkaProperties(
                         "localhost:9092",
                         "wh.ingress",
                         Duration.ofSeconds(5),
                         1,
-                        Duration.ofSeconds(1)
+                        Duration.ofSeconds(1),
+                        null,
+                        null,
+                        null,
+                        null,
+                        null,
+                        null
                 ),
                 new WebhooksProperties.CacheProperties(
                         true,
                         Duration.ofMinutes(5),
                         Duration.ofMinutes(5),
-                        100
+                        100,
+                        null,
+                        null
                 ),
-                new WebhooksProperties.ValidationProperties(true)
+                new WebhooksProperties.ValidationProperties(true, null),
+                null,
+                null,
+                null
         );
 
-        cachingSchemaService = new CachingSchemaService(delegate, properties);
+        meterRegistry = new SimpleMeterRegistry();
+        cachingSchemaService = new CachingSchemaService(delegate, new CompiledSchemaCache(properties), properties, meterRegistry);
     }
 
     @Test
@@ -64,6 +80,29 @@ class CachingSchemaServiceTest {
         verify(delegate, times(1)).fetchSchema(reference);
     }
 
+    @Test
+    void fetchSchema_ConcurrentMissesShareOneDynamoDbLoad() {
+        SchemaReference reference = new SchemaReference("demo", "CustomerUpdated", "v1");
+        SchemaDefinition schemaDefinition = new SchemaDefinition(reference, null, "{}", SchemaFormatType.AVRO_SCHEMA, true, Instant.now(), null);
+        Sinks.One<SchemaDefinition> dynamoResponse = Sinks.one();
+
+        when(delegate.fetchSchema(reference)).thenReturn(dynamoResponse.asMono());
+
+        Flux<SchemaDefinition> burst = Flux.merge(
+                cachingSchemaService.fetchSchema(reference),
+                cachingSchemaService.fetchSchema(reference),
+                cachingSchemaService.fetchSchema(reference)
+        );
+
+        StepVerifier.create(burst)
+                .then(() -> dynamoResponse.tryEmitValue(schemaDefinition))
+                .expectNext(schemaDefinition, schemaDefinition, schemaDefinition)
+                .verifyComplete();
+
+        verify(delegate, times(1)).fetchSchema(reference);
+        assertEquals(2.0, meterRegistry.get("webhooks.schema.cache.coalesced.loads").tag("cache", "schema").counter().count());
+    }
+
     @Test
     void fetchSchemaBySchemaId_CachesDetailResponses() {
         SchemaDetailResponse detailResponse = new SchemaDetailResponse(
@@ -102,24 +141,36 @@ class CachingSchemaServiceTest {
     @Test
     void fetchSchema_WhenCacheDisabled_DoesNotUseCache() {
         WebhooksProperties disabledProps = new WebhooksProperties(
-                new WebhooksProperties.DynamoProperties("event_schema", "EVENT_IDEMPOTENCY_LEDGER"),
+                new WebhooksProperties.DynamoProperties("event_schema", "EVENT_IDEMPOTENCY_LEDGER", null, null, null, null),
                 new WebhooksProperties.KafkaProperties(
                         "localhost:9092",
                         "wh.ingress",
                         Duration.ofSeconds(5),
                         1,
-                        Duration.ofSeconds(1)
+                        Duration.ofSeconds(1),
+                        null,
+                        null,
+                        null,
+                        null,
+                        null,
+                        null
                 ),
                 new WebhooksProperties.CacheProperties(
                         false,
                         Duration.ofMinutes(5),
                         Duration.ofMinutes(5),
-                        100
+                        100,
+                        null,
+                        null
                 ),
-                new WebhooksProperties.ValidationProperties(true)
+                new WebhooksProperties.ValidationProperties(true, null),
+                null,
+                null,
+                null
         );
 
-        CachingSchemaService disabledService = new CachingSchemaService(delegate, disabledProps);
+        CachingSchemaService disabledService = new CachingSchemaService(delegate, new CompiledSchemaCache(disabledProps), disabledProps,
+                new SimpleMeterRegistry());
         SchemaReference reference = new SchemaReference("demo", "CustomerUpdated", "v1");
         SchemaDefinition schemaDefinition = new SchemaDefinition(reference, null, "{}", SchemaFormatType.AVRO_SCHEMA, true, Instant.now(), null);
 
@@ -0,0 +1,64 @@
+package com.beewaxus.webhooksvcs.pubsrc.schema;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompiledSchemaCacheTest {
+
+    private static final String AVRO_SCHEMA =
+            "{\"type\":\"record\",\"name\":\"CustomerUpdated\",\"fields\":[{\"name\":\"customerId\",\"type\":\"string\"}]}";
+
+    private CompiledSchemaCache compiledSchemaCache;
+    private SchemaReference reference;
+
+    @BeforeEach
+    void setUp() {
+        compiledSchemaCache = new CompiledSchemaCache(new WebhooksProperties(null, null, null, null, null, null, null));
+        reference = new SchemaReference("demo", "CustomerUpdated", "v1");
+    }
+
+    @Test
+    void compile_ReusesParsedSchemaForSameRevision() {
+        Instant updatedAt = Instant.parse("2025-01-01T00:00:00Z");
+        SchemaDefinition definition = new SchemaDefinition(reference, null, AVRO_SCHEMA, SchemaFormatType.AVRO_SCHEMA, true, updatedAt, null);
+        SchemaDefinition sameRevision = new SchemaDefinition(reference, null, AVRO_SCHEMA, SchemaFormatType.AVRO_SCHEMA, true, updatedAt, null);
+
+        CompiledSchema first = compiledSchemaCache.compile(definition);
+        CompiledSchema second = compiledSchemaCache.compile(sameRevision);
+
+        assertSame(first, second);
+        assertSame(first.avroSchema(), second.avroSchema());
+        assertSame(first.avroWriter(), second.avroWriter());
+    }
+
+    @Test
+    void compile_DropsCompiledFormWhenUpdatedAtChanges() {
+        SchemaDefinition original = new SchemaDefinition(reference, null, AVRO_SCHEMA, SchemaFormatType.AVRO_SCHEMA, true,
+                Instant.parse("2025-01-01T00:00:00Z"), null);
+        SchemaDefinition edited = new SchemaDefinition(reference, null, AVRO_SCHEMA, SchemaFormatType.AVRO_SCHEMA, true,
+                Instant.parse("2025-02-01T00:00:00Z"), null);
+
+        CompiledSchema first = compiledSchemaCache.compile(original);
+        CompiledSchema second = compiledSchemaCache.compile(edited);
+
+        assertNotSame(first, second);
+        assertNotSame(first.avroSchema(), second.avroSchema());
+    }
+
+    @Test
+    void compile_OnlyCompilesTheRequestedPart() {
+        SchemaDefinition definition = new SchemaDefinition(reference, null, AVRO_SCHEMA, SchemaFormatType.AVRO_SCHEMA, true, Instant.now(), null);
+
+        CompiledSchema compiled = compiledSchemaCache.compile(definition);
+
+        compiled.avroSchema();
+        assertThrows(IllegalStateException.class, compiled::jsonSchema);
+    }
+}
@@ -0,0 +1,193 @@
+package com.beewaxus.webhooksvcs.pubsrc.schema;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.dynamodb.BlockingReactiveDynamoDb;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndex;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.Projection;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Compares schema lookups through the GSIs with the filtered table scan they replace.
+ * Needs a running DynamoDB Local and is skipped otherwise:
+ * <pre>
+ * docker run -p 8000:8000 amazon/dynamodb-local -jar DynamoDBLocal.jar -inMemory
+ * mvn test -Dtest=DynamoSchemaLookupBenchmarkTest -Ddynamodb.benchmark.endpoint=http://localhost:8000
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "dynamodb.benchmark.endpoint", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class DynamoSchemaLookupBenchmarkTest {
+
+    private static final int INDEXED_LOOKUPS = 500;
+    private static final int SCAN_LOOKUPS = 50;
+
+    private DynamoDbClient dynamoDbClient;
+    private final List<String> tables = new ArrayList<>();
+
+    @BeforeAll
+    void connect() {
+        dynamoDbClient = DynamoDbClient.builder()
+                .endpointOverride(URI.create(System.getProperty("dynamodb.benchmark.endpoint")))
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("dummy", "dummy")))
+                .region(Region.US_EAST_1)
+                .build();
+    }
+
+    @AfterAll
+    void dropTables() {
+        tables.forEach(table -> dynamoDbClient.deleteTable(request -> request.tableName(table)));
+        dynamoDbClient.close();
+    }
+
+    @ParameterizedTest(name = "{0} schema rows")
+    @ValueSource(ints = {10_000, 100_000})
+    void schemaLookups_IndexedQueryVersusScan(int rows) {
+        String table = "schema_lookup_benchmark_" + rows;
+        createTable(table);
+        seed(table, rows);
+
+        DynamoSchemaService indexed = service(table, "EVENT_SCHEMA_ID-index", "SCHEMA_REF-index");
+        DynamoSchemaService scanning = service(table, "absent-schema-id-index", "absent-schema-ref-index");
+
+        Random random = new Random(42);
+        report(rows, "schemaId  GSI query", INDEXED_LOOKUPS,
+                () -> indexed.fetchSchemaBySchemaId(schemaId(random.nextInt(rows))).block() != null);
+        report(rows, "schemaId  scan      ", SCAN_LOOKUPS,
+                () -> scanning.fetchSchemaBySchemaId(schemaId(random.nextInt(rows))).block() != null);
+        report(rows, "reference GSI query", INDEXED_LOOKUPS,
+                () -> indexed.fetchSchema(reference(random.nextInt(rows))).block() != null);
+        report(rows, "reference scan      ", SCAN_LOOKUPS,
+                () -> scanning.fetchSchema(reference(random.nextInt(rows))).block() != null);
+    }
+
+    private void report(int rows, String label, int lookups, BooleanSupplier lookup) {
+        long[] nanos = new long[lookups];
+        int found = 0;
+        for (int i = 0; i < lookups; i++) {
+            long start = System.nanoTime();
+            if (lookup.getAsBoolean()) {
+                found++;
+            }
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%,8d rows | %s | p50 %8.2f ms | p99 %8.2f ms | found %d/%d%n",
+                rows, label, nanos[lookups / 2] / 1e6, nanos[(int) (lookups * 0.99)] / 1e6, found, lookups);
+    }
+
+    private DynamoSchemaService service(String table, String schemaIdIndex, String schemaRefIndex) {
+        WebhooksProperties properties = new WebhooksProperties(
+                new WebhooksProperties.DynamoProperties(table, null, schemaIdIndex, schemaRefIndex, false, null),
+                null,
+                null,
+                null,
+                null,
+                null,
+                null
+        );
+        SchemaTableIndexes indexes = new SchemaTableIndexes(dynamoDbClient, properties);
+        indexes.verify();
+        return new DynamoSchemaService(new BlockingReactiveDynamoDb(dynamoDbClient), properties, indexes);
+    }
+
+    private void createTable(String table) {
+        dynamoDbClient.createTable(request -> request
+                .tableName(table)
+                .billingMode(BillingMode.PAY_PER_REQUEST)
+                .attributeDefinitions(
+                        attribute("PK"), attribute("SK"), attribute("EVENT_SCHEMA_ID"), attribute("SCHEMA_REF"))
+                .keySchema(key("PK", KeyType.HASH), key("SK", KeyType.RANGE))
+                .globalSecondaryIndexes(index("EVENT_SCHEMA_ID-index", "EVENT_SCHEMA_ID"), index("SCHEMA_REF-index", "SCHEMA_REF")));
+        tables.add(table);
+    }
+
+    private void seed(String table, int rows) {
+        List<WriteRequest> batch = new ArrayList<>(25);
+        for (int i = 0; i < rows; i++) {
+            batch.add(WriteRequest.builder().putRequest(PutRequest.builder().item(item(i)).build()).build());
+            if (batch.size() == 25 || i == rows - 1) {
+                Map<String, List<WriteRequest>> pending = Map.of(table, List.copyOf(batch));
+                while (!pending.isEmpty()) {
+                    pending = dynamoDbClient.batchWriteItem(BatchWriteItemRequest.builder().requestItems(pending).build())
+                            .unprocessedItems();
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private static Map<String, AttributeValue> item(int i) {
+        SchemaReference reference = reference(i);
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("PK", s(schemaId(i)));
+        item.put("SK", s("v" + reference.version()));
+        item.put("EVENT_SCHEMA_ID", s(schemaId(i)));
+        item.put("SCHEMA_REF", s(reference.schemaRef()));
+        item.put("PRODUCER_DOMAIN", s(reference.domain()));
+        item.put("EVENT_NAME", s(reference.eventName()));
+        item.put("VERSION", s(reference.version()));
+        item.put("EVENT_SCHEMA_DEFINITION_AVRO", s("{\"type\":\"record\",\"name\":\"Event" + i
+                + "\",\"fields\":[{\"name\":\"id\",\"type\":\"string\"},{\"name\":\"amount\",\"type\":\"double\"}]}"));
+        item.put("EVENT_SCHEMA_STATUS", s("ACTIVE"));
+        item.put("TOPIC_NAME", s("benchmark.event" + i));
+        item.put("TOPIC_STATUS", s("ACTIVE"));
+        item.put("UPDATE_TS", s("2025-01-01T00:00:00Z"));
+        return item;
+    }
+
+    private static String schemaId(int i) {
+        return "SCHEMA_%06d".formatted(i);
+    }
+
+    private static SchemaReference reference(int i) {
+        return new SchemaReference("domain" + (i % 50), "event" + i, "1.0");
+    }
+
+    private static AttributeValue s(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+
+    private static AttributeDefinition attribute(String name) {
+        return AttributeDefinition.builder().attributeName(name).attributeType(ScalarAttributeType.S).build();
+    }
+
+    private static KeySchemaElement key(String name, KeyType type) {
+        return KeySchemaElement.builder().attributeName(name).keyType(type).build();
+    }
+
+    private static GlobalSecondaryIndex index(String name, String hashKey) {
+        return GlobalSecondaryIndex.builder()
+                .indexName(name)
+                .keySchema(key(hashKey, KeyType.HASH))
+                .projection(Projection.builder().projectionType(ProjectionType.ALL).build())
+                .build();
+    }
+}
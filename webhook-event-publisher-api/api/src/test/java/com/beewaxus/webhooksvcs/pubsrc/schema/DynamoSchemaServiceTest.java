@@ -0,0 +1,135 @@
+package com.beewaxus.webhooksvcs.pubsrc.schema;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.dynamodb.BlockingReactiveDynamoDb;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.InternalServerErrorException;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DynamoSchemaServiceTest {
+
+    private DynamoDbClient dynamoDbClient;
+    private WebhooksProperties properties;
+    private DynamoSchemaService dynamoSchemaService;
+
+    @BeforeEach
+    void setUp() {
+        dynamoDbClient = Mockito.mock(DynamoDbClient.class);
+        properties = new WebhooksProperties(
+                new WebhooksProperties.DynamoProperties("event_schema", "EVENT_IDEMPOTENCY_LEDGER", null, null, null, 2),
+                null,
+                null,
+                null,
+                null,
+                null,
+                null
+        );
+        dynamoSchemaService = new DynamoSchemaService(new BlockingReactiveDynamoDb(dynamoDbClient), properties, new SchemaTableIndexes(dynamoDbClient, properties));
+    }
+
+    @Test
+    void fetchAllSchemas_FollowsLastEvaluatedKeyInEverySegment() {
+        Map<String, AttributeValue> cursor = Map.of("PK", s("SCHEMA_0002"), "SK", s("v1.0"));
+        when(dynamoDbClient.scan(any(ScanRequest.class))).thenAnswer(invocation -> {
+            ScanRequest request = invocation.getArgument(0);
+            assertEquals(2, request.totalSegments());
+            if (request.segment() == 1) {
+                return page(List.of(item("SCHEMA_0003", "ACTIVE")), null);
+            }
+            return request.hasExclusiveStartKey()
+                    ? page(List.of(item("SCHEMA_0002", "ACTIVE"), item("SCHEMA_0004", "INACTIVE")), null)
+                    : page(List.of(item("SCHEMA_0001", "ACTIVE")), cursor);
+        });
+
+        StepVerifier.create(dynamoSchemaService.fetchAllSchemas().map(SchemaDefinition::eventSchemaId).collect(Collectors.toSet()))
+                .expectNext(Set.of("SCHEMA_0001", "SCHEMA_0002", "SCHEMA_0003"))
+                .verifyComplete();
+        verify(dynamoDbClient, times(3)).scan(any(ScanRequest.class));
+    }
+
+    @Test
+    void fetchAllSchemas_PageFailure_MapsToDynamoDbException() {
+        when(dynamoDbClient.scan(any(ScanRequest.class)))
+                .thenThrow(InternalServerErrorException.builder().message("boom").build());
+
+        StepVerifier.create(dynamoSchemaService.fetchAllSchemas())
+                .expectError(DynamoDbException.class)
+                .verify();
+    }
+
+    @Test
+    void fetchSchema_ItemUnderPkSkLayout_IsReadByKeyWithoutQueryingTheIndex() {
+        when(dynamoDbClient.getItem(any(GetItemRequest.class)))
+                .thenReturn(GetItemResponse.builder().item(item("SCHEMA_0001", "ACTIVE")).build());
+
+        StepVerifier.create(withSchemaRefIndex().fetchSchema(new SchemaReference("demo", "EventSCHEMA_0001", "1.0")))
+                .expectNextMatches(definition -> "SCHEMA_0001".equals(definition.eventSchemaId()))
+                .verifyComplete();
+        verify(dynamoDbClient, never()).query(any(QueryRequest.class));
+    }
+
+    @Test
+    void fetchSchema_ItemNotUnderPkSkLayout_FallsBackToTheIndex() {
+        when(dynamoDbClient.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder().build());
+        when(dynamoDbClient.query(any(QueryRequest.class)))
+                .thenReturn(QueryResponse.builder().items(List.of(item("SCHEMA_0001", "ACTIVE"))).build());
+
+        StepVerifier.create(withSchemaRefIndex().fetchSchema(new SchemaReference("demo", "EventSCHEMA_0001", "1.0")))
+                .expectNextMatches(definition -> "SCHEMA_0001".equals(definition.eventSchemaId()))
+                .verifyComplete();
+        verify(dynamoDbClient, never()).scan(any(ScanRequest.class));
+    }
+
+    private DynamoSchemaService withSchemaRefIndex() {
+        SchemaTableIndexes indexes = Mockito.mock(SchemaTableIndexes.class);
+        when(indexes.schemaRefIndexAvailable()).thenReturn(true);
+        return new DynamoSchemaService(new BlockingReactiveDynamoDb(dynamoDbClient), properties, indexes);
+    }
+
+    private static ScanResponse page(List<Map<String, AttributeValue>> items, Map<String, AttributeValue> lastEvaluatedKey) {
+        return ScanResponse.builder()
+                .items(items)
+                .count(items.size())
+                .lastEvaluatedKey(lastEvaluatedKey)
+                .build();
+    }
+
+    private static Map<String, AttributeValue> item(String schemaId, String status) {
+        return Map.of(
+                "PK", s(schemaId),
+                "SK", s("v1.0"),
+                "EVENT_SCHEMA_ID", s(schemaId),
+                "PRODUCER_DOMAIN", s("demo"),
+                "EVENT_NAME", s("Event" + schemaId),
+                "VERSION", s("1.0"),
+                "EVENT_SCHEMA_DEFINITION", s("{\"type\":\"object\"}"),
+                "EVENT_SCHEMA_STATUS", s(status),
+                "UPDATE_TS", s("2025-01-01T00:00:00Z"));
+    }
+
+    private static AttributeValue s(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+}
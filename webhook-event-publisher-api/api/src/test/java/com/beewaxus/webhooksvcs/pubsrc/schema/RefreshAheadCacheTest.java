@@ -0,0 +1,123 @@
+package com.beewaxus.webhooksvcs.pubsrc.schema;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RefreshAheadCacheTest {
+
+    private static final Duration TTL = Duration.ofMinutes(5);
+    private static final Duration REFRESH_AHEAD = Duration.ofMinutes(1);
+    private static final Duration STALE_IF_ERROR = Duration.ofMinutes(10);
+
+    private final AtomicLong nanos = new AtomicLong();
+    private RefreshAheadCache<String, String> cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new RefreshAheadCache<>("Test", "test", 100, TTL, REFRESH_AHEAD, STALE_IF_ERROR,
+                new SimpleMeterRegistry(), nanos::get);
+    }
+
+    @Test
+    void get_BeforeRefreshWindow_ServesCachedValueWithoutLoading() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.put("key", "v1");
+
+        advance(TTL.minus(REFRESH_AHEAD).minusSeconds(1));
+
+        StepVerifier.create(cache.get("key", key -> Mono.fromCallable(() -> "v" + loads.incrementAndGet())))
+                .expectNext("v1")
+                .verifyComplete();
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    void get_InsideRefreshWindow_ServesCachedValueAndReloadsOnceInBackground() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.put("key", "v1");
+
+        advance(TTL.minusNanos(1));
+
+        StepVerifier.create(cache.get("key", key -> Mono.fromCallable(() -> "v" + (1 + loads.incrementAndGet()))))
+                .expectNext("v1")
+                .verifyComplete();
+        StepVerifier.create(cache.get("key", key -> Mono.just("unused")))
+                .expectNext("v2")
+                .verifyComplete();
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_PastTtlWhenReloadFails_ServesLastKnownGoodValue() {
+        cache.put("key", "v1");
+
+        advance(TTL.plusMinutes(1));
+
+        StepVerifier.create(cache.get("key", key -> Mono.error(new DynamoDbException("throttled"))))
+                .expectNext("v1")
+                .verifyComplete();
+    }
+
+    @Test
+    void get_PastStaleLimit_PropagatesLoadFailure() {
+        cache.put("key", "v1");
+
+        advance(TTL.plus(STALE_IF_ERROR).plusSeconds(1));
+
+        StepVerifier.create(cache.get("key", key -> Mono.error(new DynamoDbException("throttled"))))
+                .expectError(DynamoDbException.class)
+                .verify();
+    }
+
+    @Test
+    void get_PastTtlWhenItemWasDeleted_DropsEntry() {
+        cache.put("key", "v1");
+
+        advance(TTL.plusMinutes(1));
+
+        StepVerifier.create(cache.get("key", key -> Mono.empty()))
+                .verifyComplete();
+        StepVerifier.create(cache.get("key", key -> Mono.just("v2")))
+                .expectNext("v2")
+                .verifyComplete();
+    }
+
+    @Test
+    void get_LoaderThrows_FailsTheLoadAndLetsTheNextCallRetry() {
+        StepVerifier.create(cache.get("key", key -> {
+                    throw new DynamoDbException("client not ready");
+                }))
+                .expectError(DynamoDbException.class)
+                .verify();
+        StepVerifier.create(cache.get("key", key -> Mono.just("v1")))
+                .expectNext("v1")
+                .verifyComplete();
+    }
+
+    @Test
+    void invalidateAll_WhileLoadInFlight_DoesNotKeepItsValue() {
+        Sinks.One<String> slowLoad = Sinks.one();
+        cache.get("key", key -> slowLoad.asMono()).subscribe();
+
+        cache.invalidateAll();
+        slowLoad.tryEmitValue("stale");
+
+        StepVerifier.create(cache.get("key", key -> Mono.just("fresh")))
+                .expectNext("fresh")
+                .verifyComplete();
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+}
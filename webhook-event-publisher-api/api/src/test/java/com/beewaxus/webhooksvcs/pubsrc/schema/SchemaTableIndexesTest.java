@@ -0,0 +1,88 @@
+package com.beewaxus.webhooksvcs.pubsrc.schema;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndexDescription;
+import software.amazon.awssdk.services.dynamodb.model.IndexStatus;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+class SchemaTableIndexesTest {
+
+    private DynamoDbClient dynamoDbClient;
+
+    @BeforeEach
+    void setUp() {
+        dynamoDbClient = Mockito.mock(DynamoDbClient.class);
+    }
+
+    @Test
+    void verify_WithActiveIndexes_EnablesIndexedLookups() {
+        describeTableReturns(
+                index("EVENT_SCHEMA_ID-index", IndexStatus.ACTIVE),
+                index("SCHEMA_REF-index", IndexStatus.ACTIVE));
+
+        SchemaTableIndexes indexes = new SchemaTableIndexes(dynamoDbClient, properties(false));
+        indexes.verify();
+
+        assertTrue(indexes.schemaIdIndexAvailable());
+        assertTrue(indexes.schemaRefIndexAvailable());
+    }
+
+    @Test
+    void verify_WithIndexStillBackfilling_FallsBackToScan() {
+        describeTableReturns(
+                index("EVENT_SCHEMA_ID-index", IndexStatus.ACTIVE),
+                index("SCHEMA_REF-index", IndexStatus.CREATING));
+
+        SchemaTableIndexes indexes = new SchemaTableIndexes(dynamoDbClient, properties(false));
+        indexes.verify();
+
+        assertTrue(indexes.schemaIdIndexAvailable());
+        assertFalse(indexes.schemaRefIndexAvailable());
+    }
+
+    @Test
+    void verify_WithMissingIndexWhenRequired_FailsStartup() {
+        describeTableReturns(index("EVENT_SCHEMA_ID-index", IndexStatus.ACTIVE));
+
+        SchemaTableIndexes indexes = new SchemaTableIndexes(dynamoDbClient, properties(true));
+
+        assertThrows(IllegalStateException.class, indexes::verify);
+    }
+
+    private void describeTableReturns(GlobalSecondaryIndexDescription... indexes) {
+        when(dynamoDbClient.describeTable(any(DescribeTableRequest.class))).thenReturn(DescribeTableResponse.builder()
+                .table(TableDescription.builder()
+                        .tableName("event_schema")
+                        .globalSecondaryIndexes(indexes)
+                        .build())
+                .build());
+    }
+
+    private static GlobalSecondaryIndexDescription index(String name, IndexStatus status) {
+        return GlobalSecondaryIndexDescription.builder().indexName(name).indexStatus(status).build();
+    }
+
+    private static WebhooksProperties properties(boolean requireIndexes) {
+        return new WebhooksProperties(
+                new WebhooksProperties.DynamoProperties("event_schema", "EVENT_IDEMPOTENCY_LEDGER", null, null, requireIndexes, null),
+                null,
+                null,
+                null,
+                null,
+                null,
+                null
+        );
+    }
+}
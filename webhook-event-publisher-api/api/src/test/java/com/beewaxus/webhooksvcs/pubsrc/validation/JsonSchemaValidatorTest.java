@@ -2,9 +2,13 @@ package com.beewaxus.webhooksvcs.pubsrc.validation;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.scheduling.CpuStageScheduler;
+import com.beewaxus.webhooksvcs.pubsrc.schema.CompiledSchemaCache;
 import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaDefinition;
 import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaFormatType;
 import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaReference;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import reactor.test.StepVerifier;
@@ -18,7 +22,9 @@ class JsonSchemaValidatorTest {
 
     @BeforeEach
     void setUp() {
-        validator = new JsonSchemaValidator();
+        WebhooksProperties properties = new WebhooksProperties(null, null, null, null, null, null, null);
+        validator = new JsonSchemaValidator(new CompiledSchemaCache(properties),
+                new CpuStageScheduler(properties, new SimpleMeterRegistry()));
         objectMapper = new ObjectMapper();
     }
 
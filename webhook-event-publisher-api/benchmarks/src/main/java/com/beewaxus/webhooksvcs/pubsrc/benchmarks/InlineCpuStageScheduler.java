@@ -0,0 +1,24 @@
+package com.beewaxus.webhooksvcs.pubsrc.benchmarks;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.scheduling.CpuStageScheduler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Runs every stage on the benchmark thread, so the numbers are the cost of the stage itself
+ * rather than of handing it to the CPU pool and waiting for the result.
+ */
+final class InlineCpuStageScheduler extends CpuStageScheduler {
+
+    InlineCpuStageScheduler(WebhooksProperties properties) {
+        super(properties, new SimpleMeterRegistry());
+    }
+
+    @Override
+    public <T> Mono<T> run(String stage, Callable<T> work) {
+        return Mono.fromCallable(work);
+    }
+}
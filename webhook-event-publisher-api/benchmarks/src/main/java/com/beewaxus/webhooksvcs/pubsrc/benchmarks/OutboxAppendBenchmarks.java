@@ -0,0 +1,116 @@
+package com.beewaxus.webhooksvcs.pubsrc.benchmarks;
+
+import com.beewaxus.webhooksvcs.pubsrc.outbox.OutboxEntry;
+import com.beewaxus.webhooksvcs.pubsrc.outbox.OutboxRecord;
+import com.beewaxus.webhooksvcs.pubsrc.outbox.WriteAheadOutbox;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaFormatType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Durable appends to the write-ahead outbox, i.e. what a publish costs when {@code webhooks.kafka.outbox.enabled}
+ * is on. Each operation returns once its records are forced to disk, so the numbers depend on the disk under
+ * {@code java.io.tmpdir} (point it at the volume the service uses). A background thread acknowledges everything
+ * as it is committed, standing in for an instant Kafka, so only the append path is measured.
+ * <ul>
+ *     <li>{@code appendSingle}: one event per append from one thread, the fsync bound case.</li>
+ *     <li>{@code appendConcurrent}: the same from 16 threads; group commit lets them share fsyncs, so throughput
+ *     should be well above the single-thread figure.</li>
+ *     <li>{@code appendBatch}: {@code batch} events per append, as a /batch request writes them.</li>
+ * </ul>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OutboxAppendBenchmarks {
+
+    @Param({"SMALL", "LARGE"})
+    public PayloadSize size;
+
+    @Param({"100"})
+    public int batch;
+
+    private Path directory;
+    private WriteAheadOutbox outbox;
+    private Thread acknowledger;
+    private volatile boolean running;
+    private OutboxRecord record;
+    private List<OutboxRecord> records;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("outbox-benchmark");
+        outbox = new WriteAheadOutbox(directory, 64 * 1024 * 1024, 16);
+        record = new OutboxRecord("wh.ingress.benchmark.BenchmarkEvent", UUID.randomUUID().toString(),
+                size.jsonPayload().toString().getBytes(StandardCharsets.UTF_8), SchemaFormatType.JSON_SCHEMA);
+        records = Collections.nCopies(batch, record);
+
+        running = true;
+        acknowledger = Thread.ofPlatform().name("outbox-benchmark-ack").daemon().start(() -> {
+            while (running) {
+                List<OutboxEntry> entries = outbox.poll(10_000);
+                if (entries.isEmpty()) {
+                    Thread.onSpinWait();
+                } else {
+                    outbox.acknowledge(entries.get(entries.size() - 1).sequence());
+                }
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        running = false;
+        acknowledger.join();
+        outbox.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Void appendSingle() {
+        return outbox.append(record).join();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Void appendConcurrent() {
+        return outbox.append(record).join();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Void appendBatch() {
+        return outbox.append(records).join();
+    }
+}
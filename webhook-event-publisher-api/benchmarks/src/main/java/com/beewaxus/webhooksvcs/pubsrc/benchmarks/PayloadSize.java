@@ -0,0 +1,141 @@
+package com.beewaxus.webhooksvcs.pubsrc.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Synthetic event shapes the benchmarks run against. Each size has a matching JSON Schema, Avro schema,
+ * JSON payload and XML payload, built from the same field list so every stage sees an equivalent event:
+ * top-level fields cycling through string, int, long, double and boolean, plus an array of line item records.
+ */
+public enum PayloadSize {
+
+    SMALL(6, 0),
+    MEDIUM(30, 10),
+    LARGE(120, 200);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final int fields;
+    private final int items;
+
+    PayloadSize(int fields, int items) {
+        this.fields = fields;
+        this.items = items;
+    }
+
+    public String jsonSchema() {
+        ObjectNode properties = MAPPER.createObjectNode();
+        ArrayNode required = MAPPER.createArrayNode();
+        for (int i = 0; i < fields; i++) {
+            properties.putObject(fieldName(i)).put("type", jsonType(i));
+            required.add(fieldName(i));
+        }
+        if (items > 0) {
+            ObjectNode item = properties.putObject("items").put("type", "array").putObject("items");
+            item.put("type", "object");
+            item.putArray("required").add("sku").add("quantity").add("price");
+            ObjectNode itemProperties = item.putObject("properties");
+            itemProperties.putObject("sku").put("type", "string");
+            itemProperties.putObject("quantity").put("type", "integer");
+            itemProperties.putObject("price").put("type", "number");
+            required.add("items");
+        }
+        ObjectNode schema = MAPPER.createObjectNode();
+        schema.put("$schema", "http://json-schema.org/draft-07/schema#");
+        schema.put("type", "object");
+        schema.set("required", required);
+        schema.set("properties", properties);
+        return schema.toString();
+    }
+
+    public String avroSchema() {
+        ObjectNode schema = MAPPER.createObjectNode()
+                .put("type", "record")
+                .put("name", "BenchmarkEvent")
+                .put("namespace", "com.beewaxus.webhooksvcs.benchmarks");
+        ArrayNode fieldList = schema.putArray("fields");
+        for (int i = 0; i < fields; i++) {
+            fieldList.addObject().put("name", fieldName(i)).put("type", avroType(i));
+        }
+        if (items > 0) {
+            ObjectNode item = fieldList.addObject().put("name", "items").putObject("type")
+                    .put("type", "array").putObject("items")
+                    .put("type", "record")
+                    .put("name", "LineItem");
+            ArrayNode itemFields = item.putArray("fields");
+            itemFields.addObject().put("name", "sku").put("type", "string");
+            itemFields.addObject().put("name", "quantity").put("type", "int");
+            itemFields.addObject().put("name", "price").put("type", "double");
+        }
+        return schema.toString();
+    }
+
+    public ObjectNode jsonPayload() {
+        ObjectNode payload = MAPPER.createObjectNode();
+        for (int i = 0; i < fields; i++) {
+            switch (i % 5) {
+                case 0 -> payload.put(fieldName(i), "value-" + i);
+                case 1 -> payload.put(fieldName(i), i);
+                case 2 -> payload.put(fieldName(i), 1_700_000_000_000L + i);
+                case 3 -> payload.put(fieldName(i), i + 0.25);
+                default -> payload.put(fieldName(i), i % 2 == 0);
+            }
+        }
+        if (items > 0) {
+            ArrayNode itemList = payload.putArray("items");
+            for (int i = 0; i < items; i++) {
+                itemList.addObject().put("sku", "SKU-" + i).put("quantity", i + 1).put("price", i * 1.5);
+            }
+        }
+        return payload;
+    }
+
+    public byte[] xmlPayload() {
+        StringBuilder xml = new StringBuilder("<event>");
+        jsonPayload().fields().forEachRemaining(field -> {
+            if (field.getValue().isArray()) {
+                xml.append("<items>");
+                field.getValue().forEach(item -> {
+                    xml.append("<item>");
+                    item.fields().forEachRemaining(itemField -> element(xml, itemField.getKey(), itemField.getValue().asText()));
+                    xml.append("</item>");
+                });
+                xml.append("</items>");
+            } else {
+                element(xml, field.getKey(), field.getValue().asText());
+            }
+        });
+        return xml.append("</event>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void element(StringBuilder xml, String name, String text) {
+        xml.append('<').append(name).append('>').append(text).append("</").append(name).append('>');
+    }
+
+    private static String fieldName(int i) {
+        return "field" + i;
+    }
+
+    private static String jsonType(int i) {
+        return switch (i % 5) {
+            case 0 -> "string";
+            case 1, 2 -> "integer";
+            case 3 -> "number";
+            default -> "boolean";
+        };
+    }
+
+    private static String avroType(int i) {
+        return switch (i % 5) {
+            case 0 -> "string";
+            case 1 -> "int";
+            case 2 -> "long";
+            case 3 -> "double";
+            default -> "boolean";
+        };
+    }
+}
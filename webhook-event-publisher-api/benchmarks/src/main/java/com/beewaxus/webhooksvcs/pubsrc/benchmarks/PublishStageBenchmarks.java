@@ -0,0 +1,119 @@
+package com.beewaxus.webhooksvcs.pubsrc.benchmarks;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.converter.AvroBinaryEncoder;
+import com.beewaxus.webhooksvcs.pubsrc.converter.AvroSerializer;
+import com.beewaxus.webhooksvcs.pubsrc.converter.FormatConverter;
+import com.beewaxus.webhooksvcs.pubsrc.schema.CompiledSchemaCache;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaDefinition;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaFormatType;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaReference;
+import com.beewaxus.webhooksvcs.pubsrc.validation.AvroSchemaValidator;
+import com.beewaxus.webhooksvcs.pubsrc.validation.JsonSchemaValidator;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.apache.avro.generic.GenericRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-event cost of each CPU stage of the publish path, for every {@link PayloadSize}.
+ * Throughput mode gives events per microsecond, sample mode the latency percentiles;
+ * add {@code -prof gc} for the allocation rate. Schemas are compiled during setup, as they are
+ * cached in the service, and the stages run on the benchmark thread (see {@link InlineCpuStageScheduler}).
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PublishStageBenchmarks {
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    public PayloadSize size;
+
+    private InlineCpuStageScheduler cpuStageScheduler;
+    private JsonSchemaValidator jsonSchemaValidator;
+    private AvroSchemaValidator avroSchemaValidator;
+    private AvroBinaryEncoder avroBinaryEncoder;
+    private AvroSerializer avroSerializer;
+    private FormatConverter formatConverter;
+
+    private SchemaDefinition jsonDefinition;
+    private SchemaDefinition avroDefinition;
+    private JsonNode payload;
+    private GenericRecord record;
+    private byte[] xmlPayload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        WebhooksProperties properties = new WebhooksProperties(null, null, null,
+                new WebhooksProperties.ValidationProperties(true, 1), null, null, null);
+        CompiledSchemaCache compiledSchemaCache = new CompiledSchemaCache(properties);
+        cpuStageScheduler = new InlineCpuStageScheduler(properties);
+        jsonSchemaValidator = new JsonSchemaValidator(compiledSchemaCache, cpuStageScheduler);
+        avroSchemaValidator = new AvroSchemaValidator(compiledSchemaCache, cpuStageScheduler);
+        avroBinaryEncoder = new AvroBinaryEncoder(compiledSchemaCache, cpuStageScheduler);
+        avroSerializer = new AvroSerializer(compiledSchemaCache, cpuStageScheduler);
+        formatConverter = new FormatConverter(compiledSchemaCache, cpuStageScheduler);
+
+        SchemaReference reference = new SchemaReference("benchmark", "BenchmarkEvent", size.name());
+        jsonDefinition = new SchemaDefinition(reference, size.jsonSchema(), null,
+                SchemaFormatType.JSON_SCHEMA, true, Instant.now(), null);
+        avroDefinition = new SchemaDefinition(reference, null, size.avroSchema(),
+                SchemaFormatType.AVRO_SCHEMA, true, Instant.now(), null);
+        payload = size.jsonPayload();
+        xmlPayload = size.xmlPayload();
+
+        // Also proves every stage accepts the fixture before anything is measured
+        jsonSchemaValidator.validateSync(payload, jsonDefinition);
+        record = avroSchemaValidator.validate(payload, avroDefinition).block();
+        avroBinaryEncoder.encode(payload, avroDefinition).block();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cpuStageScheduler.scheduler().dispose();
+    }
+
+    @Benchmark
+    public JsonNode jsonSchemaValidation() {
+        return jsonSchemaValidator.validateSync(payload, jsonDefinition);
+    }
+
+    @Benchmark
+    public GenericRecord avroSchemaValidation() {
+        return avroSchemaValidator.validate(payload, avroDefinition).block();
+    }
+
+    // Type coercion and Avro encoding of a JSON payload in one pass (formerly coerceJsonToAvroTypes)
+    @Benchmark
+    public byte[] avroBinaryEncoding() {
+        return avroBinaryEncoder.encode(payload, avroDefinition).block();
+    }
+
+    @Benchmark
+    public byte[] avroSerialization() {
+        return avroSerializer.serializeToAvro(record, avroDefinition).block();
+    }
+
+    @Benchmark
+    public JsonNode xmlToJson() throws IOException {
+        return formatConverter.xmlToJson(xmlPayload);
+    }
+}
@@ -0,0 +1,77 @@
+package com.beewaxus.webhooksvcs.pubsrc.loadtest;
+
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaFormatType;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The publish endpoints the load test drives, named as in {@code loadtest.endpoints}.
+ */
+enum Endpoint {
+
+    PUBLISHER("publisher") {
+        @Override
+        WebClient.RequestHeadersSpec<?> request(WebClient webClient, LoadSchema schema) {
+            return webClient.post()
+                    .uri("/webhook/event/publisher")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(schema.publisherBody());
+        }
+    },
+    PUBLISHER_CE("publisherCE") {
+        @Override
+        WebClient.RequestHeadersSpec<?> request(WebClient webClient, LoadSchema schema) {
+            return webClient.post()
+                    .uri("/webhook/event/publisherCE")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(schema.cloudEventBody());
+        }
+
+        // CloudEvents are validated against the JSON Schema only
+        @Override
+        boolean accepts(LoadSchema schema) {
+            return schema.format() == SchemaFormatType.JSON_SCHEMA;
+        }
+    },
+    SCHEMA_ID("schemaId") {
+        @Override
+        WebClient.RequestHeadersSpec<?> request(WebClient webClient, LoadSchema schema) {
+            return webClient.post()
+                    .uri("/webhook/schema/schema_id/{schemaId}", schema.schemaId())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(schema.dataBody());
+        }
+    };
+
+    private final String displayName;
+
+    Endpoint(String displayName) {
+        this.displayName = displayName;
+    }
+
+    abstract WebClient.RequestHeadersSpec<?> request(WebClient webClient, LoadSchema schema);
+
+    boolean accepts(LoadSchema schema) {
+        return true;
+    }
+
+    List<LoadSchema> accepted(List<LoadSchema> schemas) {
+        return schemas.stream().filter(this::accepts).toList();
+    }
+
+    String displayName() {
+        return displayName;
+    }
+
+    static Endpoint fromName(String name) {
+        return Arrays.stream(values())
+                .filter(endpoint -> endpoint.displayName.equalsIgnoreCase(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown endpoint '" + name + "', expected one of "
+                        + Arrays.stream(values()).map(Endpoint::displayName).collect(Collectors.joining(", "))));
+    }
+}
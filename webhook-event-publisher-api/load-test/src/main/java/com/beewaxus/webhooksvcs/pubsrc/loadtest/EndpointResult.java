@@ -0,0 +1,56 @@
+package com.beewaxus.webhooksvcs.pubsrc.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Outcome of the measured phase of one endpoint.
+ *
+ * @param label      the endpoint name, suffixed with {@code -flood} for the flooding domain's traffic
+ * @param sent       requests offered during the measured duration
+ * @param succeeded  of those, the ones answered with a 2xx
+ * @param errors     the rest by kind: {@code HTTP <status>}, the client exception, {@code shed} when over the
+ *                   in-flight limit, or {@code unfinished} when still outstanding after the drain timeout
+ * @param latencies  microseconds from when each successful request was due until its response arrived
+ */
+record EndpointResult(Endpoint endpoint, String label, int targetRate, Duration duration, long sent, long succeeded,
+                      Map<String, Long> errors, Histogram latencies) {
+
+    static final String HEADER = "%-18s %10s %12s %10s %8s %9s %9s %9s %9s".formatted(
+            "endpoint", "target rps", "achieved rps", "requests", "error %", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+
+    long failed() {
+        return errors.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * Successful responses per second of the measured duration.
+     */
+    double achievedRate() {
+        return succeeded / (duration.toNanos() / 1e9);
+    }
+
+    double errorRate() {
+        return sent == 0 ? 0 : (double) failed() / sent;
+    }
+
+    String summaryLine() {
+        return "%-18s %10d %12.1f %10d %8.2f %9.2f %9.2f %9.2f %9.2f".formatted(
+                label, targetRate, achievedRate(), sent, errorRate() * 100,
+                millis(50), millis(99), millis(99.9), latencies.getMaxValue() / 1000.0);
+    }
+
+    /**
+     * Full latency distribution in milliseconds, in the text format HdrHistogram plotters read.
+     */
+    void writeDistribution(PrintStream out) {
+        latencies.outputPercentileDistribution(out, 1000.0);
+    }
+
+    private double millis(double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
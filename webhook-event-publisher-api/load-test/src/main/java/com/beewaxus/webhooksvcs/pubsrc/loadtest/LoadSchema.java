@@ -0,0 +1,141 @@
+package com.beewaxus.webhooksvcs.pubsrc.loadtest;
+
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaFormatType;
+import com.beewaxus.webhooksvcs.pubsrc.schema.SchemaReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * One schema seeded into DynamoDB Local, with the request bodies the endpoints send for it.
+ * Bodies are rendered once; only the CloudEvent id changes per request.
+ */
+final class LoadSchema {
+
+    static final String DOMAIN = "loadtest";
+    static final String VERSION = "1.0";
+    static final String TOPIC_PREFIX = "wh.ingress";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String SEEDED_AT = "2025-01-01T00:00:00Z";
+
+    private final SchemaFormatType format;
+    private final EventShape shape;
+    private final SchemaReference reference;
+    private final byte[] publisherBody;
+    private final byte[] dataBody;
+    private final byte[] cloudEventPrefix;
+    private final byte[] cloudEventSuffix;
+
+    private LoadSchema(SchemaFormatType format, EventShape shape) {
+        this.format = format;
+        this.shape = shape;
+        String prefix = format == SchemaFormatType.JSON_SCHEMA ? "json" : "avro";
+        String eventName = prefix + shape.name().charAt(0) + shape.name().substring(1).toLowerCase();
+        this.reference = new SchemaReference(DOMAIN, eventName, VERSION);
+
+        ObjectNode data = shape.payload();
+        ObjectNode publisher = MAPPER.createObjectNode()
+                .put("domain", DOMAIN)
+                .put("eventName", eventName)
+                .put("version", VERSION);
+        publisher.set("data", data);
+        this.publisherBody = publisher.toString().getBytes(StandardCharsets.UTF_8);
+        this.dataBody = data.toString().getBytes(StandardCharsets.UTF_8);
+
+        ObjectNode cloudEvent = MAPPER.createObjectNode()
+                .put("type", "com.beewaxus.loadtest." + eventName)
+                .put("source", DOMAIN)
+                .put("subject", eventName)
+                .put("specVersion", VERSION)
+                .put("time", SEEDED_AT);
+        cloudEvent.set("data", data);
+        // {"id":"<uuid>", followed by the remaining fields of the rendered event
+        this.cloudEventPrefix = "{\"id\":\"".getBytes(StandardCharsets.UTF_8);
+        this.cloudEventSuffix = ("\"," + cloudEvent.toString().substring(1)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Every format at every size, so each endpoint run covers the whole mix.
+     */
+    static List<LoadSchema> all() {
+        List<LoadSchema> schemas = new ArrayList<>();
+        for (SchemaFormatType format : List.of(SchemaFormatType.JSON_SCHEMA, SchemaFormatType.AVRO_SCHEMA)) {
+            for (EventShape shape : EventShape.values()) {
+                schemas.add(new LoadSchema(format, shape));
+            }
+        }
+        return schemas;
+    }
+
+    SchemaFormatType format() {
+        return format;
+    }
+
+    String schemaId() {
+        return "SCHEMA_%s_%s_%s".formatted(reference.domain().toUpperCase(), reference.eventName().toUpperCase(),
+                VERSION.replace(".", "_"));
+    }
+
+    String topicName() {
+        return "%s.%s.%s".formatted(TOPIC_PREFIX, reference.domain(), reference.eventName());
+    }
+
+    byte[] publisherBody() {
+        return publisherBody;
+    }
+
+    byte[] dataBody() {
+        return dataBody;
+    }
+
+    byte[] cloudEventBody() {
+        byte[] id = UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+        byte[] body = new byte[cloudEventPrefix.length + id.length + cloudEventSuffix.length];
+        System.arraycopy(cloudEventPrefix, 0, body, 0, cloudEventPrefix.length);
+        System.arraycopy(id, 0, body, cloudEventPrefix.length, id.length);
+        System.arraycopy(cloudEventSuffix, 0, body, cloudEventPrefix.length + id.length, cloudEventSuffix.length);
+        return body;
+    }
+
+    /**
+     * Row in the layout {@code DynamoSchemaService} reads, ACTIVE with an ACTIVE topic.
+     */
+    Map<String, AttributeValue> item() {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("PK", s(reference.partitionKey()));
+        item.put("SK", s(reference.sortKey()));
+        item.put("EVENT_SCHEMA_ID", s(schemaId()));
+        item.put("SCHEMA_REF", s(reference.schemaRef()));
+        item.put("PRODUCER_DOMAIN", s(reference.domain()));
+        item.put("EVENT_NAME", s(reference.eventName()));
+        item.put("VERSION", s(reference.version()));
+        if (format == SchemaFormatType.JSON_SCHEMA) {
+            item.put("EVENT_SCHEMA_DEFINITION", s(shape.jsonSchema()));
+        } else {
+            item.put("EVENT_SCHEMA_DEFINITION_AVRO", s(shape.avroSchema(reference.eventName())));
+        }
+        item.put("EVENT_SCHEMA_STATUS", s("ACTIVE"));
+        item.put("TOPIC_NAME", s(topicName()));
+        item.put("TOPIC_STATUS", s("ACTIVE"));
+        item.put("INSERT_TS", s(SEEDED_AT));
+        item.put("UPDATE_TS", s(SEEDED_AT));
+        return item;
+    }
+
+    @Override
+    public String toString() {
+        return reference.eventName();
+    }
+
+    private static AttributeValue s(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+}
@@ -0,0 +1,60 @@
+package com.beewaxus.webhooksvcs.pubsrc.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Settings of one load test run, read from {@code loadtest.*} system properties
+ * (the exec plugin passes the defaults from the module pom).
+ *
+ * @param rate        requests per second offered to each endpoint, whether or not earlier ones completed
+ * @param duration    how long each endpoint is measured
+ * @param warmup      how long each endpoint is driven at the same rate before measuring
+ * @param endpoints   endpoints to drive, one after another
+ * @param maxInFlight outstanding requests above which new arrivals are shed and counted as errors,
+ *                    so an overloaded service cannot exhaust the generator's memory
+ * @param reportDir   where the summary and the per-endpoint latency distributions are written
+ * @param floodRate   when positive, requests per second sent alongside each endpoint from a second producer
+ *                    domain, with admission control on and that domain limited to {@code floodLimit}
+ * @param floodLimit  admission limit of the flooding domain in requests per second
+ */
+record LoadTestConfig(int rate, Duration duration, Duration warmup, List<Endpoint> endpoints, int maxInFlight,
+                      Path reportDir, int floodRate, int floodLimit) {
+
+    LoadTestConfig {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("loadtest.rate must be positive");
+        }
+        if (duration.isZero() || duration.isNegative()) {
+            throw new IllegalArgumentException("loadtest.duration must be positive");
+        }
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("loadtest.endpoints must name at least one endpoint");
+        }
+        if (floodRate > 0 && floodLimit <= 0) {
+            throw new IllegalArgumentException("loadtest.flood-limit must be positive");
+        }
+    }
+
+    boolean flood() {
+        return floodRate > 0;
+    }
+
+    static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+                Integer.getInteger("loadtest.rate", 200),
+                Duration.parse(System.getProperty("loadtest.duration", "PT60S")),
+                Duration.parse(System.getProperty("loadtest.warmup", "PT15S")),
+                Arrays.stream(System.getProperty("loadtest.endpoints", "publisher,publisherCE,schemaId").split(","))
+                        .map(String::trim)
+                        .filter(name -> !name.isEmpty())
+                        .map(Endpoint::fromName)
+                        .toList(),
+                Integer.getInteger("loadtest.max-in-flight", 5000),
+                Path.of(System.getProperty("loadtest.report-dir", "target/load-test")),
+                Integer.getInteger("loadtest.flood-rate", 0),
+                Integer.getInteger("loadtest.flood-limit", 50));
+    }
+}
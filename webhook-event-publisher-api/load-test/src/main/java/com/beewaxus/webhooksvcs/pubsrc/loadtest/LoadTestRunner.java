@@ -0,0 +1,170 @@
+package com.beewaxus.webhooksvcs.pubsrc.loadtest;
+
+import com.beewaxus.webhooksvcs.pubsrc.WebhooksValidationApiApplication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Starts DynamoDB Local, an embedded Kafka broker and the service in this JVM, then drives each configured
+ * endpoint at {@code loadtest.rate} requests per second and reports sustained throughput, latency percentiles
+ * and error rates:
+ * <pre>
+ * mvn -B install -DskipTests
+ * mvn -pl load-test exec:exec -Dloadtest.rate=500 -Dloadtest.duration=PT2M
+ * </pre>
+ * The service runs with its production configuration apart from the endpoints, the ports and logging,
+ * so the numbers include schema cache misses during warmup, the idempotency ledger and Kafka acks=all.
+ * <p>
+ * With {@code -Dloadtest.flood-rate=N} a second producer domain sends N requests per second to each endpoint
+ * at the same time, with admission control on and that domain limited to {@code loadtest.flood-limit}. Its
+ * results are reported as {@code <endpoint>-flood}; the measured domain's p99 should stay close to a run without it.
+ */
+public final class LoadTestRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestRunner.class);
+
+    private static final String DOMAIN = "loadtest";
+    private static final String FLOOD_DOMAIN = "loadtest-flood";
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) {
+        int status = 0;
+        try {
+            run(LoadTestConfig.fromSystemProperties());
+        } catch (Exception e) {
+            log.error("Load test failed", e);
+            status = 1;
+        }
+        // The embedded broker and DynamoDB Local leave non-daemon threads behind after shutting down
+        System.exit(status);
+    }
+
+    private static void run(LoadTestConfig config) throws Exception {
+        List<LoadSchema> schemas = LoadSchema.all();
+        ConnectionProvider connections = ConnectionProvider.builder("load-test")
+                .maxConnections(config.maxInFlight())
+                .pendingAcquireMaxCount(-1)
+                .build();
+
+        try (LocalInfrastructure infrastructure = LocalInfrastructure.start(schemas);
+             ConfigurableApplicationContext service = startService(infrastructure, config)) {
+            int port = service.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            WebClient webClient = WebClient.builder()
+                    .baseUrl("http://localhost:" + port)
+                    .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                    .build();
+
+            verifyEveryRequestIsAccepted(webClient, config.endpoints(), schemas);
+
+            OpenModelLoadGenerator generator = new OpenModelLoadGenerator(webClient, config.maxInFlight(), DOMAIN);
+            OpenModelLoadGenerator flood = new OpenModelLoadGenerator(webClient, config.maxInFlight(), FLOOD_DOMAIN);
+            List<EndpointResult> results = new ArrayList<>();
+            for (Endpoint endpoint : config.endpoints()) {
+                log.warn("Driving {} at {} rps: {} warmup, {} measured", endpoint.displayName(), config.rate(),
+                        config.warmup(), config.duration());
+                CompletableFuture<EndpointResult> flooding = null;
+                if (config.flood()) {
+                    log.warn("Flooding {} from {} at {} rps, limited to {}", endpoint.displayName(), FLOOD_DOMAIN,
+                            config.floodRate(), config.floodLimit());
+                    flooding = CompletableFuture.supplyAsync(() -> flood.run(endpoint, endpoint.displayName() + "-flood",
+                            schemas, config.floodRate(), config.warmup(), config.duration()));
+                }
+                results.add(generator.run(endpoint, endpoint.displayName(), schemas, config.rate(), config.warmup(), config.duration()));
+                if (flooding != null) {
+                    results.add(flooding.join());
+                }
+            }
+            report(results, schemas, config);
+        } finally {
+            connections.dispose();
+        }
+    }
+
+    private static ConfigurableApplicationContext startService(LocalInfrastructure infrastructure, LoadTestConfig config) {
+        // Command line arguments, so they win over application.yaml
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--aws.dynamodb.endpoint=" + infrastructure.dynamoDbEndpoint(),
+                "--webhooks.dynamodb.table-name=" + LocalInfrastructure.SCHEMA_TABLE,
+                "--webhooks.dynamodb.idempotency-ledger-table-name=" + LocalInfrastructure.LEDGER_TABLE,
+                "--webhooks.dynamodb.schema-id-index-name=" + LocalInfrastructure.SCHEMA_ID_INDEX,
+                "--webhooks.dynamodb.schema-ref-index-name=" + LocalInfrastructure.SCHEMA_REF_INDEX,
+                "--webhooks.dynamodb.require-indexes=true",
+                "--webhooks.kafka.bootstrap-servers=" + infrastructure.bootstrapServers(),
+                "--webhooks.kafka.ingress-topic-prefix=" + LoadSchema.TOPIC_PREFIX,
+                // The service logs every event at INFO/DEBUG, which would dominate the measurements
+                "--logging.level.root=WARN",
+                "--logging.level.com.beewaxus.webhooksvcs.pubsrc=WARN",
+                "--logging.level.com.amazonaws=WARN"));
+        if (config.flood()) {
+            args.addAll(List.of(
+                    "--webhooks.admission.enabled=true",
+                    // The generators name their domain in the key header, as an authenticating gateway would
+                    "--webhooks.admission.trust-key-header=true",
+                    "--webhooks.admission.limits." + FLOOD_DOMAIN + ".rate=" + config.floodLimit(),
+                    // Well clear of the measured rate, so only the flooding domain is ever limited
+                    "--webhooks.admission.default-rate=" + config.rate() * 2));
+        }
+        return new SpringApplicationBuilder(WebhooksValidationApiApplication.class).run(args.toArray(String[]::new));
+    }
+
+    /**
+     * Sends each request shape once, so a broken setup fails fast instead of being reported as a 100% error rate.
+     */
+    private static void verifyEveryRequestIsAccepted(WebClient webClient, List<Endpoint> endpoints, List<LoadSchema> schemas) {
+        for (Endpoint endpoint : endpoints) {
+            for (LoadSchema schema : endpoint.accepted(schemas)) {
+                String failure = endpoint.request(webClient, schema)
+                        .exchangeToMono(response -> response.statusCode().is2xxSuccessful()
+                                ? response.releaseBody().then(Mono.<String>empty())
+                                : response.bodyToMono(String.class).defaultIfEmpty("")
+                                        .map(body -> response.statusCode() + " " + body))
+                        .block(Duration.ofSeconds(30));
+                if (failure != null) {
+                    throw new IllegalStateException("%s rejected %s: %s".formatted(endpoint.displayName(), schema, failure));
+                }
+            }
+        }
+    }
+
+    private static void report(List<EndpointResult> results, List<LoadSchema> schemas, LoadTestConfig config) throws IOException {
+        Files.createDirectories(config.reportDir());
+        Path summary = config.reportDir().resolve("summary.txt");
+        try (PrintStream out = new PrintStream(Files.newOutputStream(summary))) {
+            for (PrintStream target : List.of(System.out, out)) {
+                target.printf("Open model, %s measured after %s warmup per endpoint, schemas %s%n",
+                        config.duration(), config.warmup(), schemas);
+                target.println(EndpointResult.HEADER);
+                results.forEach(result -> target.println(result.summaryLine()));
+                results.stream()
+                        .filter(result -> !result.errors().isEmpty())
+                        .forEach(result -> target.printf("%s errors: %s%n", result.label(), result.errors()));
+            }
+        }
+        for (EndpointResult result : results) {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(
+                    config.reportDir().resolve(result.label() + ".hgrm")))) {
+                result.writeDistribution(out);
+            }
+        }
+        System.out.println("Report written to " + config.reportDir().toAbsolutePath());
+    }
+}
@@ -0,0 +1,134 @@
+package com.beewaxus.webhooksvcs.pubsrc.loadtest;
+
+import com.amazonaws.services.dynamodbv2.local.main.ServerRunner;
+import com.amazonaws.services.dynamodbv2.local.server.DynamoDBProxyServer;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndex;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.Projection;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.List;
+
+/**
+ * In-memory DynamoDB Local and a single-node KRaft Kafka broker, with the schema and ledger tables
+ * created, the load test schemas seeded and one topic per schema.
+ */
+final class LocalInfrastructure implements AutoCloseable {
+
+    static final String SCHEMA_TABLE = "event_schema";
+    static final String LEDGER_TABLE = "EVENT_IDEMPOTENCY_LEDGER";
+    static final String SCHEMA_ID_INDEX = "EVENT_SCHEMA_ID-index";
+    static final String SCHEMA_REF_INDEX = "SCHEMA_REF-index";
+
+    private static final int PARTITIONS = 6;
+
+    private final DynamoDBProxyServer dynamoDb;
+    private final String dynamoDbEndpoint;
+    private final EmbeddedKafkaKraftBroker kafka;
+
+    private LocalInfrastructure(DynamoDBProxyServer dynamoDb, String dynamoDbEndpoint, EmbeddedKafkaKraftBroker kafka) {
+        this.dynamoDb = dynamoDb;
+        this.dynamoDbEndpoint = dynamoDbEndpoint;
+        this.kafka = kafka;
+    }
+
+    static LocalInfrastructure start(List<LoadSchema> schemas) throws Exception {
+        int port = freePort();
+        DynamoDBProxyServer dynamoDb = ServerRunner.createServerFromCommandLineArgs(
+                new String[]{"-inMemory", "-port", String.valueOf(port)});
+        dynamoDb.start();
+        String endpoint = "http://localhost:" + port;
+
+        EmbeddedKafkaKraftBroker kafka = new EmbeddedKafkaKraftBroker(1, PARTITIONS);
+        try {
+            kafka.afterPropertiesSet();
+            kafka.addTopics(schemas.stream()
+                    .map(schema -> new NewTopic(schema.topicName(), PARTITIONS, (short) 1))
+                    .toArray(NewTopic[]::new));
+            try (DynamoDbClient client = client(endpoint)) {
+                createTables(client);
+                schemas.forEach(schema -> client.putItem(request -> request.tableName(SCHEMA_TABLE).item(schema.item())));
+            }
+        } catch (Exception e) {
+            kafka.destroy();
+            dynamoDb.stop();
+            throw e;
+        }
+        return new LocalInfrastructure(dynamoDb, endpoint, kafka);
+    }
+
+    String dynamoDbEndpoint() {
+        return dynamoDbEndpoint;
+    }
+
+    String bootstrapServers() {
+        return kafka.getBrokersAsString();
+    }
+
+    @Override
+    public void close() throws Exception {
+        try {
+            kafka.destroy();
+        } finally {
+            dynamoDb.stop();
+        }
+    }
+
+    private static void createTables(DynamoDbClient client) {
+        client.createTable(request -> request
+                .tableName(SCHEMA_TABLE)
+                .billingMode(BillingMode.PAY_PER_REQUEST)
+                .attributeDefinitions(
+                        attribute("PK"), attribute("SK"), attribute("EVENT_SCHEMA_ID"), attribute("SCHEMA_REF"))
+                .keySchema(key("PK", KeyType.HASH), key("SK", KeyType.RANGE))
+                .globalSecondaryIndexes(index(SCHEMA_ID_INDEX, "EVENT_SCHEMA_ID"), index(SCHEMA_REF_INDEX, "SCHEMA_REF")));
+        client.createTable(request -> request
+                .tableName(LEDGER_TABLE)
+                .billingMode(BillingMode.PAY_PER_REQUEST)
+                .attributeDefinitions(attribute("EVENT_ID"))
+                .keySchema(key("EVENT_ID", KeyType.HASH)));
+    }
+
+    private static DynamoDbClient client(String endpoint) {
+        return DynamoDbClient.builder()
+                .endpointOverride(URI.create(endpoint))
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("dummy", "dummy")))
+                .region(Region.US_EAST_1)
+                .build();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static AttributeDefinition attribute(String name) {
+        return AttributeDefinition.builder().attributeName(name).attributeType(ScalarAttributeType.S).build();
+    }
+
+    private static KeySchemaElement key(String name, KeyType type) {
+        return KeySchemaElement.builder().attributeName(name).keyType(type).build();
+    }
+
+    private static GlobalSecondaryIndex index(String name, String hashKey) {
+        return GlobalSecondaryIndex.builder()
+                .indexName(name)
+                .keySchema(key(hashKey, KeyType.HASH))
+                .projection(Projection.builder().projectionType(ProjectionType.ALL).build())
+                .build();
+    }
+}
@@ -0,0 +1,115 @@
+package com.beewaxus.webhooksvcs.pubsrc.loadtest;
+
+import org.HdrHistogram.Recorder;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Offers requests at a fixed arrival rate regardless of how fast the service answers (an open model),
+ * cycling through the seeded schemas the endpoint accepts. Latency is measured from when a request was due,
+ * not from when it was actually sent, so a stalled service shows up in the percentiles instead of just
+ * slowing the generator down (coordinated omission). Every request names {@code domain} as its producer domain,
+ * the key admission control charges it to.
+ */
+final class OpenModelLoadGenerator {
+
+    static final String DOMAIN_HEADER = "X-Producer-Domain";
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final WebClient webClient;
+    private final int maxInFlight;
+    private final String domain;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    OpenModelLoadGenerator(WebClient webClient, int maxInFlight, String domain) {
+        this.webClient = webClient;
+        this.maxInFlight = maxInFlight;
+        this.domain = domain;
+    }
+
+    /**
+     * Drives {@code endpoint} for the warmup and then for the measured duration, and waits for the
+     * measured requests to complete.
+     */
+    EndpointResult run(Endpoint endpoint, String label, List<LoadSchema> seeded, int rate, Duration warmup, Duration duration) {
+        List<LoadSchema> schemas = endpoint.accepted(seeded);
+        if (!warmup.isZero()) {
+            drive(endpoint, schemas, rate, warmup);
+        }
+        Phase measured = drive(endpoint, schemas, rate, duration);
+        long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        return measured.result(endpoint, label, rate, duration, inFlight.get());
+    }
+
+    private Phase drive(Endpoint endpoint, List<LoadSchema> schemas, int rate, Duration duration) {
+        Phase phase = new Phase();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long requests = duration.toNanos() / intervalNanos;
+        long start = System.nanoTime();
+        for (long i = 0; i < requests; i++) {
+            long due = start + i * intervalNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            send(endpoint, schemas.get((int) (i % schemas.size())), due, phase);
+        }
+        return phase;
+    }
+
+    private void send(Endpoint endpoint, LoadSchema schema, long due, Phase phase) {
+        phase.sent.increment();
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            phase.error("shed");
+            return;
+        }
+        endpoint.request(webClient, schema)
+                .header(DOMAIN_HEADER, domain)
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()))
+                .doFinally(signal -> inFlight.decrementAndGet())
+                .subscribe(status -> {
+                    if (status >= 200 && status < 300) {
+                        phase.succeeded.increment();
+                        phase.latencies.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due)));
+                    } else {
+                        phase.error("HTTP " + status);
+                    }
+                }, error -> phase.error(error.getClass().getSimpleName()));
+    }
+
+    private static final class Phase {
+
+        // Microseconds from when each successful request was due until its response arrived
+        private final Recorder latencies = new Recorder(3);
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder succeeded = new LongAdder();
+        private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+        private void error(String kind) {
+            errors.computeIfAbsent(kind, key -> new LongAdder()).increment();
+        }
+
+        private EndpointResult result(Endpoint endpoint, String label, int rate, Duration duration, int unfinished) {
+            Map<String, Long> errorCounts = new TreeMap<>();
+            errors.forEach((kind, count) -> errorCounts.put(kind, count.sum()));
+            if (unfinished > 0) {
+                errorCounts.put("unfinished", (long) unfinished);
+            }
+            return new EndpointResult(endpoint, label, rate, duration, sent.sum(), succeeded.sum(), errorCounts,
+                    latencies.getIntervalHistogram());
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.beewaxus.webhooksvcs.pubsrc.loadtest;
+
+import com.beewaxus.webhooksvcs.pubsrc.config.KafkaConfig;
+import com.beewaxus.webhooksvcs.pubsrc.config.WebhooksProperties;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.KafkaProducerPool;
+import com.beewaxus.webhooksvcs.pubsrc.publisher.ReactiveKafkaSender;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.LogDirDescription;
+import org.apache.kafka.clients.admin.ReplicaInfo;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Sends the same JSON events through each built-in producer profile into an embedded Kafka broker and reports
+ * throughput, ack latency and the bytes the producer sent and the broker stored:
+ * <pre>
+ * mvn -B install -DskipTests
+ * mvn -pl load-test exec:exec@producer-profiles -Dloadtest.profile-records=200000 -Dloadtest.profile-shape=LARGE
+ * </pre>
+ * The producers are built by the service's own {@link KafkaConfig}, one topic routed to each profile. Events are
+ * sent as fast as the sender's in-flight window allows, so the numbers are each profile's ceiling on one broker.
+ * {@code latency} has the Kafka producer defaults the service used before profiles existed, so it is the baseline.
+ * The events differ only in their ids, so compression ratios are better than for real traffic.
+ */
+public final class ProducerProfileBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(ProducerProfileBenchmark.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final List<String> PROFILES = List.of(
+            WebhooksProperties.ProducerProperties.LATENCY, WebhooksProperties.ProducerProperties.THROUGHPUT);
+    private static final int PARTITIONS = 6;
+    private static final int DISTINCT_PAYLOADS = 1000;
+    // Keeps the sender's in-flight window full without overrunning its queue
+    private static final int CONCURRENCY = 2 * new WebhooksProperties.SenderProperties(null, null).getMaxInFlight();
+
+    private static final String HEADER = "%-12s %10s %12s %9s %9s %14s %14s %8s".formatted(
+            "profile", "records", "records/s", "p50 ms", "p99 ms", "producer bytes", "broker bytes", "B/event");
+
+    private ProducerProfileBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int status = 0;
+        try {
+            run(Integer.getInteger("loadtest.profile-records", 200_000),
+                    EventShape.valueOf(System.getProperty("loadtest.profile-shape", "MEDIUM")),
+                    Path.of(System.getProperty("loadtest.report-dir", "target/load-test")));
+        } catch (Exception e) {
+            log.error("Producer profile benchmark failed", e);
+            status = 1;
+        }
+        // The embedded broker leaves non-daemon threads behind after shutting down
+        System.exit(status);
+    }
+
+    private static void run(int records, EventShape shape, Path reportDir) throws Exception {
+        EmbeddedKafkaKraftBroker kafka = new EmbeddedKafkaKraftBroker(1, PARTITIONS,
+                PROFILES.stream().map(ProducerProfileBenchmark::topic).toArray(String[]::new));
+        kafka.afterPropertiesSet();
+        try (KafkaProducerPool pool = new KafkaConfig().kafkaProducerPool(properties(kafka.getBrokersAsString()), new SimpleMeterRegistry());
+             Admin admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBrokersAsString()))) {
+            List<byte[]> payloads = payloads(shape);
+            List<String> lines = new ArrayList<>();
+            for (String profile : PROFILES) {
+                String topic = topic(profile);
+                ReactiveKafkaSender<byte[]> sender = pool.sender(topic, null);
+                log.warn("Sending {} {} events through the {} profile", records, shape, profile);
+                // Warmup goes to the same topic, so it is left out of the producer and broker byte counts below
+                send(sender, topic, payloads, records / 10, new ConcurrentHistogram(3));
+                double producerBytesBefore = outgoingBytes(pool.template(topic, null).metrics());
+                long brokerBytesBefore = brokerBytes(admin, topic);
+
+                Histogram latencies = new ConcurrentHistogram(3);
+                long start = System.nanoTime();
+                send(sender, topic, payloads, records, latencies);
+                double seconds = (System.nanoTime() - start) / 1e9;
+
+                double producerBytes = outgoingBytes(pool.template(topic, null).metrics()) - producerBytesBefore;
+                long brokerBytes = brokerBytes(admin, topic) - brokerBytesBefore;
+                lines.add("%-12s %10d %12.0f %9.2f %9.2f %14.0f %14d %8.1f".formatted(profile, records, records / seconds,
+                        latencies.getValueAtPercentile(50) / 1000.0, latencies.getValueAtPercentile(99) / 1000.0,
+                        producerBytes, brokerBytes, (double) brokerBytes / records));
+            }
+            report(reportDir, shape, payloads, lines);
+        } finally {
+            kafka.destroy();
+        }
+    }
+
+    private static void send(ReactiveKafkaSender<byte[]> sender, String topic, List<byte[]> payloads, int records,
+                             Histogram latencies) {
+        Flux.range(0, records)
+                .flatMap(i -> {
+                    long sentAt = System.nanoTime();
+                    return sender.send(new ProducerRecord<>(topic, "evt-" + i, payloads.get(i % payloads.size())))
+                            .doOnNext(metadata -> latencies.recordValue((System.nanoTime() - sentAt) / 1000));
+                }, CONCURRENCY)
+                .blockLast();
+    }
+
+    private static WebhooksProperties properties(String bootstrapServers) {
+        Map<String, String> routes = Map.of(
+                topic(WebhooksProperties.ProducerProperties.LATENCY), WebhooksProperties.ProducerProperties.LATENCY,
+                topic(WebhooksProperties.ProducerProperties.THROUGHPUT), WebhooksProperties.ProducerProperties.THROUGHPUT);
+        return new WebhooksProperties(null,
+                new WebhooksProperties.KafkaProperties(bootstrapServers, null, null, null, null, null, null, null, null, null,
+                        new WebhooksProperties.ProducerProperties(null, null, routes)),
+                null, null, null, null, null);
+    }
+
+    // Serialized the way the service serializes JSON payloads, with ids and a sequence that differ per event
+    private static List<byte[]> payloads(EventShape shape) throws IOException {
+        List<byte[]> payloads = new ArrayList<>(DISTINCT_PAYLOADS);
+        for (int i = 0; i < DISTINCT_PAYLOADS; i++) {
+            payloads.add(MAPPER.writeValueAsBytes(shape.payload()
+                    .put("eventId", UUID.randomUUID().toString())
+                    .put("sequence", i)));
+        }
+        return payloads;
+    }
+
+    private static double outgoingBytes(Map<MetricName, ? extends Metric> metrics) {
+        return metrics.entrySet().stream()
+                .filter(metric -> "producer-metrics".equals(metric.getKey().group())
+                        && "outgoing-byte-total".equals(metric.getKey().name()))
+                .mapToDouble(metric -> ((Number) metric.getValue().metricValue()).doubleValue())
+                .sum();
+    }
+
+    // Size of the topic's log segments on the broker, i.e. what it stores and replicates
+    private static long brokerBytes(Admin admin, String topic) throws Exception {
+        List<Integer> brokers = admin.describeCluster().nodes().get().stream().map(Node::id).toList();
+        long bytes = 0;
+        for (Map<String, LogDirDescription> logDirs : admin.describeLogDirs(brokers).allDescriptions().get().values()) {
+            for (LogDirDescription logDir : logDirs.values()) {
+                for (Map.Entry<TopicPartition, ReplicaInfo> replica : logDir.replicaInfos().entrySet()) {
+                    if (replica.getKey().topic().equals(topic)) {
+                        bytes += replica.getValue().size();
+                    }
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static String topic(String profile) {
+        return "bench." + profile;
+    }
+
+    private static void report(Path reportDir, EventShape shape, List<byte[]> payloads, List<String> lines) throws IOException {
+        Files.createDirectories(reportDir);
+        Path summary = reportDir.resolve("producer-profiles.txt");
+        double payloadBytes = payloads.stream().mapToInt(payload -> payload.length).average().orElse(0);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(summary))) {
+            for (PrintStream target : List.of(System.out, out)) {
+                target.printf("%s JSON events of %.0f bytes, acks=all, %d partitions on one broker%n",
+                        shape, payloadBytes, PARTITIONS);
+                target.println(HEADER);
+                lines.forEach(target::println);
+            }
+        }
+        System.out.println("Report written to " + summary.toAbsolutePath());
+    }
+}